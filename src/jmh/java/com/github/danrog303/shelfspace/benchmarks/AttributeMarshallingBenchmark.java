@@ -0,0 +1,96 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfQuotaException;
+import com.github.danrog303.shelfspace.data.shelf.ShelfType;
+import com.github.danrog303.shelfspace.services.database.enhanced.ShelfSpaceTableSchemas;
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the conversion between entities and DynamoDB attribute maps of both persistence layers:
+ * {@link DynamoDBMapper} (AWS SDK v1, reflection-based) and the static schemas of the enhanced client
+ * ({@link ShelfSpaceTableSchemas}). Measured on a shelf item and on a user profile with the maximum number
+ * of prefetched shelves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeMarshallingBenchmark {
+    @Param({"shelfItem", "userProfile"})
+    private String entity;
+
+    private Object item;
+    private DynamoDBMapperTableModel<Object> mapperModel;
+    private TableSchema<Object> enhancedSchema;
+    private Map<String, com.amazonaws.services.dynamodbv2.model.AttributeValue> mapperAttributes;
+    private Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> enhancedAttributes;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void createModels() {
+        // The client is never called, table models only need it to be constructed
+        DynamoDBMapper mapper = new DynamoDBMapper(AmazonDynamoDBClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("benchmark", "benchmark")))
+                .withRegion(Regions.EU_CENTRAL_1)
+                .build());
+
+        if (entity.equals("shelfItem")) {
+            item = BenchmarkEnvironment.createItem(1);
+            mapperModel = (DynamoDBMapperTableModel<Object>) (Object) mapper.getTableModel(ShelfItem.class);
+            enhancedSchema = (TableSchema<Object>) (Object) ShelfSpaceTableSchemas.SHELF_ITEM;
+        } else {
+            item = createUserProfile();
+            mapperModel = (DynamoDBMapperTableModel<Object>) (Object) mapper.getTableModel(UserProfile.class);
+            enhancedSchema = (TableSchema<Object>) (Object) ShelfSpaceTableSchemas.USER_PROFILE;
+        }
+
+        mapperAttributes = mapperModel.convert(item);
+        enhancedAttributes = enhancedSchema.itemToMap(item, true);
+    }
+
+    @Benchmark
+    public Map<String, com.amazonaws.services.dynamodbv2.model.AttributeValue> mapperMarshal() {
+        return mapperModel.convert(item);
+    }
+
+    @Benchmark
+    public Object mapperUnmarshal() {
+        return mapperModel.unconvert(mapperAttributes);
+    }
+
+    @Benchmark
+    public Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> enhancedMarshal() {
+        return enhancedSchema.itemToMap(item, true);
+    }
+
+    @Benchmark
+    public Object enhancedUnmarshal() {
+        return enhancedSchema.mapToItem(enhancedAttributes);
+    }
+
+    private static UserProfile createUserProfile() {
+        List<PrefetchedShelf> shelves = new ArrayList<>();
+        for (int i = 0; i < ShelfQuotaException.MAX_SHELVES; i++) {
+            shelves.add(new PrefetchedShelf("00000000-0000-0000-0002-" + String.format("%012d", i),
+                    "Benchmark shelf " + i, ShelfType.values()[i % ShelfType.values().length]));
+        }
+        return new UserProfile(BenchmarkEnvironment.USER_ID, "Benchmark", shelves, 1L);
+    }
+}
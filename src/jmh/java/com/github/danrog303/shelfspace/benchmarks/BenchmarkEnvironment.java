@@ -0,0 +1,142 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.github.danrog303.shelfspace.ShelfSpaceApplication;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.profile.UserProfileCache;
+import com.github.danrog303.shelfspace.data.shelf.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Configuration and data shared by the benchmarks. The application is started with dummy AWS settings
+ * and {@link BenchmarkStubs}, and the data of the benchmarked requests is served from the in-memory caches,
+ * so no request leaves the JVM.
+ */
+final class BenchmarkEnvironment {
+    static final String PROFILE = "benchmark";
+    static final String USER_ID = "00000000-0000-0000-0000-00000000be00";
+    static final String SHELF_ID = "00000000-0000-0000-0000-00000000be01";
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Sets the properties, which are normally read from the environment of the Lambda function.
+     */
+    static void configure() {
+        System.setProperty("SHELFSPACE_AWS_COGNITO_POOL_ID", "eu-central-1_benchmark");
+        System.setProperty("SHELFSPACE_AWS_ACCESS_KEY", "benchmark");
+        System.setProperty("SHELFSPACE_AWS_SECRET_KEY", "benchmark");
+        System.setProperty("SHELFSPACE_AWS_REGION", "eu-central-1");
+        System.setProperty("SHELFSPACE_AWS_COGNITO_ISSUER_URI", "http://localhost:1/benchmark");
+        System.setProperty("SHELFSPACE_AWS_COGNITO_JWK_SET_URI", "http://localhost:1/benchmark/jwks");
+        System.setProperty("SHELFSPACE_ACCOUNT_DELETION_SCHEDULER_ENABLED", "false");
+        System.setProperty("shelfspace.profile-cache.ttl-seconds", "86400");
+        System.setProperty("spring.main.banner-mode", "off");
+        System.setProperty("logging.level.root", "WARN");
+    }
+
+    /**
+     * Starts the application without the servlet stack, with {@link BenchmarkStubs}.
+     */
+    static ConfigurableApplicationContext startApplication() {
+        configure();
+        return new SpringApplicationBuilder(ShelfSpaceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles(PROFILE)
+                .run();
+    }
+
+    /**
+     * Authenticates the current thread as {@link #USER_ID}, like the security filters do for each request.
+     */
+    static void authenticate() {
+        Jwt jwt = Jwt.withTokenValue("benchmark")
+                .header("alg", "RS256")
+                .subject(USER_ID)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+        SecurityContextHolder.getContext().setAuthentication(new JwtAuthenticationToken(jwt));
+    }
+
+    /**
+     * Creates shelf {@link #SHELF_ID} of {@link #USER_ID} with the specified number of items.
+     * Titles, statuses and ratings vary between the items, like on a real shelf.
+     */
+    static Shelf createShelf(int itemCount) {
+        List<ShelfItem> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            items.add(createItem(i));
+        }
+        return new Shelf(SHELF_ID, "Benchmark shelf", USER_ID, ShelfType.BOOK, items, 1L);
+    }
+
+    /**
+     * Creates the i-th item of shelf {@link #SHELF_ID}.
+     */
+    static ShelfItem createItem(int i) {
+        ShelfItemStatus status = ShelfItemStatus.values()[i % ShelfItemStatus.values().length];
+        Integer rating = status == ShelfItemStatus.PLANNED ? null : 1 + i % 10;
+        Integer finishedCount = status == ShelfItemStatus.FINISHED ? 1 + i % 3 : null;
+        String itemId = String.format("00000000-0000-0000-0001-%012d", i);
+        return new ShelfItem(SHELF_ID, itemId, "Benchmark item number " + i, new Date(1_600_000_000_000L + i * 60_000L),
+                status, rating, finishedCount);
+    }
+
+    /**
+     * Stores the shelf in the in-memory repositories of {@link BenchmarkStubs}.
+     */
+    static void seedShelf(ApplicationContext applicationContext, Shelf shelf) {
+        Shelf metadata = new Shelf(shelf.getShelfId(), shelf.getShelfName(), shelf.getOwnerId(), shelf.getShelfType(),
+                null, shelf.getVersion());
+        applicationContext.getBean(InMemoryShelfMetadataRepository.class).save(metadata);
+        applicationContext.getBean(InMemoryShelfItemRepository.class).saveAll(shelf.getItems());
+    }
+
+    /**
+     * Puts the profile of {@link #USER_ID} with the specified number of shelves into the profile cache.
+     */
+    static UserProfile seedUserProfile(ApplicationContext applicationContext, int shelfCount) {
+        List<PrefetchedShelf> shelves = new ArrayList<>();
+        for (int i = 0; i < shelfCount; i++) {
+            shelves.add(new PrefetchedShelf("shelf-" + i, "Benchmark shelf " + i, ShelfType.BOOK));
+        }
+
+        UserProfile profile = new UserProfile(USER_ID, "Benchmark", shelves, 1L);
+        applicationContext.getBean(UserProfileCache.class).put(profile);
+        return profile;
+    }
+
+    /**
+     * Creates an authenticated API Gateway event (REST API, proxy integration).
+     */
+    static byte[] createEvent(String httpMethod, String path) {
+        String event = "{"
+                + "\"resource\":\"/{proxy+}\","
+                + "\"path\":\"" + path + "\","
+                + "\"httpMethod\":\"" + httpMethod + "\","
+                + "\"multiValueHeaders\":{"
+                + "\"Accept\":[\"application/json\"],"
+                + "\"Authorization\":[\"Bearer benchmark\"]},"
+                + "\"requestContext\":{"
+                + "\"resourcePath\":\"/{proxy+}\","
+                + "\"httpMethod\":\"" + httpMethod + "\","
+                + "\"path\":\"" + path + "\","
+                + "\"identity\":{\"sourceIp\":\"127.0.0.1\"}},"
+                + "\"isBase64Encoded\":false}";
+        return event.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Instant;
+
+/**
+ * Replaces the beans which call AWS services, so that benchmarks measure only the application itself.
+ * Repositories which are not replaced are never called by the benchmarked requests.
+ * Active only with the "benchmark" profile.
+ */
+@Configuration
+@Profile(BenchmarkEnvironment.PROFILE)
+public class BenchmarkStubs {
+    /**
+     * Accepts every access token as a token of {@link BenchmarkEnvironment#USER_ID}, without fetching the keys
+     * of the authentication server.
+     */
+    @Bean
+    @Primary
+    public JwtDecoder benchmarkJwtDecoder() {
+        return token -> Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject(BenchmarkEnvironment.USER_ID)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .build();
+    }
+
+    /**
+     * Keeps the shelf items in memory, instead of the items table.
+     */
+    @Bean
+    @Primary
+    public InMemoryShelfItemRepository benchmarkShelfItemRepository() {
+        return new InMemoryShelfItemRepository();
+    }
+
+    /**
+     * Keeps the shelf metadata in memory, instead of the shelves table.
+     */
+    @Bean
+    @Primary
+    public InMemoryShelfMetadataRepository benchmarkShelfMetadataRepository() {
+        return new InMemoryShelfMetadataRepository();
+    }
+
+    /**
+     * Writes the items and the versions of their shelves to the in-memory repositories, instead of transactions.
+     */
+    @Bean
+    @Primary
+    public InMemoryShelfTransactionRepository benchmarkShelfTransactionRepository(
+            InMemoryShelfItemRepository shelfItemRepository, InMemoryShelfMetadataRepository shelfMetadataRepository) {
+        return new InMemoryShelfTransactionRepository(shelfItemRepository, shelfMetadataRepository);
+    }
+}
@@ -0,0 +1,88 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemOrder;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemPage;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * {@link ShelfItemRepository} which keeps the items in memory, sorted by their ids like in the items table,
+ * so that benchmarks of the services measure the application without the database.
+ */
+class InMemoryShelfItemRepository implements ShelfItemRepository {
+    private final Map<String, NavigableMap<String, ShelfItem>> shelves = new ConcurrentHashMap<>();
+
+    @Override
+    public List<ShelfItem> findAllByShelfId(String shelfId) {
+        return new ArrayList<>(itemsOf(shelfId).values());
+    }
+
+    @Override
+    public Iterable<ShelfItem> iterateAllByShelfId(String shelfId) {
+        return itemsOf(shelfId).values();
+    }
+
+    @Override
+    public ShelfItemPage findPageByShelfId(String shelfId, ShelfItemOrder order, int limit, String cursor) {
+        throw new UnsupportedOperationException("Pagination is not benchmarked");
+    }
+
+    @Override
+    public Optional<ShelfItem> findById(String shelfId, String itemId) {
+        return Optional.ofNullable(itemsOf(shelfId).get(itemId));
+    }
+
+    @Override
+    public int countByShelfId(String shelfId) {
+        return itemsOf(shelfId).size();
+    }
+
+    @Override
+    public ShelfItem save(ShelfItem item) {
+        itemsOf(item.getShelfId()).put(item.getItemId(), item);
+        return item;
+    }
+
+    @Override
+    public List<ShelfItem> saveAll(List<ShelfItem> items) {
+        items.forEach(this::save);
+        return List.of();
+    }
+
+    @Override
+    public Optional<ShelfItem> update(ShelfItem item) {
+        ShelfItem existing = itemsOf(item.getShelfId()).get(item.getItemId());
+        if (existing == null) {
+            return Optional.empty();
+        }
+
+        ShelfItem updated = new ShelfItem(existing.getShelfId(), existing.getItemId(), item.getTitle(),
+                existing.getCreationDate(), item.getStatus(), item.getRating(), item.getFinishedCount());
+        itemsOf(item.getShelfId()).put(updated.getItemId(), updated);
+        return Optional.of(updated);
+    }
+
+    @Override
+    public Optional<ShelfItem> deleteById(String shelfId, String itemId) {
+        return Optional.ofNullable(itemsOf(shelfId).remove(itemId));
+    }
+
+    @Override
+    public List<ShelfItem> deleteAll(List<ShelfItem> items) {
+        items.forEach(item -> itemsOf(item.getShelfId()).remove(item.getItemId()));
+        return List.of();
+    }
+
+    @Override
+    public void deleteAllByShelfId(String shelfId) {
+        shelves.remove(shelfId);
+    }
+
+    private NavigableMap<String, ShelfItem> itemsOf(String shelfId) {
+        return shelves.computeIfAbsent(shelfId, id -> new ConcurrentSkipListMap<>());
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfMetadataRepository;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ShelfMetadataRepository} which keeps the shelves in memory, see {@link InMemoryShelfItemRepository}.
+ */
+class InMemoryShelfMetadataRepository implements ShelfMetadataRepository {
+    private final Map<String, Shelf> shelves = new ConcurrentHashMap<>();
+
+    @Override
+    public Optional<Shelf> findMetadataById(String shelfId) {
+        return Optional.ofNullable(shelves.get(shelfId));
+    }
+
+    @Override
+    public void incrementVersion(String shelfId) {
+        shelves.computeIfPresent(shelfId, (id, shelf) -> {
+            shelf.setVersion(shelf.getVersion() == null ? 1L : shelf.getVersion() + 1);
+            return shelf;
+        });
+    }
+
+    @Override
+    public void incrementVersion(String shelfId, long expectedVersion) {
+        Shelf shelf = shelves.get(shelfId);
+        if (shelf == null || shelf.getVersion() == null || shelf.getVersion() != expectedVersion) {
+            throw new OptimisticLockingException("Shelf was modified by another request");
+        }
+        shelf.setVersion(expectedVersion + 1);
+    }
+
+    /**
+     * Stores the metadata of the shelf. Items of the shelf are stored in {@link InMemoryShelfItemRepository}.
+     */
+    void save(Shelf shelf) {
+        shelves.put(shelf.getShelfId(), shelf);
+    }
+}
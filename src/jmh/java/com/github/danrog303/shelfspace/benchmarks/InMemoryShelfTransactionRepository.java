@@ -0,0 +1,77 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfTransactionRepository;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ShelfTransactionRepository} which writes the items to {@link InMemoryShelfItemRepository} and the versions
+ * of their shelves to {@link InMemoryShelfMetadataRepository}. Shelves and profiles are never written by
+ * the benchmarked requests.
+ */
+@RequiredArgsConstructor
+class InMemoryShelfTransactionRepository implements ShelfTransactionRepository {
+    private final InMemoryShelfItemRepository shelfItemRepository;
+    private final InMemoryShelfMetadataRepository shelfMetadataRepository;
+
+    @Override
+    public void createShelf(UserProfile profile, Shelf shelf) {
+        throw new UnsupportedOperationException("Shelves are not written by the benchmarks");
+    }
+
+    @Override
+    public void updateShelf(UserProfile profile, Shelf shelf) {
+        throw new UnsupportedOperationException("Shelves are not written by the benchmarks");
+    }
+
+    @Override
+    public void deleteShelf(UserProfile profile, Shelf shelf) {
+        throw new UnsupportedOperationException("Shelves are not written by the benchmarks");
+    }
+
+    @Override
+    public void createShelfItem(Shelf shelf, ShelfItem item, boolean checkVersion) {
+        incrementVersion(shelf, checkVersion);
+        shelfItemRepository.save(item);
+    }
+
+    @Override
+    public boolean updateShelfItem(Shelf shelf, ShelfItem item, boolean checkVersion) {
+        if (shelfItemRepository.findById(item.getShelfId(), item.getItemId()).isEmpty()) {
+            return false;
+        }
+        incrementVersion(shelf, checkVersion);
+        return shelfItemRepository.update(item).isPresent();
+    }
+
+    @Override
+    public List<ShelfItem> updateShelfItems(List<ShelfItem> items, Map<String, ShelfItem> readItems) {
+        return items.stream()
+                .filter(item -> shelfItemRepository.update(item).isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean deleteShelfItem(Shelf shelf, String itemId, boolean checkVersion) {
+        if (shelfItemRepository.findById(shelf.getShelfId(), itemId).isEmpty()) {
+            return false;
+        }
+        incrementVersion(shelf, checkVersion);
+        return shelfItemRepository.deleteById(shelf.getShelfId(), itemId).isPresent();
+    }
+
+    private void incrementVersion(Shelf shelf, boolean checkVersion) {
+        if (checkVersion) {
+            shelfMetadataRepository.incrementVersion(shelf.getShelfId(), shelf.getVersion());
+            shelf.setVersion(shelf.getVersion() + 1);
+        } else {
+            shelfMetadataRepository.incrementVersion(shelf.getShelfId());
+        }
+    }
+}
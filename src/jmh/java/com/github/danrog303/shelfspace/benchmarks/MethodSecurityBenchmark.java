@@ -0,0 +1,54 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of {@link org.springframework.security.access.prepost.PreAuthorize} on the service
+ * methods, by calling the same method through the Spring proxy (which evaluates the SpEL expression
+ * "@authorizationProvider.authenticatedUserId == #userId") and directly on the target bean.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MethodSecurityBenchmark {
+    private ConfigurableApplicationContext applicationContext;
+    private ShelfService securedShelfService;
+    private ShelfService shelfService;
+
+    @Setup
+    public void startApplication() {
+        applicationContext = BenchmarkEnvironment.startApplication();
+        securedShelfService = applicationContext.getBean(ShelfService.class);
+        shelfService = (ShelfService) AopProxyUtils.getSingletonTarget(securedShelfService);
+        if (shelfService == null) {
+            throw new IllegalStateException("ShelfService is not proxied");
+        }
+
+        BenchmarkEnvironment.seedShelf(applicationContext, BenchmarkEnvironment.createShelf(0));
+        BenchmarkEnvironment.authenticate();
+    }
+
+    @TearDown
+    public void stopApplication() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public Shelf getShelfMetadataSecured() {
+        return securedShelfService.getShelfMetadata(BenchmarkEnvironment.USER_ID, BenchmarkEnvironment.SHELF_ID);
+    }
+
+    @Benchmark
+    public Shelf getShelfMetadataUnsecured() {
+        return shelfService.getShelfMetadata(BenchmarkEnvironment.USER_ID, BenchmarkEnvironment.SHELF_ID);
+    }
+}
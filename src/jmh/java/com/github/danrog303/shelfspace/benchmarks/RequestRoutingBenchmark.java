@@ -0,0 +1,84 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.serverless.proxy.spring.SpringBootLambdaContainerHandler;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.github.danrog303.shelfspace.ShelfSpaceApplication;
+import com.github.danrog303.shelfspace.routing.FunctionalRequestRouter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-invocation latency and allocation (with "-prof gc") of the servlet-based routing
+ * ({@link SpringBootLambdaContainerHandler}) and the functional routing ({@link FunctionalRequestRouter}),
+ * from the raw API Gateway event to the serialized response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestRoutingBenchmark {
+    private static final byte[] GET_SHELVES = BenchmarkEnvironment.createEvent("GET", "/shelves");
+    private static final byte[] GET_USER_PROFILE =
+            BenchmarkEnvironment.createEvent("GET", "/users/" + BenchmarkEnvironment.USER_ID);
+
+    @Param({"servlet", "functional"})
+    private String routing;
+
+    private ConfigurableApplicationContext applicationContext;
+    private RequestStreamHandler handler;
+
+    @Setup
+    public void startApplication() throws Exception {
+        BenchmarkEnvironment.configure();
+        if (routing.equals("servlet")) {
+            SpringBootLambdaContainerHandler<AwsProxyRequest, AwsProxyResponse> containerHandler =
+                    SpringBootLambdaContainerHandler.getAwsProxyHandler(ShelfSpaceApplication.class,
+                            BenchmarkEnvironment.PROFILE);
+            applicationContext = (ConfigurableApplicationContext)
+                    WebApplicationContextUtils.getRequiredWebApplicationContext(containerHandler.getServletContext());
+            handler = containerHandler::proxyStream;
+        } else {
+            applicationContext = BenchmarkEnvironment.startApplication();
+            FunctionalRequestRouter router = applicationContext.getBean(FunctionalRequestRouter.class);
+            handler = (input, output, context) -> router.proxyStream(input, output);
+        }
+
+        BenchmarkEnvironment.seedUserProfile(applicationContext, 10);
+        String response = new String(invoke(GET_SHELVES), StandardCharsets.UTF_8);
+        if (!response.contains("\"statusCode\":200")) {
+            throw new IllegalStateException("Benchmarked request failed: " + response);
+        }
+    }
+
+    @TearDown
+    public void stopApplication() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public byte[] getShelves() throws IOException {
+        return invoke(GET_SHELVES);
+    }
+
+    @Benchmark
+    public byte[] getUserProfile() throws IOException {
+        return invoke(GET_USER_PROFILE);
+    }
+
+    private byte[] invoke(byte[] event) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(1024);
+        handler.handleRequest(new ByteArrayInputStream(event), output, null);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemService;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemStatus;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creation, modification and deletion of shelf items by {@link ShelfItemService} (including method
+ * security, the ownership check and {@link com.github.danrog303.shelfspace.data.shelf.ShelfItemIntegrityValidator}),
+ * on shelves of different sizes. Items are stored in {@link InMemoryShelfItemRepository}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShelfItemServiceBenchmark {
+    /**
+     * Number of items on the shelf when an item is created. The shelf holds one item less before the creation,
+     * so that the quota of 2000 items is not exceeded.
+     */
+    @Param({"10", "200", "2000"})
+    private int shelfSize;
+
+    private ConfigurableApplicationContext applicationContext;
+    private ShelfItemService shelfItemService;
+    private InMemoryShelfItemRepository shelfItemRepository;
+    private String[] itemIds;
+    private int nextItem;
+
+    @Setup
+    public void startApplication() {
+        applicationContext = BenchmarkEnvironment.startApplication();
+        shelfItemService = applicationContext.getBean(ShelfItemService.class);
+        shelfItemRepository = applicationContext.getBean(InMemoryShelfItemRepository.class);
+
+        BenchmarkEnvironment.seedShelf(applicationContext, BenchmarkEnvironment.createShelf(shelfSize - 1));
+        itemIds = shelfItemRepository.findAllByShelfId(BenchmarkEnvironment.SHELF_ID).stream()
+                .map(ShelfItem::getItemId)
+                .toArray(String[]::new);
+        BenchmarkEnvironment.authenticate();
+    }
+
+    @TearDown
+    public void stopApplication() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public ShelfItem createItem() {
+        ShelfItem item = new ShelfItem(null, null, "Created benchmark item", null, ShelfItemStatus.FINISHED, 7, 0);
+        ShelfItem created = shelfItemService.createShelfItem(BenchmarkEnvironment.USER_ID, BenchmarkEnvironment.SHELF_ID, item,
+                VersionPrecondition.NONE);
+
+        // Keeps the size of the shelf constant
+        shelfItemRepository.deleteById(BenchmarkEnvironment.SHELF_ID, created.getItemId());
+        return created;
+    }
+
+    @Benchmark
+    public ShelfItem updateItem() {
+        ShelfItem changes = new ShelfItem(null, null, "Updated benchmark item", null, ShelfItemStatus.PLANNED, 5, 2);
+        return shelfItemService.updateShelfItem(BenchmarkEnvironment.USER_ID, BenchmarkEnvironment.SHELF_ID,
+                nextItemId(), changes, VersionPrecondition.NONE);
+    }
+
+    @Benchmark
+    public ShelfItem deleteItem() {
+        ShelfItem deleted = shelfItemService.deleteShelfItem(BenchmarkEnvironment.USER_ID, BenchmarkEnvironment.SHELF_ID,
+                nextItemId(), VersionPrecondition.NONE);
+
+        // Keeps the size of the shelf constant
+        shelfItemRepository.save(deleted);
+        return deleted;
+    }
+
+    private String nextItemId() {
+        nextItem = (nextItem + 1) % itemIds.length;
+        return itemIds[nextItem];
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.danrog303.shelfspace.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfJsonWriter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the JSON serialization and deserialization of whole shelves, as done for the responses of
+ * "GET /shelves/{shelfId}" (regularly and by {@link ShelfJsonWriter}) and for the shelves read back by clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShelfJsonBenchmark {
+    @Param({"10", "200", "2000"})
+    private int shelfSize;
+
+    private ObjectMapper objectMapper;
+    private ShelfJsonWriter shelfJsonWriter;
+    private Shelf shelf;
+    private Shelf shelfMetadata;
+    private byte[] shelfJson;
+
+    @Setup
+    public void createShelf() throws IOException {
+        // Configured like the object mapper of Spring Boot
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        shelfJsonWriter = new ShelfJsonWriter(objectMapper);
+        shelf = BenchmarkEnvironment.createShelf(shelfSize);
+        // Metadata is read without the items, see ShelfService#getShelfMetadata(String, String)
+        shelfMetadata = new Shelf(shelf.getShelfId(), shelf.getShelfName(), shelf.getOwnerId(), shelf.getShelfType(),
+                null, shelf.getVersion());
+        shelfJson = objectMapper.writeValueAsBytes(shelf);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return objectMapper.writeValueAsBytes(shelf);
+    }
+
+    @Benchmark
+    public byte[] serializeIncrementally() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(shelfJson.length);
+        shelfJsonWriter.writeShelf(shelfMetadata, shelf.getItems(), output);
+        return output.toByteArray();
+    }
+
+    @Benchmark
+    public Shelf deserialize() throws IOException {
+        return objectMapper.readValue(shelfJson, Shelf.class);
+    }
+}
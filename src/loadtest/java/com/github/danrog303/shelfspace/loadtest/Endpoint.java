@@ -0,0 +1,25 @@
+package com.github.danrog303.shelfspace.loadtest;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Endpoints driven by the load test, with their share of the requests of a synthetic user. The mix is dominated
+ * by reads, like the traffic of the web client, which reloads the shelf list and the items after every change.
+ */
+@Getter
+@RequiredArgsConstructor
+enum Endpoint {
+    GET_USER_PROFILE("GET /users/{userId}", 8),
+    GET_SHELVES("GET /shelves", 22),
+    CREATE_SHELF("POST /shelves", 1),
+    DELETE_SHELF("DELETE /shelves/{shelfId}", 1),
+    GET_SHELF("GET /shelves/{shelfId}", 15),
+    GET_SHELF_ITEMS("GET /shelves/{shelfId}/items", 25),
+    CREATE_SHELF_ITEM("POST /shelves/{shelfId}/items", 14),
+    UPDATE_SHELF_ITEM("PUT /shelves/{shelfId}/items/{itemId}", 10),
+    DELETE_SHELF_ITEM("DELETE /shelves/{shelfId}/items/{itemId}", 4);
+
+    private final String route;
+    private final int weight;
+}
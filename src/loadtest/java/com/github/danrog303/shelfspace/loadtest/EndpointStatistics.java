@@ -0,0 +1,24 @@
+package com.github.danrog303.shelfspace.loadtest;
+
+import lombok.Value;
+
+/**
+ * Summary of the requests sent to a single endpoint during the measured part of the load test.
+ * Latencies are in milliseconds and include the whole HTTP exchange.
+ */
+@Value
+class EndpointStatistics {
+    String endpoint;
+    String route;
+    long requests;
+    long errors;
+    double throughput;
+    double p50;
+    double p95;
+    double p99;
+    double max;
+
+    public double getErrorRate() {
+        return requests == 0 ? 0 : (double) errors / requests;
+    }
+}
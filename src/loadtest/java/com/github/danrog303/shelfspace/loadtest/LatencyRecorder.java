@@ -0,0 +1,68 @@
+package com.github.danrog303.shelfspace.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records latencies of the requests of all synthetic users, per endpoint. Histograms keep three significant
+ * digits of every latency up to one minute, so percentiles are exact enough without storing every sample.
+ */
+class LatencyRecorder {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+
+    LatencyRecorder() {
+        for (Endpoint endpoint : Endpoint.values()) {
+            latencies.put(endpoint, new ConcurrentHistogram(MAX_LATENCY_MICROS, 3));
+            errors.put(endpoint, new LongAdder());
+        }
+    }
+
+    /**
+     * Records a single request. Requests which failed (non-2xx status or no response at all) are counted
+     * as errors, and their latency is recorded too.
+     */
+    void record(Endpoint endpoint, long latencyNanos, boolean successful) {
+        long latencyMicros = Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS);
+        latencies.get(endpoint).recordValue(latencyMicros);
+        if (!successful) {
+            errors.get(endpoint).increment();
+        }
+    }
+
+    /**
+     * Summarizes the recorded requests of the endpoints, which received at least one request.
+     * @param duration Duration of the measurement, used to calculate the throughput
+     */
+    List<EndpointStatistics> summarize(Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        List<EndpointStatistics> statistics = new ArrayList<>();
+        for (Endpoint endpoint : Endpoint.values()) {
+            Histogram histogram = latencies.get(endpoint);
+            long requests = histogram.getTotalCount();
+            if (requests == 0) {
+                continue;
+            }
+
+            statistics.add(new EndpointStatistics(endpoint.name(), endpoint.getRoute(), requests,
+                    errors.get(endpoint).sum(), requests / seconds,
+                    toMillis(histogram.getValueAtPercentile(50)), toMillis(histogram.getValueAtPercentile(95)),
+                    toMillis(histogram.getValueAtPercentile(99)), toMillis(histogram.getMaxValue())));
+        }
+        return statistics;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
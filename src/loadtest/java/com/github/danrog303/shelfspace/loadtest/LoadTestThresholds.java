@@ -0,0 +1,62 @@
+package com.github.danrog303.shelfspace.loadtest;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Limits which fail the load test when exceeded. Read from "load-test-thresholds.properties" (or from the file
+ * passed with the "loadtest.thresholds" property): "default.*" limits apply to every endpoint, and can be
+ * overridden per endpoint, e.g. "GET_SHELF.p95-ms".
+ */
+class LoadTestThresholds {
+    private static final String RESOURCE = "/load-test-thresholds.properties";
+
+    private final Properties properties;
+
+    private LoadTestThresholds(Properties properties) {
+        this.properties = properties;
+    }
+
+    static LoadTestThresholds load() throws IOException {
+        Properties properties = new Properties();
+        String path = System.getProperty("loadtest.thresholds");
+        try (InputStream input = path != null ? new FileInputStream(path)
+                : LoadTestThresholds.class.getResourceAsStream(RESOURCE)) {
+            if (input == null) {
+                throw new IOException("Missing " + RESOURCE);
+            }
+            properties.load(input);
+        }
+        return new LoadTestThresholds(properties);
+    }
+
+    /**
+     * Compares the results of the load test with the limits.
+     * @return Descriptions of the exceeded limits, empty if the results are within the limits
+     */
+    List<String> findViolations(List<EndpointStatistics> statistics, double totalThroughput) {
+        List<String> violations = new ArrayList<>();
+        for (EndpointStatistics endpoint : statistics) {
+            checkMaximum(violations, endpoint.getEndpoint(), "p95-ms", endpoint.getP95());
+            checkMaximum(violations, endpoint.getEndpoint(), "p99-ms", endpoint.getP99());
+            checkMaximum(violations, endpoint.getEndpoint(), "max-error-rate", endpoint.getErrorRate());
+        }
+
+        String minThroughput = properties.getProperty("total.min-throughput");
+        if (minThroughput != null && totalThroughput < Double.parseDouble(minThroughput)) {
+            violations.add(String.format("total throughput %.1f req/s is below %s req/s", totalThroughput, minThroughput));
+        }
+        return violations;
+    }
+
+    private void checkMaximum(List<String> violations, String endpoint, String limitName, double value) {
+        String limit = properties.getProperty(endpoint + "." + limitName, properties.getProperty("default." + limitName));
+        if (limit != null && value > Double.parseDouble(limit)) {
+            violations.add(String.format("%s: %s %.3f exceeds %s", endpoint, limitName, value, limit));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.danrog303.shelfspace.loadtest;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.CreateTableRequest;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughput;
+import com.amazonaws.services.dynamodbv2.util.TableUtils;
+import com.github.danrog303.shelfspace.data.profile.AccountDeletionTask;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import lombok.extern.slf4j.Slf4j;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.util.List;
+
+/**
+ * DynamoDB Local, which stands in for DynamoDB during load tests. Started in a Docker container, unless
+ * the endpoint of an already running instance is passed with the "loadtest.dynamodb-endpoint" property
+ * (e.g. when Docker is not available). The tables of the application are created from the entity annotations.
+ */
+@Slf4j
+class LocalDynamoDB implements AutoCloseable {
+    static final String REGION = "eu-central-1";
+    static final String ACCESS_KEY = "load-test";
+    static final String SECRET_KEY = "load-test";
+
+    private static final DockerImageName IMAGE = DockerImageName.parse("amazon/dynamodb-local:1.21.0");
+    private static final int PORT = 8000;
+    private static final List<Class<?>> ENTITIES =
+            List.of(UserProfile.class, Shelf.class, ShelfItem.class, AccountDeletionTask.class);
+
+    private final GenericContainer<?> container;
+    private final String endpoint;
+
+    private LocalDynamoDB(GenericContainer<?> container, String endpoint) {
+        this.container = container;
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Returns true, when DynamoDB Local can be started or an already running instance was configured.
+     */
+    static boolean isAvailable() {
+        return System.getProperty("loadtest.dynamodb-endpoint") != null
+                || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    static LocalDynamoDB start() {
+        String configuredEndpoint = System.getProperty("loadtest.dynamodb-endpoint");
+        LocalDynamoDB dynamoDB;
+        if (configuredEndpoint != null) {
+            dynamoDB = new LocalDynamoDB(null, configuredEndpoint);
+        } else {
+            // In-memory storage makes the results independent of the disk of the machine running the tests
+            GenericContainer<?> container = new GenericContainer<>(IMAGE)
+                    .withCommand("-jar", "DynamoDBLocal.jar", "-inMemory", "-sharedDb")
+                    .withExposedPorts(PORT);
+            container.start();
+            dynamoDB = new LocalDynamoDB(container,
+                    "http://" + container.getHost() + ":" + container.getMappedPort(PORT));
+        }
+
+        dynamoDB.createTables();
+        return dynamoDB;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public void close() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    private void createTables() {
+        AmazonDynamoDB client = AmazonDynamoDBClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(ACCESS_KEY, SECRET_KEY)))
+                .withEndpointConfiguration(new EndpointConfiguration(endpoint, REGION))
+                .build();
+        DynamoDBMapper mapper = new DynamoDBMapper(client);
+        ProvisionedThroughput throughput = new ProvisionedThroughput(1000L, 1000L);
+
+        try {
+            for (Class<?> entity : ENTITIES) {
+                CreateTableRequest request = mapper.generateCreateTableRequest(entity)
+                        .withProvisionedThroughput(throughput);
+                if (request.getLocalSecondaryIndexes() != null) {
+                    request.getLocalSecondaryIndexes()
+                            .forEach(index -> index.setProjection(new Projection().withProjectionType(ProjectionType.ALL)));
+                }
+
+                if (TableUtils.createTableIfNotExists(client, request)) {
+                    log.info("Created table {}", request.getTableName());
+                }
+                TableUtils.waitUntilActive(client, request.getTableName());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating the tables", e);
+        } finally {
+            client.shutdown();
+        }
+    }
+}
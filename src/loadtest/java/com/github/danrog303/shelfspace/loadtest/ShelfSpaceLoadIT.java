@@ -0,0 +1,167 @@
+package com.github.danrog303.shelfspace.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * <p>Drives the API with many concurrent synthetic users ({@link VirtualUser}) and fails when the latency
+ * percentiles, error rates or throughput exceed {@link LoadTestThresholds}. The application runs with the
+ * servlet stack on a random port, against DynamoDB Local ({@link LocalDynamoDB}) and a stub of Cognito
+ * ({@link StubAuthorizationServer}), so no request leaves the machine.</p>
+ * <p>The load is configured with the "loadtest.users", "loadtest.warmup-seconds", "loadtest.duration-seconds"
+ * and "loadtest.think-time-ms" properties. The results are logged and written to "target/load-test-report.json".</p>
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "shelfspace.account-deletion.scheduler-enabled=false",
+        "server.tomcat.threads.max=400"
+})
+public class ShelfSpaceLoadIT {
+    private static LocalDynamoDB dynamoDB;
+    private static StubAuthorizationServer authorizationServer;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeAll
+    static void startEnvironment() throws Exception {
+        Assumptions.assumeTrue(LocalDynamoDB.isAvailable(),
+                "Docker is not available, and no DynamoDB Local endpoint was passed with -Dloadtest.dynamodb-endpoint");
+        dynamoDB = LocalDynamoDB.start();
+        authorizationServer = new StubAuthorizationServer();
+        // The Cognito client uses the default credentials chain (the Lambda execution role in production)
+        System.setProperty("aws.accessKeyId", LocalDynamoDB.ACCESS_KEY);
+        System.setProperty("aws.secretAccessKey", LocalDynamoDB.SECRET_KEY);
+    }
+
+    @AfterAll
+    static void stopEnvironment() {
+        if (authorizationServer != null) {
+            authorizationServer.close();
+        }
+        if (dynamoDB != null) {
+            dynamoDB.close();
+        }
+    }
+
+    @DynamicPropertySource
+    static void configureEnvironment(DynamicPropertyRegistry registry) {
+        registry.add("amazon.aws.access-key", () -> LocalDynamoDB.ACCESS_KEY);
+        registry.add("amazon.aws.secret-key", () -> LocalDynamoDB.SECRET_KEY);
+        registry.add("amazon.aws.region", () -> LocalDynamoDB.REGION);
+        registry.add("amazon.aws.dynamodb.endpoint", () -> dynamoDB.getEndpoint());
+        registry.add("amazon.aws.cognito.pool-id", () -> LocalDynamoDB.REGION + "_loadtest");
+        registry.add("amazon.aws.cognito.endpoint", () -> authorizationServer.getCognitoEndpoint());
+        registry.add("spring.security.oauth2.resourceserver.jwt.issuer-uri", () -> authorizationServer.getIssuerUri());
+        registry.add("spring.security.oauth2.resourceserver.jwt.jwk-set-uri", () -> authorizationServer.getJwkSetUri());
+    }
+
+    @Test
+    void api_shouldStayWithinThresholdsUnderLoad() throws Exception {
+        int userCount = Integer.getInteger("loadtest.users", 50);
+        Duration warmup = Duration.ofSeconds(Integer.getInteger("loadtest.warmup-seconds", 15));
+        Duration duration = Duration.ofSeconds(Integer.getInteger("loadtest.duration-seconds", 60));
+        long thinkTimeMillis = Integer.getInteger("loadtest.think-time-ms", 0);
+        LoadTestThresholds thresholds = LoadTestThresholds.load();
+
+        ObjectMapper jsonMapper = new ObjectMapper();
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI baseUri = URI.create("http://localhost:" + port);
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < userCount; i++) {
+            String userId = UUID.randomUUID().toString();
+            users.add(new VirtualUser(userId, authorizationServer.issueAccessToken(userId), httpClient, baseUri,
+                    jsonMapper, i));
+        }
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        ExecutorService executor = Executors.newFixedThreadPool(userCount);
+        try {
+            log.info("Setting up {} users", userCount);
+            runForEachUser(executor, users, user -> user.setUp());
+
+            log.info("Warming up for {}, then measuring for {}", warmup, duration);
+            long warmupEnd = System.nanoTime() + warmup.toNanos();
+            long measurementEnd = warmupEnd + duration.toNanos();
+            runForEachUser(executor, users, user -> {
+                long now;
+                while ((now = System.nanoTime()) < measurementEnd) {
+                    user.sendNextRequest(now >= warmupEnd ? recorder : null);
+                    if (thinkTimeMillis > 0) {
+                        Thread.sleep(thinkTimeMillis);
+                    }
+                }
+            });
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<EndpointStatistics> statistics = recorder.summarize(duration);
+        double totalThroughput = statistics.stream().mapToDouble(EndpointStatistics::getThroughput).sum();
+        report(statistics, totalThroughput, userCount, duration, jsonMapper);
+
+        List<String> violations = thresholds.findViolations(statistics, totalThroughput);
+        assertThat(violations).as("Exceeded load test thresholds").isEmpty();
+    }
+
+    private void runForEachUser(ExecutorService executor, List<VirtualUser> users, UserTask task) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (VirtualUser user : users) {
+            tasks.add(() -> {
+                task.run(user);
+                return null;
+            });
+        }
+
+        for (Future<Void> result : executor.invokeAll(tasks)) {
+            result.get();
+        }
+    }
+
+    private void report(List<EndpointStatistics> statistics, double totalThroughput, int userCount, Duration duration,
+                        ObjectMapper jsonMapper) throws Exception {
+        StringBuilder table = new StringBuilder(String.format("%n%-42s %9s %7s %9s %9s %9s %9s %9s%n",
+                "Endpoint", "Requests", "Errors", "Req/s", "p50 ms", "p95 ms", "p99 ms", "Max ms"));
+        for (EndpointStatistics endpoint : statistics) {
+            table.append(String.format("%-42s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n", endpoint.getRoute(),
+                    endpoint.getRequests(), endpoint.getErrors(), endpoint.getThroughput(), endpoint.getP50(),
+                    endpoint.getP95(), endpoint.getP99(), endpoint.getMax()));
+        }
+        table.append(String.format("Total throughput: %.1f req/s with %d users", totalThroughput, userCount));
+        log.info("Load test results:{}", table);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", userCount);
+        report.put("durationSeconds", duration.getSeconds());
+        report.put("totalThroughput", totalThroughput);
+        report.put("endpoints", statistics);
+        File reportFile = new File(System.getProperty("loadtest.report", "target/load-test-report.json"));
+        jsonMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile, report);
+    }
+
+    @FunctionalInterface
+    private interface UserTask {
+        void run(VirtualUser user) throws Exception;
+    }
+}
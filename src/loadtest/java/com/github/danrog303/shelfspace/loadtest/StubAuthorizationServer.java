@@ -0,0 +1,136 @@
+package com.github.danrog303.shelfspace.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Stands in for Amazon Cognito during load tests: publishes the key set used to verify access tokens, issues
+ * access tokens signed with that key, and answers the "AdminGetUser" calls of
+ * {@link com.github.danrog303.shelfspace.services.authorization.cognito.AwsCognitoUserInfoProvider}.
+ */
+class StubAuthorizationServer implements AutoCloseable {
+    private static final String JWKS_PATH = "/.well-known/jwks.json";
+    private static final String COGNITO_PATH = "/cognito";
+    private static final Duration TOKEN_VALIDITY = Duration.ofHours(2);
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final RSAKey signingKey;
+    private final HttpServer server;
+
+    StubAuthorizationServer() throws IOException {
+        try {
+            signingKey = new RSAKeyGenerator(2048).keyID("load-test").generate();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not generate the signing key", e);
+        }
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext(JWKS_PATH, this::handleJwks);
+        server.createContext(COGNITO_PATH, this::handleCognito);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    String getIssuerUri() {
+        return getBaseUri() + "/issuer";
+    }
+
+    String getJwkSetUri() {
+        return getBaseUri() + JWKS_PATH;
+    }
+
+    String getCognitoEndpoint() {
+        return getBaseUri() + COGNITO_PATH;
+    }
+
+    /**
+     * Issues an access token of the specified user, like the Cognito hosted UI does after signing in.
+     */
+    String issueAccessToken(String userId) {
+        Instant now = Instant.now();
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+                .issuer(getIssuerUri())
+                .subject(userId)
+                .claim("token_use", "access")
+                .claim("username", userId)
+                .issueTime(Date.from(now))
+                .expirationTime(Date.from(now.plus(TOKEN_VALIDITY)))
+                .build();
+
+        try {
+            SignedJWT jwt = new SignedJWT(new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(signingKey.getKeyID()).build(), claims);
+            jwt.sign(new RSASSASigner(signingKey));
+            return jwt.serialize();
+        } catch (JOSEException e) {
+            throw new IllegalStateException("Could not sign the access token", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handleJwks(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, "application/json", new JWKSet(signingKey.toPublicJWK()).toString());
+    }
+
+    /**
+     * Implements "AdminGetUser" of the Cognito API (JSON 1.1 protocol). Every user exists, and their nickname
+     * is derived from their id.
+     */
+    private void handleCognito(HttpExchange exchange) throws IOException {
+        String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+        JsonNode request = jsonMapper.readTree(exchange.getRequestBody());
+        if (!"AWSCognitoIdentityProviderService.AdminGetUser".equals(target)) {
+            Map<String, String> error = Map.of("__type", "InvalidParameterException", "message", "Unsupported: " + target);
+            respond(exchange, 400, "application/x-amz-json-1.1", jsonMapper.writeValueAsString(error));
+            return;
+        }
+
+        String userId = request.get("Username").asText();
+        Map<String, Object> response = Map.of(
+                "Username", userId,
+                "Enabled", true,
+                "UserStatus", "CONFIRMED",
+                "UserAttributes", List.of(
+                        Map.of("Name", "email", "Value", userId + "@load-test.invalid"),
+                        Map.of("Name", "nickname", "Value", "user-" + userId.substring(0, 8))));
+        respond(exchange, 200, "application/x-amz-json-1.1", jsonMapper.writeValueAsString(response));
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private String getBaseUri() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+}
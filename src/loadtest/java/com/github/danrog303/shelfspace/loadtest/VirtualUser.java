@@ -0,0 +1,256 @@
+package com.github.danrog303.shelfspace.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Synthetic user of the API, who uses the API with their own access token and data, like a user of the web client.
+ * Remembers the shelves and items they created, so that requests refer to existing data. Used by a single thread.
+ */
+@Slf4j
+class VirtualUser {
+    private static final int INITIAL_SHELVES = 2;
+    private static final int INITIAL_ITEMS = 20;
+    private static final int MAX_SHELVES = 5;
+    private static final int MAX_ITEMS = 300;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] STATUSES = {"PLANNED", "IN_PROGRESS", "FINISHED", "STALLED", "DROPPED"};
+
+    private final String userId;
+    private final String accessToken;
+    private final HttpClient httpClient;
+    private final URI baseUri;
+    private final ObjectMapper jsonMapper;
+    private final Random random;
+    private final Map<String, List<String>> itemIdsByShelfId = new LinkedHashMap<>();
+    private boolean failureLogged;
+
+    VirtualUser(String userId, String accessToken, HttpClient httpClient, URI baseUri, ObjectMapper jsonMapper, long seed) {
+        this.userId = userId;
+        this.accessToken = accessToken;
+        this.httpClient = httpClient;
+        this.baseUri = baseUri;
+        this.jsonMapper = jsonMapper;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Creates the profile of the user and their initial shelves and items. Requests are not recorded.
+     * @throws IllegalStateException When any of the requests failed
+     */
+    void setUp() throws InterruptedException {
+        if (send(Endpoint.GET_USER_PROFILE, null) == null) {
+            throw new IllegalStateException("Could not create the profile of user " + userId);
+        }
+        for (int i = 0; i < INITIAL_SHELVES; i++) {
+            String shelfId = createShelf(null);
+            for (int j = 0; j < INITIAL_ITEMS && shelfId != null; j++) {
+                createShelfItem(shelfId, null);
+            }
+        }
+        if (itemIdsByShelfId.size() != INITIAL_SHELVES) {
+            throw new IllegalStateException("Could not create the shelves of user " + userId);
+        }
+    }
+
+    /**
+     * Sends the next request of the load mix (see {@link Endpoint#getWeight()}). Creations and deletions are
+     * swapped when they would exceed the limits of the user's data, so that the data stays about the same size.
+     * @param recorder Recorder of the request latency, or null during the warm-up
+     */
+    void sendNextRequest(LatencyRecorder recorder) throws InterruptedException {
+        String shelfId = randomElement(new ArrayList<>(itemIdsByShelfId.keySet()));
+        List<String> itemIds = itemIdsByShelfId.get(shelfId);
+
+        switch (adjust(selectEndpoint(), itemIds.size())) {
+            case GET_USER_PROFILE:
+                send(Endpoint.GET_USER_PROFILE, recorder);
+                break;
+            case GET_SHELVES:
+                send(Endpoint.GET_SHELVES, recorder);
+                break;
+            case CREATE_SHELF:
+                createShelf(recorder);
+                break;
+            case DELETE_SHELF:
+                if (send(Endpoint.DELETE_SHELF, recorder, shelfId) != null) {
+                    itemIdsByShelfId.remove(shelfId);
+                }
+                break;
+            case GET_SHELF:
+                send(Endpoint.GET_SHELF, recorder, shelfId);
+                break;
+            case GET_SHELF_ITEMS:
+                send(Endpoint.GET_SHELF_ITEMS, recorder, shelfId, PAGE_SIZE);
+                break;
+            case CREATE_SHELF_ITEM:
+                createShelfItem(shelfId, recorder);
+                break;
+            case UPDATE_SHELF_ITEM:
+                send(Endpoint.UPDATE_SHELF_ITEM, recorder, shelfId, randomElement(itemIds));
+                break;
+            case DELETE_SHELF_ITEM:
+                String itemId = randomElement(itemIds);
+                if (send(Endpoint.DELETE_SHELF_ITEM, recorder, shelfId, itemId) != null) {
+                    itemIds.remove(itemId);
+                }
+                break;
+        }
+    }
+
+    private Endpoint selectEndpoint() {
+        int totalWeight = Arrays.stream(Endpoint.values()).mapToInt(Endpoint::getWeight).sum();
+        int selected = random.nextInt(totalWeight);
+        for (Endpoint endpoint : Endpoint.values()) {
+            selected -= endpoint.getWeight();
+            if (selected < 0) {
+                return endpoint;
+            }
+        }
+        throw new IllegalStateException("Weights of the endpoints are inconsistent");
+    }
+
+    private Endpoint adjust(Endpoint endpoint, int itemCount) {
+        int shelfCount = itemIdsByShelfId.size();
+        if (endpoint == Endpoint.CREATE_SHELF && shelfCount >= MAX_SHELVES) {
+            return Endpoint.DELETE_SHELF;
+        } else if (endpoint == Endpoint.DELETE_SHELF && shelfCount <= INITIAL_SHELVES) {
+            return Endpoint.CREATE_SHELF;
+        } else if (endpoint == Endpoint.CREATE_SHELF_ITEM && itemCount >= MAX_ITEMS) {
+            return Endpoint.DELETE_SHELF_ITEM;
+        } else if ((endpoint == Endpoint.DELETE_SHELF_ITEM || endpoint == Endpoint.UPDATE_SHELF_ITEM) && itemCount == 0) {
+            return Endpoint.CREATE_SHELF_ITEM;
+        }
+        return endpoint;
+    }
+
+    private String createShelf(LatencyRecorder recorder) throws InterruptedException {
+        JsonNode shelf = send(Endpoint.CREATE_SHELF, recorder);
+        if (shelf == null) {
+            return null;
+        }
+
+        String shelfId = shelf.get("shelfId").asText();
+        itemIdsByShelfId.put(shelfId, new ArrayList<>());
+        return shelfId;
+    }
+
+    private void createShelfItem(String shelfId, LatencyRecorder recorder) throws InterruptedException {
+        JsonNode item = send(Endpoint.CREATE_SHELF_ITEM, recorder, shelfId);
+        if (item != null) {
+            itemIdsByShelfId.get(shelfId).add(item.get("itemId").asText());
+        }
+    }
+
+    /**
+     * Sends the request to the endpoint and records its latency. Failed requests are recorded as errors,
+     * and only the first failure of the user is logged.
+     * @param arguments Values of the path variables (except of the user id), followed by the page size for
+     *                  {@link Endpoint#GET_SHELF_ITEMS}
+     * @return Body of the response, or null if the request failed
+     */
+    private JsonNode send(Endpoint endpoint, LatencyRecorder recorder, Object... arguments) throws InterruptedException {
+        HttpRequest request = createRequest(endpoint, arguments);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            boolean successful = response.statusCode() / 100 == 2;
+            record(endpoint, recorder, start, successful);
+            if (!successful) {
+                logFailure(endpoint, response.statusCode() + " " + new String(response.body(), StandardCharsets.UTF_8));
+                return null;
+            }
+            return jsonMapper.readTree(response.body());
+        } catch (IOException e) {
+            record(endpoint, recorder, start, false);
+            logFailure(endpoint, e.toString());
+            return null;
+        }
+    }
+
+    private void record(Endpoint endpoint, LatencyRecorder recorder, long start, boolean successful) {
+        if (recorder != null) {
+            recorder.record(endpoint, System.nanoTime() - start, successful);
+        }
+    }
+
+    private void logFailure(Endpoint endpoint, String failure) {
+        if (!failureLogged) {
+            log.warn("{} of user {} failed: {}", endpoint.getRoute(), userId, failure);
+            failureLogged = true;
+        }
+    }
+
+    private HttpRequest createRequest(Endpoint endpoint, Object[] arguments) {
+        String method = endpoint.getRoute().substring(0, endpoint.getRoute().indexOf(' '));
+        String path;
+        Object body = null;
+        switch (endpoint) {
+            case GET_USER_PROFILE:
+                path = "/users/" + userId;
+                break;
+            case GET_SHELVES:
+                path = "/shelves";
+                break;
+            case CREATE_SHELF:
+                path = "/shelves";
+                body = Map.of("shelfName", "Shelf " + random.nextInt(1000), "shelfType", "BOOK");
+                break;
+            case DELETE_SHELF:
+            case GET_SHELF:
+                path = "/shelves/" + arguments[0];
+                break;
+            case GET_SHELF_ITEMS:
+                path = "/shelves/" + arguments[0] + "/items?limit=" + arguments[1];
+                break;
+            case CREATE_SHELF_ITEM:
+                path = "/shelves/" + arguments[0] + "/items";
+                body = createItemBody();
+                break;
+            case UPDATE_SHELF_ITEM:
+                path = "/shelves/" + arguments[0] + "/items/" + arguments[1];
+                body = createItemBody();
+                break;
+            default:
+                path = "/shelves/" + arguments[0] + "/items/" + arguments[1];
+                break;
+        }
+
+        HttpRequest.BodyPublisher bodyPublisher;
+        try {
+            bodyPublisher = body == null ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(jsonMapper.writeValueAsBytes(body));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the request body", e);
+        }
+        return HttpRequest.newBuilder(baseUri.resolve(path))
+                .method(method, bodyPublisher)
+                .header("Authorization", "Bearer " + accessToken)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .build();
+    }
+
+    private Map<String, Object> createItemBody() {
+        Map<String, Object> item = new HashMap<>();
+        item.put("title", "Synthetic item " + random.nextInt(100_000));
+        item.put("status", STATUSES[random.nextInt(STATUSES.length)]);
+        item.put("rating", 1 + random.nextInt(10));
+        item.put("finishedCount", 1 + random.nextInt(3));
+        return item;
+    }
+
+    private <T> T randomElement(List<T> elements) {
+        return elements.get(random.nextInt(elements.size()));
+    }
+}
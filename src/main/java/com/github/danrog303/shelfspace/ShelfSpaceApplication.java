@@ -1,6 +1,7 @@
 package com.github.danrog303.shelfspace;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.autoconfigure.metrics.data.RepositoryMetricsAutoConfiguration;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 import java.util.Arrays;
@@ -8,8 +9,10 @@ import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Main entrypoint of the ShelfSpace REST API.
+ * Metrics of Spring Data repositories are excluded, because they require a newer Spring Data version than
+ * the one supported by Derjust's DynamoDB library (DynamoDB calls are measured by the clients instead).
  */
-@SpringBootApplication
+@SpringBootApplication(exclude = RepositoryMetricsAutoConfiguration.class)
 public class ShelfSpaceApplication {
     public static void main(String[] args) {
         SpringApplication.run(ShelfSpaceApplication.class, args);
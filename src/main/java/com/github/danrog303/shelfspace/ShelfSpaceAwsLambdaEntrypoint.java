@@ -1,15 +1,22 @@
 package com.github.danrog303.shelfspace;
 
 import com.amazonaws.serverless.exceptions.ContainerInitializationException;
+import com.amazonaws.serverless.proxy.AsyncInitializationWrapper;
 import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
 import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
 import com.amazonaws.serverless.proxy.spring.SpringBootLambdaContainerHandler;
 import com.amazonaws.serverless.proxy.spring.SpringBootProxyHandlerBuilder;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.github.danrog303.shelfspace.data.profile.AccountDeletionWorker;
+import com.github.danrog303.shelfspace.services.metrics.LambdaInvocationTelemetry;
+import org.crac.Core;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 
 /**
@@ -18,8 +25,18 @@ import java.io.OutputStream;
  */
 @SuppressWarnings("unused")
 public class ShelfSpaceAwsLambdaEntrypoint implements RequestStreamHandler {
+    /**
+     * Installed before the application is started, so that its initialization is recorded.
+     */
+    private static final LambdaInvocationTelemetry telemetry = LambdaInvocationTelemetry.install();
+
     private static final SpringBootLambdaContainerHandler<AwsProxyRequest, AwsProxyResponse> handler;
 
+    /**
+     * Registered resources are only weakly referenced by CRaC, so the hooks must be kept here.
+     */
+    private static final ShelfSpaceSnapshotHooks snapshotHooks;
+
     static {
         try {
             handler = new SpringBootProxyHandlerBuilder<AwsProxyRequest>()
@@ -31,11 +48,47 @@ public class ShelfSpaceAwsLambdaEntrypoint implements RequestStreamHandler {
             e.printStackTrace();
             throw new RuntimeException("Could not initialize Spring Boot application", e);
         }
+
+        snapshotHooks = new ShelfSpaceSnapshotHooks(handler, telemetry);
+        Core.getGlobalContext().register(snapshotHooks);
     }
 
     @Override
     public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
             throws IOException {
-        handler.proxyStream(inputStream, outputStream, context);
+        long initWaitNanos;
+        try {
+            initWaitNanos = awaitInitialization();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the application to start");
+        }
+        telemetry.recordInvocation(context, initWaitNanos, () -> handler.proxyStream(inputStream, outputStream, context));
+    }
+
+    /**
+     * Handler of the scheduled account deletion function. Shares the Spring application context
+     * with the REST API handler, and processes pending account deletion tasks.
+     */
+    public void handleAccountDeletions(InputStream inputStream, OutputStream outputStream, Context context)
+            throws InterruptedException {
+        awaitInitialization();
+        WebApplicationContext applicationContext =
+                WebApplicationContextUtils.getRequiredWebApplicationContext(handler.getServletContext());
+        int deletedAccounts = applicationContext.getBean(AccountDeletionWorker.class).processPendingTasks();
+        context.getLogger().log("Deleted " + deletedAccounts + " accounts");
+    }
+
+    /**
+     * With async init, the application context may still be starting on a cold start.
+     *
+     * @return Time spent waiting for the application context
+     */
+    private static long awaitInitialization() throws InterruptedException {
+        long start = System.nanoTime();
+        if (handler.getInitializationWrapper() instanceof AsyncInitializationWrapper) {
+            ((AsyncInitializationWrapper) handler.getInitializationWrapper()).getInitializationLatch().await();
+        }
+        return System.nanoTime() - start;
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.github.danrog303.shelfspace;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.github.danrog303.shelfspace.data.profile.AccountDeletionWorker;
+import com.github.danrog303.shelfspace.routing.FunctionalRequestRouter;
+import com.github.danrog303.shelfspace.runtime.ResponseStreamingHandler;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Alternative to {@link ShelfSpaceAwsLambdaEntrypoint}, which starts the application without the servlet stack
+ * and routes API Gateway events with {@link FunctionalRequestRouter}. The routing mode is selected per deployment,
+ * with the handler of the Lambda function.
+ */
+@SuppressWarnings("unused")
+public class ShelfSpaceFunctionalLambdaEntrypoint implements RequestStreamHandler {
+    private static final ConfigurableApplicationContext applicationContext =
+            new SpringApplicationBuilder(ShelfSpaceApplication.class)
+                    .web(WebApplicationType.NONE)
+                    .run();
+
+    private static final FunctionalRequestRouter router = applicationContext.getBean(FunctionalRequestRouter.class);
+
+    @Override
+    public void handleRequest(InputStream inputStream, OutputStream outputStream, Context context)
+            throws IOException {
+        router.proxyStream(inputStream, outputStream);
+    }
+
+    /**
+     * Handler of a function URL with response streaming enabled, which sends the response while it is being
+     * produced (see {@link ResponseStreamingHandler}). Available only on the custom runtime.
+     */
+    public void handleStreamingRequest(InputStream inputStream, OutputStream outputStream, Context context)
+            throws IOException {
+        router.streamFunctionUrlEvent(inputStream, outputStream);
+    }
+
+    /**
+     * Handler of the scheduled account deletion function, see
+     * {@link ShelfSpaceAwsLambdaEntrypoint#handleAccountDeletions(InputStream, OutputStream, Context)}.
+     */
+    public void handleAccountDeletions(InputStream inputStream, OutputStream outputStream, Context context) {
+        int deletedAccounts = applicationContext.getBean(AccountDeletionWorker.class).processPendingTasks();
+        context.getLogger().log("Deleted " + deletedAccounts + " accounts");
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.danrog303.shelfspace;
+
+import com.amazonaws.serverless.proxy.AsyncInitializationWrapper;
+import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.serverless.proxy.spring.SpringBootLambdaContainerHandler;
+import com.github.danrog303.shelfspace.services.aws.ApplicationPrimer;
+import com.github.danrog303.shelfspace.services.metrics.LambdaInvocationTelemetry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.Context;
+import org.crac.Resource;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.support.WebApplicationContextUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * <p>Checkpoint/restore hooks of the Lambda function with SnapStart enabled.</p>
+ * <p>Before the snapshot is taken, a synthetic API Gateway event is sent through the whole
+ * {@link SpringBootLambdaContainerHandler} path (event parsing, servlet filters, token decoding, error handling,
+ * response writing), and {@link ApplicationPrimer} warms up the parts which the synthetic request does not
+ * reach. After the function is restored, {@link ApplicationPrimer} closes the pooled connections and refreshes
+ * the outdated state.</p>
+ * <p>The hooks also report the initialization of the application, and mark its next invocation as restored
+ * (see {@link LambdaInvocationTelemetry}).</p>
+ */
+@Slf4j
+@RequiredArgsConstructor
+class ShelfSpaceSnapshotHooks implements Resource {
+    /**
+     * Well-formed access token signed with a key which does not exist, so it is always rejected.
+     */
+    private static final String SYNTHETIC_TOKEN = base64Url("{\"alg\":\"RS256\",\"kid\":\"priming\"}") + "."
+            + base64Url("{\"sub\":\"" + ApplicationPrimer.SYNTHETIC_USER_ID + "\"}") + "."
+            + base64Url("priming");
+
+    private static final String SYNTHETIC_EVENT = "{"
+            + "\"resource\":\"/{proxy+}\","
+            + "\"path\":\"/shelves\","
+            + "\"httpMethod\":\"GET\","
+            + "\"multiValueHeaders\":{"
+            + "\"Accept\":[\"application/json\"],"
+            + "\"Authorization\":[\"Bearer " + SYNTHETIC_TOKEN + "\"]},"
+            + "\"requestContext\":{"
+            + "\"resourcePath\":\"/{proxy+}\","
+            + "\"httpMethod\":\"GET\","
+            + "\"path\":\"/shelves\","
+            + "\"identity\":{\"sourceIp\":\"127.0.0.1\"}},"
+            + "\"isBase64Encoded\":false}";
+
+    private final SpringBootLambdaContainerHandler<AwsProxyRequest, AwsProxyResponse> handler;
+    private final LambdaInvocationTelemetry telemetry;
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) throws Exception {
+        long start = System.nanoTime();
+        awaitInitialization();
+        // Restored functions are never cold started, so the initialization is only reported when publishing them
+        telemetry.reportInitialization();
+
+        getApplicationPrimer().primeBeforeCheckpoint();
+        ByteArrayOutputStream response = new ByteArrayOutputStream();
+        handler.proxyStream(new ByteArrayInputStream(SYNTHETIC_EVENT.getBytes(StandardCharsets.UTF_8)), response, null);
+
+        log.info("Primed the application before checkpoint in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        long start = System.nanoTime();
+        getApplicationPrimer().resetAfterRestore();
+        long restoreNanos = System.nanoTime() - start;
+        telemetry.markRestored(restoreNanos);
+        log.info("Reset the application after restore in {} ms", restoreNanos / 1_000_000);
+    }
+
+    private void awaitInitialization() throws InterruptedException {
+        if (handler.getInitializationWrapper() instanceof AsyncInitializationWrapper) {
+            ((AsyncInitializationWrapper) handler.getInitializationWrapper()).getInitializationLatch().await();
+        }
+    }
+
+    private ApplicationPrimer getApplicationPrimer() {
+        WebApplicationContext applicationContext =
+                WebApplicationContextUtils.getRequiredWebApplicationContext(handler.getServletContext());
+        return applicationContext.getBean(ApplicationPrimer.class);
+    }
+
+    private static String base64Url(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
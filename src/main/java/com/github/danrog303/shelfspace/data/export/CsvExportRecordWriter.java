@@ -0,0 +1,79 @@
+package com.github.danrog303.shelfspace.data.export;
+
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes the records as comma-separated values (RFC 4180), preceded by a header row. Dates are written in the
+ * ISO-8601 format, and missing values as empty fields.
+ */
+class CsvExportRecordWriter implements ExportRecordWriter {
+    static final List<String> COLUMNS = List.of("shelfId", "shelfName", "shelfType", "itemId", "title",
+            "creationDate", "status", "rating", "finishedCount");
+
+    private final Writer writer;
+
+    CsvExportRecordWriter(OutputStream output) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writeRow(COLUMNS);
+    }
+
+    @Override
+    public void writeRecord(PrefetchedShelf shelf, ShelfItem item) throws IOException {
+        if (item == null) {
+            writeRow(Arrays.asList(shelf.getShelfId(), shelf.getShelfName(), toText(shelf.getShelfType()),
+                    null, null, null, null, null, null));
+            return;
+        }
+
+        writeRow(Arrays.asList(shelf.getShelfId(), shelf.getShelfName(), toText(shelf.getShelfType()),
+                item.getItemId(), item.getTitle(),
+                item.getCreationDate() == null ? null : item.getCreationDate().toInstant().toString(),
+                toText(item.getStatus()), toText(item.getRating()), toText(item.getFinishedCount())));
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    private void writeRow(List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(values.get(i));
+        }
+        writer.write("\r\n");
+    }
+
+    /**
+     * Writes the value, quoted if it contains a separator, a quote or a line break.
+     */
+    private void writeField(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.chars().noneMatch(c -> c == ',' || c == '"' || c == '\r' || c == '\n')) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static String toText(Object value) {
+        return value == null ? null : Objects.toString(value);
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.danrog303.shelfspace.data.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Format of the records written by {@link UserDataExporter}.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    /**
+     * Newline-delimited JSON, one record per line.
+     */
+    NDJSON("ndjson", MediaType.APPLICATION_NDJSON),
+    /**
+     * Comma-separated values (RFC 4180), with a header row.
+     */
+    CSV("csv", new MediaType("text", "csv", StandardCharsets.UTF_8));
+
+    /**
+     * Value of the "format" request parameter, also used as the extension of the exported file.
+     */
+    private final String parameterValue;
+
+    private final MediaType mediaType;
+
+    /**
+     * Converts value of the "format" request parameter to the format.
+     * @throws InvalidExportRequestException When the value does not match any format
+     */
+    public static ExportFormat fromParameterValue(String parameterValue) {
+        for (ExportFormat format : values()) {
+            if (format.parameterValue.equals(parameterValue)) {
+                return format;
+            }
+        }
+        throw new InvalidExportRequestException("Unknown export format: " + parameterValue);
+    }
+}
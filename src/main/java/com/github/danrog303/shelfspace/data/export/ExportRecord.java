@@ -0,0 +1,25 @@
+package com.github.danrog303.shelfspace.data.export;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Single line of the {@link ExportFormat#NDJSON} export: the shelf, followed by the fields of one of its items.
+ */
+@Data @AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+class ExportRecord {
+    private String shelfId;
+    private String shelfName;
+    private ShelfType shelfType;
+
+    /**
+     * Item of the shelf, or null for a shelf without items.
+     */
+    @JsonUnwrapped
+    private ShelfItem item;
+}
@@ -0,0 +1,22 @@
+package com.github.danrog303.shelfspace.data.export;
+
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+
+import java.io.IOException;
+
+/**
+ * Writes the records of an export one by one, straight to the output stream.
+ */
+interface ExportRecordWriter {
+    /**
+     * Writes the record of a single item.
+     * @param item Item of the shelf, or null for a shelf without items
+     */
+    void writeRecord(PrefetchedShelf shelf, ShelfItem item) throws IOException;
+
+    /**
+     * Sends the records written so far. The output stream is not closed.
+     */
+    void flush() throws IOException;
+}
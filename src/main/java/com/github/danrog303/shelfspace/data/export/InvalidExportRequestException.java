@@ -0,0 +1,10 @@
+package com.github.danrog303.shelfspace.data.export;
+
+import lombok.experimental.StandardException;
+
+/**
+ * Thrown when an export was requested in an unknown format.
+ */
+@StandardException
+public class InvalidExportRequestException extends RuntimeException {
+}
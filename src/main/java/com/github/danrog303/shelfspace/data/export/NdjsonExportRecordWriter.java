@@ -0,0 +1,40 @@
+package com.github.danrog303.shelfspace.data.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes the records as newline-delimited JSON ({@link ExportRecord}), with the same representation of the items
+ * as the rest of the API.
+ */
+class NdjsonExportRecordWriter implements ExportRecordWriter {
+    private final JsonGenerator generator;
+    private final ObjectWriter recordWriter;
+
+    NdjsonExportRecordWriter(ObjectMapper objectMapper, OutputStream output) throws IOException {
+        this.generator = objectMapper.getFactory().createGenerator(output);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        // Records are separated by the new lines only
+        this.generator.setRootValueSeparator(null);
+        this.recordWriter = objectMapper.writerFor(ExportRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    @Override
+    public void writeRecord(PrefetchedShelf shelf, ShelfItem item) throws IOException {
+        recordWriter.writeValue(generator, new ExportRecord(shelf.getShelfId(), shelf.getShelfName(), shelf.getShelfType(), item));
+        generator.writeRaw('\n');
+    }
+
+    @Override
+    public void flush() throws IOException {
+        generator.flush();
+    }
+}
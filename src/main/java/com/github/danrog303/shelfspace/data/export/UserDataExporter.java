@@ -0,0 +1,181 @@
+package com.github.danrog303.shelfspace.data.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Writes all items of the user's shelves to the output stream, one record per item (and one record without
+ * an item for every empty shelf), in the order of the shelves and of their items.</p>
+ * <p>Up to {@code shelfspace.export.parallelism} shelves are read from the database at once, ahead of the shelf
+ * which is being written. Every shelf which is read ahead holds at most {@value #PREFETCHED_ITEMS} items, and
+ * its reading is paused until they are written, so the memory used by an export does not depend on the number
+ * of items. Every record is written as soon as its item is read, and the output is flushed after every shelf.</p>
+ * <p>Every shelf which is read ahead has its own thread, from a pool shared by all exports. A reader paused by
+ * a client which receives the export slowly holds only a thread of that export, so it never delays other exports,
+ * and an export never uses more than {@code shelfspace.export.parallelism} threads.</p>
+ */
+@Component
+public class UserDataExporter implements DisposableBean {
+    /**
+     * Maximum number of items which are read ahead of the output, for every shelf.
+     */
+    static final int PREFETCHED_ITEMS = 100;
+
+    /**
+     * Marks the end of the items of a shelf in the queue of the prefetched items.
+     */
+    private static final ShelfItem END_OF_SHELF = new ShelfItem();
+
+    private final ObjectMapper objectMapper;
+    private final ShelfItemRepository shelfItemRepository;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    public UserDataExporter(ObjectMapper objectMapper, ShelfItemRepository shelfItemRepository,
+                            @Value("${shelfspace.export.parallelism}") int parallelism) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.objectMapper = objectMapper;
+        this.shelfItemRepository = shelfItemRepository;
+        this.parallelism = parallelism;
+        // Idle threads are reused by the following exports, and terminated after a minute
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "user-export-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Writes the export of the specified shelves. The output stream is not closed.
+     * @throws RuntimeException When items of some shelf could not be read; the records written before
+     *                          have already been sent
+     */
+    public void writeExport(List<PrefetchedShelf> shelves, ExportFormat format, OutputStream output) throws IOException {
+        ExportRecordWriter writer = createWriter(format, output);
+        Iterator<PrefetchedShelf> remainingShelves = shelves.iterator();
+        Deque<ShelfPrefetch> prefetches = new ArrayDeque<>();
+        try {
+            while (prefetches.size() < parallelism && remainingShelves.hasNext()) {
+                prefetches.add(startPrefetch(remainingShelves.next()));
+            }
+            while (!prefetches.isEmpty()) {
+                // The shelf is removed only after it was written, so that it is cancelled as well when writing fails
+                writeShelf(prefetches.peek(), writer);
+                prefetches.remove();
+                writer.flush();
+                if (remainingShelves.hasNext()) {
+                    prefetches.add(startPrefetch(remainingShelves.next()));
+                }
+            }
+            writer.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export was interrupted");
+        } finally {
+            prefetches.forEach(ShelfPrefetch::cancel);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private ExportRecordWriter createWriter(ExportFormat format, OutputStream output) throws IOException {
+        switch (format) {
+            case NDJSON:
+                return new NdjsonExportRecordWriter(objectMapper, output);
+            case CSV:
+                return new CsvExportRecordWriter(output);
+            default:
+                throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+    }
+
+    private ShelfPrefetch startPrefetch(PrefetchedShelf shelf) {
+        ShelfPrefetch prefetch = new ShelfPrefetch(shelf);
+        prefetch.future = executor.submit(prefetch::readItems);
+        return prefetch;
+    }
+
+    private static void writeShelf(ShelfPrefetch prefetch, ExportRecordWriter writer)
+            throws IOException, InterruptedException {
+        boolean empty = true;
+        for (ShelfItem item = prefetch.items.take(); item != END_OF_SHELF; item = prefetch.items.take()) {
+            writer.writeRecord(prefetch.shelf, item);
+            empty = false;
+        }
+
+        if (prefetch.failure != null) {
+            throw prefetch.failure;
+        }
+        if (empty) {
+            writer.writeRecord(prefetch.shelf, null);
+        }
+    }
+
+    /**
+     * Items of a single shelf, which are read ahead of the output.
+     */
+    private class ShelfPrefetch {
+        private final PrefetchedShelf shelf;
+        private final BlockingQueue<ShelfItem> items = new ArrayBlockingQueue<>(PREFETCHED_ITEMS);
+        private volatile RuntimeException failure;
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        private ShelfPrefetch(PrefetchedShelf shelf) {
+            this.shelf = shelf;
+        }
+
+        private void readItems() {
+            try {
+                try {
+                    for (ShelfItem item : shelfItemRepository.iterateAllByShelfId(shelf.getShelfId())) {
+                        if (cancelled) {
+                            return;
+                        }
+                        items.put(item);
+                    }
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+                if (!cancelled) {
+                    items.put(END_OF_SHELF);
+                }
+            } catch (InterruptedException e) {
+                // The export was cancelled, nobody waits for the remaining items
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Stops reading the items, when the export ended before they were written. A reader blocked on the full
+         * queue is interrupted, and a reader which is waiting for the database stops before it queues the next item
+         * (the client may not preserve the interrupt).
+         */
+        private void cancel() {
+            cancelled = true;
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.danrog303.shelfspace.data.profile;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically runs {@link AccountDeletionWorker}, when the application runs as a standalone server.
+ * On AWS Lambda the worker is triggered by a scheduled event instead, so this scheduler is disabled there.
+ */
+@Component
+@EnableScheduling
+@ConditionalOnProperty(name="shelfspace.account-deletion.scheduler-enabled", havingValue="true")
+@RequiredArgsConstructor
+public class AccountDeletionScheduler {
+    private final AccountDeletionWorker accountDeletionWorker;
+
+    @Scheduled(fixedDelayString="${shelfspace.account-deletion.poll-interval-ms}")
+    public void processPendingTasks() {
+        accountDeletionWorker.processPendingTasks();
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.danrog303.shelfspace.data.profile;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+
+/**
+ * Pending request to delete the account of the user, together with all of their shelves.
+ * Tasks are processed in the background by {@link AccountDeletionWorker}.
+ */
+@DynamoDBTable(tableName="shelf-space-account-deletions")
+@Data @NoArgsConstructor @AllArgsConstructor
+public class AccountDeletionTask {
+    /**
+     * Unique id of the user whose account is being deleted.
+     */
+    @DynamoDBHashKey
+    private String userId;
+
+    /**
+     * Date when the user requested the deletion.
+     */
+    @DynamoDBAttribute
+    private Date requestDate;
+
+    /**
+     * Number of failed attempts to process this task.
+     */
+    @DynamoDBAttribute
+    private int attempts;
+
+    /**
+     * Task is not processed before this date. Pushed back after every failed attempt.
+     */
+    @DynamoDBAttribute
+    private Date nextAttemptDate;
+
+    /**
+     * Message of the error which caused the last attempt to fail.
+     */
+    @DynamoDBAttribute
+    private String lastError;
+}
@@ -0,0 +1,14 @@
+package com.github.danrog303.shelfspace.data.profile;
+
+import org.socialsignin.spring.data.dynamodb.repository.EnableScan;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Exposes CRUD operations on {@link AccountDeletionTask} DynamoDB table.
+ * Scans are enabled, because the worker has to list all pending tasks (the table stays small).
+ */
+@Repository
+@EnableScan
+public interface AccountDeletionTaskRepository extends CrudRepository<AccountDeletionTask, String> {
+}
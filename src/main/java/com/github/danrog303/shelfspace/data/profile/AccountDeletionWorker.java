@@ -0,0 +1,99 @@
+package com.github.danrog303.shelfspace.data.profile;
+
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemRepository;
+import com.github.danrog303.shelfspace.data.shelf.ShelfRepository;
+import com.github.danrog303.shelfspace.services.authorization.UserDeleteProvider;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Processes {@link AccountDeletionTask}s: deletes all shelves (together with their items) of the user,
+ * the user profile and finally the account on the authentication server. Every step is idempotent,
+ * so a task which failed in the middle is simply processed again after a delay.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountDeletionWorker {
+    private static final long MAX_RETRY_DELAY_SECONDS = 3600;
+
+    private final AccountDeletionTaskRepository accountDeletionTaskRepository;
+    private final UserProfileRepository userProfileRepository;
+    private final UserProfileCache userProfileCache;
+    private final ShelfItemRepository shelfItemRepository;
+    private final ShelfRepository shelfRepository;
+    private final UserDeleteProvider userDeleteProvider;
+
+    @Value("${shelfspace.account-deletion.base-retry-delay-seconds}")
+    private long baseRetryDelaySeconds;
+
+    /**
+     * Processes all tasks whose next attempt date has passed.
+     * @return Number of accounts that were successfully deleted
+     */
+    public int processPendingTasks() {
+        Date now = new Date();
+        int deletedAccounts = 0;
+
+        for (AccountDeletionTask task : accountDeletionTaskRepository.findAll()) {
+            if (task.getNextAttemptDate() != null && task.getNextAttemptDate().after(now)) {
+                continue;
+            }
+            if (processTask(task)) {
+                deletedAccounts++;
+            }
+        }
+
+        return deletedAccounts;
+    }
+
+    private boolean processTask(AccountDeletionTask task) {
+        try {
+            deleteAccount(task.getUserId());
+            accountDeletionTaskRepository.delete(task);
+            return true;
+        } catch (RuntimeException e) {
+            // Exponential backoff, so that a long outage of a dependency does not flood the logs
+            int attempts = task.getAttempts() + 1;
+            long delaySeconds = Math.min(baseRetryDelaySeconds << Math.min(attempts - 1, 10), MAX_RETRY_DELAY_SECONDS);
+            task.setAttempts(attempts);
+            task.setNextAttemptDate(new Date(System.currentTimeMillis() + delaySeconds * 1000));
+            task.setLastError(e.toString());
+            accountDeletionTaskRepository.save(task);
+
+            log.warn("Could not delete account of user {} (attempt {}), retrying in {} s",
+                    task.getUserId(), attempts, delaySeconds, e);
+            return false;
+        }
+    }
+
+    private void deleteAccount(String userId) {
+        Optional<UserProfile> profile = userProfileRepository.findById(userId);
+
+        // Profile is missing when the previous attempt failed after deleting it
+        if (profile.isPresent()) {
+            List<Shelf> shelfKeys = new ArrayList<>();
+            for (PrefetchedShelf shelf : profile.get().getShelves()) {
+                shelfItemRepository.deleteAllByShelfId(shelf.getShelfId());
+
+                Shelf shelfKey = new Shelf();
+                shelfKey.setShelfId(shelf.getShelfId());
+                shelfKeys.add(shelfKey);
+            }
+
+            shelfRepository.deleteAll(shelfKeys);
+            userProfileRepository.delete(profile.get());
+        }
+        userProfileCache.invalidate(userId);
+
+        userDeleteProvider.deleteUser(userId);
+    }
+}
@@ -3,6 +3,8 @@ package com.github.danrog303.shelfspace.data.profile;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBAttribute;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBHashKey;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBVersionAttribute;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -32,4 +34,11 @@ public class UserProfile {
      */
     @DynamoDBAttribute
     private List<PrefetchedShelf> shelves;
+
+    /**
+     * Version of the profile, incremented on every write. Used to reject writes based on outdated data.
+     */
+    @DynamoDBVersionAttribute
+    @JsonIgnore
+    private Long version;
 }
@@ -0,0 +1,67 @@
+package com.github.danrog303.shelfspace.data.profile;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p>In-memory cache of {@link UserProfile}s, bounded by size and by time since the profile was written.
+ * Hits, misses and evictions are reported as "cache.*" metrics with the "userProfiles" cache tag.</p>
+ * <p>The cache stores and returns copies of the profiles, so that a request which modifies the returned profile
+ * (and then fails to save it) never affects other requests. Profiles modified by other instances of the
+ * application may be served from the cache until they expire; writes based on such profiles are rejected by
+ * optimistic locking, so the writer should {@link #invalidate(String)} the profile before retrying.</p>
+ */
+@Component
+public class UserProfileCache {
+    private final Cache<String, UserProfile> cache;
+
+    public UserProfileCache(@Value("${shelfspace.profile-cache.ttl-seconds}") long ttlSeconds,
+                            @Value("${shelfspace.profile-cache.max-size}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, "userProfiles");
+    }
+
+    /**
+     * Returns copy of the cached profile of the specified user.
+     */
+    public Optional<UserProfile> get(String userId) {
+        return Optional.ofNullable(cache.getIfPresent(userId)).map(this::copyOf);
+    }
+
+    /**
+     * Caches copy of the profile, which was just read from or written to the database.
+     */
+    public void put(UserProfile profile) {
+        cache.put(profile.getUserId(), copyOf(profile));
+    }
+
+    /**
+     * Removes profile of the specified user, e.g. when it turned out to be outdated.
+     */
+    public void invalidate(String userId) {
+        cache.invalidate(userId);
+    }
+
+    private UserProfile copyOf(UserProfile profile) {
+        List<PrefetchedShelf> shelves = new ArrayList<>();
+        if (profile.getShelves() != null) {
+            for (PrefetchedShelf shelf : profile.getShelves()) {
+                shelves.add(new PrefetchedShelf(shelf.getShelfId(), shelf.getShelfName(), shelf.getShelfType()));
+            }
+        }
+        return new UserProfile(profile.getUserId(), profile.getNickname(), shelves, profile.getVersion());
+    }
+}
@@ -1,12 +1,20 @@
 package com.github.danrog303.shelfspace.data.profile;
 
+import com.github.danrog303.shelfspace.data.export.ExportFormat;
+import com.github.danrog303.shelfspace.data.export.UserDataExporter;
 import com.github.danrog303.shelfspace.data.shelf.ShelfRepository;
+import com.github.danrog303.shelfspace.services.conditional.EntityTags;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
 
@@ -22,22 +30,52 @@ public class UserProfileController {
     private final Region awsRegion;
     private final UserProfileService userProfileService;
     private final ShelfRepository repo;
+    private final UserDataExporter userDataExporter;
 
     @GetMapping("/{userId}")
-    @Operation(summary="Fetches user profile information", description="Requires to be authenticated as the specified user")
+    @Operation(summary="Fetches user profile information", description="Requires to be authenticated as the specified user. " +
+            "Returns the ETag of the profile, which may be sent back in the If-None-Match header.")
     @ApiResponses({
             @ApiResponse(responseCode="200", description="User info successfully fetched"),
+            @ApiResponse(responseCode="304", description="User info did not change since the sent ETag"),
             @ApiResponse(responseCode="401", description="Access token was not specified"),
             @ApiResponse(responseCode="403", description="Specified user id was different from the authenticated user id")
     })
-    public UserProfile getUserProfile(@PathVariable String userId) {
-        return userProfileService.getUserProfile(userId);
+    public ResponseEntity<UserProfile> getUserProfile(@PathVariable String userId,
+                                                      @RequestHeader(value=HttpHeaders.IF_NONE_MATCH, required=false) String ifNoneMatch) {
+        UserProfile profile = userProfileService.getUserProfile(userId);
+        return EntityTags.conditionalGet(ifNoneMatch, profile.getVersion(), () -> profile);
+    }
+
+    @GetMapping("/{userId}/export")
+    @Operation(summary="Exports all shelves and items of the user", description="Requires to be authenticated as the " +
+            "specified user. Writes one record per item (and one record without an item for every empty shelf), " +
+            "as newline-delimited JSON (format=ndjson) or as CSV (format=csv). Records are sent while they are read.")
+    @ApiResponses({
+            @ApiResponse(responseCode="200", description="Export is being sent"),
+            @ApiResponse(responseCode="400", description="Unknown export format was specified"),
+            @ApiResponse(responseCode="401", description="Access token was not specified"),
+            @ApiResponse(responseCode="403", description="Specified user id was different from the authenticated user id")
+    })
+    public ResponseEntity<StreamingResponseBody> exportUserData(@PathVariable String userId,
+                                                                @RequestParam(defaultValue="ndjson") String format) {
+        ExportFormat exportFormat = ExportFormat.fromParameterValue(format);
+        UserProfile profile = userProfileService.getUserProfile(userId);
+        ContentDisposition disposition = ContentDisposition.attachment()
+                .filename("shelfspace-export." + exportFormat.getParameterValue())
+                .build();
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                .body(output -> userDataExporter.writeExport(profile.getShelves(), exportFormat, output));
     }
 
     @DeleteMapping("/{userId}")
-    @Operation(summary="Deletes the user account", description="Requires to be authenticated as the specified user")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    @Operation(summary="Deletes the user account", description="Requires to be authenticated as the specified user. " +
+            "The account is deleted asynchronously, shortly after the request.")
     @ApiResponses({
-            @ApiResponse(responseCode="200", description="User was successfully deleted. Returns details of the deleted user."),
+            @ApiResponse(responseCode="202", description="User deletion was scheduled. Returns details of the user being deleted."),
             @ApiResponse(responseCode="401", description="Access token was not specified"),
             @ApiResponse(responseCode="403", description="Specified user id was different from the authenticated user id")
     })
@@ -1,14 +1,16 @@
 package com.github.danrog303.shelfspace.data.profile;
 
-import com.github.danrog303.shelfspace.data.shelf.ShelfRepository;
-import com.github.danrog303.shelfspace.services.authorization.UserDeleteProvider;
 import com.github.danrog303.shelfspace.services.authorization.UserInfo;
 import com.github.danrog303.shelfspace.services.authorization.UserInfoProvider;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingRetrier;
+import com.github.danrog303.shelfspace.services.database.RequestIdentityMap;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,43 +18,65 @@ import java.util.Optional;
  * Provides basic CRUD operations on {@link UserProfile} instances.
  */
 @Service
+@Timed("shelfspace.service.calls")
 @RequiredArgsConstructor
 public class UserProfileService {
     private final UserProfileRepository userProfileRepository;
-    private final ShelfRepository shelfRepository;
+    private final UserProfileCache userProfileCache;
+    private final RequestIdentityMap requestIdentityMap;
+    private final AccountDeletionTaskRepository accountDeletionTaskRepository;
     private final UserInfoProvider userInfoProvider;
-    private final UserDeleteProvider userDeleteProvider;
+    private final OptimisticLockingRetrier optimisticLockingRetrier;
 
     /**
-     * Retrieves {@link UserProfile} instance from the database.
-     * If there is no profile, creates new profile, saves it in the database and then returns.
+     * Retrieves {@link UserProfile} instance from the current request ({@link RequestIdentityMap}), from the cache
+     * or from the database. If there is no profile, creates new profile, saves it in the database and then returns.
+     * Within a single request, the same instance is returned to all callers.
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
     public UserProfile getUserProfile(String userId) {
-        Optional<UserProfile> profile = userProfileRepository.findById(userId);
-
-        if (profile.isPresent()) {
-            return profile.get();
-        } else {
-            UserProfile newProfile = createUserProfile(userId);
-            userProfileRepository.save(newProfile);
-            return newProfile;
-        }
+        return requestIdentityMap.find(UserProfile.class, userId, () -> Optional.of(loadUserProfile(userId))).orElseThrow();
     }
 
     /**
-     * Deletes user profile, all corresponding shelves
-     * and sends account deletion request to the authentication server.
+     * Schedules deletion of the user profile, all corresponding shelves and the account on the authentication server.
+     * The deletion itself is performed in the background by {@link AccountDeletionWorker}.
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
     public UserProfile deleteUserProfile(String userId) {
         UserProfile profile = getUserProfile(userId);
-        for (PrefetchedShelf shelf : profile.getShelves()) {
-            shelfRepository.deleteById(shelf.getShelfId());
+
+        Date now = new Date();
+        accountDeletionTaskRepository.save(new AccountDeletionTask(userId, now, 0, now, null));
+        userProfileCache.invalidate(userId);
+        requestIdentityMap.evict(UserProfile.class, userId);
+        return profile;
+    }
+
+    /**
+     * Retrieves copy of the profile from {@link UserProfileCache}, or loads (and creates, if necessary) the profile
+     * from the database.
+     */
+    private UserProfile loadUserProfile(String userId) {
+        Optional<UserProfile> cachedProfile = userProfileCache.get(userId);
+        if (cachedProfile.isPresent()) {
+            return cachedProfile.get();
         }
 
-        userProfileRepository.delete(profile);
-        userDeleteProvider.deleteUser(userId);
+        // Retried when the profile was concurrently created by another request
+        UserProfile profile = optimisticLockingRetrier.retryOnConflict("getUserProfile", () -> {
+            Optional<UserProfile> existingProfile = userProfileRepository.findById(userId);
+
+            if (existingProfile.isPresent()) {
+                return existingProfile.get();
+            } else {
+                UserProfile newProfile = createUserProfile(userId);
+                userProfileRepository.save(newProfile);
+                return newProfile;
+            }
+        });
+
+        userProfileCache.put(profile);
         return profile;
     }
 
@@ -63,6 +87,6 @@ public class UserProfileService {
     private UserProfile createUserProfile(String userId) {
         UserInfo userInfo = userInfoProvider.getUserInfo(userId);
         List<PrefetchedShelf> shelves = new ArrayList<>();
-        return new UserProfile(userInfo.getUserId(), userInfo.getNickname(), shelves);
+        return new UserProfile(userInfo.getUserId(), userInfo.getNickname(), shelves, null);
     }
 }
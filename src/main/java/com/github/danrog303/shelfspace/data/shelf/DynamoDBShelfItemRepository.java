@@ -0,0 +1,191 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBQueryExpression;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.datamodeling.QueryResultPage;
+import com.amazonaws.services.dynamodbv2.model.*;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnMapperPersistence;
+import com.github.danrog303.shelfspace.services.database.ParallelBatchWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * {@link DynamoDBMapper} implementation of {@link ShelfItemRepository}.
+ * Partial updates and deletes are sent as conditional UpdateItem/DeleteItem requests, so they need
+ * a single round trip and do not have to read the item first. Batch writes are sent in parallel chunks
+ * by {@link ParallelBatchWriter}.
+ */
+@Repository
+@ConditionalOnMapperPersistence
+@RequiredArgsConstructor
+public class DynamoDBShelfItemRepository implements ShelfItemRepository {
+    private static final String TABLE_NAME = ShelfItem.class.getAnnotation(DynamoDBTable.class).tableName();
+    private static final String ITEM_EXISTS_CONDITION = "attribute_exists(itemId)";
+
+    private final DynamoDBMapper dynamoDBMapper;
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final ParallelBatchWriter parallelBatchWriter;
+
+    @Override
+    public List<ShelfItem> findAllByShelfId(String shelfId) {
+        return new ArrayList<>(dynamoDBMapper.query(ShelfItem.class, createShelfQuery(shelfId)));
+    }
+
+    @Override
+    public Iterable<ShelfItem> iterateAllByShelfId(String shelfId) {
+        DynamoDBMapperConfig config = DynamoDBMapperConfig.builder()
+                .withPaginationLoadingStrategy(DynamoDBMapperConfig.PaginationLoadingStrategy.ITERATION_ONLY)
+                .build();
+        return dynamoDBMapper.query(ShelfItem.class, createShelfQuery(shelfId), config);
+    }
+
+    @Override
+    public ShelfItemPage findPageByShelfId(String shelfId, ShelfItemOrder order, int limit, String cursor) {
+        DynamoDBQueryExpression<ShelfItem> query = createShelfQuery(shelfId).withLimit(limit);
+        if (order == ShelfItemOrder.CREATION_DATE) {
+            query.withIndexName(ShelfItem.CREATION_DATE_INDEX);
+        }
+
+        if (cursor != null) {
+            Map<String, AttributeValue> startKey = new HashMap<>();
+            ShelfItemPageCursor.decode(cursor, order).getPosition()
+                    .forEach((attribute, value) -> startKey.put(attribute, new AttributeValue(value)));
+            startKey.put("shelfId", new AttributeValue(shelfId));
+            query.withExclusiveStartKey(startKey);
+        }
+
+        QueryResultPage<ShelfItem> page = dynamoDBMapper.queryPage(ShelfItem.class, query);
+
+        String nextCursor = null;
+        if (page.getLastEvaluatedKey() != null) {
+            Map<String, String> position = new HashMap<>();
+            for (String attribute : order.getPositionAttributes()) {
+                position.put(attribute, page.getLastEvaluatedKey().get(attribute).getS());
+            }
+            nextCursor = new ShelfItemPageCursor(order.getParameterValue(), position).encode();
+        }
+        return new ShelfItemPage(page.getResults(), nextCursor);
+    }
+
+    @Override
+    public Optional<ShelfItem> findById(String shelfId, String itemId) {
+        return Optional.ofNullable(dynamoDBMapper.load(ShelfItem.class, shelfId, itemId));
+    }
+
+    @Override
+    public int countByShelfId(String shelfId) {
+        return dynamoDBMapper.count(ShelfItem.class, createShelfQuery(shelfId));
+    }
+
+    @Override
+    public ShelfItem save(ShelfItem item) {
+        dynamoDBMapper.save(item);
+        return item;
+    }
+
+    @Override
+    public List<ShelfItem> saveAll(List<ShelfItem> items) {
+        return parallelBatchWriter.saveAll(items);
+    }
+
+    @Override
+    public Optional<ShelfItem> update(ShelfItem item) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> setActions = new ArrayList<>();
+        List<String> removeActions = new ArrayList<>();
+
+        names.put("#title", "title");
+        values.put(":title", new AttributeValue(item.getTitle()));
+        setActions.add("#title = :title");
+
+        names.put("#status", "status");
+        values.put(":status", new AttributeValue(item.getStatus().name()));
+        setActions.add("#status = :status");
+
+        addNumberAction("rating", item.getRating(), names, values, setActions, removeActions);
+        addNumberAction("finishedCount", item.getFinishedCount(), names, values, setActions, removeActions);
+
+        String updateExpression = "SET " + String.join(", ", setActions);
+        if (!removeActions.isEmpty()) {
+            updateExpression += " REMOVE " + String.join(", ", removeActions);
+        }
+
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(createKey(item.getShelfId(), item.getItemId()))
+                .withUpdateExpression(updateExpression)
+                .withConditionExpression(ITEM_EXISTS_CONDITION)
+                .withExpressionAttributeNames(names)
+                .withExpressionAttributeValues(values)
+                .withReturnValues(ReturnValue.ALL_NEW);
+
+        try {
+            UpdateItemResult result = amazonDynamoDB.updateItem(request);
+            return Optional.of(dynamoDBMapper.marshallIntoObject(ShelfItem.class, result.getAttributes()));
+        } catch (ConditionalCheckFailedException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<ShelfItem> deleteById(String shelfId, String itemId) {
+        DeleteItemRequest request = new DeleteItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(createKey(shelfId, itemId))
+                .withConditionExpression(ITEM_EXISTS_CONDITION)
+                .withReturnValues(ReturnValue.ALL_OLD);
+
+        try {
+            DeleteItemResult result = amazonDynamoDB.deleteItem(request);
+            return Optional.of(dynamoDBMapper.marshallIntoObject(ShelfItem.class, result.getAttributes()));
+        } catch (ConditionalCheckFailedException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<ShelfItem> deleteAll(List<ShelfItem> items) {
+        return parallelBatchWriter.deleteAll(items);
+    }
+
+    @Override
+    public void deleteAllByShelfId(String shelfId) {
+        // Only keys are needed to delete the items
+        DynamoDBQueryExpression<ShelfItem> query = createShelfQuery(shelfId).withProjectionExpression("shelfId, itemId");
+        List<ShelfItem> items = new ArrayList<>(dynamoDBMapper.query(ShelfItem.class, query));
+        List<ShelfItem> undeletedItems = parallelBatchWriter.deleteAll(items);
+        if (!undeletedItems.isEmpty()) {
+            throw new IllegalStateException("Could not delete " + undeletedItems.size() + " items of shelf " + shelfId);
+        }
+    }
+
+    private DynamoDBQueryExpression<ShelfItem> createShelfQuery(String shelfId) {
+        ShelfItem hashKey = new ShelfItem();
+        hashKey.setShelfId(shelfId);
+        return new DynamoDBQueryExpression<ShelfItem>().withHashKeyValues(hashKey);
+    }
+
+    private Map<String, AttributeValue> createKey(String shelfId, String itemId) {
+        return Map.of("shelfId", new AttributeValue(shelfId), "itemId", new AttributeValue(itemId));
+    }
+
+    /**
+     * Sets the numeric attribute to the specified value, or removes it from the item if the value is null.
+     */
+    private void addNumberAction(String attribute, Integer value, Map<String, String> names,
+                                 Map<String, AttributeValue> values, List<String> setActions, List<String> removeActions) {
+        names.put("#" + attribute, attribute);
+        if (value == null) {
+            removeActions.add("#" + attribute);
+        } else {
+            values.put(":" + attribute, new AttributeValue().withN(value.toString()));
+            setActions.add("#" + attribute + " = :" + attribute);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnMapperPersistence;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * DynamoDB implementation of {@link ShelfMetadataRepository}, based on GetItem with a projection expression
+ * and on a conditional UpdateItem.
+ */
+@Repository
+@ConditionalOnMapperPersistence
+@RequiredArgsConstructor
+public class DynamoDBShelfMetadataRepository implements ShelfMetadataRepository {
+    private static final String TABLE_NAME = Shelf.class.getAnnotation(DynamoDBTable.class).tableName();
+    private static final String METADATA_PROJECTION = "#shelfId, #ownerId, #shelfName, #shelfType, #version";
+    private static final Map<String, String> METADATA_ATTRIBUTE_NAMES = Map.of(
+            "#shelfId", "shelfId",
+            "#ownerId", "ownerId",
+            "#shelfName", "shelfName",
+            "#shelfType", "shelfType",
+            "#version", "version"
+    );
+    private static final String INCREMENT_VERSION_UPDATE = "ADD #version :one";
+    private static final String SHELF_EXISTS_CONDITION = "attribute_exists(#shelfId)";
+    private static final String EXPECTED_VERSION_CONDITION = "#version = :expectedVersion";
+
+    private final DynamoDBMapper dynamoDBMapper;
+    private final AmazonDynamoDB amazonDynamoDB;
+
+    @Override
+    public Optional<Shelf> findMetadataById(String shelfId) {
+        GetItemRequest request = new GetItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(Map.of("shelfId", new AttributeValue(shelfId)))
+                .withProjectionExpression(METADATA_PROJECTION)
+                .withExpressionAttributeNames(METADATA_ATTRIBUTE_NAMES);
+
+        Map<String, AttributeValue> item = amazonDynamoDB.getItem(request).getItem();
+        if (item == null) {
+            return Optional.empty();
+        }
+        return Optional.of(dynamoDBMapper.marshallIntoObject(Shelf.class, item));
+    }
+
+    @Override
+    public void incrementVersion(String shelfId) {
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(Map.of("shelfId", new AttributeValue(shelfId)))
+                .withUpdateExpression(INCREMENT_VERSION_UPDATE)
+                .withConditionExpression(SHELF_EXISTS_CONDITION)
+                .withExpressionAttributeNames(Map.of("#shelfId", "shelfId", "#version", "version"))
+                .withExpressionAttributeValues(Map.of(":one", new AttributeValue().withN("1")));
+
+        try {
+            amazonDynamoDB.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // The shelf was deleted in the meantime, so there is no version to increment
+        }
+    }
+
+    @Override
+    public void incrementVersion(String shelfId, long expectedVersion) {
+        UpdateItemRequest request = new UpdateItemRequest()
+                .withTableName(TABLE_NAME)
+                .withKey(Map.of("shelfId", new AttributeValue(shelfId)))
+                .withUpdateExpression(INCREMENT_VERSION_UPDATE)
+                .withConditionExpression(EXPECTED_VERSION_CONDITION)
+                .withExpressionAttributeNames(Map.of("#version", "version"))
+                .withExpressionAttributeValues(Map.of(
+                        ":one", new AttributeValue().withN("1"),
+                        ":expectedVersion", new AttributeValue().withN(Long.toString(expectedVersion))));
+
+        try {
+            amazonDynamoDB.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            throw new OptimisticLockingException("Shelf was modified by another request", e);
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import com.github.danrog303.shelfspace.services.database.enhanced.ShelfSpaceTableSchemas;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * DynamoDB implementation of {@link ShelfTransactionRepository}, based on the TransactWriteItems operation.
+ * AWS SDK v1 (used by {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper}) does not support
+ * transactions, so this class uses the SDK v2 client and writes attributes in the same format as the mapper does.
+ * Items are converted with {@link ShelfSpaceTableSchemas#SHELF_ITEM}, which uses the format of the mapper as well.
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class DynamoDBShelfTransactionRepository implements ShelfTransactionRepository {
+    private static final String SHELVES_TABLE_NAME = Shelf.class.getAnnotation(DynamoDBTable.class).tableName();
+    private static final String PROFILES_TABLE_NAME = UserProfile.class.getAnnotation(DynamoDBTable.class).tableName();
+    private static final String ITEMS_TABLE_NAME = ShelfItem.class.getAnnotation(DynamoDBTable.class).tableName();
+    private static final String ITEM_EXISTS_CONDITION = "attribute_exists(itemId)";
+
+    /**
+     * Maximum number of items written by a single TransactWriteItems request.
+     */
+    public static final int MAX_TRANSACTION_SIZE = 100;
+
+    private final DynamoDbClient dynamoDbClient;
+
+    @Override
+    public void createShelf(UserProfile profile, Shelf shelf) {
+        long newShelfVersion = 1L;
+        Put shelfPut = Put.builder()
+                .tableName(SHELVES_TABLE_NAME)
+                .item(toAttributes(shelf, newShelfVersion))
+                .conditionExpression("attribute_not_exists(shelfId)")
+                .build();
+
+        // Quota is checked against the list which is currently stored in the database
+        String quotaCondition = "(attribute_not_exists(shelves) OR size(shelves) < :maxShelves)";
+        Map<String, AttributeValue> quotaValues = Map.of(":maxShelves", number(ShelfQuotaException.MAX_SHELVES));
+
+        writeTransaction(profile, quotaCondition, quotaValues, TransactWriteItem.builder().put(shelfPut).build());
+        shelf.setVersion(newShelfVersion);
+    }
+
+    @Override
+    public void updateShelf(UserProfile profile, Shelf shelf) {
+        long newShelfVersion = nextVersion(shelf.getVersion());
+        Map<String, AttributeValue> values = new HashMap<>(createShelfConditionValues(shelf));
+        values.put(":shelfName", string(shelf.getShelfName()));
+        values.put(":shelfType", string(shelf.getShelfType().name()));
+        values.put(":newVersion", number(newShelfVersion));
+
+        Update shelfUpdate = Update.builder()
+                .tableName(SHELVES_TABLE_NAME)
+                .key(Map.of("shelfId", string(shelf.getShelfId())))
+                .updateExpression("SET shelfName = :shelfName, shelfType = :shelfType, version = :newVersion")
+                .conditionExpression(createShelfCondition(shelf))
+                .expressionAttributeValues(values)
+                .build();
+
+        writeTransaction(profile, null, Map.of(), TransactWriteItem.builder().update(shelfUpdate).build());
+        shelf.setVersion(newShelfVersion);
+    }
+
+    @Override
+    public void deleteShelf(UserProfile profile, Shelf shelf) {
+        Delete shelfDelete = Delete.builder()
+                .tableName(SHELVES_TABLE_NAME)
+                .key(Map.of("shelfId", string(shelf.getShelfId())))
+                .conditionExpression(createShelfCondition(shelf))
+                .expressionAttributeValues(createShelfConditionValues(shelf))
+                .build();
+
+        writeTransaction(profile, null, Map.of(), TransactWriteItem.builder().delete(shelfDelete).build());
+    }
+
+    @Override
+    public void createShelfItem(Shelf shelf, ShelfItem item, boolean checkVersion) {
+        Put itemPut = Put.builder()
+                .tableName(ITEMS_TABLE_NAME)
+                .item(ShelfSpaceTableSchemas.SHELF_ITEM.itemToMap(item, true))
+                .conditionExpression("attribute_not_exists(itemId)")
+                .build();
+
+        writeItemTransaction(shelf, TransactWriteItem.builder().put(itemPut).build(), checkVersion);
+    }
+
+    @Override
+    public boolean updateShelfItem(Shelf shelf, ShelfItem item, boolean checkVersion) {
+        Update itemUpdate = createItemUpdate(item, null);
+        return writeItemTransaction(shelf, TransactWriteItem.builder().update(itemUpdate).build(), checkVersion);
+    }
+
+    @Override
+    public boolean deleteShelfItem(Shelf shelf, String itemId, boolean checkVersion) {
+        Delete itemDelete = Delete.builder()
+                .tableName(ITEMS_TABLE_NAME)
+                .key(createItemKey(shelf.getShelfId(), itemId))
+                .conditionExpression(ITEM_EXISTS_CONDITION)
+                .build();
+
+        return writeItemTransaction(shelf, TransactWriteItem.builder().delete(itemDelete).build(), checkVersion);
+    }
+
+    @Override
+    public List<ShelfItem> updateShelfItems(List<ShelfItem> items, Map<String, ShelfItem> readItems) {
+        List<ShelfItem> unwrittenItems = new ArrayList<>();
+        for (int i = 0; i < items.size(); i += MAX_TRANSACTION_SIZE) {
+            List<ShelfItem> pendingItems = items.subList(i, Math.min(i + MAX_TRANSACTION_SIZE, items.size()));
+            while (!pendingItems.isEmpty()) {
+                List<TransactWriteItem> writes = pendingItems.stream()
+                        .map(item -> TransactWriteItem.builder()
+                                .update(createItemUpdate(item, readItems.get(item.getItemId())))
+                                .build())
+                        .collect(Collectors.toList());
+
+                try {
+                    dynamoDbClient.transactWriteItems(TransactWriteItemsRequest.builder().transactItems(writes).build());
+                    break;
+                } catch (TransactionCanceledException e) {
+                    // Items which did not cause the cancellation are written again without the failed ones
+                    List<ShelfItem> retriedItems = new ArrayList<>();
+                    for (int j = 0; j < pendingItems.size(); j++) {
+                        String reason = cancellationReason(e, j);
+                        if ("None".equals(reason)) {
+                            retriedItems.add(pendingItems.get(j));
+                        } else {
+                            unwrittenItems.add(pendingItems.get(j));
+                        }
+                    }
+                    if (retriedItems.size() == pendingItems.size()) {
+                        log.warn("Could not update a batch of {} items", pendingItems.size(), e);
+                        unwrittenItems.addAll(pendingItems);
+                        break;
+                    }
+                    pendingItems = retriedItems;
+                } catch (DynamoDbException e) {
+                    log.warn("Could not update a batch of {} items", pendingItems.size(), e);
+                    unwrittenItems.addAll(pendingItems);
+                    break;
+                }
+            }
+        }
+        return unwrittenItems;
+    }
+
+    /**
+     * Creates the update of the mutable attributes of the item, which is written only if the item exists.
+     * @param readItem Item as it was read before the update, whose mutable attributes must still be unchanged,
+     * or null if the item may have been modified since it was read
+     */
+    private Update createItemUpdate(ShelfItem item, ShelfItem readItem) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> setActions = new ArrayList<>();
+        List<String> removeActions = new ArrayList<>();
+
+        names.put("#title", "title");
+        values.put(":title", string(item.getTitle()));
+        setActions.add("#title = :title");
+
+        names.put("#status", "status");
+        values.put(":status", string(item.getStatus().name()));
+        setActions.add("#status = :status");
+
+        addNumberAction("rating", item.getRating(), names, values, setActions, removeActions);
+        addNumberAction("finishedCount", item.getFinishedCount(), names, values, setActions, removeActions);
+
+        String updateExpression = "SET " + String.join(", ", setActions);
+        if (!removeActions.isEmpty()) {
+            updateExpression += " REMOVE " + String.join(", ", removeActions);
+        }
+
+        List<String> conditions = new ArrayList<>(List.of(ITEM_EXISTS_CONDITION));
+        if (readItem != null) {
+            addUnchangedCondition("title", string(readItem.getTitle()), values, conditions);
+            addUnchangedCondition("status", string(readItem.getStatus().name()), values, conditions);
+            addUnchangedCondition("rating", readItem.getRating() == null ? null : number(readItem.getRating()),
+                    values, conditions);
+            addUnchangedCondition("finishedCount",
+                    readItem.getFinishedCount() == null ? null : number(readItem.getFinishedCount()), values, conditions);
+        }
+
+        return Update.builder()
+                .tableName(ITEMS_TABLE_NAME)
+                .key(createItemKey(item.getShelfId(), item.getItemId()))
+                .updateExpression(updateExpression)
+                .conditionExpression(String.join(" AND ", conditions))
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build();
+    }
+
+    /**
+     * Requires the attribute to still have the value which was read, or to be still missing if the value is null.
+     * The name of the attribute must already be defined by the update.
+     */
+    private void addUnchangedCondition(String attribute, AttributeValue readValue, Map<String, AttributeValue> values,
+                                       List<String> conditions) {
+        if (readValue == null) {
+            conditions.add("attribute_not_exists(#" + attribute + ")");
+        } else {
+            values.put(":read" + attribute, readValue);
+            conditions.add("#" + attribute + " = :read" + attribute);
+        }
+    }
+
+    /**
+     * Writes the item together with the incremented version of its shelf. The shelf is written only if its owner
+     * did not change (and its version, if checked), and the item only if its own condition is met.
+     * @return False if the condition of the item was not met
+     */
+    private boolean writeItemTransaction(Shelf shelf, TransactWriteItem itemWrite, boolean checkVersion) {
+        long newShelfVersion = nextVersion(shelf.getVersion());
+        Update shelfUpdate;
+        if (checkVersion) {
+            Map<String, AttributeValue> values = new HashMap<>(createShelfConditionValues(shelf));
+            values.put(":newVersion", number(newShelfVersion));
+            shelfUpdate = Update.builder()
+                    .tableName(SHELVES_TABLE_NAME)
+                    .key(Map.of("shelfId", string(shelf.getShelfId())))
+                    .updateExpression("SET version = :newVersion")
+                    .conditionExpression(createShelfCondition(shelf))
+                    .expressionAttributeValues(values)
+                    .build();
+        } else {
+            shelfUpdate = Update.builder()
+                    .tableName(SHELVES_TABLE_NAME)
+                    .key(Map.of("shelfId", string(shelf.getShelfId())))
+                    .updateExpression("ADD version :one")
+                    .conditionExpression("ownerId = :ownerId")
+                    .expressionAttributeValues(Map.of(":ownerId", string(shelf.getOwnerId()), ":one", number(1)))
+                    .build();
+        }
+
+        TransactWriteItemsRequest request = TransactWriteItemsRequest.builder()
+                .transactItems(itemWrite, TransactWriteItem.builder().update(shelfUpdate).build())
+                .build();
+
+        try {
+            dynamoDbClient.transactWriteItems(request);
+        } catch (TransactionCanceledException e) {
+            String itemReason = cancellationReason(e, 0);
+            String shelfReason = cancellationReason(e, 1);
+            if ("ConditionalCheckFailed".equals(shelfReason) || "TransactionConflict".equals(shelfReason)
+                    || "TransactionConflict".equals(itemReason)) {
+                throw new OptimisticLockingException("Shelf was modified by another request", e);
+            }
+            if ("ConditionalCheckFailed".equals(itemReason)) {
+                return false;
+            }
+            throw e;
+        }
+        if (checkVersion) {
+            shelf.setVersion(newShelfVersion);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the code of the reason why the specified write of the transaction was cancelled, or null if
+     * the reason is not known.
+     */
+    private static String cancellationReason(TransactionCanceledException e, int index) {
+        if (!e.hasCancellationReasons() || e.cancellationReasons().size() <= index) {
+            return null;
+        }
+        return e.cancellationReasons().get(index).code();
+    }
+
+    /**
+     * Writes the profile together with the specified shelf operation. The profile is written only if its version
+     * did not change and the additional condition (if any) is met.
+     */
+    private void writeTransaction(UserProfile profile, String additionalProfileCondition,
+                                  Map<String, AttributeValue> additionalProfileValues, TransactWriteItem shelfWrite) {
+        long newProfileVersion = nextVersion(profile.getVersion());
+        Map<String, AttributeValue> profileValues = new HashMap<>(additionalProfileValues);
+        String profileCondition;
+        if (profile.getVersion() == null) {
+            profileCondition = "attribute_not_exists(version)";
+        } else {
+            profileCondition = "version = :expectedVersion";
+            profileValues.put(":expectedVersion", number(profile.getVersion()));
+        }
+        if (additionalProfileCondition != null) {
+            profileCondition += " AND " + additionalProfileCondition;
+        }
+
+        Put profilePut = Put.builder()
+                .tableName(PROFILES_TABLE_NAME)
+                .item(toAttributes(profile, newProfileVersion))
+                .conditionExpression(profileCondition)
+                .expressionAttributeValues(profileValues.isEmpty() ? null : profileValues)
+                .build();
+
+        TransactWriteItemsRequest request = TransactWriteItemsRequest.builder()
+                .transactItems(TransactWriteItem.builder().put(profilePut).build(), shelfWrite)
+                .build();
+
+        try {
+            dynamoDbClient.transactWriteItems(request);
+        } catch (TransactionCanceledException e) {
+            boolean conflict = e.cancellationReasons().stream()
+                    .anyMatch(reason -> "ConditionalCheckFailed".equals(reason.code())
+                            || "TransactionConflict".equals(reason.code()));
+            if (conflict) {
+                throw new OptimisticLockingException("Shelf or user profile was modified by another request", e);
+            }
+            throw e;
+        }
+        profile.setVersion(newProfileVersion);
+    }
+
+    /**
+     * Shelf can be modified only by its owner, and only if it was not modified since it had been read.
+     */
+    private String createShelfCondition(Shelf shelf) {
+        String versionCondition = shelf.getVersion() == null ? "attribute_not_exists(version)" : "version = :expectedVersion";
+        return "ownerId = :ownerId AND " + versionCondition;
+    }
+
+    private Map<String, AttributeValue> createShelfConditionValues(Shelf shelf) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":ownerId", string(shelf.getOwnerId()));
+        if (shelf.getVersion() != null) {
+            values.put(":expectedVersion", number(shelf.getVersion()));
+        }
+        return values;
+    }
+
+    private Map<String, AttributeValue> toAttributes(Shelf shelf, long version) {
+        Map<String, AttributeValue> attributes = new HashMap<>();
+        attributes.put("shelfId", string(shelf.getShelfId()));
+        attributes.put("shelfName", string(shelf.getShelfName()));
+        attributes.put("ownerId", string(shelf.getOwnerId()));
+        attributes.put("shelfType", string(shelf.getShelfType().name()));
+        attributes.put("version", number(version));
+        return attributes;
+    }
+
+    private Map<String, AttributeValue> toAttributes(UserProfile profile, long version) {
+        Map<String, AttributeValue> attributes = new HashMap<>();
+        attributes.put("userId", string(profile.getUserId()));
+        if (profile.getNickname() != null) {
+            attributes.put("nickname", string(profile.getNickname()));
+        }
+        List<AttributeValue> shelves = profile.getShelves().stream()
+                .map(this::toAttribute)
+                .collect(Collectors.toList());
+        attributes.put("shelves", AttributeValue.builder().l(shelves).build());
+        attributes.put("version", number(version));
+        return attributes;
+    }
+
+    private AttributeValue toAttribute(PrefetchedShelf shelf) {
+        Map<String, AttributeValue> attributes = new HashMap<>();
+        attributes.put("shelfId", string(shelf.getShelfId()));
+        attributes.put("shelfName", string(shelf.getShelfName()));
+        attributes.put("shelfType", string(shelf.getShelfType().name()));
+        return AttributeValue.builder().m(attributes).build();
+    }
+
+    private Map<String, AttributeValue> createItemKey(String shelfId, String itemId) {
+        return Map.of("shelfId", string(shelfId), "itemId", string(itemId));
+    }
+
+    /**
+     * Sets the numeric attribute to the specified value, or removes it from the item if the value is null.
+     */
+    private void addNumberAction(String attribute, Integer value, Map<String, String> names,
+                                 Map<String, AttributeValue> values, List<String> setActions, List<String> removeActions) {
+        names.put("#" + attribute, attribute);
+        if (value == null) {
+            removeActions.add("#" + attribute);
+        } else {
+            values.put(":" + attribute, number(value));
+            setActions.add("#" + attribute + " = :" + attribute);
+        }
+    }
+
+    private long nextVersion(Long version) {
+        return version == null ? 1L : version + 1;
+    }
+
+    private AttributeValue string(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private AttributeValue number(long value) {
+        return AttributeValue.builder().n(Long.toString(value)).build();
+    }
+}
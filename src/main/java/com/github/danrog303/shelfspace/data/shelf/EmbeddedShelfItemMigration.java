@@ -0,0 +1,96 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.UpdateItemRequest;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnMapperPersistence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Moves {@link ShelfItem}s, which were previously embedded in the "items" attribute of the {@link Shelf}
+ * table, to the separate {@link ShelfItemRepository} table.</p>
+ * <p>Migration runs on application startup, only when "shelfspace.items.migrate-embedded" property is set to true.
+ * Embedded list is removed from the shelf only after all of its items were copied, so an interrupted migration
+ * can be safely started again.</p>
+ */
+@Slf4j
+@Component
+@ConditionalOnMapperPersistence
+@RequiredArgsConstructor
+@ConditionalOnProperty(name="shelfspace.items.migrate-embedded", havingValue="true")
+public class EmbeddedShelfItemMigration implements ApplicationRunner {
+    private static final Map<String, String> ITEMS_ATTRIBUTE_NAME = Map.of("#items", "items");
+
+    private final AmazonDynamoDB amazonDynamoDB;
+    private final DynamoDBMapper dynamoDBMapper;
+    private final ShelfItemRepository shelfItemRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        String shelvesTableName = Shelf.class.getAnnotation(DynamoDBTable.class).tableName();
+        int migratedShelves = 0;
+        int migratedItems = 0;
+
+        Map<String, AttributeValue> lastEvaluatedKey = null;
+        do {
+            ScanRequest scanRequest = new ScanRequest(shelvesTableName)
+                    .withProjectionExpression("shelfId, #items")
+                    .withFilterExpression("attribute_exists(#items)")
+                    .withExpressionAttributeNames(ITEMS_ATTRIBUTE_NAME)
+                    .withExclusiveStartKey(lastEvaluatedKey);
+            ScanResult scanResult = amazonDynamoDB.scan(scanRequest);
+
+            for (Map<String, AttributeValue> shelf : scanResult.getItems()) {
+                migratedItems += migrateShelf(shelvesTableName, shelf);
+                migratedShelves++;
+            }
+            lastEvaluatedKey = scanResult.getLastEvaluatedKey();
+        } while (lastEvaluatedKey != null && !lastEvaluatedKey.isEmpty());
+
+        log.info("Migrated {} embedded shelf items from {} shelves", migratedItems, migratedShelves);
+    }
+
+    /**
+     * Copies embedded items of a single shelf to the items table and removes them from the shelf.
+     * @return Number of migrated items
+     */
+    private int migrateShelf(String shelvesTableName, Map<String, AttributeValue> shelf) {
+        String shelfId = shelf.get("shelfId").getS();
+        List<AttributeValue> embeddedItems = shelf.get("items").getL();
+
+        List<ShelfItem> items = new ArrayList<>();
+        if (embeddedItems != null) {
+            for (AttributeValue embeddedItem : embeddedItems) {
+                ShelfItem item = dynamoDBMapper.marshallIntoObject(ShelfItem.class, embeddedItem.getM());
+                item.setShelfId(shelfId);
+                items.add(item);
+            }
+        }
+        // Embedded items are removed only after all of them were copied, so a failed shelf is migrated again
+        List<ShelfItem> unsavedItems = shelfItemRepository.saveAll(items);
+        if (!unsavedItems.isEmpty()) {
+            throw new IllegalStateException("Could not migrate " + unsavedItems.size() + " items of shelf " + shelfId);
+        }
+
+        UpdateItemRequest removeEmbeddedItems = new UpdateItemRequest()
+                .withTableName(shelvesTableName)
+                .withKey(Map.of("shelfId", new AttributeValue(shelfId)))
+                .withUpdateExpression("REMOVE #items")
+                .withExpressionAttributeNames(ITEMS_ATTRIBUTE_NAME);
+        amazonDynamoDB.updateItem(removeEmbeddedItems);
+        return items.size();
+    }
+}
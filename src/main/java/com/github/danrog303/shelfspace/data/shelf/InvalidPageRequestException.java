@@ -0,0 +1,10 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import lombok.experimental.StandardException;
+
+/**
+ * Thrown when a page of items was requested with a malformed cursor or with an unknown order.
+ */
+@StandardException
+public class InvalidPageRequestException extends RuntimeException {
+}
@@ -1,6 +1,7 @@
 package com.github.danrog303.shelfspace.data.shelf;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -45,8 +46,17 @@ public class Shelf {
     private ShelfType shelfType;
 
     /**
-     * List of items that are placed on this shelf
+     * List of items that are placed on this shelf.
+     * Items are stored in their own table (see {@link ShelfItemRepository}), so this field is not persisted
+     * together with the shelf.
      */
-    @DynamoDBAttribute
+    @DynamoDBIgnore
     private List<ShelfItem> items;
+
+    /**
+     * Version of the shelf, incremented on every write. Used to reject writes based on outdated data.
+     */
+    @DynamoDBVersionAttribute
+    @JsonIgnore
+    private Long version;
 }
@@ -1,14 +1,19 @@
 package com.github.danrog303.shelfspace.data.shelf;
 
 import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
 import com.github.danrog303.shelfspace.data.profile.UserProfileService;
 import com.github.danrog303.shelfspace.services.authorization.AuthorizationProvider;
+import com.github.danrog303.shelfspace.services.conditional.EntityTags;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
@@ -27,14 +32,18 @@ public class ShelfController {
     private final ShelfService shelfService;
 
     @GetMapping
-    @Operation(summary="Fetches user's shelves", description="Requires to be authenticated")
+    @Operation(summary="Fetches user's shelves", description="Requires to be authenticated. " +
+            "Returns the ETag of the user profile, which may be sent back in the If-None-Match header.")
     @ApiResponses({
             @ApiResponse(responseCode="200", description="Shelf data successfully fetched"),
+            @ApiResponse(responseCode="304", description="Shelves did not change since the sent ETag"),
             @ApiResponse(responseCode="401", description="JWT access token was not specified"),
     })
-    public List<PrefetchedShelf> getUserPrefetchedShelves() {
+    public ResponseEntity<List<PrefetchedShelf>> getUserPrefetchedShelves(
+            @RequestHeader(value=HttpHeaders.IF_NONE_MATCH, required=false) String ifNoneMatch) {
         String currentUserId = authorizationProvider.getAuthenticatedUserId();
-        return userProfileService.getUserProfile(currentUserId).getShelves();
+        UserProfile profile = userProfileService.getUserProfile(currentUserId);
+        return EntityTags.conditionalGet(ifNoneMatch, profile.getVersion(), profile::getShelves);
     }
 
     @PostMapping
@@ -52,39 +61,52 @@ public class ShelfController {
     }
 
     @DeleteMapping("/{shelfId}")
-    @Operation(summary="Deletes the specified shelf from the user's shelves collection", description="Requires to be authenticated with JWT access token")
+    @Operation(summary="Deletes the specified shelf from the user's shelves collection", description="Requires to be authenticated with JWT access token. " +
+            "When the If-Match header is sent, the shelf is deleted only if its ETag matches.")
     @ApiResponses({
             @ApiResponse(responseCode="200", description="Shelf successfully deleted"),
             @ApiResponse(responseCode="401", description="Access token was not specified"),
             @ApiResponse(responseCode="404", description="Shelf was not found in the authenticated user shelves collection"),
+            @ApiResponse(responseCode="412", description="Shelf was modified since the sent ETag"),
     })
-    public PrefetchedShelf deleteShelf(@PathVariable String shelfId) {
+    public PrefetchedShelf deleteShelf(@PathVariable String shelfId,
+                                       @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
         String currentUserId = authorizationProvider.getAuthenticatedUserId();
-        return shelfService.deleteShelf(currentUserId, shelfId);
+        return shelfService.deleteShelf(currentUserId, shelfId, VersionPrecondition.ifMatch(ifMatch));
     }
 
     @GetMapping("/{shelfId}")
-    @Operation(summary="Fetches shelf information and all of the shelf's items", description="Requires to be authenticated with JWT access token")
+    @Operation(summary="Fetches shelf information and all of the shelf's items", description="Requires to be authenticated with JWT access token. " +
+            "Returns the ETag of the shelf, which may be sent back in the If-None-Match header.")
     @ApiResponses({
             @ApiResponse(responseCode="200", description="Shelf data successfully fetched"),
+            @ApiResponse(responseCode="304", description="Shelf and its items did not change since the sent ETag"),
             @ApiResponse(responseCode="401", description="Access token was not specified"),
             @ApiResponse(responseCode="404", description="Shelf was not found in the authenticated user shelves collection"),
     })
-    public Shelf getShelf(@PathVariable String shelfId) {
+    public ResponseEntity<Shelf> getShelf(@PathVariable String shelfId,
+                                          @RequestHeader(value=HttpHeaders.IF_NONE_MATCH, required=false) String ifNoneMatch) {
         String currentUserId = authorizationProvider.getAuthenticatedUserId();
-        return shelfService.getShelf(currentUserId, shelfId);
+        // Only the metadata is read up front, the items are not read when the shelf did not change
+        Shelf metadata = shelfService.getShelfMetadata(currentUserId, shelfId);
+        return EntityTags.conditionalGet(ifNoneMatch, metadata.getVersion(),
+                () -> shelfService.getShelf(currentUserId, shelfId));
     }
 
     @PutMapping("/{shelfId}")
-    @Operation(summary="Updates metadata of the specified shelf", description="Requires to be authenticated with JWT access token")
+    @Operation(summary="Updates metadata of the specified shelf", description="Requires to be authenticated with JWT access token. " +
+            "When the If-Match header is sent, the shelf is updated only if its ETag matches.")
     @ApiResponses({
             @ApiResponse(responseCode="200", description="Shelf successfuly modified"),
             @ApiResponse(responseCode="400", description="Sent request body was malformed"),
             @ApiResponse(responseCode="401", description="Access token was not specified"),
             @ApiResponse(responseCode="404", description="Shelf was not found in the authenticated user shelves collection"),
+            @ApiResponse(responseCode="412", description="Shelf was modified since the sent ETag"),
     })
-    public Shelf updateShelf(@RequestBody @Valid PrefetchedShelf shelfToUpdate, @PathVariable String shelfId) {
+    public ResponseEntity<Shelf> updateShelf(@RequestBody @Valid PrefetchedShelf shelfToUpdate, @PathVariable String shelfId,
+                                             @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
         String currentUserId = authorizationProvider.getAuthenticatedUserId();
-        return shelfService.updateShelf(currentUserId, shelfId, shelfToUpdate);
+        Shelf shelf = shelfService.updateShelf(currentUserId, shelfId, shelfToUpdate, VersionPrecondition.ifMatch(ifMatch));
+        return ResponseEntity.ok().eTag(EntityTags.fromVersion(shelf.getVersion())).body(shelf);
     }
 }
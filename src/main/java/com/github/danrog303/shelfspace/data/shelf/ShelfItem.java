@@ -1,6 +1,7 @@
 package com.github.danrog303.shelfspace.data.shelf;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -14,15 +15,28 @@ import java.util.Date;
 
 /**
  * A single item that was created on one of the user's shelves.
+ * Every item is stored as a separate row, so that a single item can be modified without rewriting the whole shelf.
  * @see ShelfItemIntegrityValidator
  */
-@DynamoDBDocument
+@DynamoDBTable(tableName="shelf-space-shelf-items")
 @Data @NoArgsConstructor @AllArgsConstructor @EqualsAndHashCode
 public class ShelfItem {
+    /**
+     * Name of the local secondary index, which sorts items of the shelf by {@link #getCreationDate()}.
+     */
+    public static final String CREATION_DATE_INDEX = "creationDate-index";
+
+    /**
+     * Unique identifier of the {@link Shelf} on which this item is placed.
+     */
+    @DynamoDBHashKey
+    @JsonIgnore
+    private String shelfId;
+
     /**
      * Unique identifier of the item.
      */
-    @DynamoDBAttribute
+    @DynamoDBRangeKey
     @DynamoDBAutoGeneratedKey
     private String itemId;
 
@@ -35,9 +49,11 @@ public class ShelfItem {
 
     /**
      * Date of item creation. This field is generated automatically on item's creation and user
-     * should not be able to overwrite it.
+     * should not be able to overwrite it. Items can be listed in the order of this field,
+     * using the {@value #CREATION_DATE_INDEX} local secondary index.
      */
     @DynamoDBAttribute
+    @DynamoDBIndexRangeKey(localSecondaryIndexName=CREATION_DATE_INDEX)
     @DynamoDBTypeConvertedTimestamp
     private Date creationDate;
 
@@ -0,0 +1,86 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.github.danrog303.shelfspace.services.authorization.AuthorizationProvider;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+/**
+ * Exposes REST endpoints which modify many items of a shelf in a single request. Every operation of the batch
+ * is reported separately, and the version of the shelf is incremented once per request. Mapped outside
+ * {@link ShelfItemController}, since the custom methods (e.g. "items:batch") are a part of the collection segment.
+ */
+@RestController
+@RequestMapping("/shelves/{shelfId}")
+@RequiredArgsConstructor
+@Tag(name="Operations on user's shelf items")
+public class ShelfItemBatchController {
+    private final AuthorizationProvider authorizationProvider;
+    private final ShelfItemService shelfItemService;
+
+    @PostMapping("/items:batch")
+    @Operation(summary="Creates many items on the specified shelf", description="Requires to be authenticated. " +
+            "Accepts up to " + ShelfItemService.MAX_BATCH_SIZE + " items. Invalid items are reported with status 400 " +
+            "in the results, and the remaining items are created.")
+    @ApiResponses({
+            @ApiResponse(responseCode="200", description="Items were processed, see the results of every item"),
+            @ApiResponse(responseCode="400", description="Sent request body was malformed or contained too many items"),
+            @ApiResponse(responseCode="401", description="Access token was not specified"),
+            @ApiResponse(responseCode="404", description="Shelf was not found in the authenticated user shelves collection"),
+            @ApiResponse(responseCode="409", description="Tried to exceed the shelf item quota, no item was created"),
+            @ApiResponse(responseCode="412", description="Shelf was modified since the sent ETag")
+    })
+    public ShelfItemBatchResponse createShelfItems(@PathVariable String shelfId,
+                                                   @Valid @RequestBody ShelfItemBatchCreateRequest request,
+                                                   @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+        String currentUserId = authorizationProvider.getAuthenticatedUserId();
+        return shelfItemService.createShelfItems(currentUserId, shelfId, request.getItems(),
+                VersionPrecondition.ifMatch(ifMatch));
+    }
+
+    @PostMapping("/items:batchUpdate")
+    @Operation(summary="Modifies many items of the specified shelf", description="Requires to be authenticated. " +
+            "Accepts up to " + ShelfItemService.MAX_BATCH_SIZE + " changes. Fields of the patch which are null are " +
+            "left unchanged. Invalid changes (400) and missing items (404) are reported in the results, and the " +
+            "remaining changes are applied.")
+    @ApiResponses({
+            @ApiResponse(responseCode="200", description="Changes were processed, see the results of every change"),
+            @ApiResponse(responseCode="400", description="Sent request body was malformed or contained too many changes"),
+            @ApiResponse(responseCode="401", description="Access token was not specified"),
+            @ApiResponse(responseCode="404", description="Shelf was not found in the authenticated user shelves collection"),
+            @ApiResponse(responseCode="412", description="Shelf was modified since the sent ETag")
+    })
+    public ShelfItemBatchResponse updateShelfItems(@PathVariable String shelfId,
+                                                   @Valid @RequestBody ShelfItemBatchUpdateRequest request,
+                                                   @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+        String currentUserId = authorizationProvider.getAuthenticatedUserId();
+        return shelfItemService.updateShelfItems(currentUserId, shelfId, request.getUpdates(),
+                VersionPrecondition.ifMatch(ifMatch));
+    }
+
+    @PostMapping("/items:batchDelete")
+    @Operation(summary="Deletes many items of the specified shelf", description="Requires to be authenticated. " +
+            "Accepts up to " + ShelfItemService.MAX_BATCH_SIZE + " item ids. Missing items (404) are reported " +
+            "in the results, and the remaining items are deleted.")
+    @ApiResponses({
+            @ApiResponse(responseCode="200", description="Items were processed, see the results of every item"),
+            @ApiResponse(responseCode="400", description="Sent request body was malformed or contained too many item ids"),
+            @ApiResponse(responseCode="401", description="Access token was not specified"),
+            @ApiResponse(responseCode="404", description="Shelf was not found in the authenticated user shelves collection"),
+            @ApiResponse(responseCode="412", description="Shelf was modified since the sent ETag")
+    })
+    public ShelfItemBatchResponse deleteShelfItems(@PathVariable String shelfId,
+                                                   @Valid @RequestBody ShelfItemBatchDeleteRequest request,
+                                                   @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+        String currentUserId = authorizationProvider.getAuthenticatedUserId();
+        return shelfItemService.deleteShelfItems(currentUserId, shelfId, request.getItemIds(),
+                VersionPrecondition.ifMatch(ifMatch));
+    }
+}
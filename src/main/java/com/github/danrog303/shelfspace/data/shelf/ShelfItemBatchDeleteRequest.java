@@ -0,0 +1,19 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * Items which should be deleted from the shelf at once. Items which do not exist are reported
+ * in {@link ShelfItemBatchResponse} instead of rejecting the whole request.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ShelfItemBatchDeleteRequest {
+    @NotNull @Size(min=1, max=ShelfItemService.MAX_BATCH_SIZE)
+    private List<String> itemIds;
+}
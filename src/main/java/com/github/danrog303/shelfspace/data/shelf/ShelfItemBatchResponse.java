@@ -0,0 +1,53 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.github.danrog303.shelfspace.errors.ErrorResponse;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+import java.util.List;
+
+/**
+ * Results of a batch operation on shelf items, in the order of the requested operations.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ShelfItemBatchResponse {
+    private List<Result> results;
+
+    /**
+     * Result of a single operation of the batch.
+     */
+    @Data @NoArgsConstructor @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Result {
+        /**
+         * Position of the operation in the request.
+         */
+        private int index;
+
+        /**
+         * HTTP status code which the operation would have been answered with, if it was sent separately.
+         */
+        private int status;
+
+        /**
+         * Item after the operation, or null if the operation failed.
+         */
+        private ShelfItem item;
+
+        /**
+         * Reason of the failure, or null if the operation succeeded.
+         */
+        private ErrorResponse error;
+
+        public static Result success(int index, HttpStatus status, ShelfItem item) {
+            return new Result(index, status.value(), item, null);
+        }
+
+        public static Result failure(int index, HttpStatus status, ErrorResponse error) {
+            return new Result(index, status.value(), null, error);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * Changes which should be applied to many items of the shelf at once. Every change is validated separately,
+ * and the invalid ones are reported in {@link ShelfItemBatchResponse} instead of rejecting the whole request.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ShelfItemBatchUpdateRequest {
+    @NotNull @Size(min=1, max=ShelfItemService.MAX_BATCH_SIZE)
+    private List<Update> updates;
+
+    /**
+     * Change of a single item.
+     */
+    @Data @NoArgsConstructor @AllArgsConstructor
+    public static class Update {
+        /**
+         * Identifier of the modified item.
+         */
+        private String itemId;
+
+        /**
+         * New values of {@link ShelfItem#getTitle()}, {@link ShelfItem#getStatus()}, {@link ShelfItem#getRating()}
+         * and {@link ShelfItem#getFinishedCount()}. Fields which are null are left unchanged, other fields are ignored.
+         */
+        private ShelfItem patch;
+    }
+}
@@ -1,18 +1,21 @@
 package com.github.danrog303.shelfspace.data.shelf;
 
 import com.github.danrog303.shelfspace.services.authorization.AuthorizationProvider;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
 
 /**
- * Exposes REST endpoints with basic operations on shelf items.
+ * Exposes REST endpoints with basic operations on shelf items. Modifications accept the If-Match header with
+ * the ETag of the shelf, which changes whenever any of its items is modified.
  */
 @RestController
 @RequestMapping("/shelves/{shelfId}/items")
@@ -22,6 +25,24 @@ public class ShelfItemController {
     private final AuthorizationProvider authorizationProvider;
     private final ShelfItemService shelfItemService;
 
+    @GetMapping
+    @Operation(summary="Fetches a single page of items placed on the specified shelf", description="Requires to be authenticated. " +
+            "To fetch the next page, send the returned cursor together with the same order.")
+    @ApiResponses({
+            @ApiResponse(responseCode="200", description="Page of shelf items successfully fetched"),
+            @ApiResponse(responseCode="400", description="Cursor was malformed or order was unknown"),
+            @ApiResponse(responseCode="401", description="Access token was not specified"),
+            @ApiResponse(responseCode="404", description="Shelf was not found in the authenticated user shelves collection")
+    })
+    public ShelfItemPage getShelfItemsPage(@PathVariable String shelfId,
+                                           @RequestParam(defaultValue="50") int limit,
+                                           @RequestParam(required=false) String cursor,
+                                           @RequestParam(defaultValue="creationDate") String orderBy) {
+        String currentUserId = authorizationProvider.getAuthenticatedUserId();
+        ShelfItemOrder order = ShelfItemOrder.fromParameterValue(orderBy);
+        return shelfItemService.getShelfItemsPage(currentUserId, shelfId, order, limit, cursor);
+    }
+
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
     @Operation(summary="Creates new item on the specified shelf", description="Requires to be authenticated")
@@ -29,11 +50,13 @@ public class ShelfItemController {
             @ApiResponse(responseCode="201", description="Item successfully created"),
             @ApiResponse(responseCode="400", description="Sent request body was malformed"),
             @ApiResponse(responseCode="401", description="Access token was not specified"),
-            @ApiResponse(responseCode="409", description="Tried to exceed the shelf item quota")
+            @ApiResponse(responseCode="409", description="Tried to exceed the shelf item quota"),
+            @ApiResponse(responseCode="412", description="Shelf was modified since the sent ETag")
     })
-    public ShelfItem createNewShelfItem(@PathVariable String shelfId, @Valid @RequestBody ShelfItem item) {
+    public ShelfItem createNewShelfItem(@PathVariable String shelfId, @Valid @RequestBody ShelfItem item,
+                                        @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
         String currentUserId = authorizationProvider.getAuthenticatedUserId();
-        return shelfItemService.createShelfItem(currentUserId, shelfId, item);
+        return shelfItemService.createShelfItem(currentUserId, shelfId, item, VersionPrecondition.ifMatch(ifMatch));
     }
 
     @PutMapping("/{itemId}")
@@ -43,10 +66,12 @@ public class ShelfItemController {
             @ApiResponse(responseCode="400", description="Sent request body was malformed"),
             @ApiResponse(responseCode="401", description="Access token was not specified"),
             @ApiResponse(responseCode="404", description="Requested shelf or shelf item was not found in the shelves collection of the authenticated user"),
+            @ApiResponse(responseCode="412", description="Shelf was modified since the sent ETag"),
     })
-    public ShelfItem updateShelfItem(@PathVariable String shelfId, @PathVariable String itemId, @Valid @RequestBody ShelfItem item) {
+    public ShelfItem updateShelfItem(@PathVariable String shelfId, @PathVariable String itemId, @Valid @RequestBody ShelfItem item,
+                                     @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
         String currentUserId = authorizationProvider.getAuthenticatedUserId();
-        return shelfItemService.updateShelfItem(currentUserId, shelfId, itemId, item);
+        return shelfItemService.updateShelfItem(currentUserId, shelfId, itemId, item, VersionPrecondition.ifMatch(ifMatch));
     }
 
     @DeleteMapping("/{itemId}")
@@ -55,9 +80,11 @@ public class ShelfItemController {
             @ApiResponse(responseCode="200", description="Shelf item successfully deleted"),
             @ApiResponse(responseCode="401", description="Access token was not specified"),
             @ApiResponse(responseCode="404", description="Shelf or shelf item was not found in the authenticated user shelves collection"),
+            @ApiResponse(responseCode="412", description="Shelf was modified since the sent ETag"),
     })
-    public ShelfItem deleteShelfItem(@PathVariable String shelfId, @PathVariable String itemId) {
+    public ShelfItem deleteShelfItem(@PathVariable String shelfId, @PathVariable String itemId,
+                                     @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
         String currentUserId = authorizationProvider.getAuthenticatedUserId();
-        return shelfItemService.deleteShelfItem(currentUserId, shelfId, itemId);
+        return shelfItemService.deleteShelfItem(currentUserId, shelfId, itemId, VersionPrecondition.ifMatch(ifMatch));
     }
 }
@@ -0,0 +1,40 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Order in which pages of {@link ShelfItem}s are returned. Items with equal sort attribute are
+ * additionally ordered by {@link ShelfItem#getItemId()}, so the order is always stable.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum ShelfItemOrder {
+    CREATION_DATE("creationDate", List.of("itemId", "creationDate")),
+    ITEM_ID("itemId", List.of("itemId"));
+
+    /**
+     * Value of the "orderBy" request parameter.
+     */
+    private final String parameterValue;
+
+    /**
+     * Attributes (besides shelf id) which identify the position of the last returned item.
+     */
+    private final List<String> positionAttributes;
+
+    /**
+     * Converts value of the "orderBy" request parameter to the order.
+     * @throws InvalidPageRequestException When the value does not match any order
+     */
+    public static ShelfItemOrder fromParameterValue(String parameterValue) {
+        for (ShelfItemOrder order : values()) {
+            if (order.parameterValue.equals(parameterValue)) {
+                return order;
+            }
+        }
+        throw new InvalidPageRequestException("Items cannot be ordered by " + parameterValue);
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Single page of items placed on the shelf.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ShelfItemPage {
+    /**
+     * Items on this page.
+     */
+    private List<ShelfItem> items;
+
+    /**
+     * Opaque token which should be sent to fetch the next page. Equal to null if this is the last page.
+     */
+    private String nextCursor;
+}
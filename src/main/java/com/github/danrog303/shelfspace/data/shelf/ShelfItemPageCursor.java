@@ -0,0 +1,62 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Position of the last item returned on a page of {@link ShelfItem}s, encoded as an opaque, URL-safe token.
+ * The order of the page is encoded as well, so that a cursor cannot be reused with a different order.
+ */
+@Data @NoArgsConstructor @AllArgsConstructor
+public class ShelfItemPageCursor {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Value of {@link ShelfItemOrder#getParameterValue()}.
+     */
+    private String orderBy;
+
+    /**
+     * Values of {@link ShelfItemOrder#getPositionAttributes()} of the last returned item.
+     */
+    private Map<String, String> position;
+
+    public String encode() {
+        try {
+            byte[] json = OBJECT_MAPPER.writeValueAsBytes(this);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode page cursor", e);
+        }
+    }
+
+    /**
+     * Decodes the cursor and checks if it was created for the specified order.
+     * @throws InvalidPageRequestException When the cursor is malformed or was created for a different order
+     */
+    public static ShelfItemPageCursor decode(String encodedCursor, ShelfItemOrder order) {
+        ShelfItemPageCursor cursor;
+        try {
+            byte[] json = Base64.getUrlDecoder().decode(encodedCursor.getBytes(StandardCharsets.US_ASCII));
+            cursor = OBJECT_MAPPER.readValue(json, ShelfItemPageCursor.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new InvalidPageRequestException("Malformed page cursor", e);
+        }
+
+        if (!order.getParameterValue().equals(cursor.getOrderBy()) || cursor.getPosition() == null
+                || !cursor.getPosition().keySet().equals(Set.copyOf(order.getPositionAttributes()))
+                || cursor.getPosition().containsValue(null)) {
+            throw new InvalidPageRequestException("Page cursor does not match the requested order");
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Exposes CRUD operations on {@link ShelfItem} DynamoDB table.
+ * Items are identified by the id of their shelf and by their own id.
+ */
+public interface ShelfItemRepository {
+    /**
+     * Retrieves all items placed on the specified shelf.
+     */
+    List<ShelfItem> findAllByShelfId(String shelfId);
+
+    /**
+     * Iterates over all items placed on the specified shelf. Items are read from the database page by page while
+     * the returned iterable is being iterated, and pages which were already iterated are not kept in memory.
+     * The returned iterable can be iterated only once.
+     */
+    Iterable<ShelfItem> iterateAllByShelfId(String shelfId);
+
+    /**
+     * Retrieves a single page of items placed on the specified shelf. Only the requested page is read from the database.
+     * @param limit Maximum number of items on the page
+     * @param cursor {@link ShelfItemPage#getNextCursor()} of the previous page, or null to fetch the first page
+     * @throws InvalidPageRequestException When the cursor is malformed or was created for a different order
+     */
+    ShelfItemPage findPageByShelfId(String shelfId, ShelfItemOrder order, int limit, String cursor);
+
+    /**
+     * Retrieves a single item placed on the specified shelf.
+     */
+    Optional<ShelfItem> findById(String shelfId, String itemId);
+
+    /**
+     * Counts items placed on the specified shelf, without fetching them.
+     */
+    int countByShelfId(String shelfId);
+
+    /**
+     * Creates or overwrites the specified item.
+     */
+    ShelfItem save(ShelfItem item);
+
+    /**
+     * Creates or overwrites all the specified items, using as few requests as possible. When some of the requests
+     * fail, the items of the other requests are still written.
+     * @return Items which could not be written
+     */
+    List<ShelfItem> saveAll(List<ShelfItem> items);
+
+    /**
+     * Modifies {@link ShelfItem#getTitle()}, {@link ShelfItem#getStatus()}, {@link ShelfItem#getRating()} and
+     * {@link ShelfItem#getFinishedCount()} of an existing item, without rewriting its other attributes.
+     * The item is identified by {@link ShelfItem#getShelfId()} and {@link ShelfItem#getItemId()}.
+     * @return Item after modification, or empty optional if the item does not exist
+     */
+    Optional<ShelfItem> update(ShelfItem item);
+
+    /**
+     * Deletes the specified item.
+     * @return Deleted item, or empty optional if the item does not exist
+     */
+    Optional<ShelfItem> deleteById(String shelfId, String itemId);
+
+    /**
+     * Deletes all the specified items, using as few requests as possible. Only the keys of the items are used.
+     * When some of the requests fail, the items of the other requests are still deleted.
+     * @return Items which could not be deleted
+     */
+    List<ShelfItem> deleteAll(List<ShelfItem> items);
+
+    /**
+     * Deletes all items placed on the specified shelf.
+     */
+    void deleteAllByShelfId(String shelfId);
+}
@@ -1,47 +1,79 @@
 package com.github.danrog303.shelfspace.data.shelf;
 
+import com.github.danrog303.shelfspace.errors.ErrorResponse;
+import com.github.danrog303.shelfspace.services.conditional.PreconditionFailedException;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingRetrier;
+import com.github.danrog303.shelfspace.services.database.RequestIdentityMap;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 
-import java.util.Date;
-import java.util.NoSuchElementException;
-import java.util.UUID;
+import javax.validation.Validator;
+import java.util.*;
+import java.util.function.Function;
 
 /**
- * Provides basic CRUD operations on {@link ShelfItem} instances.
+ * Provides basic CRUD operations on {@link ShelfItem} instances. Every modification of an item increments the
+ * version of its shelf, and may be made conditional on that version with a {@link VersionPrecondition}.
+ * A modification of a single item is written in one transaction with the new version of the shelf
+ * ({@link ShelfTransactionRepository}). A batch increments the version before its items are written, and once
+ * more after they were written ({@link ShelfService#claimShelfVersion(String, Shelf)} if the batch is conditional,
+ * {@link ShelfService#markShelfModified(String, String)} otherwise).
  */
 @Service
+@Timed("shelfspace.service.calls")
 @RequiredArgsConstructor
 public class ShelfItemService {
+    /**
+     * Maximum number of items returned on a single page.
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Maximum number of operations in a single batch request.
+     */
+    public static final int MAX_BATCH_SIZE = 500;
+
     private final ShelfService shelfService;
-    private final ShelfRepository shelfRepository;
+    private final ShelfItemRepository shelfItemRepository;
+    private final ShelfTransactionRepository shelfTransactionRepository;
     private final ShelfItemIntegrityValidator shelfItemIntegrityValidator;
+    private final OptimisticLockingRetrier optimisticLockingRetrier;
+    private final RequestIdentityMap requestIdentityMap;
+    private final Validator validator;
 
     /**
      * Enforces integrity constraints on the item ({@link ShelfItemIntegrityValidator}) and updates the item in the database.
      * This method only looks for the following fields: {@link ShelfItem#getTitle()}, {@link ShelfItem#getStatus()},
      * {@link ShelfItem#getRating()} and {@link ShelfItem#getFinishedCount()} fields. Other fields are ignored.
      * @throws NoSuchElementException When shelf or shelf item with the specified id does not exist.
+     * @throws PreconditionFailedException When the precondition does not match the current version of the shelf
      * @return {@link ShelfItem} instance after modification.
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
-    public ShelfItem updateShelfItem(String userId, String shelfId, String itemId, ShelfItem item) {
-        Shelf authorizedShelf = shelfService.getShelf(userId, shelfId);
-        ShelfItem itemToModify = authorizedShelf
-                .getItems().stream()
-                .filter(it -> it.getItemId().equals(itemId))
-                .findFirst()
-                .orElseThrow();
-
-        itemToModify.setRating(item.getRating());
-        itemToModify.setFinishedCount(item.getFinishedCount());
-        itemToModify.setStatus(item.getStatus());
-        itemToModify.setTitle(item.getTitle());
-        shelfItemIntegrityValidator.enforceIntegrityConstraints(itemToModify);
+    public ShelfItem updateShelfItem(String userId, String shelfId, String itemId, ShelfItem item,
+                                     VersionPrecondition precondition) {
+        ShelfItem changes = new ShelfItem();
+        changes.setShelfId(shelfId);
+        changes.setItemId(itemId);
+        changes.setRating(item.getRating());
+        changes.setFinishedCount(item.getFinishedCount());
+        changes.setStatus(item.getStatus());
+        changes.setTitle(item.getTitle());
+        shelfItemIntegrityValidator.enforceIntegrityConstraints(changes);
 
-        shelfRepository.save(authorizedShelf);
-        return itemToModify;
+        return writeWithShelfVersion("updateShelfItem", userId, shelfId, precondition, shelf -> {
+            // The creation date is never modified, so the item read before the transaction is still accurate
+            changes.setCreationDate(shelfItemRepository.findById(shelfId, itemId).orElseThrow().getCreationDate());
+            if (!shelfTransactionRepository.updateShelfItem(shelf, changes, precondition.requiresVersion())) {
+                throw new NoSuchElementException("The specified shelf does not have an item with the specified id.");
+            }
+            return changes;
+        });
     }
 
     /**
@@ -52,46 +84,342 @@ public class ShelfItemService {
      * generated automatically and overwritten.</p>
      * @throws NoSuchElementException When shelf or shelf item with the specified id does not exist
      * @throws ShelfQuotaException When tried to exceed the 2000 shelf items quota
+     * @throws PreconditionFailedException When the precondition does not match the current version of the shelf
      * @return Created {@link ShelfItem} instance
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
-    public ShelfItem createShelfItem(String userId, String shelfId, ShelfItem item) {
-        Shelf authorizedShelf = shelfService.getShelf(userId, shelfId);
-        validateShelfQuota(authorizedShelf);
-        item.setItemId(UUID.randomUUID().toString());
-        item.setCreationDate(new Date());
-        shelfItemIntegrityValidator.enforceIntegrityConstraints(item);
+    public ShelfItem createShelfItem(String userId, String shelfId, ShelfItem item, VersionPrecondition precondition) {
+        return writeWithShelfVersion("createShelfItem", userId, shelfId, precondition, shelf -> {
+            validateShelfQuota(shelfId, 1);
+            prepareNewItem(shelfId, item);
+            shelfTransactionRepository.createShelfItem(shelf, item, precondition.requiresVersion());
+            return item;
+        });
+    }
 
-        // Persist new item in the database
-        authorizedShelf.getItems().add(item);
-        shelfRepository.save(authorizedShelf);
-        return item;
+    /**
+     * <p>Creates many items on the shelf at once, like {@link #createShelfItem}. Every item is validated separately,
+     * and invalid items are reported in the result instead of failing the whole batch. Valid items are saved
+     * with as few requests as possible ({@link ShelfItemRepository#saveAll(List)}). The version of the shelf
+     * is incremented before the items are written, and once more when any item was written. Items which could
+     * not be written are reported in the result as well.</p>
+     * @throws NoSuchElementException When shelf with the specified id does not exist
+     * @throws ShelfQuotaException When the valid items would exceed the 2000 shelf items quota (nothing is created)
+     * @throws PreconditionFailedException When the precondition does not match the current version of the shelf
+     * @return Result of every item, in the order of the specified items
+     */
+    @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
+    public ShelfItemBatchResponse createShelfItems(String userId, String shelfId, List<ShelfItem> items,
+                                                   VersionPrecondition precondition) {
+        Shelf shelf = shelfService.getShelfMetadata(userId, shelfId);
+        precondition.check(shelf.getVersion());
+
+        List<ShelfItemBatchResponse.Result> results = new ArrayList<>(items.size());
+        List<ShelfItem> newItems = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ShelfItem item = items.get(i);
+            Optional<ErrorResponse> error = validate(item);
+            if (error.isPresent()) {
+                results.add(ShelfItemBatchResponse.Result.failure(i, HttpStatus.BAD_REQUEST, error.get()));
+            } else {
+                prepareNewItem(shelfId, item);
+                newItems.add(item);
+                results.add(ShelfItemBatchResponse.Result.success(i, HttpStatus.CREATED, item));
+            }
+        }
+
+        if (!newItems.isEmpty()) {
+            validateShelfQuota(shelfId, newItems.size());
+            claimShelfVersion(userId, shelf, precondition);
+            List<ShelfItem> unsavedItems = shelfItemRepository.saveAll(newItems);
+            reportUnwrittenItems(results, unsavedItems, item -> HttpStatus.SERVICE_UNAVAILABLE);
+            if (unsavedItems.size() < newItems.size()) {
+                shelfService.markShelfModified(userId, shelfId);
+            }
+        }
+        return new ShelfItemBatchResponse(results);
+    }
+
+    /**
+     * <p>Applies changes to many items of the shelf at once. All items of the shelf are read with a single query
+     * and looked up by their ids, the changes are merged into them and validated like in {@link #updateShelfItem},
+     * and the modified items are written in transactions of up to 100 items
+     * ({@link ShelfTransactionRepository#updateShelfItems(List, Map)}). Many changes of the same item are applied
+     * one after another, and the item is written once. Invalid changes and changes of items which do not exist
+     * are reported in the result.</p>
+     * <p>Every item is written only if it was not modified or deleted since the items were read, so concurrent
+     * modifications are never overwritten. Such items are reported with 409 Conflict or 404 Not Found, and items
+     * whose transaction failed for another reason with 503 Service Unavailable.</p>
+     * @throws NoSuchElementException When shelf with the specified id does not exist
+     * @throws PreconditionFailedException When the precondition does not match the current version of the shelf
+     * @return Result of every change, in the order of the specified changes
+     */
+    @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
+    public ShelfItemBatchResponse updateShelfItems(String userId, String shelfId,
+                                                   List<ShelfItemBatchUpdateRequest.Update> updates,
+                                                   VersionPrecondition precondition) {
+        Shelf shelf = shelfService.getShelfMetadata(userId, shelfId);
+        precondition.check(shelf.getVersion());
+
+        Map<String, ShelfItem> readItems = findItemsById(shelfId);
+        Map<String, ShelfItem> items = new HashMap<>(readItems);
+        Map<String, ShelfItem> modifiedItems = new LinkedHashMap<>();
+        List<ShelfItemBatchResponse.Result> results = new ArrayList<>(updates.size());
+        for (int i = 0; i < updates.size(); i++) {
+            ShelfItemBatchUpdateRequest.Update update = updates.get(i);
+            if (update == null || update.getItemId() == null || update.getPatch() == null) {
+                results.add(ShelfItemBatchResponse.Result.failure(i, HttpStatus.BAD_REQUEST,
+                        new ErrorResponse("INVALID_DATA", "Item id and patch must be specified")));
+                continue;
+            }
+
+            ShelfItem item = items.get(update.getItemId());
+            if (item == null) {
+                results.add(ShelfItemBatchResponse.Result.failure(i, HttpStatus.NOT_FOUND, createNotFoundError()));
+                continue;
+            }
+
+            ShelfItem patchedItem = applyPatch(item, update.getPatch());
+            Optional<ErrorResponse> error = validate(patchedItem);
+            if (error.isPresent()) {
+                results.add(ShelfItemBatchResponse.Result.failure(i, HttpStatus.BAD_REQUEST, error.get()));
+            } else {
+                shelfItemIntegrityValidator.enforceIntegrityConstraints(patchedItem);
+                items.put(patchedItem.getItemId(), patchedItem);
+                modifiedItems.put(patchedItem.getItemId(), patchedItem);
+                results.add(ShelfItemBatchResponse.Result.success(i, HttpStatus.OK, patchedItem));
+            }
+        }
+
+        if (!modifiedItems.isEmpty()) {
+            claimShelfVersion(userId, shelf, precondition);
+            List<ShelfItem> unwrittenItems = shelfTransactionRepository.updateShelfItems(
+                    new ArrayList<>(modifiedItems.values()), readItems);
+            reportUnwrittenItems(results, unwrittenItems, item -> findUpdateFailureStatus(readItems.get(item.getItemId())));
+            if (unwrittenItems.size() < modifiedItems.size()) {
+                shelfService.markShelfModified(userId, shelfId);
+            }
+        }
+        return new ShelfItemBatchResponse(results);
+    }
+
+    /**
+     * Deletes many items of the shelf at once. All items of the shelf are read with a single query and looked up
+     * by their ids, and the found items are deleted with as few requests as possible
+     * ({@link ShelfItemRepository#deleteAll(List)}). Items which do not exist and items which could not be deleted
+     * are reported in the result.
+     * @throws NoSuchElementException When shelf with the specified id does not exist
+     * @throws PreconditionFailedException When the precondition does not match the current version of the shelf
+     * @return Result of every item, in the order of the specified ids
+     */
+    @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
+    public ShelfItemBatchResponse deleteShelfItems(String userId, String shelfId, List<String> itemIds,
+                                                   VersionPrecondition precondition) {
+        Shelf shelf = shelfService.getShelfMetadata(userId, shelfId);
+        precondition.check(shelf.getVersion());
+
+        Map<String, ShelfItem> items = findItemsById(shelfId);
+        List<ShelfItem> deletedItems = new ArrayList<>(itemIds.size());
+        List<ShelfItemBatchResponse.Result> results = new ArrayList<>(itemIds.size());
+        for (int i = 0; i < itemIds.size(); i++) {
+            // Removed from the map, so that an item specified twice is reported as missing the second time
+            ShelfItem item = itemIds.get(i) == null ? null : items.remove(itemIds.get(i));
+            if (item == null) {
+                results.add(ShelfItemBatchResponse.Result.failure(i, HttpStatus.NOT_FOUND, createNotFoundError()));
+            } else {
+                deletedItems.add(item);
+                results.add(ShelfItemBatchResponse.Result.success(i, HttpStatus.OK, item));
+            }
+        }
+
+        if (!deletedItems.isEmpty()) {
+            claimShelfVersion(userId, shelf, precondition);
+            List<ShelfItem> undeletedItems = shelfItemRepository.deleteAll(deletedItems);
+            reportUnwrittenItems(results, undeletedItems, item -> HttpStatus.SERVICE_UNAVAILABLE);
+            if (undeletedItems.size() < deletedItems.size()) {
+                shelfService.markShelfModified(userId, shelfId);
+            }
+        }
+        return new ShelfItemBatchResponse(results);
+    }
+
+    /**
+     * Fetches a single page of items placed on the specified shelf. Limit is clamped to the range
+     * between 1 and {@value #MAX_PAGE_SIZE}.
+     * @throws NoSuchElementException When shelf with the specified id does not exist
+     * @throws InvalidPageRequestException When the cursor is malformed or was created for a different order
+     */
+    @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
+    public ShelfItemPage getShelfItemsPage(String userId, String shelfId, ShelfItemOrder order, int limit, String cursor) {
+        shelfService.getShelfMetadata(userId, shelfId);
+        int clampedLimit = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return shelfItemRepository.findPageByShelfId(shelfId, order, clampedLimit, cursor);
     }
 
     /**
      * Deletes item from the specified shelf of the specified user.
      * @throws NoSuchElementException When shelf or shelf item with the specified id does not exist
+     * @throws PreconditionFailedException When the precondition does not match the current version of the shelf
      * @return Deleted {@link ShelfItem} instance
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
-    public ShelfItem deleteShelfItem(String userId, String shelfId, String itemId) {
-        Shelf authorizedShelf = shelfService.getShelf(userId, shelfId);
-        ShelfItem itemToDelete = authorizedShelf.getItems()
-                .stream().filter(item -> item.getItemId().equals(itemId))
-                .findFirst().orElseThrow();
-
-        authorizedShelf.getItems().remove(itemToDelete);
-        shelfRepository.save(authorizedShelf);
-        return itemToDelete;
+    public ShelfItem deleteShelfItem(String userId, String shelfId, String itemId, VersionPrecondition precondition) {
+        return writeWithShelfVersion("deleteShelfItem", userId, shelfId, precondition, shelf -> {
+            ShelfItem item = shelfItemRepository.findById(shelfId, itemId).orElseThrow();
+            if (!shelfTransactionRepository.deleteShelfItem(shelf, itemId, precondition.requiresVersion())) {
+                throw new NoSuchElementException("The specified shelf does not have an item with the specified id.");
+            }
+            return item;
+        });
     }
 
     /**
-     * Checks if user did not exceed his shelf item quota.
+     * Checks if user would not exceed his shelf item quota after creating the specified number of items.
      * See {@link ShelfQuotaException} for explanation.
      */
-    private void validateShelfQuota(Shelf shelf) throws ShelfQuotaException {
-        if (shelf.getItems().size() >= 2000) {
+    private void validateShelfQuota(String shelfId, int newItems) throws ShelfQuotaException {
+        if (shelfItemRepository.countByShelfId(shelfId) + newItems > ShelfQuotaException.MAX_SHELF_ITEMS) {
             throw new ShelfQuotaException("User exceeded his shelf item quota (2000 items on a single shelf).");
         }
     }
+
+    /**
+     * <p>Reads the shelf, checks the precondition and runs the transaction which writes a single item together
+     * with the new version of the shelf.</p>
+     * <p>A conditional transaction fails when the shelf was modified since its version was checked. Otherwise,
+     * the version is incremented whatever its value, and the transaction is retried with the shelf read again
+     * when it conflicts with another transaction ({@link OptimisticLockingRetrier}). The new version is not known
+     * then, so the shelf is forgotten by {@link RequestIdentityMap}.</p>
+     * @param operation Name of the operation, used as a metric tag
+     * @throws PreconditionFailedException When the shelf was modified since its version was checked
+     */
+    private <T> T writeWithShelfVersion(String operation, String userId, String shelfId, VersionPrecondition precondition,
+                                        Function<Shelf, T> transaction) {
+        if (precondition.requiresVersion()) {
+            Shelf shelf = shelfService.getShelfMetadata(userId, shelfId);
+            precondition.check(shelf.getVersion());
+            try {
+                return transaction.apply(shelf);
+            } catch (OptimisticLockingException e) {
+                throw new PreconditionFailedException("Resource was modified since it was read by the client.", e);
+            }
+        }
+
+        return optimisticLockingRetrier.retryOnConflict(operation, () -> {
+            Shelf shelf = shelfService.getShelfMetadata(userId, shelfId);
+            precondition.check(shelf.getVersion());
+            try {
+                return transaction.apply(shelf);
+            } finally {
+                requestIdentityMap.evict(Shelf.class, shelfId);
+            }
+        });
+    }
+
+    /**
+     * Increments the version of the shelf before a batch of its items is written, so that the entity tag of the
+     * shelf changes even if the batch is interrupted. A conditional batch claims the checked version.
+     */
+    private void claimShelfVersion(String userId, Shelf shelf, VersionPrecondition precondition) {
+        if (precondition.requiresVersion()) {
+            shelfService.claimShelfVersion(userId, shelf);
+        } else {
+            shelfService.markShelfModified(userId, shelf.getShelfId());
+        }
+    }
+
+    /**
+     * Generates the fields of a new item, which cannot be set by the user.
+     */
+    private void prepareNewItem(String shelfId, ShelfItem item) {
+        item.setShelfId(shelfId);
+        item.setItemId(UUID.randomUUID().toString());
+        item.setCreationDate(new Date());
+        shelfItemIntegrityValidator.enforceIntegrityConstraints(item);
+    }
+
+    /**
+     * Reads all items of the shelf with a single query, and indexes them by their ids.
+     */
+    private Map<String, ShelfItem> findItemsById(String shelfId) {
+        Map<String, ShelfItem> items = new HashMap<>();
+        for (ShelfItem item : shelfItemRepository.findAllByShelfId(shelfId)) {
+            items.put(item.getItemId(), item);
+        }
+        return items;
+    }
+
+    /**
+     * Creates a copy of the item, with the fields which are not null in the patch replaced. Only the fields
+     * which can be modified by {@link #updateShelfItem} are taken from the patch.
+     */
+    private static ShelfItem applyPatch(ShelfItem item, ShelfItem patch) {
+        ShelfItem patchedItem = new ShelfItem(item.getShelfId(), item.getItemId(), item.getTitle(),
+                item.getCreationDate(), item.getStatus(), item.getRating(), item.getFinishedCount());
+        Optional.ofNullable(patch.getTitle()).ifPresent(patchedItem::setTitle);
+        Optional.ofNullable(patch.getStatus()).ifPresent(patchedItem::setStatus);
+        Optional.ofNullable(patch.getRating()).ifPresent(patchedItem::setRating);
+        Optional.ofNullable(patch.getFinishedCount()).ifPresent(patchedItem::setFinishedCount);
+        return patchedItem;
+    }
+
+    /**
+     * Replaces the successful results of the items, which could not be written by a batch write, with failures.
+     * The other items of the batch were written, so the batch is not failed as a whole.
+     * @param statusOf Returns the status of the failure of an item
+     */
+    private static void reportUnwrittenItems(List<ShelfItemBatchResponse.Result> results, List<ShelfItem> unwrittenItems,
+                                             Function<ShelfItem, HttpStatus> statusOf) {
+        Map<String, HttpStatus> statuses = new HashMap<>();
+        unwrittenItems.forEach(item -> statuses.put(item.getItemId(), statusOf.apply(item)));
+        for (int i = 0; i < results.size(); i++) {
+            ShelfItemBatchResponse.Result result = results.get(i);
+            HttpStatus status = result.getItem() == null ? null : statuses.get(result.getItem().getItemId());
+            if (status != null) {
+                results.set(i, ShelfItemBatchResponse.Result.failure(result.getIndex(), status, createWriteError(status)));
+            }
+        }
+    }
+
+    /**
+     * Reads the item again, to find out why its conditional update was not written.
+     * @param readItem Item as it was read before the update
+     */
+    private HttpStatus findUpdateFailureStatus(ShelfItem readItem) {
+        Optional<ShelfItem> currentItem = shelfItemRepository.findById(readItem.getShelfId(), readItem.getItemId());
+        if (currentItem.isEmpty()) {
+            return HttpStatus.NOT_FOUND;
+        }
+        return currentItem.get().equals(readItem) ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.CONFLICT;
+    }
+
+    private static ErrorResponse createWriteError(HttpStatus status) {
+        switch (status) {
+            case NOT_FOUND:
+                return createNotFoundError();
+            case CONFLICT:
+                return new ErrorResponse("CONCURRENT_MODIFICATION", "Resource was modified by another request. Try again later.");
+            default:
+                return new ErrorResponse("WRITE_FAILED", "Item could not be written. Try again later.");
+        }
+    }
+
+    private static ErrorResponse createNotFoundError() {
+        return new ErrorResponse("NOT_FOUND", "Resource was not found.");
+    }
+
+    /**
+     * Validates a single item of a batch, like a {@code @Valid} request body.
+     * @return Error describing the first invalid field, or empty optional if the item is valid
+     */
+    private Optional<ErrorResponse> validate(ShelfItem item) {
+        if (item == null) {
+            return Optional.of(new ErrorResponse("INVALID_DATA", "Item was not specified"));
+        }
+        return validator.validate(item).stream()
+                .map(violation -> violation.getPropertyPath().toString())
+                .sorted()
+                .findFirst()
+                .map(field -> new ErrorResponse("INVALID_DATA", String.format("Validation failed for field %s", field)));
+    }
 }
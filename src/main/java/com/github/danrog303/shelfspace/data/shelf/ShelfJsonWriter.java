@@ -0,0 +1,80 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Serializes a {@link Shelf} to JSON incrementally, item by item, straight to the output stream. Produces the
+ * same document as serializing the whole shelf at once, but the items never have to be held in memory
+ * together, and the beginning of the document is sent before the items are read.
+ */
+@Component
+public class ShelfJsonWriter {
+    private static final String ITEMS_FIELD = "items";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter itemWriter;
+
+    public ShelfJsonWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.itemWriter = objectMapper.writerFor(ShelfItem.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes the shelf to the output stream. The output stream is flushed after the shelf metadata,
+     * and is not closed.
+     * @param shelf Metadata of the shelf, {@link Shelf#getItems()} is ignored
+     * @param items Items of the shelf, usually read lazily (see {@link ShelfItemRepository#iterateAllByShelfId(String)})
+     */
+    public void writeShelf(Shelf shelf, Iterable<ShelfItem> items, OutputStream output) throws IOException {
+        ObjectNode metadata = objectMapper.valueToTree(shelf);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartObject();
+
+            // Fields are written in the same order as by the regular serialization of the shelf
+            boolean itemsWritten = false;
+            for (Iterator<Map.Entry<String, JsonNode>> fields = metadata.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                if (field.getKey().equals(ITEMS_FIELD)) {
+                    writeItems(generator, items);
+                    itemsWritten = true;
+                } else {
+                    generator.writeFieldName(field.getKey());
+                    generator.writeTree(field.getValue());
+                }
+            }
+            if (!itemsWritten) {
+                writeItems(generator, items);
+            }
+
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeItems(JsonGenerator generator, Iterable<ShelfItem> items) throws IOException {
+        generator.writeFieldName(ITEMS_FIELD);
+        // Sends the metadata before the first page of items is read from the database
+        generator.flush();
+
+        generator.writeStartArray();
+        // Unlike separate writeValue() calls, the sequence writer resolves the serializer of the items only once
+        SequenceWriter itemSequence = itemWriter.writeValues(generator);
+        for (ShelfItem item : items) {
+            itemSequence.write(item);
+        }
+        generator.writeEndArray();
+    }
+}
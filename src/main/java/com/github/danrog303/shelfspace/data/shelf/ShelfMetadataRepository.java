@@ -0,0 +1,29 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+
+import java.util.Optional;
+
+/**
+ * Reads only the metadata of {@link Shelf}s (id, owner, name, type and version), which is enough to check
+ * ownership of the shelf, to modify it and to answer conditional requests. Other attributes of the shelf row
+ * (e.g. items embedded by older versions of the application) are never transferred.
+ */
+public interface ShelfMetadataRepository {
+    /**
+     * Retrieves metadata of the specified shelf. {@link Shelf#getItems()} of the returned shelf is null.
+     */
+    Optional<Shelf> findMetadataById(String shelfId);
+
+    /**
+     * Increments {@link Shelf#getVersion()} of the specified shelf, without reading or rewriting its other
+     * attributes. Does nothing if the shelf does not exist.
+     */
+    void incrementVersion(String shelfId);
+
+    /**
+     * Increments {@link Shelf#getVersion()} of the specified shelf, only if it is equal to the expected version.
+     * @throws OptimisticLockingException When the version of the shelf changed, or the shelf does not exist
+     */
+    void incrementVersion(String shelfId, long expectedVersion);
+}
@@ -8,4 +8,13 @@ import lombok.experimental.StandardException;
  */
 @StandardException
 public class ShelfQuotaException extends RuntimeException {
+    /**
+     * Maximum number of shelves on a single account.
+     */
+    public static final int MAX_SHELVES = 20;
+
+    /**
+     * Maximum number of items on a single shelf.
+     */
+    public static final int MAX_SHELF_ITEMS = 2000;
 }
@@ -2,8 +2,14 @@ package com.github.danrog303.shelfspace.data.shelf;
 
 import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
 import com.github.danrog303.shelfspace.data.profile.UserProfile;
-import com.github.danrog303.shelfspace.data.profile.UserProfileRepository;
+import com.github.danrog303.shelfspace.data.profile.UserProfileCache;
 import com.github.danrog303.shelfspace.data.profile.UserProfileService;
+import com.github.danrog303.shelfspace.services.conditional.PreconditionFailedException;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingRetrier;
+import com.github.danrog303.shelfspace.services.database.RequestIdentityMap;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
@@ -14,11 +20,16 @@ import java.util.*;
  * Provides basic CRUD operations on {@link Shelf} instances.
  */
 @Service
+@Timed("shelfspace.service.calls")
 @RequiredArgsConstructor
 public class ShelfService {
     private final UserProfileService userProfileService;
-    private final UserProfileRepository userProfileRepository;
-    private final ShelfRepository shelfRepository;
+    private final UserProfileCache userProfileCache;
+    private final ShelfMetadataRepository shelfMetadataRepository;
+    private final ShelfTransactionRepository shelfTransactionRepository;
+    private final ShelfItemRepository shelfItemRepository;
+    private final OptimisticLockingRetrier optimisticLockingRetrier;
+    private final RequestIdentityMap requestIdentityMap;
 
     /**
      * Creates new shelf for the specified user.
@@ -27,54 +38,83 @@ public class ShelfService {
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
     public PrefetchedShelf createNewShelf(String userId, PrefetchedShelf shelfToCreate) {
-        UserProfile profile = userProfileService.getUserProfile(userId);
-        validateShelfQuota(profile);
-
-        // Persist prefetched shelf instance in the user profiles table
         String shelfId = UUID.randomUUID().toString();
         shelfToCreate.setShelfId(shelfId);
-        profile.getShelves().add(shelfToCreate);
-        userProfileRepository.save(profile);
-
-        // Persist actual shelf instance in the shelves tables
-        List<ShelfItem> items = new ArrayList<>();
-        Shelf shelf = new Shelf(shelfId, shelfToCreate.getShelfName(), userId, shelfToCreate.getShelfType(), items);
-        shelfRepository.save(shelf);
-        return shelfToCreate;
+
+        return optimisticLockingRetrier.retryOnConflict("createNewShelf", () -> {
+            UserProfile profile = userProfileService.getUserProfile(userId);
+            validateShelfQuota(profile);
+
+            // Persist prefetched shelf instance (in the user profiles table) and actual shelf instance
+            // (in the shelves table) atomically
+            profile.getShelves().add(shelfToCreate);
+            List<ShelfItem> items = new ArrayList<>();
+            Shelf shelf = new Shelf(shelfId, shelfToCreate.getShelfName(), userId, shelfToCreate.getShelfType(), items, null);
+            writeThrough(profile, shelfId, () -> shelfTransactionRepository.createShelf(profile, shelf));
+            requestIdentityMap.put(Shelf.class, shelfId, shelf);
+            return shelfToCreate;
+        });
     }
 
     /**
      * Permanently deletes the specified shelf from user's shelf collection.
      * @throws NoSuchElementException When shelf with the specified id was not found
+     * @throws PreconditionFailedException When the precondition does not match the current version of the shelf
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
-    public PrefetchedShelf deleteShelf(String userId, String shelfId) {
-        UserProfile user = userProfileService.getUserProfile(userId);
-
-        // Delete actual shelf instance from the shelves table
-        Optional<Shelf> shelf = shelfRepository.findById(shelfId);
-        if (shelf.isEmpty() || !shelf.get().getOwnerId().equals(userId)) {
-            throw new NoSuchElementException("The authenticated user does not have a shelf with the specified id.");
-        }
-        shelfRepository.delete(shelf.get());
+    public PrefetchedShelf deleteShelf(String userId, String shelfId, VersionPrecondition precondition) {
+        return optimisticLockingRetrier.retryOnConflict("deleteShelf", () -> {
+            UserProfile user = userProfileService.getUserProfile(userId);
+
+            Optional<Shelf> shelf = findShelfMetadata(shelfId);
+            if (shelf.isEmpty() || !shelf.get().getOwnerId().equals(userId)) {
+                throw new NoSuchElementException("The authenticated user does not have a shelf with the specified id.");
+            }
+            precondition.check(shelf.get().getVersion());
+
+            // Delete prefetched shelf instance and actual shelf instance atomically; items are deleted afterwards,
+            // because they are no longer reachable once the shelf is gone
+            user.getShelves().removeIf(sh -> sh.getShelfId().equals(shelfId));
+            writeThrough(user, shelfId, () -> shelfTransactionRepository.deleteShelf(user, shelf.get()));
+            requestIdentityMap.evict(Shelf.class, shelfId);
+            shelfItemRepository.deleteAllByShelfId(shelfId);
+
+            return new PrefetchedShelf(shelfId, shelf.get().getShelfName(), shelf.get().getShelfType());
+        });
+    }
 
-        // Delete prefetched shelf instance from the user profiles table
-        PrefetchedShelf prefetchedShelf = user.getShelves().stream()
-                .filter(sh -> sh.getShelfId().equals(shelf.get().getShelfId()))
-                .findFirst().orElseThrow();
-        user.getShelves().remove(prefetchedShelf);
-        userProfileRepository.save(user);
+    /**
+     * Tries to fetch the specified shelf instance (together with all of its items) from the user's shelf collection.
+     * @throws NoSuchElementException When shelf was not found, or it did not belong to the specified user
+     */
+    @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
+    public Shelf getShelf(String userId, String shelfId) {
+        Shelf shelf = getShelfMetadata(userId, shelfId);
+        shelf.setItems(shelfItemRepository.findAllByShelfId(shelfId));
+        return shelf;
+    }
 
-        return prefetchedShelf;
+    /**
+     * Returns the items placed on the specified shelf. Unlike {@link #getShelf(String, String)}, the items are not
+     * fetched up front, but page by page while the returned iterable is being iterated (see
+     * {@link ShelfItemRepository#iterateAllByShelfId(String)}), so that large shelves are never held in memory.
+     * @throws NoSuchElementException When shelf was not found, or it did not belong to the specified user
+     */
+    @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
+    public Iterable<ShelfItem> iterateShelfItems(String userId, String shelfId) {
+        getShelfMetadata(userId, shelfId);
+        return shelfItemRepository.iterateAllByShelfId(shelfId);
     }
 
     /**
      * Tries to fetch the specified shelf instance from the user's shelf collection.
+     * Unlike {@link #getShelf(String, String)}, items of the shelf are not fetched - only the metadata
+     * attributes of the shelf are read from the database.
      * @throws NoSuchElementException When shelf was not found, or it did not belong to the specified user
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
-    public Shelf getShelf(String userId, String shelfId) {
-        Optional<Shelf> shelf = shelfRepository.findById(shelfId);
+    public Shelf getShelfMetadata(String userId, String shelfId) {
+        Optional<Shelf> shelf = findShelfMetadata(shelfId);
 
         if (shelf.isEmpty() || !shelf.get().getOwnerId().equals(userId)) {
             throw new NoSuchElementException("The specified user does not have a shelf with the specified id.");
@@ -87,29 +127,90 @@ public class ShelfService {
      * Updates the specified shelf. The ID of the passed {@link PrefetchedShelf} instance is ignored, because
      * id value is read from the argument.
      * @throws NoSuchElementException When shelf was not found, or it did not belong to the specified user
+     * @throws PreconditionFailedException When the precondition does not match the current version of the shelf
      */
     @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
-    public Shelf updateShelf(String userId, String shelfId, PrefetchedShelf newShelf) {
-        UserProfile profile = userProfileService.getUserProfile(userId);
-        Optional<Shelf> shelf = shelfRepository.findById(shelfId);
+    public Shelf updateShelf(String userId, String shelfId, PrefetchedShelf newShelf, VersionPrecondition precondition) {
+        newShelf.setShelfId(shelfId);
+
+        return optimisticLockingRetrier.retryOnConflict("updateShelf", () -> {
+            UserProfile profile = userProfileService.getUserProfile(userId);
+            Optional<Shelf> shelf = findShelfMetadata(shelfId);
+
+            if (shelf.isEmpty() || !shelf.get().getOwnerId().equals(userId)) {
+                throw new NoSuchElementException("The authenticated user does not have a shelf with the specified id.");
+            }
+            precondition.check(shelf.get().getVersion());
+
+            // Update the actual shelf instance and the prefetched shelf instance atomically
+            Shelf actualShelf = shelf.get();
+            actualShelf.setShelfName(newShelf.getShelfName());
+            actualShelf.setShelfType(newShelf.getShelfType());
+            profile.getShelves().removeIf(sh -> sh.getShelfId().equals(shelfId));
+            profile.getShelves().add(newShelf);
+            writeThrough(profile, shelfId, () -> shelfTransactionRepository.updateShelf(profile, actualShelf));
+
+            actualShelf.setItems(shelfItemRepository.findAllByShelfId(shelfId));
+            return actualShelf;
+        });
+    }
 
-        if (shelf.isEmpty() || !shelf.get().getOwnerId().equals(userId)) {
-            throw new NoSuchElementException("The authenticated user does not have a shelf with the specified id.");
-        }
+    /**
+     * Increments the version of the specified shelf whatever its value, so that the entity tag of the shelf changes
+     * (see {@link com.github.danrog303.shelfspace.services.conditional.EntityTags}). A batch of items is written
+     * between two increments. The first one makes a failure of the batch harmless, because the entity tags which
+     * were sent before the batch no longer match. The second one covers a client which read the shelf while the
+     * items were being written: the shelf is read before its items, so the client could receive the new entity tag
+     * together with the old items.
+     */
+    @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
+    public void markShelfModified(String userId, String shelfId) {
+        shelfMetadataRepository.incrementVersion(shelfId);
+        requestIdentityMap.evict(Shelf.class, shelfId);
+    }
 
-        // Update the actual shelf instance
-        Shelf actualShelf = shelf.get();
-        actualShelf.setShelfName(newShelf.getShelfName());
-        actualShelf.setShelfType(newShelf.getShelfType());
-        shelfRepository.save(actualShelf);
+    /**
+     * Increments the version of the shelf only if it is still the version of the specified instance, before a batch
+     * of its items is modified. Batch writes cannot be part of a single transaction with the shelf, so a request
+     * made conditional on the version claims it up front, and concurrent conditional requests which checked the
+     * same version are rejected instead of writing their items too. The items are followed by
+     * {@link #markShelfModified(String, String)}, like in a batch which is not conditional.
+     * @throws PreconditionFailedException When the shelf was modified since the specified instance was read
+     */
+    @PreAuthorize("@authorizationProvider.authenticatedUserId == #userId")
+    public void claimShelfVersion(String userId, Shelf shelf) {
+        try {
+            shelfMetadataRepository.incrementVersion(shelf.getShelfId(), shelf.getVersion());
+        } catch (OptimisticLockingException e) {
+            throw new PreconditionFailedException("Resource was modified since it was read by the client.", e);
+        } finally {
+            requestIdentityMap.evict(Shelf.class, shelf.getShelfId());
+        }
+    }
 
-        // Update the prefetched shelf instance
-        newShelf.setShelfId(actualShelf.getShelfId());
-        profile.getShelves().removeIf(sh -> sh.getShelfId().equals(shelfId));
-        profile.getShelves().add(newShelf);
-        userProfileRepository.save(profile);
+    /**
+     * Reads the shelf metadata, unless it was already read in the current request ({@link RequestIdentityMap}).
+     */
+    private Optional<Shelf> findShelfMetadata(String shelfId) {
+        return requestIdentityMap.find(Shelf.class, shelfId, () -> shelfMetadataRepository.findMetadataById(shelfId));
+    }
 
-        return actualShelf;
+    /**
+     * Runs the transaction which writes the profile and the shelf, and keeps {@link UserProfileCache} in sync
+     * with the database. The profile is cached after a successful write. When the write failed, the cached
+     * profile may be outdated (which is the usual cause of a rejected write), so it is invalidated together with
+     * the instances modified in the current request, and the next attempt reads the database.
+     */
+    private void writeThrough(UserProfile profile, String shelfId, Runnable transaction) {
+        try {
+            transaction.run();
+        } catch (RuntimeException e) {
+            userProfileCache.invalidate(profile.getUserId());
+            requestIdentityMap.evict(UserProfile.class, profile.getUserId());
+            requestIdentityMap.evict(Shelf.class, shelfId);
+            throw e;
+        }
+        userProfileCache.put(profile);
     }
 
     /**
@@ -117,7 +218,7 @@ public class ShelfService {
      * See {@link ShelfQuotaException} for explanation.
      */
     private void validateShelfQuota(UserProfile userProfile) throws ShelfQuotaException {
-        if (userProfile.getShelves().size() >= 20) {
+        if (userProfile.getShelves().size() >= ShelfQuotaException.MAX_SHELVES) {
             throw new ShelfQuotaException("User exceeded his shelf quota (20 shelves on a single account).");
         }
     }
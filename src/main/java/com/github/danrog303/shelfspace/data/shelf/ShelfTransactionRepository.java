@@ -0,0 +1,84 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Writes a {@link Shelf} together with the {@link UserProfile} holding its {@link PrefetchedShelf} instance,
+ * in a single all-or-nothing transaction. Both entities are written only if their versions did not change
+ * since they were read.</p>
+ * <p>Also writes a single {@link ShelfItem} together with the incremented version of its shelf, so that the entity
+ * tag of the shelf changes exactly when its items do. When the write is conditional on the version of the shelf
+ * (If-Match), the item is written only if the version did not change since the shelf was read, and
+ * {@link Shelf#getVersion()} is updated afterwards. Otherwise, the version is incremented whatever its value,
+ * and the new version is not known.</p>
+ * <p>Batches of item modifications are written in transactions as well, so that every item can be conditional
+ * on its own attributes.</p>
+ */
+public interface ShelfTransactionRepository {
+    /**
+     * Saves the profile (which already lists the new shelf) and creates the shelf.
+     * @throws OptimisticLockingException When the profile was modified in the meantime or the shelf quota
+     * would be exceeded
+     */
+    void createShelf(UserProfile profile, Shelf shelf);
+
+    /**
+     * Saves the profile and the metadata of the shelf. Items of the shelf are not written.
+     * @throws OptimisticLockingException When the profile or the shelf was modified in the meantime, or the shelf
+     * does not belong to the owner of the profile
+     */
+    void updateShelf(UserProfile profile, Shelf shelf);
+
+    /**
+     * Saves the profile (which no longer lists the shelf) and deletes the shelf.
+     * Items of the shelf are not deleted.
+     * @throws OptimisticLockingException When the profile or the shelf was modified in the meantime, or the shelf
+     * does not belong to the owner of the profile
+     */
+    void deleteShelf(UserProfile profile, Shelf shelf);
+
+    /**
+     * Creates the item, and increments the version of its shelf.
+     * @param checkVersion True if the item may be written only if the version of the shelf did not change
+     * @throws OptimisticLockingException When the shelf was modified (if the version is checked) or deleted
+     * in the meantime, or another transaction was writing the shelf
+     */
+    void createShelfItem(Shelf shelf, ShelfItem item, boolean checkVersion);
+
+    /**
+     * Modifies {@link ShelfItem#getTitle()}, {@link ShelfItem#getStatus()}, {@link ShelfItem#getRating()} and
+     * {@link ShelfItem#getFinishedCount()} of an existing item (like {@link ShelfItemRepository#update(ShelfItem)}),
+     * and increments the version of its shelf.
+     * @param checkVersion True if the item may be written only if the version of the shelf did not change
+     * @return False if the item does not exist (nothing was written)
+     * @throws OptimisticLockingException When the shelf was modified (if the version is checked) or deleted
+     * in the meantime, or another transaction was writing the shelf
+     */
+    boolean updateShelfItem(Shelf shelf, ShelfItem item, boolean checkVersion);
+
+    /**
+     * Modifies the mutable attributes of many existing items (like {@link #updateShelfItem(Shelf, ShelfItem, boolean)}) in
+     * transactions of up to 100 items. The version of the shelf is not incremented. An item is written only if it
+     * still exists, and its mutable attributes still have the values which were read, so concurrent modifications
+     * are never overwritten. Items which could not be written are left out, and the rest of their transaction is
+     * written again.
+     * @param readItems Items as they were read before they were modified, by item id
+     * @return Items which could not be written, because they were modified or deleted in the meantime, or because
+     * their transaction failed
+     */
+    List<ShelfItem> updateShelfItems(List<ShelfItem> items, Map<String, ShelfItem> readItems);
+
+    /**
+     * Deletes an existing item, and increments the version of its shelf.
+     * @param checkVersion True if the item may be deleted only if the version of the shelf did not change
+     * @return False if the item does not exist (nothing was written)
+     * @throws OptimisticLockingException When the shelf was modified (if the version is checked) or deleted
+     * in the meantime, or another transaction was writing the shelf
+     */
+    boolean deleteShelfItem(Shelf shelf, String itemId, boolean checkVersion);
+}
@@ -1,6 +1,11 @@
 package com.github.danrog303.shelfspace.errors;
 
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import com.github.danrog303.shelfspace.data.export.InvalidExportRequestException;
+import com.github.danrog303.shelfspace.data.shelf.InvalidPageRequestException;
 import com.github.danrog303.shelfspace.data.shelf.ShelfQuotaException;
+import com.github.danrog303.shelfspace.services.conditional.PreconditionFailedException;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -10,6 +15,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import software.amazon.awssdk.services.cognitoidentityprovider.model.UserNotFoundException;
 
 import java.util.NoSuchElementException;
@@ -26,6 +32,18 @@ public class ErrorResponseAdvice {
         return new ErrorResponse("SHELF_QUOTA_EXCEEDED", e.getMessage());
     }
 
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ExceptionHandler({ConditionalCheckFailedException.class, OptimisticLockingException.class})
+    public ErrorResponse handleConcurrentModification() {
+        return new ErrorResponse("CONCURRENT_MODIFICATION", "Resource was modified by another request. Try again later.");
+    }
+
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ErrorResponse handlePreconditionFailed(PreconditionFailedException e) {
+        return new ErrorResponse("PRECONDITION_FAILED", e.getMessage());
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ErrorResponse handleBeanValidationFail(MethodArgumentNotValidException e) {
@@ -33,6 +51,25 @@ public class ErrorResponseAdvice {
         return new ErrorResponse("INVALID_DATA", msg);
     }
 
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ErrorResponse handleInvalidParameter(MethodArgumentTypeMismatchException e) {
+        String msg = String.format("Invalid value of parameter %s", e.getName());
+        return new ErrorResponse("INVALID_DATA", msg);
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidPageRequestException.class)
+    public ErrorResponse handleInvalidPageRequest(InvalidPageRequestException e) {
+        return new ErrorResponse("INVALID_PAGE_REQUEST", e.getMessage());
+    }
+
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    @ExceptionHandler(InvalidExportRequestException.class)
+    public ErrorResponse handleInvalidExportRequest(InvalidExportRequestException e) {
+        return new ErrorResponse("INVALID_EXPORT_REQUEST", e.getMessage());
+    }
+
     @ResponseStatus(HttpStatus.UNAUTHORIZED)
     @ExceptionHandler(UserNotFoundException.class)
     public ErrorResponse handleUnknownCognitoUser() {
@@ -0,0 +1,551 @@
+package com.github.danrog303.shelfspace.routing;
+
+import com.amazonaws.serverless.proxy.internal.LambdaContainerHandler;
+import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.serverless.proxy.model.Headers;
+import com.amazonaws.serverless.proxy.model.HttpApiV2ProxyRequest;
+import com.amazonaws.serverless.proxy.model.MultiValuedTreeMap;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.data.profile.UserProfileController;
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfController;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemBatchController;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemController;
+import com.github.danrog303.shelfspace.data.shelf.ShelfJsonWriter;
+import com.github.danrog303.shelfspace.data.shelf.ShelfService;
+import com.github.danrog303.shelfspace.errors.ErrorResponseAdvice;
+import com.github.danrog303.shelfspace.runtime.HttpResponseStream;
+import com.github.danrog303.shelfspace.services.authorization.AuthorizationProvider;
+import com.github.danrog303.shelfspace.services.compression.ContentCoding;
+import com.github.danrog303.shelfspace.services.compression.ResponseCompression;
+import com.github.danrog303.shelfspace.services.conditional.EntityTags;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
+import com.github.danrog303.shelfspace.services.security.SecurityConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnNotWebApplication;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.BearerTokenAuthenticationToken;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.SmartValidator;
+import org.springframework.web.HttpRequestMethodNotSupportedException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.method.annotation.ExceptionHandlerMethodResolver;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * <p>Routes API Gateway events directly to the REST controllers, without translating them to servlet requests
+ * and without running the {@code DispatcherServlet} and the security filter chain. Used by
+ * {@link com.github.danrog303.shelfspace.ShelfSpaceFunctionalLambdaEntrypoint}, which starts the application
+ * without the servlet stack.</p>
+ * <p>Behaves like the servlet stack for the endpoints of the API: access tokens are verified with the same
+ * {@link JwtDecoder}, request bodies are validated with the same validator, and exceptions are converted to
+ * responses by the handlers of {@link ErrorResponseAdvice}, and responses are compressed according to the same
+ * {@link ResponseCompression}. Swagger UI is only served by the servlet stack.</p>
+ */
+@Component
+@ConditionalOnNotWebApplication
+public class FunctionalRequestRouter {
+    private static final ObjectMapper EVENT_MAPPER = LambdaContainerHandler.getObjectMapper();
+
+    private static final MethodParameter CREATE_SHELF_BODY = controllerParameter(ShelfController.class, "createNewShelf", 0);
+    private static final MethodParameter UPDATE_SHELF_BODY = controllerParameter(ShelfController.class, "updateShelf", 0);
+    private static final MethodParameter ITEMS_PAGE_LIMIT = controllerParameter(ShelfItemController.class, "getShelfItemsPage", 1);
+    private static final MethodParameter CREATE_ITEM_BODY = controllerParameter(ShelfItemController.class, "createNewShelfItem", 1);
+    private static final MethodParameter UPDATE_ITEM_BODY = controllerParameter(ShelfItemController.class, "updateShelfItem", 2);
+    private static final MethodParameter CREATE_ITEMS_BODY = controllerParameter(ShelfItemBatchController.class, "createShelfItems", 1);
+    private static final MethodParameter UPDATE_ITEMS_BODY = controllerParameter(ShelfItemBatchController.class, "updateShelfItems", 1);
+    private static final MethodParameter DELETE_ITEMS_BODY = controllerParameter(ShelfItemBatchController.class, "deleteShelfItems", 1);
+
+    private final ObjectMapper jsonMapper;
+    private final SmartValidator validator;
+    private final ErrorResponseAdvice errorResponseAdvice;
+    private final ExceptionHandlerMethodResolver exceptionHandlers =
+            new ExceptionHandlerMethodResolver(ErrorResponseAdvice.class);
+    private final AuthenticationProvider authenticationProvider;
+    private final ResponseCompression responseCompression;
+    private final CorsConfiguration corsConfiguration = SecurityConfig.createCorsConfiguration();
+    private final List<Route> routes = new ArrayList<>();
+
+    public FunctionalRequestRouter(ObjectMapper jsonMapper, SmartValidator validator,
+                                   ErrorResponseAdvice errorResponseAdvice, JwtDecoder jwtDecoder,
+                                   ShelfController shelfController, ShelfItemController shelfItemController,
+                                   UserProfileController userProfileController,
+                                   AuthorizationProvider authorizationProvider, ShelfService shelfService,
+                                   ShelfJsonWriter shelfJsonWriter, ResponseCompression responseCompression,
+                                   ShelfItemBatchController shelfItemBatchController) {
+        this.jsonMapper = jsonMapper;
+        this.validator = validator;
+        this.errorResponseAdvice = errorResponseAdvice;
+        this.authenticationProvider = new JwtAuthenticationProvider(jwtDecoder);
+        this.responseCompression = responseCompression;
+
+        route(HttpMethod.GET, "/shelves", HttpStatus.OK,
+                (request, variables) -> shelfController.getUserPrefetchedShelves(readHeader(request, HttpHeaders.IF_NONE_MATCH)));
+        route(HttpMethod.POST, "/shelves", HttpStatus.CREATED,
+                (request, variables) -> shelfController.createNewShelf(readBody(request, CREATE_SHELF_BODY)));
+        // Same result as ShelfController.getShelf, but the items are serialized while they are read
+        route(HttpMethod.GET, "/shelves/{shelfId}", HttpStatus.OK, (request, variables) -> {
+            String userId = authorizationProvider.getAuthenticatedUserId();
+            Shelf shelf = shelfService.getShelfMetadata(userId, variables.get("shelfId"));
+            return EntityTags.conditionalGet(readHeader(request, HttpHeaders.IF_NONE_MATCH), shelf.getVersion(), () -> {
+                Iterable<ShelfItem> items = shelfService.iterateShelfItems(userId, shelf.getShelfId());
+                return (StreamingResponseBody) output -> shelfJsonWriter.writeShelf(shelf, items, output);
+            });
+        });
+        route(HttpMethod.PUT, "/shelves/{shelfId}", HttpStatus.OK,
+                (request, variables) -> shelfController.updateShelf(readBody(request, UPDATE_SHELF_BODY),
+                        variables.get("shelfId"), readHeader(request, HttpHeaders.IF_MATCH)));
+        route(HttpMethod.DELETE, "/shelves/{shelfId}", HttpStatus.OK,
+                (request, variables) -> shelfController.deleteShelf(variables.get("shelfId"),
+                        readHeader(request, HttpHeaders.IF_MATCH)));
+
+        route(HttpMethod.GET, "/shelves/{shelfId}/items", HttpStatus.OK,
+                (request, variables) -> shelfItemController.getShelfItemsPage(variables.get("shelfId"),
+                        readIntParameter(request, ITEMS_PAGE_LIMIT, 50),
+                        readParameter(request, "cursor", null),
+                        readParameter(request, "orderBy", "creationDate")));
+        route(HttpMethod.POST, "/shelves/{shelfId}/items", HttpStatus.CREATED,
+                (request, variables) -> shelfItemController.createNewShelfItem(variables.get("shelfId"),
+                        readBody(request, CREATE_ITEM_BODY), readHeader(request, HttpHeaders.IF_MATCH)));
+        route(HttpMethod.PUT, "/shelves/{shelfId}/items/{itemId}", HttpStatus.OK,
+                (request, variables) -> shelfItemController.updateShelfItem(variables.get("shelfId"),
+                        variables.get("itemId"), readBody(request, UPDATE_ITEM_BODY), readHeader(request, HttpHeaders.IF_MATCH)));
+        route(HttpMethod.DELETE, "/shelves/{shelfId}/items/{itemId}", HttpStatus.OK,
+                (request, variables) -> shelfItemController.deleteShelfItem(variables.get("shelfId"),
+                        variables.get("itemId"), readHeader(request, HttpHeaders.IF_MATCH)));
+        route(HttpMethod.POST, "/shelves/{shelfId}/items:batch", HttpStatus.OK,
+                (request, variables) -> shelfItemBatchController.createShelfItems(variables.get("shelfId"),
+                        readBody(request, CREATE_ITEMS_BODY), readHeader(request, HttpHeaders.IF_MATCH)));
+        route(HttpMethod.POST, "/shelves/{shelfId}/items:batchUpdate", HttpStatus.OK,
+                (request, variables) -> shelfItemBatchController.updateShelfItems(variables.get("shelfId"),
+                        readBody(request, UPDATE_ITEMS_BODY), readHeader(request, HttpHeaders.IF_MATCH)));
+        route(HttpMethod.POST, "/shelves/{shelfId}/items:batchDelete", HttpStatus.OK,
+                (request, variables) -> shelfItemBatchController.deleteShelfItems(variables.get("shelfId"),
+                        readBody(request, DELETE_ITEMS_BODY), readHeader(request, HttpHeaders.IF_MATCH)));
+
+        route(HttpMethod.GET, "/users/{userId}", HttpStatus.OK,
+                (request, variables) -> userProfileController.getUserProfile(variables.get("userId"),
+                        readHeader(request, HttpHeaders.IF_NONE_MATCH)));
+        route(HttpMethod.GET, "/users/{userId}/export", HttpStatus.OK,
+                (request, variables) -> userProfileController.exportUserData(variables.get("userId"),
+                        readParameter(request, "format", "ndjson")));
+        route(HttpMethod.DELETE, "/users/{userId}", HttpStatus.ACCEPTED,
+                (request, variables) -> userProfileController.deleteUserProfile(variables.get("userId")));
+    }
+
+    /**
+     * Reads the API Gateway event from the input stream, and writes the response to the output stream.
+     */
+    public void proxyStream(InputStream input, OutputStream output) throws IOException {
+        AwsProxyRequest request = EVENT_MAPPER.readValue(input, AwsProxyRequest.class);
+        EVENT_MAPPER.writeValue(output, route(request));
+    }
+
+    /**
+     * Reads the function URL event from the input stream, and streams the response to the output stream
+     * (see {@link #streamResponse(AwsProxyRequest, OutputStream)}).
+     */
+    public void streamFunctionUrlEvent(InputStream input, OutputStream output) throws IOException {
+        HttpApiV2ProxyRequest event = EVENT_MAPPER.readValue(input, HttpApiV2ProxyRequest.class);
+        streamResponse(toProxyRequest(event), output);
+    }
+
+    /**
+     * Handles a single API Gateway event. The whole response is buffered, and compressed bodies are base64 encoded
+     * (API Gateway decodes them, see "binaryMediaTypes" in serverless.yml).
+     */
+    public AwsProxyResponse route(AwsProxyRequest request) throws IOException {
+        Headers headers = new Headers();
+        AwsProxyResponse corsResponse = applyCorsPolicy(request, headers);
+        if (corsResponse != null) {
+            return corsResponse;
+        }
+
+        InvocationRequestAttributes requestAttributes = bindRequestAttributes();
+        try {
+            RouteResult result = handle(request);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try {
+                writeBody(result.body, body);
+            } catch (Exception e) {
+                // Streamed bodies read the data while they are written, so they may still fail here
+                result = handleException(e);
+                body.reset();
+                writeBody(result.body, body);
+            }
+
+            addResultHeaders(result, headers);
+            if (result.body == null) {
+                return new AwsProxyResponse(result.status.value(), headers, null);
+            }
+
+            Optional<ContentCoding> coding = negotiateCoding(request, headers, body.size());
+            if (coding.isEmpty()) {
+                return new AwsProxyResponse(result.status.value(), headers, body.toString(StandardCharsets.UTF_8));
+            }
+            AwsProxyResponse response = new AwsProxyResponse(result.status.value(), headers,
+                    Base64.getEncoder().encodeToString(coding.get().encode(body.toByteArray())));
+            response.setBase64Encoded(true);
+            return response;
+        } finally {
+            unbindRequestAttributes(requestAttributes);
+        }
+    }
+
+    /**
+     * Handles a single event, and writes the response to the output stream while it is being produced, prefixed
+     * with the prelude of {@link HttpResponseStream}. Errors which happen after the response started (e.g. when
+     * the items of a streamed shelf could not be read) cannot change the status anymore, so they are rethrown.
+     * Streamed bodies are compressed while they are written, regardless of their size, which is not known up front.
+     */
+    public void streamResponse(AwsProxyRequest request, OutputStream output) throws IOException {
+        Headers headers = new Headers();
+        AwsProxyResponse corsResponse = applyCorsPolicy(request, headers);
+        if (corsResponse != null) {
+            OutputStream body = HttpResponseStream.from(output, corsResponse.getStatusCode(), toSingleValued(headers));
+            if (corsResponse.getBody() != null) {
+                body.write(corsResponse.getBody().getBytes(StandardCharsets.UTF_8));
+            }
+            return;
+        }
+
+        InvocationRequestAttributes requestAttributes = bindRequestAttributes();
+        try {
+            RouteResult result = handle(request);
+            addResultHeaders(result, headers);
+            Optional<ContentCoding> coding = result.body instanceof StreamingResponseBody
+                    ? negotiateCoding(request, headers, ResponseCompression.UNKNOWN_SIZE)
+                    : Optional.empty();
+
+            OutputStream body = HttpResponseStream.from(output, result.status.value(), toSingleValued(headers));
+            if (coding.isPresent()) {
+                DeflaterOutputStream encodedBody = coding.get().encode(body);
+                writeBody(result.body, encodedBody);
+                encodedBody.finish();
+            } else {
+                writeBody(result.body, body);
+            }
+        } finally {
+            unbindRequestAttributes(requestAttributes);
+        }
+    }
+
+    private RouteResult handle(AwsProxyRequest request) {
+        try {
+            SecurityContextHolder.getContext().setAuthentication(authenticate(request));
+            return dispatch(request);
+        } catch (AuthenticationException e) {
+            return new RouteResult(HttpStatus.UNAUTHORIZED, SecurityConfig.createUnauthorizedResponse());
+        } catch (Exception e) {
+            return handleException(e);
+        }
+    }
+
+    private RouteResult dispatch(AwsProxyRequest request) throws Exception {
+        PathContainer path = PathContainer.parsePath(request.getPath());
+        boolean pathMatched = false;
+        for (Route route : routes) {
+            PathPattern.PathMatchInfo match = route.pattern.matchAndExtract(path);
+            if (match == null) {
+                continue;
+            }
+
+            pathMatched = true;
+            if (route.method.matches(request.getHttpMethod())) {
+                Object body = route.handler.handle(request, match.getUriVariables());
+                if (body instanceof ResponseEntity) {
+                    ResponseEntity<?> entity = (ResponseEntity<?>) body;
+                    return new RouteResult(entity.getStatusCode(), entity.getHeaders(), entity.getBody());
+                }
+                return new RouteResult(route.status, body);
+            }
+        }
+
+        if (pathMatched) {
+            throw new HttpRequestMethodNotSupportedException(request.getHttpMethod());
+        }
+        throw new NoSuchElementException("No endpoint matches " + request.getPath());
+    }
+
+    /**
+     * Adds the headers of the result, and the content type unless the result has no body (e.g. 304 Not Modified).
+     * Bodies are JSON, unless the result declares another content type (e.g. exports).
+     */
+    private static void addResultHeaders(RouteResult result, Headers headers) {
+        result.headers.forEach((name, values) -> values.forEach(value -> headers.add(name, value)));
+        if (result.body != null && !result.headers.containsKey(HttpHeaders.CONTENT_TYPE)) {
+            headers.putSingle(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+        }
+    }
+
+    /**
+     * Chooses the coding of a response, and adds the headers which describe it. The entity tag of a compressed
+     * response is suffixed with the coding (see {@link EntityTags#withCoding(String, ContentCoding)}).
+     * @param size Size of the body in bytes, or {@link ResponseCompression#UNKNOWN_SIZE}
+     */
+    private Optional<ContentCoding> negotiateCoding(AwsProxyRequest request, Headers headers, long size) {
+        if (!responseCompression.isCompressible(headers.getFirst(HttpHeaders.CONTENT_TYPE), size)) {
+            return Optional.empty();
+        }
+
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        Optional<ContentCoding> coding = ContentCoding.negotiate(readHeader(request, HttpHeaders.ACCEPT_ENCODING));
+        coding.ifPresent(chosen -> {
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, chosen.getToken());
+            String entityTag = headers.getFirst(HttpHeaders.ETAG);
+            if (entityTag != null) {
+                headers.putSingle(HttpHeaders.ETAG, EntityTags.withCoding(entityTag, chosen));
+            }
+        });
+        return coding;
+    }
+
+    private void writeBody(Object body, OutputStream output) throws IOException {
+        if (body == null) {
+            return;
+        }
+        if (body instanceof StreamingResponseBody) {
+            ((StreamingResponseBody) body).writeTo(output);
+        } else {
+            output.write(jsonMapper.writeValueAsBytes(body));
+        }
+    }
+
+    private InvocationRequestAttributes bindRequestAttributes() {
+        InvocationRequestAttributes requestAttributes = new InvocationRequestAttributes();
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+        return requestAttributes;
+    }
+
+    private void unbindRequestAttributes(InvocationRequestAttributes requestAttributes) {
+        SecurityContextHolder.clearContext();
+        RequestContextHolder.resetRequestAttributes();
+        requestAttributes.requestCompleted();
+    }
+
+    /**
+     * Verifies the bearer token of the request, like the resource server configuration of {@link SecurityConfig}.
+     */
+    private Authentication authenticate(AwsProxyRequest request) {
+        String authorization = readHeader(request, HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            throw new AuthenticationCredentialsNotFoundException("Access token was not specified");
+        }
+        return authenticationProvider.authenticate(new BearerTokenAuthenticationToken(authorization.substring(7).trim()));
+    }
+
+    /**
+     * Adds the CORS headers, like the CORS filter of the servlet stack does. Returns the final response
+     * for preflight requests and for requests from disallowed origins, otherwise null.
+     */
+    private AwsProxyResponse applyCorsPolicy(AwsProxyRequest request, Headers headers) {
+        String origin = readHeader(request, HttpHeaders.ORIGIN);
+        if (origin == null) {
+            return null;
+        }
+
+        String allowedOrigin = corsConfiguration.checkOrigin(origin);
+        if (allowedOrigin == null) {
+            return new AwsProxyResponse(HttpStatus.FORBIDDEN.value(), headers, "Invalid CORS request");
+        }
+        headers.add(HttpHeaders.VARY, HttpHeaders.ORIGIN);
+        headers.putSingle(HttpHeaders.ACCESS_CONTROL_ALLOW_ORIGIN, allowedOrigin);
+        headers.putSingle(HttpHeaders.ACCESS_CONTROL_ALLOW_CREDENTIALS, "true");
+
+        String requestedMethod = readHeader(request, HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD);
+        if (!HttpMethod.OPTIONS.matches(request.getHttpMethod()) || requestedMethod == null) {
+            List<String> exposedHeaders = corsConfiguration.getExposedHeaders();
+            if (exposedHeaders != null && !exposedHeaders.isEmpty()) {
+                headers.putSingle(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, String.join(", ", exposedHeaders));
+            }
+            return null;
+        }
+        headers.putSingle(HttpHeaders.ACCESS_CONTROL_ALLOW_METHODS, requestedMethod);
+        String requestedHeaders = readHeader(request, HttpHeaders.ACCESS_CONTROL_REQUEST_HEADERS);
+        if (requestedHeaders != null) {
+            headers.putSingle(HttpHeaders.ACCESS_CONTROL_ALLOW_HEADERS, requestedHeaders);
+        }
+        headers.putSingle(HttpHeaders.ACCESS_CONTROL_MAX_AGE, String.valueOf(corsConfiguration.getMaxAge()));
+        return new AwsProxyResponse(HttpStatus.OK.value(), headers);
+    }
+
+    /**
+     * Converts the exception to a response with the matching handler of {@link ErrorResponseAdvice}.
+     */
+    private RouteResult handleException(Exception e) {
+        Method handler = exceptionHandlers.resolveMethod(e);
+        Object[] arguments = Arrays.stream(handler.getParameterTypes())
+                .map(type -> type.isInstance(e) ? e : null)
+                .toArray();
+        Object body = ReflectionUtils.invokeMethod(handler, errorResponseAdvice, arguments);
+
+        ResponseStatus status = AnnotatedElementUtils.findMergedAnnotation(handler, ResponseStatus.class);
+        return new RouteResult(status == null ? HttpStatus.OK : status.code(), body);
+    }
+
+    /**
+     * Deserializes and validates the request body, like a {@code @Valid @RequestBody} parameter.
+     */
+    private <T> T readBody(AwsProxyRequest request, MethodParameter parameter) throws MethodArgumentNotValidException {
+        String body = request.getBody() == null ? "" : request.getBody();
+        if (request.isBase64Encoded()) {
+            body = new String(Base64.getMimeDecoder().decode(body), StandardCharsets.UTF_8);
+        }
+
+        @SuppressWarnings("unchecked")
+        Class<T> type = (Class<T>) parameter.getParameterType();
+        T value;
+        try {
+            value = jsonMapper.readValue(body, type);
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Could not read the request body", e, (HttpInputMessage) null);
+        }
+
+        BeanPropertyBindingResult bindingResult = new BeanPropertyBindingResult(value, parameter.getParameterName());
+        validator.validate(value, bindingResult);
+        if (bindingResult.hasErrors()) {
+            throw new MethodArgumentNotValidException(parameter, bindingResult);
+        }
+        return value;
+    }
+
+    private static int readIntParameter(AwsProxyRequest request, MethodParameter parameter, int defaultValue) {
+        String value = readParameter(request, parameter.getParameterName(), null);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new MethodArgumentTypeMismatchException(value, int.class, parameter.getParameterName(), parameter, e);
+        }
+    }
+
+    private static String readParameter(AwsProxyRequest request, String name, String defaultValue) {
+        MultiValuedTreeMap<String, String> parameters = request.getMultiValueQueryStringParameters();
+        String value = parameters == null ? null : parameters.getFirst(name);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Converts the event of a function URL (payload format 2.0) to the event format of the REST API.
+     */
+    private static AwsProxyRequest toProxyRequest(HttpApiV2ProxyRequest event) {
+        AwsProxyRequest request = new AwsProxyRequest();
+        request.setHttpMethod(event.getRequestContext().getHttp().getMethod());
+        request.setPath(event.getRawPath());
+        request.setBody(event.getBody());
+        request.setIsBase64Encoded(event.isBase64Encoded());
+
+        Headers headers = new Headers();
+        if (event.getHeaders() != null) {
+            event.getHeaders().forEach(headers::putSingle);
+        }
+        request.setMultiValueHeaders(headers);
+
+        MultiValuedTreeMap<String, String> parameters = new MultiValuedTreeMap<>();
+        if (event.getQueryStringParameters() != null) {
+            event.getQueryStringParameters().forEach(parameters::putSingle);
+        }
+        request.setMultiValueQueryStringParameters(parameters);
+        return request;
+    }
+
+    private static Map<String, String> toSingleValued(Headers headers) {
+        Map<String, String> singleValued = new LinkedHashMap<>();
+        headers.forEach((name, values) -> singleValued.put(name, String.join(",", values)));
+        return singleValued;
+    }
+
+    private static String readHeader(AwsProxyRequest request, String name) {
+        if (request.getMultiValueHeaders() != null) {
+            return request.getMultiValueHeaders().getFirst(name);
+        }
+        return request.getHeaders() == null ? null : request.getHeaders().get(name);
+    }
+
+    /**
+     * Parameter of the controller method, used to report binding errors in the same way as the servlet stack.
+     */
+    private static MethodParameter controllerParameter(Class<?> controller, String methodName, int index) {
+        Method method = Arrays.stream(controller.getMethods())
+                .filter(candidate -> candidate.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown controller method: " + methodName));
+        MethodParameter parameter = new MethodParameter(method, index);
+        parameter.initParameterNameDiscovery(new DefaultParameterNameDiscoverer());
+        return parameter;
+    }
+
+    private void route(HttpMethod method, String pattern, HttpStatus status, RouteHandler handler) {
+        routes.add(new Route(method, PathPatternParser.defaultInstance.parse(pattern), status, handler));
+    }
+
+    @FunctionalInterface
+    private interface RouteHandler {
+        Object handle(AwsProxyRequest request, Map<String, String> pathVariables) throws Exception;
+    }
+
+    @RequiredArgsConstructor
+    private static class RouteResult {
+        private final HttpStatus status;
+        private final HttpHeaders headers;
+        private final Object body;
+
+        private RouteResult(HttpStatus status, Object body) {
+            this(status, HttpHeaders.EMPTY, body);
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Route {
+        private final HttpMethod method;
+        private final PathPattern pattern;
+        private final HttpStatus status;
+        private final RouteHandler handler;
+    }
+}
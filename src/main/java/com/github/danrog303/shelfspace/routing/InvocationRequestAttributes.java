@@ -0,0 +1,73 @@
+package com.github.danrog303.shelfspace.routing;
+
+import org.springframework.web.context.request.RequestAttributes;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Request-scoped attributes of a single invocation handled by {@link FunctionalRequestRouter}. Bound to
+ * {@link org.springframework.web.context.request.RequestContextHolder} like the attributes of a servlet request,
+ * so that request-scoped components work the same way in both routing modes. There is no session.
+ */
+class InvocationRequestAttributes implements RequestAttributes {
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final Map<String, Runnable> destructionCallbacks = new HashMap<>();
+
+    @Override
+    public Object getAttribute(String name, int scope) {
+        return scope == SCOPE_REQUEST ? attributes.get(name) : null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value, int scope) {
+        if (scope != SCOPE_REQUEST) {
+            throw new IllegalStateException("Invocations of the functional router have no session");
+        }
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name, int scope) {
+        if (scope == SCOPE_REQUEST) {
+            attributes.remove(name);
+            destructionCallbacks.remove(name);
+        }
+    }
+
+    @Override
+    public String[] getAttributeNames(int scope) {
+        return scope == SCOPE_REQUEST ? attributes.keySet().toArray(new String[0]) : new String[0];
+    }
+
+    @Override
+    public void registerDestructionCallback(String name, Runnable callback, int scope) {
+        if (scope == SCOPE_REQUEST) {
+            destructionCallbacks.put(name, callback);
+        }
+    }
+
+    @Override
+    public Object resolveReference(String key) {
+        return REFERENCE_REQUEST.equals(key) ? this : null;
+    }
+
+    @Override
+    public String getSessionId() {
+        throw new IllegalStateException("Invocations of the functional router have no session");
+    }
+
+    @Override
+    public Object getSessionMutex() {
+        throw new IllegalStateException("Invocations of the functional router have no session");
+    }
+
+    /**
+     * Runs the destruction callbacks of request-scoped beans, after the invocation was handled.
+     */
+    void requestCompleted() {
+        destructionCallbacks.values().forEach(Runnable::run);
+        destructionCallbacks.clear();
+        attributes.clear();
+    }
+}
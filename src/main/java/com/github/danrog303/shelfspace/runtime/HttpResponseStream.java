@@ -0,0 +1,42 @@
+package com.github.danrog303.shelfspace.runtime;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the HTTP status and headers of a streamed response (see {@link ResponseStreamingHandler}), in the
+ * format expected by Lambda function URLs: a JSON prelude followed by 8 null bytes, after which the body follows.
+ */
+public final class HttpResponseStream {
+    /**
+     * Content type of the streamed response posted to the Runtime API.
+     */
+    public static final String CONTENT_TYPE = "application/vnd.awslambda.http-integration-response";
+
+    private static final ObjectMapper PRELUDE_MAPPER = new ObjectMapper();
+    private static final byte[] PRELUDE_DELIMITER = new byte[8];
+
+    private HttpResponseStream() {
+    }
+
+    /**
+     * Writes the prelude to the output stream, and flushes it, so that the client receives the status
+     * before the body is produced.
+     * @return The same output stream, to which the body should be written
+     */
+    public static OutputStream from(OutputStream output, int statusCode, Map<String, String> headers)
+            throws IOException {
+        Map<String, Object> prelude = new LinkedHashMap<>();
+        prelude.put("statusCode", statusCode);
+        prelude.put("headers", headers);
+
+        output.write(PRELUDE_MAPPER.writeValueAsBytes(prelude));
+        output.write(PRELUDE_DELIMITER);
+        output.flush();
+        return output;
+    }
+}
@@ -0,0 +1,201 @@
+package com.github.danrog303.shelfspace.runtime;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.ShelfSpaceAwsLambdaEntrypoint;
+import com.github.danrog303.shelfspace.ShelfSpaceFunctionalLambdaEntrypoint;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Main class of the native executable (see the "native" Maven profile), which runs on the Lambda
+ * custom runtime. Implements the loop of the Lambda Runtime API: fetches the next invocation event, passes it
+ * to the entrypoint handler selected by the "_HANDLER" environment variable, and posts back the response
+ * or the error. Output of a {@link ResponseStreamingHandler} is streamed to the Runtime API while it is being
+ * written.</p>
+ * <p>On the managed "java11" runtime, this loop is implemented by Lambda itself, so this class is not used.</p>
+ */
+@Slf4j
+public class LambdaCustomRuntime {
+    private static final String API_VERSION = "2018-06-01";
+    private static final ObjectMapper ERROR_MAPPER = new ObjectMapper();
+    private static final int STREAMING_CHUNK_SIZE = 8192;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String runtimeApiUrl;
+    private final RequestStreamHandler handler;
+    private final Clock clock;
+
+    public LambdaCustomRuntime(String runtimeApiAddress, RequestStreamHandler handler, Clock clock) {
+        this.runtimeApiUrl = "http://" + runtimeApiAddress + "/" + API_VERSION + "/runtime";
+        this.handler = handler;
+        this.clock = clock;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String runtimeApiAddress = System.getenv("AWS_LAMBDA_RUNTIME_API");
+        RequestStreamHandler handler;
+        try {
+            handler = createHandler(System.getenv("_HANDLER"));
+        } catch (RuntimeException | ExceptionInInitializerError e) {
+            new LambdaCustomRuntime(runtimeApiAddress, null, Clock.systemUTC()).reportInitializationError(e);
+            throw e;
+        }
+
+        new LambdaCustomRuntime(runtimeApiAddress, handler, Clock.systemUTC()).run();
+    }
+
+    /**
+     * Selects the entrypoint and its method, which handles the events of the function.
+     * @param handlerName Handler from the function configuration, e.g. "ShelfSpaceAwsLambdaEntrypoint::handleRequest"
+     *                    or "ShelfSpaceFunctionalLambdaEntrypoint::handleStreamingRequest"
+     */
+    static RequestStreamHandler createHandler(String handlerName) {
+        String methodName = handlerName == null ? "handleRequest" : handlerName.substring(handlerName.lastIndexOf(':') + 1);
+        boolean functional = handlerName != null
+                && handlerName.contains(ShelfSpaceFunctionalLambdaEntrypoint.class.getSimpleName());
+        boolean knownMethod = methodName.equals("handleRequest") || methodName.equals("handleAccountDeletions")
+                || (functional && methodName.equals("handleStreamingRequest"));
+        if (!knownMethod) {
+            throw new IllegalArgumentException("Unknown handler: " + handlerName);
+        }
+
+        // Starts the Spring application
+        if (functional) {
+            ShelfSpaceFunctionalLambdaEntrypoint entrypoint = new ShelfSpaceFunctionalLambdaEntrypoint();
+            switch (methodName) {
+                case "handleStreamingRequest":
+                    return (ResponseStreamingHandler) entrypoint::handleStreamingRequest;
+                case "handleAccountDeletions":
+                    return entrypoint::handleAccountDeletions;
+                default:
+                    return entrypoint;
+            }
+        }
+
+        ShelfSpaceAwsLambdaEntrypoint entrypoint = new ShelfSpaceAwsLambdaEntrypoint();
+        if (methodName.equals("handleRequest")) {
+            return entrypoint;
+        }
+
+        return (input, output, context) -> {
+            try {
+                entrypoint.handleAccountDeletions(input, output, context);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while deleting accounts");
+            }
+        };
+    }
+
+    /**
+     * Processes invocations until the process is frozen or killed by Lambda.
+     */
+    public void run() throws IOException, InterruptedException {
+        while (!Thread.currentThread().isInterrupted()) {
+            processNextInvocation();
+        }
+    }
+
+    /**
+     * Waits for the next invocation event, handles it and reports the result to the Runtime API.
+     */
+    public void processNextInvocation() throws IOException, InterruptedException {
+        HttpRequest nextRequest = HttpRequest.newBuilder(URI.create(runtimeApiUrl + "/invocation/next")).GET().build();
+        HttpResponse<byte[]> next = httpClient.send(nextRequest, HttpResponse.BodyHandlers.ofByteArray());
+
+        String requestId = next.headers().firstValue("Lambda-Runtime-Aws-Request-Id")
+                .orElseThrow(() -> new IOException("Runtime API did not return the request id"));
+        long deadlineMillis = next.headers().firstValue("Lambda-Runtime-Deadline-Ms").map(Long::parseLong).orElse(0L);
+        String functionArn = next.headers().firstValue("Lambda-Runtime-Invoked-Function-Arn").orElse(null);
+        next.headers().firstValue("Lambda-Runtime-Trace-Id")
+                .ifPresent(traceId -> System.setProperty("com.amazonaws.xray.traceHeader", traceId));
+        CustomRuntimeContext context = new CustomRuntimeContext(requestId, deadlineMillis, functionArn, clock);
+        if (handler instanceof ResponseStreamingHandler) {
+            streamResponse(requestId, next.body(), context);
+            return;
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            handler.handleRequest(new ByteArrayInputStream(next.body()), output, context);
+        } catch (Exception e) {
+            log.error("Invocation {} failed", requestId, e);
+            post("/invocation/" + requestId + "/error", errorBody(e), true);
+            return;
+        }
+        post("/invocation/" + requestId + "/response", output.toByteArray(), false);
+    }
+
+    /**
+     * Posts the output of the streaming handler to the Runtime API while it is being written, using chunked
+     * transfer encoding. Once the first chunk was sent, the invocation can no longer be reported as failed,
+     * so a failure of the handler aborts the response instead.
+     */
+    private void streamResponse(String requestId, byte[] event, Context context) throws IOException {
+        URL responseUrl = URI.create(runtimeApiUrl + "/invocation/" + requestId + "/response").toURL();
+        HttpURLConnection connection = (HttpURLConnection) responseUrl.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(STREAMING_CHUNK_SIZE);
+        connection.setRequestProperty("Lambda-Runtime-Function-Response-Mode", "streaming");
+        connection.setRequestProperty("Content-Type", HttpResponseStream.CONTENT_TYPE);
+
+        try {
+            OutputStream output = connection.getOutputStream();
+            handler.handleRequest(new ByteArrayInputStream(event), output, context);
+            output.close();
+        } catch (Exception e) {
+            log.error("Streamed invocation {} failed", requestId, e);
+            connection.disconnect();
+            return;
+        }
+
+        if (connection.getResponseCode() != 202) {
+            log.warn("Runtime API rejected the streamed response of {} with status {}", requestId,
+                    connection.getResponseCode());
+        }
+    }
+
+    /**
+     * Reports the failure of the application initialization, after which Lambda discards the execution environment.
+     */
+    public void reportInitializationError(Throwable e) throws IOException, InterruptedException {
+        post("/init/error", errorBody(e), true);
+    }
+
+    private void post(String path, byte[] body, boolean error) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(runtimeApiUrl + path))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (error) {
+            request.header("Lambda-Runtime-Function-Error-Type", "Unhandled");
+        }
+
+        HttpResponse<Void> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 202) {
+            log.warn("Runtime API rejected {} with status {}", path, response.statusCode());
+        }
+    }
+
+    private static byte[] errorBody(Throwable e) throws IOException {
+        Map<String, String> error = new LinkedHashMap<>();
+        error.put("errorMessage", String.valueOf(e.getMessage()));
+        error.put("errorType", e.getClass().getName());
+        return ERROR_MAPPER.writeValueAsBytes(error);
+    }
+}
@@ -0,0 +1,13 @@
+package com.github.danrog303.shelfspace.runtime;
+
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+
+/**
+ * <p>Handler of a function with response streaming enabled (invoked through a function URL with the
+ * "RESPONSE_STREAM" invoke mode). Everything written to the output stream is sent to the client right away,
+ * instead of being buffered until the handler returns.</p>
+ * <p>The output must start with the prelude written by {@link HttpResponseStream}. Response streaming is
+ * implemented by {@link LambdaCustomRuntime}, so it is only available on the custom runtime.</p>
+ */
+public interface ResponseStreamingHandler extends RequestStreamHandler {
+}
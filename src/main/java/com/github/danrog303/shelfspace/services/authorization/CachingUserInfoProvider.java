@@ -0,0 +1,80 @@
+package com.github.danrog303.shelfspace.services.authorization;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.AllArgsConstructor;
+
+import java.time.Duration;
+
+/**
+ * <p>Decorator of {@link UserInfoProvider}, which keeps the retrieved {@link UserInfo}s in a cache bounded
+ * by size and time, so that the authentication server (and its API rate limits) is not queried on every call.</p>
+ * <p>Failures of the specified "not found" type are cached too (for a shorter time), because they are expected
+ * to repeat. Concurrent calls for the same user share a single call to the decorated provider.
+ * Hits, misses and evictions are reported as "cache.*" metrics with the "userInfos" cache tag.</p>
+ */
+public class CachingUserInfoProvider implements UserInfoProvider {
+    private final LoadingCache<String, CachedUserInfo> cache;
+
+    public CachingUserInfoProvider(UserInfoProvider delegate, Class<? extends RuntimeException> notFoundException,
+                                   Duration ttl, Duration notFoundTtl, long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfter(new CachedUserInfoExpiry(ttl, notFoundTtl))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build(userId -> {
+                    try {
+                        return new CachedUserInfo(delegate.getUserInfo(userId), null);
+                    } catch (RuntimeException e) {
+                        if (notFoundException.isInstance(e)) {
+                            return new CachedUserInfo(null, e);
+                        }
+                        throw e;
+                    }
+                });
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, "userInfos");
+    }
+
+    /**
+     * Retrieves the {@link UserInfo} from the cache, or from the decorated provider on cache miss.
+     * Other failures than "not found" are not cached, and are rethrown to every waiting caller.
+     */
+    @Override
+    public UserInfo getUserInfo(String userId) {
+        CachedUserInfo cachedUserInfo = cache.get(userId);
+        if (cachedUserInfo.notFound != null) {
+            throw cachedUserInfo.notFound;
+        }
+        return cachedUserInfo.userInfo;
+    }
+
+    @AllArgsConstructor
+    private static class CachedUserInfo {
+        private final UserInfo userInfo;
+        private final RuntimeException notFound;
+    }
+
+    @AllArgsConstructor
+    private static class CachedUserInfoExpiry implements Expiry<String, CachedUserInfo> {
+        private final Duration ttl;
+        private final Duration notFoundTtl;
+
+        @Override
+        public long expireAfterCreate(String userId, CachedUserInfo value, long currentTime) {
+            return (value.notFound != null ? notFoundTtl : ttl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String userId, CachedUserInfo value, long currentTime, long currentDuration) {
+            return expireAfterCreate(userId, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String userId, CachedUserInfo value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -6,6 +6,7 @@ package com.github.danrog303.shelfspace.services.authorization;
 public interface UserDeleteProvider {
     /**
      * Sends request to the authentication server to remove user with the specified id.
+     * Does nothing if the user does not exist (e.g. was already deleted).
      */
     void deleteUser(String userId);
 }
\ No newline at end of file
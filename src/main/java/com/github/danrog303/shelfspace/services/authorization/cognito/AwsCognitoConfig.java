@@ -1,10 +1,21 @@
 package com.github.danrog303.shelfspace.services.authorization.cognito;
 
+import com.github.danrog303.shelfspace.services.authorization.CachingUserInfoProvider;
+import com.github.danrog303.shelfspace.services.authorization.UserInfoProvider;
+import com.github.danrog303.shelfspace.services.aws.ResettableSdkHttpClient;
+import com.github.danrog303.shelfspace.services.metrics.AwsSdkMetricsInterceptor;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
+import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClientBuilder;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.UserNotFoundException;
+
+import java.net.URI;
+import java.time.Duration;
 
 /**
  * Exposes Spring Beans related to Amazon Cognito service.
@@ -13,14 +24,36 @@ import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityPr
 @RequiredArgsConstructor
 public class AwsCognitoConfig {
     private final Region awsRegion;
+    private final AwsSdkMetricsInterceptor metricsInterceptor;
+    private final ResettableSdkHttpClient awsHttpClient;
 
     /**
-     * Instance of Amazon Cognito client.
+     * Instance of Amazon Cognito client. Connects to "amazon.aws.cognito.endpoint" when it is set
+     * (e.g. to a stub of the service in load tests).
      */
     @Bean
-    public CognitoIdentityProviderClient cognitoIdentityProviderClient() {
-        return CognitoIdentityProviderClient.builder()
+    public CognitoIdentityProviderClient cognitoIdentityProviderClient(@Value("${amazon.aws.cognito.endpoint}") String endpoint) {
+        CognitoIdentityProviderClientBuilder builder = CognitoIdentityProviderClient.builder()
+                .httpClient(awsHttpClient)
                 .region(awsRegion)
-                .build();
+                .overrideConfiguration(config -> config.addExecutionInterceptor(metricsInterceptor));
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    /**
+     * {@link UserInfoProvider} used by the application, which caches responses of {@link AwsCognitoUserInfoProvider}
+     * (including "user not found" responses), to stay within the Cognito API rate limits.
+     */
+    @Bean
+    @Primary
+    public UserInfoProvider cachingUserInfoProvider(AwsCognitoUserInfoProvider cognitoUserInfoProvider,
+                                                    @Value("${shelfspace.user-info-cache.ttl-seconds}") long ttlSeconds,
+                                                    @Value("${shelfspace.user-info-cache.not-found-ttl-seconds}") long notFoundTtlSeconds,
+                                                    @Value("${shelfspace.user-info-cache.max-size}") long maxSize) {
+        return new CachingUserInfoProvider(cognitoUserInfoProvider, UserNotFoundException.class,
+                Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(notFoundTtlSeconds), maxSize);
     }
 }
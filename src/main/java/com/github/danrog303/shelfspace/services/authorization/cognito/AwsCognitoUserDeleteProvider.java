@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.services.cognitoidentityprovider.CognitoIdentityProviderClient;
 import software.amazon.awssdk.services.cognitoidentityprovider.model.AdminDeleteUserRequest;
+import software.amazon.awssdk.services.cognitoidentityprovider.model.UserNotFoundException;
 
 /**
  * AWS Cognito implementation of {@link UserDeleteProvider}.
@@ -28,6 +29,10 @@ public class AwsCognitoUserDeleteProvider implements UserDeleteProvider {
                 .userPoolId(cognitoUserPoolId)
                 .build();
 
-        cognitoClient.adminDeleteUser(deleteUserRequest);
+        try {
+            cognitoClient.adminDeleteUser(deleteUserRequest);
+        } catch (UserNotFoundException e) {
+            // User was already deleted
+        }
     }
 }
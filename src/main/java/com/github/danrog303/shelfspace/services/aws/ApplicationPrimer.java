@@ -0,0 +1,168 @@
+package com.github.danrog303.shelfspace.services.aws;
+
+import com.amazonaws.http.IdleConnectionReaper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperTableModel;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.data.profile.AccountDeletionTask;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.profile.UserProfileCache;
+import com.github.danrog303.shelfspace.data.profile.UserProfileService;
+import com.github.danrog303.shelfspace.data.shelf.*;
+import com.github.danrog303.shelfspace.errors.ErrorResponse;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingRetrier;
+import com.github.danrog303.shelfspace.services.database.enhanced.ShelfSpaceTableSchemas;
+import com.github.danrog303.shelfspace.services.security.PrefetchingJwkSource;
+import lombok.RequiredArgsConstructor;
+import org.apache.http.conn.HttpClientConnectionManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Exercises the code paths of a typical request before a snapshot of the application is taken
+ * (see Lambda SnapStart), so that classes are loaded and initialized, and lazily built caches (Jackson
+ * serializers, DynamoDB table models, parsed security expressions) are already populated in the snapshot.</p>
+ * <p>Priming never calls the database: the data is served by {@link UserProfileCache} instead. It does fetch
+ * the keys of the authentication server over HTTPS (as does {@link PrefetchingJwkSource} at startup), but that
+ * connection is closed after every fetch. Connections pooled by the AWS SDK clients (e.g. opened by scheduled
+ * tasks before the snapshot was taken) would be dead after restore, so they are closed by
+ * {@link #resetAfterRestore()}: idle connections of the SDK v1 clients are evicted, and the HTTP clients of
+ * the SDK v2 clients ({@link ResettableSdkHttpClient}, {@link ResettableSdkAsyncHttpClient}) are created again.</p>
+ * <p>The application does not keep {@link java.security.SecureRandom} instances of its own, except the source
+ * of the retry delays of {@link OptimisticLockingRetrier}, which is created again after restore. Random ids are
+ * generated by {@link java.util.UUID#randomUUID()}, whose generator (NativePRNG on Linux) mixes new input from
+ * /dev/urandom into every value, so copies restored from the same snapshot do not generate the same ids.</p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ApplicationPrimer {
+    /**
+     * Id of the user, whose profile is read during priming. Does not belong to any real user.
+     */
+    public static final String SYNTHETIC_USER_ID = "00000000-0000-0000-0000-000000000000";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<DynamoDBMapper> dynamoDBMapper;
+    private final PrefetchingJwkSource jwkSource;
+    private final UserProfileService userProfileService;
+    private final UserProfileCache userProfileCache;
+    private final ResettableSdkHttpClient awsHttpClient;
+    private final ObjectProvider<ResettableSdkAsyncHttpClient> dynamoDbAsyncHttpClient;
+    private final OptimisticLockingRetrier optimisticLockingRetrier;
+
+    /**
+     * Fetches the keys used to verify access tokens, and warms up serialization of the entities and
+     * authorization of the service methods.
+     */
+    public void primeBeforeCheckpoint() throws IOException {
+        jwkSource.refreshQuietly();
+
+        UserProfile profile = createSyntheticProfile();
+        Shelf shelf = createSyntheticShelf();
+        primeJsonSerialization(profile, shelf);
+        primeDatabaseMapping(profile, shelf);
+        primeMethodSecurity(profile);
+    }
+
+    /**
+     * Closes the connections and refreshes the state, which may be outdated after the application was restored
+     * from a snapshot.
+     */
+    public void resetAfterRestore() {
+        // Pooled connections were opened before the snapshot was taken, and their peers have closed them since then
+        for (HttpClientConnectionManager connectionManager : IdleConnectionReaper.getRegisteredConnectionManagers()) {
+            connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+        }
+        awsHttpClient.reset();
+        dynamoDbAsyncHttpClient.ifAvailable(ResettableSdkAsyncHttpClient::reset);
+        optimisticLockingRetrier.resetRandom();
+
+        // The snapshot may be days old, so the keys of the authentication server might have been rotated since then
+        jwkSource.refreshQuietly();
+        userProfileCache.invalidate(SYNTHETIC_USER_ID);
+    }
+
+    private void primeJsonSerialization(UserProfile profile, Shelf shelf) throws IOException {
+        objectMapper.writeValueAsBytes(profile);
+        objectMapper.writeValueAsBytes(shelf);
+        objectMapper.writeValueAsBytes(new ShelfItemPage(shelf.getItems(), "cursor"));
+        objectMapper.writeValueAsBytes(new ErrorResponse("NOT_FOUND", "Priming"));
+
+        // Request bodies
+        objectMapper.readValue(objectMapper.writeValueAsBytes(profile.getShelves().get(0)), PrefetchedShelf.class);
+        objectMapper.readValue(objectMapper.writeValueAsBytes(shelf.getItems().get(0)), ShelfItem.class);
+    }
+
+    private void primeDatabaseMapping(UserProfile profile, Shelf shelf) {
+        ShelfItem item = shelf.getItems().get(0);
+        AccountDeletionTask task = new AccountDeletionTask(SYNTHETIC_USER_ID, new Date(), 0, new Date(), null);
+
+        DynamoDBMapper mapper = dynamoDBMapper.getIfAvailable();
+        if (mapper != null) {
+            primeTableModel(mapper.getTableModel(UserProfile.class), profile);
+            primeTableModel(mapper.getTableModel(Shelf.class), shelf);
+            primeTableModel(mapper.getTableModel(ShelfItem.class), item);
+            primeTableModel(mapper.getTableModel(AccountDeletionTask.class), task);
+        } else {
+            primeTableSchema(ShelfSpaceTableSchemas.USER_PROFILE, profile);
+            primeTableSchema(ShelfSpaceTableSchemas.SHELF, shelf);
+            primeTableSchema(ShelfSpaceTableSchemas.SHELF_ITEM, item);
+            primeTableSchema(ShelfSpaceTableSchemas.ACCOUNT_DELETION_TASK, task);
+        }
+    }
+
+    private <T> void primeTableModel(DynamoDBMapperTableModel<T> tableModel, T entity) {
+        tableModel.unconvert(tableModel.convert(entity));
+    }
+
+    private <T> void primeTableSchema(TableSchema<T> tableSchema, T entity) {
+        tableSchema.mapToItem(tableSchema.itemToMap(entity, true));
+    }
+
+    private void primeMethodSecurity(UserProfile profile) throws IOException {
+        Jwt jwt = Jwt.withTokenValue("priming")
+                .header("alg", "RS256")
+                .subject(SYNTHETIC_USER_ID)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+        SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(new JwtAuthenticationToken(jwt));
+        SecurityContextHolder.setContext(securityContext);
+
+        try {
+            userProfileCache.put(profile);
+            objectMapper.writeValueAsBytes(userProfileService.getUserProfile(SYNTHETIC_USER_ID));
+        } finally {
+            SecurityContextHolder.clearContext();
+            userProfileCache.invalidate(SYNTHETIC_USER_ID);
+        }
+    }
+
+    private UserProfile createSyntheticProfile() {
+        List<PrefetchedShelf> shelves = new ArrayList<>();
+        shelves.add(new PrefetchedShelf(SYNTHETIC_USER_ID, "Priming", ShelfType.BOOK));
+        return new UserProfile(SYNTHETIC_USER_ID, "Priming", shelves, 1L);
+    }
+
+    private Shelf createSyntheticShelf() {
+        ShelfItem item = new ShelfItem(SYNTHETIC_USER_ID, SYNTHETIC_USER_ID, "Priming", new Date(),
+                ShelfItemStatus.FINISHED, 10, 1);
+        List<ShelfItem> items = new ArrayList<>();
+        items.add(item);
+        return new Shelf(SYNTHETIC_USER_ID, "Priming", SYNTHETIC_USER_ID, ShelfType.BOOK, items, 1L);
+    }
+}
@@ -8,6 +8,7 @@ import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 
 /**
@@ -38,4 +39,13 @@ public class AwsConfig {
     public AwsCredentialsProvider amazonAwsCredentialsProvider() {
         return StaticCredentialsProvider.create(amazonAwsCredentials());
     }
+
+    /**
+     * HTTP client shared by the blocking AWS SDK v2 clients (DynamoDB and Cognito), whose connections are closed
+     * after the application is restored from a snapshot ({@link ApplicationPrimer#resetAfterRestore()}).
+     */
+    @Bean
+    public ResettableSdkHttpClient awsHttpClient() {
+        return new ResettableSdkHttpClient(ApacheHttpClient::create);
+    }
 }
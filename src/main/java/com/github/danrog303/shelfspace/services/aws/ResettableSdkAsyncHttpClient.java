@@ -0,0 +1,45 @@
+package com.github.danrog303.shelfspace.services.aws;
+
+import software.amazon.awssdk.http.async.AsyncExecuteRequest;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking counterpart of {@link ResettableSdkHttpClient}.
+ */
+public class ResettableSdkAsyncHttpClient implements SdkAsyncHttpClient {
+    private final Supplier<SdkAsyncHttpClient> factory;
+    private volatile SdkAsyncHttpClient delegate;
+
+    public ResettableSdkAsyncHttpClient(Supplier<SdkAsyncHttpClient> factory) {
+        this.factory = factory;
+        this.delegate = factory.get();
+    }
+
+    /**
+     * Replaces the client with a new one, and closes all connections of the previous client.
+     * Requests which are being sent by the previous client fail.
+     */
+    public void reset() {
+        SdkAsyncHttpClient previous = delegate;
+        delegate = factory.get();
+        previous.close();
+    }
+
+    @Override
+    public CompletableFuture<Void> execute(AsyncExecuteRequest request) {
+        return delegate.execute(request);
+    }
+
+    @Override
+    public String clientName() {
+        return delegate.clientName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
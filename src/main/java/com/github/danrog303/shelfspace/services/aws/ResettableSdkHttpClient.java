@@ -0,0 +1,47 @@
+package com.github.danrog303.shelfspace.services.aws;
+
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.util.function.Supplier;
+
+/**
+ * HTTP client of the AWS SDK v2 clients, whose connection pool can be replaced. The SDK does not expose
+ * the pooled connections, so after the application was restored from a snapshot (see {@link ApplicationPrimer}),
+ * the whole client is closed and created again, and the SDK clients built with this instance keep using it.
+ */
+public class ResettableSdkHttpClient implements SdkHttpClient {
+    private final Supplier<SdkHttpClient> factory;
+    private volatile SdkHttpClient delegate;
+
+    public ResettableSdkHttpClient(Supplier<SdkHttpClient> factory) {
+        this.factory = factory;
+        this.delegate = factory.get();
+    }
+
+    /**
+     * Replaces the client with a new one, and closes all connections of the previous client.
+     * Requests which are being sent by the previous client fail.
+     */
+    public void reset() {
+        SdkHttpClient previous = delegate;
+        delegate = factory.get();
+        previous.close();
+    }
+
+    @Override
+    public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+        return delegate.prepareRequest(request);
+    }
+
+    @Override
+    public String clientName() {
+        return delegate.clientName();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
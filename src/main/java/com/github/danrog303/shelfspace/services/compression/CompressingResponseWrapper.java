@@ -0,0 +1,259 @@
+package com.github.danrog303.shelfspace.services.compression;
+
+import com.github.danrog303.shelfspace.services.conditional.EntityTags;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Optional;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * <p>Response which compresses its body while it is being written. The beginning of the body is buffered until
+ * it reaches the minimum size of compressed responses, and only then the coding is chosen and the headers of
+ * the response are sent. Smaller bodies are sent uncompressed when the response is {@link #finish() finished}.
+ * Flushes are ignored while the beginning of the body is buffered, since message converters flush every body.</p>
+ * <p>The content length declared by the application is held back until the coding is chosen, and dropped
+ * if the body is compressed. The entity tag of a compressed body is suffixed with the coding (see
+ * {@link EntityTags#withCoding(String, ContentCoding)}).</p>
+ */
+class CompressingResponseWrapper extends HttpServletResponseWrapper {
+    private final ResponseCompression responseCompression;
+    private final Optional<ContentCoding> acceptedCoding;
+    private final CompressingOutputStream outputStream = new CompressingOutputStream();
+    private PrintWriter writer;
+    private Long contentLength;
+
+    /**
+     * Beginning of the body, or null once the coding was chosen.
+     */
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private OutputStream body;
+    private DeflaterOutputStream encodedBody;
+    private boolean finished;
+
+    CompressingResponseWrapper(HttpServletResponse response, ResponseCompression responseCompression,
+                               Optional<ContentCoding> acceptedCoding) {
+        super(response);
+        this.responseCompression = responseCompression;
+        this.acceptedCoding = acceptedCoding;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int length) {
+        setContentLengthLong(length);
+    }
+
+    @Override
+    public void setContentLengthLong(long length) {
+        if (buffer != null) {
+            contentLength = length;
+        } else if (encodedBody == null) {
+            super.setContentLengthLong(length);
+        }
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.setHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(Long.parseLong(value));
+        } else {
+            super.addHeader(name, value);
+        }
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.setIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+            setContentLengthLong(value);
+        } else {
+            super.addIntHeader(name, value);
+        }
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (buffer == null) {
+            outputStream.flush();
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (buffer != null) {
+            buffer.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (buffer != null) {
+            buffer.reset();
+            contentLength = null;
+        }
+        super.reset();
+    }
+
+    @Override
+    public void sendError(int status) throws IOException {
+        resetBuffer();
+        super.sendError(status);
+    }
+
+    @Override
+    public void sendError(int status, String message) throws IOException {
+        resetBuffer();
+        super.sendError(status, message);
+    }
+
+    /**
+     * Sends the buffered beginning of the body, and completes the compressed body. The underlying output stream
+     * is not closed.
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+
+        if (writer != null) {
+            writer.flush();
+        }
+        if (buffer != null) {
+            startBody(buffer.size());
+        }
+        if (encodedBody != null) {
+            encodedBody.finish();
+        }
+    }
+
+    /**
+     * Chooses the coding of the body, and sends the buffered beginning of the body.
+     * @param size Size of the whole body, or {@link ResponseCompression#UNKNOWN_SIZE} if it is still being written
+     */
+    private void startBody(long size) throws IOException {
+        HttpServletResponse response = (HttpServletResponse) getResponse();
+        ByteArrayOutputStream beginning = buffer;
+        buffer = null;
+
+        boolean compressible = !response.isCommitted() && !response.containsHeader(HttpHeaders.CONTENT_ENCODING)
+                && responseCompression.isCompressible(getContentType(), size);
+        if (compressible) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        if (compressible && acceptedCoding.isPresent()) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, acceptedCoding.get().getToken());
+            String entityTag = response.getHeader(HttpHeaders.ETAG);
+            if (entityTag != null) {
+                response.setHeader(HttpHeaders.ETAG, EntityTags.withCoding(entityTag, acceptedCoding.get()));
+            }
+            encodedBody = acceptedCoding.get().encode(response.getOutputStream());
+            body = encodedBody;
+        } else {
+            if (contentLength != null) {
+                response.setContentLengthLong(contentLength);
+            } else if (size > 0) {
+                response.setContentLengthLong(size);
+            }
+            if (beginning.size() == 0) {
+                // Empty bodies are only known when the response is finished, and the container may still use the
+                // writer of the response afterwards (e.g. for error pages)
+                body = OutputStream.nullOutputStream();
+                return;
+            }
+            body = response.getOutputStream();
+        }
+        beginning.writeTo(body);
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            if (buffer == null) {
+                body.write(b);
+                return;
+            }
+
+            buffer.write(b);
+            if (buffer.size() >= responseCompression.getMinResponseSize()) {
+                startBody(ResponseCompression.UNKNOWN_SIZE);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (buffer == null) {
+                body.write(bytes, offset, length);
+                return;
+            }
+
+            buffer.write(bytes, offset, length);
+            if (buffer.size() >= responseCompression.getMinResponseSize()) {
+                startBody(ResponseCompression.UNKNOWN_SIZE);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer == null) {
+                body.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Non-blocking writes are not supported by compressed responses");
+        }
+    }
+}
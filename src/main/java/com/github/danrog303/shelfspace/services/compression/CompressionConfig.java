@@ -0,0 +1,27 @@
+package com.github.danrog303.shelfspace.services.compression;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registers {@link ResponseCompressionFilter} in the servlet stack. The functional router compresses its responses
+ * on its own.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CompressionConfig {
+    /**
+     * The filter wraps all other filters, so that the responses written by the security filters (e.g. for
+     * missing access tokens) are compressed as well.
+     */
+    @Bean
+    public FilterRegistrationBean<ResponseCompressionFilter> responseCompressionFilter(ResponseCompression responseCompression) {
+        FilterRegistrationBean<ResponseCompressionFilter> registration =
+                new FilterRegistrationBean<>(new ResponseCompressionFilter(responseCompression));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
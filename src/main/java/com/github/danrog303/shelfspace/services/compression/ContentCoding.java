@@ -0,0 +1,114 @@
+package com.github.danrog303.shelfspace.services.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Content codings of the HTTP responses, which the client may accept in the Accept-Encoding header. Both are
+ * implemented by the JDK, so they also work in the native executable. Brotli would compress JSON slightly better,
+ * but it has no Java encoder without native libraries.
+ */
+public enum ContentCoding {
+    GZIP("gzip"),
+    /**
+     * The zlib format ("deflate" in HTTP), not the raw deflate stream.
+     */
+    DEFLATE("deflate");
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /**
+     * Value of the Content-Encoding header.
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Wraps the output stream with the encoder. Flushing the encoder flushes the data written so far to the
+     * output stream (so that streamed responses are not delayed), and {@link DeflaterOutputStream#finish()} has to
+     * be called after the last write.
+     */
+    public DeflaterOutputStream encode(OutputStream output) throws IOException {
+        if (this == GZIP) {
+            return new GZIPOutputStream(output, BUFFER_SIZE, true);
+        }
+        return new DeflaterOutputStream(output, new Deflater(), BUFFER_SIZE, true);
+    }
+
+    /**
+     * Encodes the whole body.
+     */
+    public byte[] encode(byte[] body) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(body.length / 4 + 64);
+        DeflaterOutputStream encoder = encode(encoded);
+        encoder.write(body);
+        encoder.finish();
+        return encoded.toByteArray();
+    }
+
+    /**
+     * Chooses the coding with the highest quality value in the Accept-Encoding header, preferring gzip when both
+     * are accepted equally. Codings with quality 0 are refused, and "*" stands for the codings which are not listed.
+     * @param acceptEncoding Value of the header, or null if it was not sent
+     * @return Chosen coding, or empty if the response must not be encoded
+     */
+    public static Optional<ContentCoding> negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return Optional.empty();
+        }
+
+        double[] qualities = {-1, -1};
+        double wildcardQuality = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parameters = element.split(";");
+            String coding = parameters[0].trim().toLowerCase(Locale.ROOT);
+            double quality = parseQuality(parameters);
+            if (coding.equals("*")) {
+                wildcardQuality = quality;
+            }
+            for (ContentCoding candidate : values()) {
+                if (candidate.token.equals(coding) || (candidate == GZIP && coding.equals("x-gzip"))) {
+                    qualities[candidate.ordinal()] = quality;
+                }
+            }
+        }
+
+        ContentCoding chosen = null;
+        double chosenQuality = 0;
+        for (ContentCoding candidate : values()) {
+            double quality = qualities[candidate.ordinal()] < 0 ? wildcardQuality : qualities[candidate.ordinal()];
+            if (quality > chosenQuality) {
+                chosen = candidate;
+                chosenQuality = quality;
+            }
+        }
+        return Optional.ofNullable(chosen);
+    }
+
+    private static double parseQuality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.danrog303.shelfspace.services.compression;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Decides which responses are compressed, shared by {@link ResponseCompressionFilter} and
+ * {@link com.github.danrog303.shelfspace.routing.FunctionalRequestRouter}. Responses are compressed when their
+ * content type is one of "shelfspace.compression.mime-types" and their body has at least
+ * "shelfspace.compression.min-response-size" bytes, below which the compression saves too little to pay off.</p>
+ * <p>Strong entity tags of compressed responses are suffixed with the coding (see
+ * {@link com.github.danrog303.shelfspace.services.conditional.EntityTags}), since each coding of the body has
+ * different bytes, and caches tell the codings apart by the "Vary: Accept-Encoding" header.</p>
+ */
+@Component
+public class ResponseCompression {
+    /**
+     * Size of the body, when it is not known before the response is sent.
+     */
+    public static final long UNKNOWN_SIZE = -1;
+
+    private final boolean enabled;
+    private final int minResponseSize;
+    private final List<MediaType> mimeTypes;
+
+    public ResponseCompression(@Value("${shelfspace.compression.enabled}") boolean enabled,
+                               @Value("${shelfspace.compression.min-response-size}") int minResponseSize,
+                               @Value("${shelfspace.compression.mime-types}") List<String> mimeTypes) {
+        this.enabled = enabled;
+        this.minResponseSize = minResponseSize;
+        this.mimeTypes = mimeTypes.stream().map(MediaType::parseMediaType).collect(Collectors.toList());
+    }
+
+    /**
+     * Minimum size of compressed bodies in bytes.
+     */
+    public int getMinResponseSize() {
+        return minResponseSize;
+    }
+
+    /**
+     * Checks if the response should be compressed, provided that the client accepts one of the
+     * {@link ContentCoding}s.
+     * @param contentType Content type of the response, or null if it has none
+     * @param size Size of the body in bytes, or {@link #UNKNOWN_SIZE} for streamed bodies
+     */
+    public boolean isCompressible(String contentType, long size) {
+        if (!enabled || contentType == null || (size != UNKNOWN_SIZE && size < minResponseSize)) {
+            return false;
+        }
+
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            return mimeTypes.stream().anyMatch(mimeType -> mimeType.isCompatibleWith(mediaType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+}
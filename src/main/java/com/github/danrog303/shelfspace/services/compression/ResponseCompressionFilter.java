@@ -0,0 +1,50 @@
+package com.github.danrog303.shelfspace.services.compression;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * <p>Compresses the responses of the servlet stack (see {@link ResponseCompression}), both in the embedded Tomcat
+ * and in the Lambda container. Bodies are compressed while they are written ({@link CompressingResponseWrapper}),
+ * so streamed responses are neither held in memory nor delayed, and only the beginning of the body is buffered,
+ * so that small responses can be sent uncompressed.</p>
+ * <p>Asynchronous requests (e.g. with a {@code StreamingResponseBody}) are filtered again on their async dispatch,
+ * and the response is finished when the last dispatch completes.</p>
+ * <p>Under Lambda, the compressed body is not valid UTF-8 (both codings start with an invalid byte sequence), so the
+ * container sends it base64 encoded, and API Gateway decodes it (see "binaryMediaTypes" in serverless.yml).</p>
+ */
+@RequiredArgsConstructor
+public class ResponseCompressionFilter extends OncePerRequestFilter {
+    private final ResponseCompression responseCompression;
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpServletResponse responseToUse = response;
+        if (!isAsyncDispatch(request) && WebUtils.getNativeResponse(response, CompressingResponseWrapper.class) == null) {
+            responseToUse = new CompressingResponseWrapper(response, responseCompression,
+                    ContentCoding.negotiate(request.getHeader(HttpHeaders.ACCEPT_ENCODING)));
+        }
+
+        filterChain.doFilter(request, responseToUse);
+
+        CompressingResponseWrapper compressingResponse =
+                WebUtils.getNativeResponse(responseToUse, CompressingResponseWrapper.class);
+        if (!isAsyncStarted(request) && compressingResponse != null) {
+            compressingResponse.finish();
+        }
+    }
+}
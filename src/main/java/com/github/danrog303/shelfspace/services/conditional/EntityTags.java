@@ -0,0 +1,99 @@
+package com.github.danrog303.shelfspace.services.conditional;
+
+import com.github.danrog303.shelfspace.services.compression.ContentCoding;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * <p>Strong entity tags (ETags) of the resources, derived from the version attributes of the entities, which are
+ * incremented on every write. The version of a {@link com.github.danrog303.shelfspace.data.shelf.Shelf} is also
+ * incremented when its items are modified, so its entity tag covers the whole shelf.</p>
+ * <p>Entities which were never written have no version, and their resources have no entity tag.</p>
+ * <p>Strong entity tags identify the exact bytes of the body, so compressed bodies get the tag of their version
+ * suffixed with the coding (e.g. {@code "5-gzip"}, see {@link #withCoding(String, ContentCoding)}). Both forms
+ * identify the same version in the If-None-Match and If-Match headers.</p>
+ */
+public final class EntityTags {
+    private EntityTags() {
+    }
+
+    /**
+     * Returns the entity tag of the specified version, or null if there is no version.
+     */
+    public static String fromVersion(Long version) {
+        return version == null ? null : "\"" + version + "\"";
+    }
+
+    /**
+     * Returns the entity tag of the body encoded with the specified coding. Weak entity tags are returned unchanged,
+     * since they do not distinguish the codings.
+     * @param entityTag Entity tag of the unencoded body, or null if it has none
+     */
+    public static String withCoding(String entityTag, ContentCoding coding) {
+        if (entityTag == null || entityTag.startsWith("W/") || !entityTag.endsWith("\"")) {
+            return entityTag;
+        }
+        return entityTag.substring(0, entityTag.length() - 1) + "-" + coding.getToken() + "\"";
+    }
+
+    /**
+     * Answers a conditional GET request. When the If-None-Match header lists the current entity tag (of any coding),
+     * the body is not produced at all and 304 Not Modified is returned with the listed tag, which identifies
+     * the body cached by the client. Otherwise, the body is produced and returned together with the entity tag.
+     * @param ifNoneMatch Value of the If-None-Match header, or null if it was not sent
+     * @param version Current version of the entity
+     */
+    public static <T> ResponseEntity<T> conditionalGet(String ifNoneMatch, Long version, Supplier<T> body) {
+        String entityTag = fromVersion(version);
+        if (entityTag == null) {
+            return ResponseEntity.ok(body.get());
+        }
+        if (ifNoneMatch != null) {
+            Optional<String> matchingTag = parse(HttpHeaders.IF_NONE_MATCH, ifNoneMatch).stream()
+                    .filter(tag -> tag.equals("*") || stripWeakPrefix(withoutCoding(tag)).equals(entityTag))
+                    .findFirst();
+            if (matchingTag.isPresent()) {
+                String cachedTag = matchingTag.get().startsWith("\"") ? matchingTag.get() : entityTag;
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cachedTag).build();
+            }
+        }
+        return ResponseEntity.ok().eTag(entityTag).body(body.get());
+    }
+
+    /**
+     * Parses the list of entity tags sent in the specified header. Returns an empty list when the value is
+     * malformed, so it matches no entity tag.
+     */
+    static List<String> parse(String headerName, String headerValue) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(headerName, headerValue);
+        try {
+            return headerName.equals(HttpHeaders.IF_MATCH) ? headers.getIfMatch() : headers.getIfNoneMatch();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * Removes the coding suffix added by {@link #withCoding(String, ContentCoding)}, so that the tag can be compared
+     * with the tag of the version. Other tags are returned unchanged.
+     */
+    static String withoutCoding(String entityTag) {
+        for (ContentCoding coding : ContentCoding.values()) {
+            String suffix = "-" + coding.getToken() + "\"";
+            if (entityTag.endsWith(suffix)) {
+                return entityTag.substring(0, entityTag.length() - suffix.length()) + "\"";
+            }
+        }
+        return entityTag;
+    }
+
+    private static String stripWeakPrefix(String entityTag) {
+        return entityTag.startsWith("W/") ? entityTag.substring(2) : entityTag;
+    }
+}
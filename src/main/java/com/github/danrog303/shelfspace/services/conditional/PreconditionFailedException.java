@@ -0,0 +1,11 @@
+package com.github.danrog303.shelfspace.services.conditional;
+
+import lombok.experimental.StandardException;
+
+/**
+ * Thrown when a write was rejected, because the client based it on a version of the entity which is no longer
+ * current (see {@link VersionPrecondition}).
+ */
+@StandardException
+public class PreconditionFailedException extends RuntimeException {
+}
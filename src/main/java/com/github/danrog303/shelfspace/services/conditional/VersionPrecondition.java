@@ -0,0 +1,56 @@
+package com.github.danrog303.shelfspace.services.conditional;
+
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+
+/**
+ * Precondition of a write, sent by the client in the If-Match header. The write is allowed only when the current
+ * version of the entity matches one of the listed entity tags (see {@link EntityTags}), or when "*" is listed.
+ * Weak entity tags never match, because writes require the strong comparison, while the tags of the compressed
+ * bodies match the version they were derived from.
+ */
+public final class VersionPrecondition {
+    /**
+     * Allows every write, used when the If-Match header was not sent.
+     */
+    public static final VersionPrecondition NONE = new VersionPrecondition(null);
+
+    private final List<String> entityTags;
+
+    private VersionPrecondition(List<String> entityTags) {
+        this.entityTags = entityTags;
+    }
+
+    /**
+     * Creates the precondition from the value of the If-Match header.
+     * @param ifMatch Value of the header, or null if it was not sent
+     */
+    public static VersionPrecondition ifMatch(String ifMatch) {
+        return ifMatch == null ? NONE : new VersionPrecondition(EntityTags.parse(HttpHeaders.IF_MATCH, ifMatch));
+    }
+
+    /**
+     * Returns true when the write is allowed only for specific versions of the entity, so it must be conditional
+     * on the version which was {@link #check(Long) checked} - otherwise, a concurrent write could change the version
+     * between the check and the write. Returns false when the If-Match header was not sent, or when it lists "*".
+     */
+    public boolean requiresVersion() {
+        return entityTags != null && !entityTags.contains("*");
+    }
+
+    /**
+     * Checks the precondition against the current version of the entity, which was just read.
+     * @throws PreconditionFailedException When the entity was modified since the client read it
+     */
+    public void check(Long currentVersion) {
+        if (entityTags == null || entityTags.contains("*")) {
+            return;
+        }
+
+        String currentEntityTag = EntityTags.fromVersion(currentVersion);
+        if (currentEntityTag == null || entityTags.stream().map(EntityTags::withoutCoding).noneMatch(currentEntityTag::equals)) {
+            throw new PreconditionFailedException("Resource was modified since it was read by the client.");
+        }
+    }
+}
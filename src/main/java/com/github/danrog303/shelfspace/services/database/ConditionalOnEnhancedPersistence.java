@@ -0,0 +1,16 @@
+package com.github.danrog303.shelfspace.services.database;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.*;
+
+/**
+ * Registers the annotated bean only when the persistence layer based on AWS SDK v2 DynamoDB Enhanced Client
+ * is selected ("shelfspace.persistence" property is set to "enhanced").
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnProperty(name="shelfspace.persistence", havingValue="enhanced")
+public @interface ConditionalOnEnhancedPersistence {
+}
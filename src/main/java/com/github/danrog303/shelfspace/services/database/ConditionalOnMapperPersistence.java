@@ -0,0 +1,17 @@
+package com.github.danrog303.shelfspace.services.database;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+
+import java.lang.annotation.*;
+
+/**
+ * Registers the annotated bean only when the persistence layer based on {@link
+ * com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper} (AWS SDK v1) is selected.
+ * This is the default, used when "shelfspace.persistence" property is not set.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@ConditionalOnProperty(name="shelfspace.persistence", havingValue="mapper", matchIfMissing=true)
+public @interface ConditionalOnMapperPersistence {
+}
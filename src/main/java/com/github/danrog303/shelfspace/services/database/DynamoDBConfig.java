@@ -4,39 +4,89 @@ import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.github.danrog303.shelfspace.data.profile.UserProfileRepository;
 import com.github.danrog303.shelfspace.data.shelf.ShelfRepository;
+import com.github.danrog303.shelfspace.services.aws.ResettableSdkHttpClient;
+import com.github.danrog303.shelfspace.services.metrics.AwsSdkMetricsInterceptor;
+import com.github.danrog303.shelfspace.services.metrics.DynamoDBMetricsRequestHandler;
 import lombok.RequiredArgsConstructor;
 import org.socialsignin.spring.data.dynamodb.repository.config.EnableDynamoDBRepositories;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClientBuilder;
+
+import java.net.URI;
 
 /**
  * Exposes Spring Beans related to Amazon DynamoDB database.
+ * Beans of the selected persistence layer are exposed by {@link MapperPersistenceConfig} or by
+ * {@link com.github.danrog303.shelfspace.services.database.enhanced.EnhancedDynamoDBConfig}.
+ * All clients connect to "amazon.aws.dynamodb.endpoint" when it is set (e.g. to DynamoDB Local),
+ * and record metrics of their calls (see {@link com.github.danrog303.shelfspace.services.metrics.AwsCallMetrics}).
  */
 @Configuration
-@EnableDynamoDBRepositories(basePackageClasses={UserProfileRepository.class, ShelfRepository.class})
 @RequiredArgsConstructor
 public class DynamoDBConfig {
-    private final AwsCredentials awsCredentials;
+    private final AwsCredentialsProvider awsCredentialsProvider;
     private final Region awsRegion;
+    private final AwsSdkMetricsInterceptor metricsInterceptor;
+    private final ResettableSdkHttpClient awsHttpClient;
 
+    /**
+     * AWS SDK v2 DynamoDB client. Used by both persistence layers, e.g. for TransactWriteItems
+     * (which is not supported by the SDK v1 client).
+     */
     @Bean
-    public AmazonDynamoDB amazonDynamoDB() {
-        // Mapping AWS SDK v2 beans to SDK v1
-        // (Derjust's DynamoDB to Spring Data library operates on AWS SDK v1)
-        AWSCredentials sdkV1Credentials = new BasicAWSCredentials(awsCredentials.accessKeyId(), awsCredentials.secretAccessKey());
-        AWSCredentialsProvider sdkV1CredentialsProvider = new AWSStaticCredentialsProvider(sdkV1Credentials);
-        Regions sdkV1Region = Regions.fromName(awsRegion.toString());
+    public DynamoDbClient dynamoDbClient(@Value("${amazon.aws.dynamodb.endpoint}") String endpoint) {
+        DynamoDbClientBuilder builder = DynamoDbClient.builder()
+                .httpClient(awsHttpClient)
+                .credentialsProvider(awsCredentialsProvider)
+                .region(awsRegion)
+                .overrideConfiguration(config -> config.addExecutionInterceptor(metricsInterceptor));
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Persistence layer based on Derjust's DynamoDB to Spring Data library.
+     */
+    @Configuration
+    @ConditionalOnMapperPersistence
+    @EnableDynamoDBRepositories(basePackageClasses={UserProfileRepository.class, ShelfRepository.class})
+    @RequiredArgsConstructor
+    public static class MapperPersistenceConfig {
+        private final AwsCredentials awsCredentials;
+        private final Region awsRegion;
+        private final DynamoDBMetricsRequestHandler metricsRequestHandler;
+
+        @Bean
+        public AmazonDynamoDB amazonDynamoDB(@Value("${amazon.aws.dynamodb.endpoint}") String endpoint) {
+            // Mapping AWS SDK v2 beans to SDK v1
+            // (Derjust's DynamoDB to Spring Data library operates on AWS SDK v1)
+            AWSCredentials sdkV1Credentials = new BasicAWSCredentials(awsCredentials.accessKeyId(), awsCredentials.secretAccessKey());
+            AWSCredentialsProvider sdkV1CredentialsProvider = new AWSStaticCredentialsProvider(sdkV1Credentials);
+            Regions sdkV1Region = Regions.fromName(awsRegion.toString());
 
-        return AmazonDynamoDBClientBuilder.standard()
-                .withCredentials(sdkV1CredentialsProvider)
-                .withRegion(sdkV1Region)
-                .build();
+            AmazonDynamoDBClientBuilder builder = AmazonDynamoDBClientBuilder.standard()
+                    .withCredentials(sdkV1CredentialsProvider)
+                    .withRequestHandlers(metricsRequestHandler);
+            if (endpoint.isEmpty()) {
+                builder.withRegion(sdkV1Region);
+            } else {
+                builder.withEndpointConfiguration(new EndpointConfiguration(endpoint, sdkV1Region.getName()));
+            }
+            return builder.build();
+        }
     }
 }
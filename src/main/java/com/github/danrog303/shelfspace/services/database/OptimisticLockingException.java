@@ -0,0 +1,12 @@
+package com.github.danrog303.shelfspace.services.database;
+
+import lombok.experimental.StandardException;
+
+/**
+ * Thrown when a conditional write was rejected, because the written entity was modified by another request
+ * after it had been read.
+ * @see OptimisticLockingRetrier
+ */
+@StandardException
+public class OptimisticLockingException extends RuntimeException {
+}
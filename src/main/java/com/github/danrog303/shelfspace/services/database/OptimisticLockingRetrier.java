@@ -0,0 +1,77 @@
+package com.github.danrog303.shelfspace.services.database;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBVersionAttribute;
+import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * <p>Re-applies read-modify-write operations on entities with {@link DynamoDBVersionAttribute}, when their
+ * conditional write was rejected because another request has modified the entity in the meantime.</p>
+ * <p>Every attempt must read the entity again, so that the mutation is applied on its latest version.
+ * Between attempts, the retrier waits for a random ("full jitter") delay, which grows exponentially.</p>
+ */
+@Slf4j
+@Component
+public class OptimisticLockingRetrier {
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private volatile Random random = new SecureRandom();
+
+    public OptimisticLockingRetrier(@Value("${shelfspace.optimistic-locking.max-attempts}") int maxAttempts,
+                                    @Value("${shelfspace.optimistic-locking.base-delay-ms}") long baseDelayMillis) {
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.baseDelayMillis = baseDelayMillis;
+    }
+
+    /**
+     * Runs the specified mutation and retries it, as long as it fails with {@link ConditionalCheckFailedException}
+     * or {@link OptimisticLockingException}.
+     * Every conflict is counted in the "shelfspace.optimistic.locking.conflicts" metric.
+     * @param operation Name of the operation, used as a metric tag
+     * @throws ConditionalCheckFailedException When the mutation did not succeed after the maximum number of attempts
+     * @throws OptimisticLockingException When the mutation did not succeed after the maximum number of attempts
+     */
+    public <T> T retryOnConflict(String operation, Supplier<T> mutation) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return mutation.get();
+            } catch (ConditionalCheckFailedException | OptimisticLockingException e) {
+                Metrics.counter("shelfspace.optimistic.locking.conflicts", "operation", operation).increment();
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up {} after {} conflicting attempts", operation, attempt);
+                    throw e;
+                }
+                sleepBeforeAttempt(attempt);
+            }
+        }
+    }
+
+    /**
+     * Replaces the source of the random delays. Copies of the application restored from the same snapshot
+     * would otherwise share its state, and wait for the same delays.
+     */
+    public void resetRandom() {
+        random = new SecureRandom();
+    }
+
+    private void sleepBeforeAttempt(int attempt) {
+        long maxDelay = baseDelayMillis << Math.min(attempt, 10);
+        if (maxDelay <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep((long) (random.nextDouble() * maxDelay));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry the operation", e);
+        }
+    }
+}
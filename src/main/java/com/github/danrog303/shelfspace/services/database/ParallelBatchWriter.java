@@ -0,0 +1,126 @@
+package com.github.danrog303.shelfspace.services.database;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes large collections of entities using BatchWriteItem requests. {@link DynamoDBMapper} sends the batches
+ * one after another, so the time needed grows with the number of entities; this class splits the entities into
+ * chunks of {@value #MAX_BATCH_SIZE} and sends the chunks in parallel. Entities which could not be written are
+ * returned to the caller, which decides whether the partial write is an error.
+ */
+@Slf4j
+@Component
+@ConditionalOnMapperPersistence
+public class ParallelBatchWriter implements DisposableBean {
+    /**
+     * Maximum number of entities accepted by a single BatchWriteItem request.
+     */
+    public static final int MAX_BATCH_SIZE = 25;
+
+    private final DynamoDBMapper dynamoDBMapper;
+    private final ExecutorService executor;
+
+    public ParallelBatchWriter(DynamoDBMapper dynamoDBMapper,
+                               @Value("${shelfspace.database.batch-write-parallelism}") int parallelism) {
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.dynamoDBMapper = dynamoDBMapper;
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "dynamodb-batch-writer-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Saves all the specified entities. Chunks are written independently, so a failed chunk does not prevent
+     * the other chunks from being saved.
+     * @return Entities which could not be saved, in the order of the specified entities
+     */
+    public <T> List<T> saveAll(List<T> entities) {
+        return writeInParallel(entities, dynamoDBMapper::batchSave);
+    }
+
+    /**
+     * Deletes all the specified entities. Only key attributes of the entities are used. Chunks are written
+     * independently, so a failed chunk does not prevent the other chunks from being deleted.
+     * @return Entities which could not be deleted, in the order of the specified entities
+     */
+    public <T> List<T> deleteAll(List<T> entities) {
+        return writeInParallel(entities, dynamoDBMapper::batchDelete);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private <T> List<T> writeInParallel(List<T> entities, Function<List<T>, List<DynamoDBMapper.FailedBatch>> batchWrite) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i += MAX_BATCH_SIZE) {
+            List<T> chunk = entities.subList(i, Math.min(i + MAX_BATCH_SIZE, entities.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> batchWrite.apply(chunk), executor)
+                    .handle((failedBatches, e) -> {
+                        if (e != null) {
+                            log.warn("Could not write a batch of {} entities", chunk.size(), e);
+                            return chunk;
+                        }
+                        return findUnprocessed(chunk, failedBatches);
+                    }));
+        }
+
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the entities of the chunk, whose write requests were left unprocessed in the failed batches.
+     */
+    private <T> List<T> findUnprocessed(List<T> chunk, List<DynamoDBMapper.FailedBatch> failedBatches) {
+        if (failedBatches.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map<String, AttributeValue>> unprocessedAttributes = new ArrayList<>();
+        for (DynamoDBMapper.FailedBatch failedBatch : failedBatches) {
+            log.warn("Could not write a batch of entities", failedBatch.getException());
+            for (List<WriteRequest> requests : failedBatch.getUnprocessedItems().values()) {
+                for (WriteRequest request : requests) {
+                    unprocessedAttributes.add(request.getPutRequest() != null
+                            ? request.getPutRequest().getItem() : request.getDeleteRequest().getKey());
+                }
+            }
+        }
+
+        // A put request contains all attributes of the entity, so the key is looked up among them
+        return chunk.stream()
+                .filter(entity -> {
+                    Set<Map.Entry<String, AttributeValue>> key = convertKey(entity).entrySet();
+                    return unprocessedAttributes.stream().anyMatch(attributes -> attributes.entrySet().containsAll(key));
+                })
+                .collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Map<String, AttributeValue> convertKey(T entity) {
+        return dynamoDBMapper.getTableModel((Class<T>) entity.getClass()).convertKey(entity);
+    }
+}
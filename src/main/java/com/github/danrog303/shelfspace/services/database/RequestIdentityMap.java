@@ -0,0 +1,84 @@
+package com.github.danrog303.shelfspace.services.database;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * <p>Identity map bound to the current HTTP request. Entities loaded from the database are remembered until the
+ * request ends, so that repeated lookups of the same entity return the already loaded instance instead of
+ * reading (and unmarshalling) it again.</p>
+ * <p>Callers which modify the returned instance share it with the rest of the request. When such modification
+ * could not be saved, the entity must be {@link #evict(Class, String) evicted}, so that the next lookup
+ * (e.g. in the next attempt of {@link OptimisticLockingRetrier}) reads the database again.</p>
+ * <p>Outside an HTTP request (e.g. in background workers), the map is bypassed and every lookup is delegated
+ * to the loader.</p>
+ */
+@Component
+public class RequestIdentityMap {
+    private static final String ATTRIBUTE_NAME = RequestIdentityMap.class.getName();
+
+    /**
+     * Returns the entity remembered in the current request, or loads it with the specified loader and remembers it.
+     * Absent entities are not remembered.
+     */
+    public <T> Optional<T> find(Class<T> type, String id, Supplier<Optional<T>> loader) {
+        Map<String, Object> entities = currentEntities();
+        if (entities == null) {
+            return loader.get();
+        }
+
+        String key = keyOf(type, id);
+        if (entities.containsKey(key)) {
+            return Optional.of(type.cast(entities.get(key)));
+        }
+
+        Optional<T> entity = loader.get();
+        entity.ifPresent(value -> entities.put(key, value));
+        return entity;
+    }
+
+    /**
+     * Remembers the entity, which was just written to the database, in the current request.
+     */
+    public <T> void put(Class<T> type, String id, T entity) {
+        Map<String, Object> entities = currentEntities();
+        if (entities != null) {
+            entities.put(keyOf(type, id), entity);
+        }
+    }
+
+    /**
+     * Forgets the entity, e.g. when it turned out to be outdated or was deleted.
+     */
+    public void evict(Class<?> type, String id) {
+        Map<String, Object> entities = currentEntities();
+        if (entities != null) {
+            entities.remove(keyOf(type, id));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> currentEntities() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+
+        Object entities = attributes.getAttribute(ATTRIBUTE_NAME, RequestAttributes.SCOPE_REQUEST);
+        if (entities == null) {
+            entities = new HashMap<String, Object>();
+            attributes.setAttribute(ATTRIBUTE_NAME, entities, RequestAttributes.SCOPE_REQUEST);
+        }
+        return (Map<String, Object>) entities;
+    }
+
+    private static String keyOf(Class<?> type, String id) {
+        return type.getName() + "#" + id;
+    }
+}
@@ -0,0 +1,41 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import software.amazon.awssdk.enhanced.dynamodb.AttributeConverter;
+import software.amazon.awssdk.enhanced.dynamodb.AttributeValueType;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Stores {@link Date}s in the same format as {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper}
+ * does (ISO-8601 string with milliseconds, in UTC), so that both persistence layers can read each other's data.
+ * The format is also sortable, which is required by the "creationDate-index" index.
+ */
+public class DateAttributeConverter implements AttributeConverter<Date> {
+    private static final DateTimeFormatter FORMATTER =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'").withZone(ZoneOffset.UTC);
+
+    @Override
+    public AttributeValue transformFrom(Date input) {
+        return AttributeValue.builder().s(FORMATTER.format(input.toInstant())).build();
+    }
+
+    @Override
+    public Date transformTo(AttributeValue input) {
+        return Date.from(Instant.from(FORMATTER.parse(input.s())));
+    }
+
+    @Override
+    public EnhancedType<Date> type() {
+        return EnhancedType.of(Date.class);
+    }
+
+    @Override
+    public AttributeValueType attributeValueType() {
+        return AttributeValueType.S;
+    }
+}
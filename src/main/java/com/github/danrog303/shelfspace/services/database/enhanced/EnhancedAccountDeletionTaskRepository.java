@@ -0,0 +1,19 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.data.profile.AccountDeletionTask;
+import com.github.danrog303.shelfspace.data.profile.AccountDeletionTaskRepository;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnEnhancedPersistence;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+
+/**
+ * Enhanced Client implementation of {@link AccountDeletionTaskRepository}.
+ */
+@Repository
+@ConditionalOnEnhancedPersistence
+public class EnhancedAccountDeletionTaskRepository extends EnhancedCrudRepository<AccountDeletionTask> implements AccountDeletionTaskRepository {
+    public EnhancedAccountDeletionTaskRepository(DynamoDbEnhancedClient dynamoDbEnhancedClient, EnhancedBatchWriter batchWriter) {
+        super(dynamoDbEnhancedClient.table(ShelfSpaceTableSchemas.tableName(AccountDeletionTask.class), ShelfSpaceTableSchemas.ACCOUNT_DELETION_TASK),
+                batchWriter);
+    }
+}
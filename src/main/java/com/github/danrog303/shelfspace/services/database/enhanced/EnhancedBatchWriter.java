@@ -0,0 +1,114 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.services.database.ConditionalOnEnhancedPersistence;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.MappedTableResource;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Writes large collections of entities using BatchWriteItem requests of {@value #MAX_BATCH_SIZE} entities.
+ * All requests are sent at once with the non-blocking client; unprocessed entities returned by DynamoDB
+ * are sent again after an exponentially growing delay. Entities which could not be written are returned to
+ * the caller, which decides whether the partial write is an error.
+ */
+@Slf4j
+@Component
+@ConditionalOnEnhancedPersistence
+@RequiredArgsConstructor
+public class EnhancedBatchWriter {
+    /**
+     * Maximum number of entities accepted by a single BatchWriteItem request.
+     */
+    public static final int MAX_BATCH_SIZE = 25;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BASE_RETRY_DELAY_MILLIS = 50;
+
+    private final DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient;
+
+    /**
+     * Saves all the specified entities. Requests are written independently, so a failed request does not prevent
+     * the other requests from being saved.
+     * @return Entities which could not be saved, in the order of the specified entities
+     */
+    public <T> List<T> saveAll(MappedTableResource<T> table, List<T> entities) {
+        return writeAll(table, entities, false);
+    }
+
+    /**
+     * Deletes all the specified entities. Only key attributes of the entities are used. Requests are written
+     * independently, so a failed request does not prevent the other requests from being deleted.
+     * @return Entities which could not be deleted, in the order of the specified entities
+     */
+    public <T> List<T> deleteAll(MappedTableResource<T> table, List<T> entities) {
+        return writeAll(table, entities, true);
+    }
+
+    private <T> List<T> writeAll(MappedTableResource<T> table, List<T> entities, boolean delete) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>();
+        for (int i = 0; i < entities.size(); i += MAX_BATCH_SIZE) {
+            List<T> chunk = entities.subList(i, Math.min(i + MAX_BATCH_SIZE, entities.size()));
+            List<T> puts = delete ? List.of() : chunk;
+            List<Key> deletes = delete ? chunk.stream().map(table::keyFrom).collect(Collectors.toList()) : List.of();
+            futures.add(writeBatch(table, puts, deletes, 1).handle((unprocessedKeys, e) -> {
+                if (e != null) {
+                    log.warn("Could not write a batch of {} entities to {}", chunk.size(), table.tableName(), e);
+                    return chunk;
+                }
+                return chunk.stream()
+                        .filter(entity -> unprocessedKeys.contains(table.keyFrom(entity)))
+                        .collect(Collectors.toList());
+            }));
+        }
+
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Writes the batch, and sends unprocessed entities again until {@value #MAX_ATTEMPTS} attempts were made.
+     * @return Keys of the entities, which were still unprocessed after the last attempt
+     */
+    private <T> CompletableFuture<Set<Key>> writeBatch(MappedTableResource<T> table, List<T> puts, List<Key> deletes,
+                                                       int attempt) {
+        WriteBatch.Builder<T> batch = WriteBatch.builder(table.tableSchema().itemType().rawClass())
+                .mappedTableResource(table);
+        puts.forEach(batch::addPutItem);
+        deletes.forEach(batch::addDeleteItem);
+
+        return dynamoDbEnhancedAsyncClient.batchWriteItem(request -> request.addWriteBatch(batch.build()))
+                .thenCompose(result -> {
+                    List<T> unprocessedPuts = result.unprocessedPutItemsForTable(table);
+                    List<Key> unprocessedDeletes = result.unprocessedDeleteItemsForTable(table);
+                    if (unprocessedPuts.isEmpty() && unprocessedDeletes.isEmpty()) {
+                        return CompletableFuture.completedFuture(Set.of());
+                    }
+                    if (attempt >= MAX_ATTEMPTS) {
+                        Set<Key> unprocessedKeys = new HashSet<>(unprocessedDeletes);
+                        unprocessedPuts.forEach(put -> unprocessedKeys.add(table.keyFrom(put)));
+                        log.warn("Could not write {} entities to {} after {} attempts", unprocessedKeys.size(),
+                                table.tableName(), attempt);
+                        return CompletableFuture.completedFuture(unprocessedKeys);
+                    }
+
+                    Executor delayedExecutor = CompletableFuture.delayedExecutor(
+                            BASE_RETRY_DELAY_MILLIS << attempt, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.runAsync(() -> {}, delayedExecutor)
+                            .thenCompose(ignored -> writeBatch(table, unprocessedPuts, unprocessedDeletes, attempt + 1));
+                });
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import org.springframework.data.repository.CrudRepository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.DeleteItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link CrudRepository} implementation based on {@link DynamoDbTable}, for entities identified by a single
+ * string hash key. Behaves like the repositories generated by Derjust's library: versioned entities are written
+ * only if their version did not change, and the version of the saved entity is incremented.
+ * Rejected writes are reported as {@link OptimisticLockingException}.
+ */
+public abstract class EnhancedCrudRepository<T> implements CrudRepository<T, String> {
+    private final DynamoDbTable<T> table;
+    private final EnhancedBatchWriter batchWriter;
+    private final Function<T, Long> versionGetter;
+    private final BiConsumer<T, Long> versionSetter;
+
+    /**
+     * Creates repository of entities without version attribute.
+     */
+    protected EnhancedCrudRepository(DynamoDbTable<T> table, EnhancedBatchWriter batchWriter) {
+        this(table, batchWriter, null, null);
+    }
+
+    /**
+     * Creates repository of entities with "version" attribute, accessed with the specified getter and setter.
+     */
+    protected EnhancedCrudRepository(DynamoDbTable<T> table, EnhancedBatchWriter batchWriter,
+                                     Function<T, Long> versionGetter, BiConsumer<T, Long> versionSetter) {
+        this.table = table;
+        this.batchWriter = batchWriter;
+        this.versionGetter = versionGetter;
+        this.versionSetter = versionSetter;
+    }
+
+    @Override
+    public <S extends T> S save(S entity) {
+        try {
+            table.putItem(entity);
+        } catch (ConditionalCheckFailedException e) {
+            throw new OptimisticLockingException("Entity was modified by another request", e);
+        }
+
+        // VersionedRecordExtension writes the incremented version, but does not modify the passed entity
+        if (versionGetter != null) {
+            Long version = versionGetter.apply(entity);
+            versionSetter.accept(entity, version == null ? 1L : version + 1);
+        }
+        return entity;
+    }
+
+    @Override
+    public <S extends T> Iterable<S> saveAll(Iterable<S> entities) {
+        List<S> entityList = toList(entities);
+        if (versionGetter != null) {
+            // Batch writes cannot be conditional, so versioned entities are saved one by one
+            entityList.forEach(this::save);
+        } else {
+            requireWritten(batchWriter.saveAll(table, new ArrayList<>(entityList)));
+        }
+        return entityList;
+    }
+
+    @Override
+    public Optional<T> findById(String id) {
+        return Optional.ofNullable(table.getItem(createKey(id)));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return findById(id).isPresent();
+    }
+
+    @Override
+    public Iterable<T> findAll() {
+        return table.scan().items().stream().collect(Collectors.toList());
+    }
+
+    @Override
+    public Iterable<T> findAllById(Iterable<String> ids) {
+        return StreamSupport.stream(ids.spliterator(), false)
+                .map(this::findById)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return table.scan().items().stream().count();
+    }
+
+    @Override
+    public void deleteById(String id) {
+        table.deleteItem(createKey(id));
+    }
+
+    @Override
+    public void delete(T entity) {
+        DeleteItemEnhancedRequest.Builder request = DeleteItemEnhancedRequest.builder().key(table.keyFrom(entity));
+        Long version = versionGetter == null ? null : versionGetter.apply(entity);
+        if (version != null) {
+            request.conditionExpression(Expression.builder()
+                    .expression("#version = :version")
+                    .putExpressionName("#version", "version")
+                    .putExpressionValue(":version", AttributeValue.builder().n(version.toString()).build())
+                    .build());
+        }
+
+        try {
+            table.deleteItem(request.build());
+        } catch (ConditionalCheckFailedException e) {
+            throw new OptimisticLockingException("Entity was modified by another request", e);
+        }
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends T> entities) {
+        requireWritten(batchWriter.deleteAll(table, new ArrayList<>(toList(entities))));
+    }
+
+    @Override
+    public void deleteAll() {
+        deleteAll(findAll());
+    }
+
+    /**
+     * Batch writes of this repository are all or nothing, like the batch writes of {@link CrudRepository}.
+     * @throws IllegalStateException When some of the entities were not written
+     */
+    private void requireWritten(List<?> unwrittenEntities) {
+        if (!unwrittenEntities.isEmpty()) {
+            throw new IllegalStateException("Could not write " + unwrittenEntities.size() + " entities to " + table.tableName());
+        }
+    }
+
+    private Key createKey(String id) {
+        return Key.builder().partitionValue(id).build();
+    }
+
+    private <S> List<S> toList(Iterable<S> entities) {
+        return StreamSupport.stream(entities.spliterator(), false).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.services.aws.ResettableSdkAsyncHttpClient;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnEnhancedPersistence;
+import com.github.danrog303.shelfspace.services.metrics.AwsSdkMetricsInterceptor;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.extensions.VersionedRecordExtension;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClientBuilder;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import java.net.URI;
+
+/**
+ * Exposes Spring Beans of the persistence layer based on AWS SDK v2 DynamoDB Enhanced Client.
+ * Selected by setting "shelfspace.persistence" property to "enhanced"; in this mode neither the SDK v1
+ * client nor {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper} is initialized.
+ */
+@Configuration
+@ConditionalOnEnhancedPersistence
+@RequiredArgsConstructor
+public class EnhancedDynamoDBConfig {
+    private final AwsCredentialsProvider awsCredentialsProvider;
+    private final Region awsRegion;
+    private final AwsSdkMetricsInterceptor metricsInterceptor;
+
+    @Bean
+    public DynamoDbEnhancedClient dynamoDbEnhancedClient(DynamoDbClient dynamoDbClient) {
+        return DynamoDbEnhancedClient.builder()
+                .dynamoDbClient(dynamoDbClient)
+                .extensions(VersionedRecordExtension.builder().build())
+                .build();
+    }
+
+    /**
+     * HTTP client of {@link DynamoDbAsyncClient}, whose connections are closed after the application is restored
+     * from a snapshot (see {@link com.github.danrog303.shelfspace.services.aws.ApplicationPrimer}).
+     */
+    @Bean
+    public ResettableSdkAsyncHttpClient dynamoDbAsyncHttpClient() {
+        return new ResettableSdkAsyncHttpClient(NettyNioAsyncHttpClient::create);
+    }
+
+    /**
+     * Non-blocking client, used to send many independent requests (e.g. batch writes) at the same time,
+     * without a thread per request.
+     */
+    @Bean
+    public DynamoDbAsyncClient dynamoDbAsyncClient(@Value("${amazon.aws.dynamodb.endpoint}") String endpoint,
+                                                   ResettableSdkAsyncHttpClient dynamoDbAsyncHttpClient) {
+        DynamoDbAsyncClientBuilder builder = DynamoDbAsyncClient.builder()
+                .httpClient(dynamoDbAsyncHttpClient)
+                .credentialsProvider(awsCredentialsProvider)
+                .region(awsRegion)
+                .overrideConfiguration(config -> config.addExecutionInterceptor(metricsInterceptor));
+        if (!endpoint.isEmpty()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        return builder.build();
+    }
+
+    @Bean
+    public DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient(DynamoDbAsyncClient dynamoDbAsyncClient) {
+        return DynamoDbEnhancedAsyncClient.builder()
+                .dynamoDbClient(dynamoDbAsyncClient)
+                .extensions(VersionedRecordExtension.builder().build())
+                .build();
+    }
+}
@@ -0,0 +1,202 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.data.shelf.*;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnEnhancedPersistence;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.DeleteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Enhanced Client implementation of {@link ShelfItemRepository}.
+ * Partial updates and item counting are not supported by the Enhanced Client, so they are sent with the
+ * low-level {@link DynamoDbClient}.
+ */
+@Repository
+@ConditionalOnEnhancedPersistence
+public class EnhancedShelfItemRepository implements ShelfItemRepository {
+    private static final String TABLE_NAME = ShelfSpaceTableSchemas.tableName(ShelfItem.class);
+    private static final String ITEM_EXISTS_CONDITION = "attribute_exists(itemId)";
+
+    private final DynamoDbClient dynamoDbClient;
+    private final DynamoDbTable<ShelfItem> table;
+    private final EnhancedBatchWriter batchWriter;
+
+    public EnhancedShelfItemRepository(DynamoDbClient dynamoDbClient, DynamoDbEnhancedClient dynamoDbEnhancedClient,
+                                       EnhancedBatchWriter batchWriter) {
+        this.dynamoDbClient = dynamoDbClient;
+        this.table = dynamoDbEnhancedClient.table(TABLE_NAME, ShelfSpaceTableSchemas.SHELF_ITEM);
+        this.batchWriter = batchWriter;
+    }
+
+    @Override
+    public List<ShelfItem> findAllByShelfId(String shelfId) {
+        return table.query(createShelfQuery(shelfId).build()).items().stream().collect(Collectors.toList());
+    }
+
+    @Override
+    public Iterable<ShelfItem> iterateAllByShelfId(String shelfId) {
+        return table.query(createShelfQuery(shelfId).build()).items();
+    }
+
+    @Override
+    public ShelfItemPage findPageByShelfId(String shelfId, ShelfItemOrder order, int limit, String cursor) {
+        QueryEnhancedRequest.Builder query = createShelfQuery(shelfId).limit(limit);
+        if (cursor != null) {
+            Map<String, AttributeValue> startKey = new HashMap<>();
+            ShelfItemPageCursor.decode(cursor, order).getPosition()
+                    .forEach((attribute, value) -> startKey.put(attribute, AttributeValue.builder().s(value).build()));
+            startKey.put("shelfId", AttributeValue.builder().s(shelfId).build());
+            query.exclusiveStartKey(startKey);
+        }
+
+        // Only the first page of the result is fetched
+        Page<ShelfItem> page = order == ShelfItemOrder.CREATION_DATE
+                ? table.index(ShelfItem.CREATION_DATE_INDEX).query(query.build()).iterator().next()
+                : table.query(query.build()).iterator().next();
+
+        String nextCursor = null;
+        if (page.lastEvaluatedKey() != null) {
+            Map<String, String> position = new HashMap<>();
+            for (String attribute : order.getPositionAttributes()) {
+                position.put(attribute, page.lastEvaluatedKey().get(attribute).s());
+            }
+            nextCursor = new ShelfItemPageCursor(order.getParameterValue(), position).encode();
+        }
+        return new ShelfItemPage(page.items(), nextCursor);
+    }
+
+    @Override
+    public Optional<ShelfItem> findById(String shelfId, String itemId) {
+        return Optional.ofNullable(table.getItem(createKey(shelfId, itemId)));
+    }
+
+    @Override
+    public int countByShelfId(String shelfId) {
+        QueryRequest request = QueryRequest.builder()
+                .tableName(TABLE_NAME)
+                .keyConditionExpression("shelfId = :shelfId")
+                .expressionAttributeValues(Map.of(":shelfId", AttributeValue.builder().s(shelfId).build()))
+                .select(Select.COUNT)
+                .consistentRead(true)
+                .build();
+
+        return dynamoDbClient.queryPaginator(request).stream().mapToInt(QueryResponse::count).sum();
+    }
+
+    @Override
+    public ShelfItem save(ShelfItem item) {
+        table.putItem(item);
+        return item;
+    }
+
+    @Override
+    public List<ShelfItem> saveAll(List<ShelfItem> items) {
+        return batchWriter.saveAll(table, items);
+    }
+
+    @Override
+    public Optional<ShelfItem> update(ShelfItem item) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        List<String> setActions = new ArrayList<>();
+        List<String> removeActions = new ArrayList<>();
+
+        names.put("#title", "title");
+        values.put(":title", AttributeValue.builder().s(item.getTitle()).build());
+        setActions.add("#title = :title");
+
+        names.put("#status", "status");
+        values.put(":status", AttributeValue.builder().s(item.getStatus().name()).build());
+        setActions.add("#status = :status");
+
+        addNumberAction("rating", item.getRating(), names, values, setActions, removeActions);
+        addNumberAction("finishedCount", item.getFinishedCount(), names, values, setActions, removeActions);
+
+        String updateExpression = "SET " + String.join(", ", setActions);
+        if (!removeActions.isEmpty()) {
+            updateExpression += " REMOVE " + String.join(", ", removeActions);
+        }
+
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(createKey(item.getShelfId(), item.getItemId()).primaryKeyMap(ShelfSpaceTableSchemas.SHELF_ITEM))
+                .updateExpression(updateExpression)
+                .conditionExpression(ITEM_EXISTS_CONDITION)
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .returnValues(ReturnValue.ALL_NEW)
+                .build();
+
+        try {
+            UpdateItemResponse response = dynamoDbClient.updateItem(request);
+            return Optional.of(ShelfSpaceTableSchemas.SHELF_ITEM.mapToItem(response.attributes()));
+        } catch (ConditionalCheckFailedException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public Optional<ShelfItem> deleteById(String shelfId, String itemId) {
+        DeleteItemEnhancedRequest request = DeleteItemEnhancedRequest.builder()
+                .key(createKey(shelfId, itemId))
+                .conditionExpression(Expression.builder().expression(ITEM_EXISTS_CONDITION).build())
+                .build();
+
+        try {
+            return Optional.of(table.deleteItem(request));
+        } catch (ConditionalCheckFailedException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public List<ShelfItem> deleteAll(List<ShelfItem> items) {
+        return batchWriter.deleteAll(table, items);
+    }
+
+    @Override
+    public void deleteAllByShelfId(String shelfId) {
+        // Only keys are needed to delete the items
+        QueryEnhancedRequest query = createShelfQuery(shelfId).attributesToProject("shelfId", "itemId").build();
+        List<ShelfItem> items = table.query(query).items().stream().collect(Collectors.toList());
+        List<ShelfItem> undeletedItems = batchWriter.deleteAll(table, items);
+        if (!undeletedItems.isEmpty()) {
+            throw new IllegalStateException("Could not delete " + undeletedItems.size() + " items of shelf " + shelfId);
+        }
+    }
+
+    private QueryEnhancedRequest.Builder createShelfQuery(String shelfId) {
+        return QueryEnhancedRequest.builder()
+                .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(shelfId).build()))
+                .consistentRead(true);
+    }
+
+    private Key createKey(String shelfId, String itemId) {
+        return Key.builder().partitionValue(shelfId).sortValue(itemId).build();
+    }
+
+    /**
+     * Sets the numeric attribute to the specified value, or removes it from the item if the value is null.
+     */
+    private void addNumberAction(String attribute, Integer value, Map<String, String> names,
+                                 Map<String, AttributeValue> values, List<String> setActions, List<String> removeActions) {
+        names.put("#" + attribute, attribute);
+        if (value == null) {
+            removeActions.add("#" + attribute);
+        } else {
+            values.put(":" + attribute, AttributeValue.builder().n(value.toString()).build());
+            setActions.add("#" + attribute + " = :" + attribute);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfMetadataRepository;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnEnhancedPersistence;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Enhanced Client implementation of {@link ShelfMetadataRepository}. The Enhanced Client does not support
+ * projections on GetItem, so the request is sent with the low-level {@link DynamoDbClient} and only
+ * the response is mapped with {@link ShelfSpaceTableSchemas#SHELF}.
+ */
+@Repository
+@ConditionalOnEnhancedPersistence
+@RequiredArgsConstructor
+public class EnhancedShelfMetadataRepository implements ShelfMetadataRepository {
+    private static final String TABLE_NAME = ShelfSpaceTableSchemas.tableName(Shelf.class);
+    private static final String METADATA_PROJECTION = "#shelfId, #ownerId, #shelfName, #shelfType, #version";
+    private static final Map<String, String> METADATA_ATTRIBUTE_NAMES = Map.of(
+            "#shelfId", "shelfId",
+            "#ownerId", "ownerId",
+            "#shelfName", "shelfName",
+            "#shelfType", "shelfType",
+            "#version", "version"
+    );
+    private static final String INCREMENT_VERSION_UPDATE = "ADD #version :one";
+    private static final String SHELF_EXISTS_CONDITION = "attribute_exists(#shelfId)";
+    private static final String EXPECTED_VERSION_CONDITION = "#version = :expectedVersion";
+
+    private final DynamoDbClient dynamoDbClient;
+
+    @Override
+    public Optional<Shelf> findMetadataById(String shelfId) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of("shelfId", AttributeValue.builder().s(shelfId).build()))
+                .projectionExpression(METADATA_PROJECTION)
+                .expressionAttributeNames(METADATA_ATTRIBUTE_NAMES)
+                .build();
+
+        GetItemResponse response = dynamoDbClient.getItem(request);
+        if (!response.hasItem() || response.item().isEmpty()) {
+            return Optional.empty();
+        }
+        return Optional.of(ShelfSpaceTableSchemas.SHELF.mapToItem(response.item()));
+    }
+
+    @Override
+    public void incrementVersion(String shelfId) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of("shelfId", AttributeValue.builder().s(shelfId).build()))
+                .updateExpression(INCREMENT_VERSION_UPDATE)
+                .conditionExpression(SHELF_EXISTS_CONDITION)
+                .expressionAttributeNames(Map.of("#shelfId", "shelfId", "#version", "version"))
+                .expressionAttributeValues(Map.of(":one", AttributeValue.builder().n("1").build()))
+                .build();
+
+        try {
+            dynamoDbClient.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            // The shelf was deleted in the meantime, so there is no version to increment
+        }
+    }
+
+    @Override
+    public void incrementVersion(String shelfId, long expectedVersion) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of("shelfId", AttributeValue.builder().s(shelfId).build()))
+                .updateExpression(INCREMENT_VERSION_UPDATE)
+                .conditionExpression(EXPECTED_VERSION_CONDITION)
+                .expressionAttributeNames(Map.of("#version", "version"))
+                .expressionAttributeValues(Map.of(
+                        ":one", AttributeValue.builder().n("1").build(),
+                        ":expectedVersion", AttributeValue.builder().n(Long.toString(expectedVersion)).build()))
+                .build();
+
+        try {
+            dynamoDbClient.updateItem(request);
+        } catch (ConditionalCheckFailedException e) {
+            throw new OptimisticLockingException("Shelf was modified by another request", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfRepository;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnEnhancedPersistence;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+
+/**
+ * Enhanced Client implementation of {@link ShelfRepository}.
+ */
+@Repository
+@ConditionalOnEnhancedPersistence
+public class EnhancedShelfRepository extends EnhancedCrudRepository<Shelf> implements ShelfRepository {
+    public EnhancedShelfRepository(DynamoDbEnhancedClient dynamoDbEnhancedClient, EnhancedBatchWriter batchWriter) {
+        super(dynamoDbEnhancedClient.table(ShelfSpaceTableSchemas.tableName(Shelf.class), ShelfSpaceTableSchemas.SHELF),
+                batchWriter, Shelf::getVersion, Shelf::setVersion);
+    }
+}
@@ -0,0 +1,19 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.profile.UserProfileRepository;
+import com.github.danrog303.shelfspace.services.database.ConditionalOnEnhancedPersistence;
+import org.springframework.stereotype.Repository;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+
+/**
+ * Enhanced Client implementation of {@link UserProfileRepository}.
+ */
+@Repository
+@ConditionalOnEnhancedPersistence
+public class EnhancedUserProfileRepository extends EnhancedCrudRepository<UserProfile> implements UserProfileRepository {
+    public EnhancedUserProfileRepository(DynamoDbEnhancedClient dynamoDbEnhancedClient, EnhancedBatchWriter batchWriter) {
+        super(dynamoDbEnhancedClient.table(ShelfSpaceTableSchemas.tableName(UserProfile.class), ShelfSpaceTableSchemas.USER_PROFILE),
+                batchWriter, UserProfile::getVersion, UserProfile::setVersion);
+    }
+}
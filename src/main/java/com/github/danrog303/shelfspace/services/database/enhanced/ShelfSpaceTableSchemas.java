@@ -0,0 +1,140 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBTable;
+import com.github.danrog303.shelfspace.data.profile.AccountDeletionTask;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemStatus;
+import com.github.danrog303.shelfspace.data.shelf.ShelfType;
+import software.amazon.awssdk.enhanced.dynamodb.EnhancedType;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.extensions.VersionedRecordExtension;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * <p>Static {@link TableSchema}s of the entities. Unlike bean schemas, static schemas are built without
+ * reflection or bytecode generation, so they are cheap to create during a cold start.</p>
+ * <p>Attribute names and formats are the same as those written by
+ * {@link com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper} (enums are stored by name, dates
+ * by {@link DateAttributeConverter}), so both persistence layers operate on the same tables.</p>
+ */
+public final class ShelfSpaceTableSchemas {
+    public static final TableSchema<PrefetchedShelf> PREFETCHED_SHELF = StaticTableSchema.builder(PrefetchedShelf.class)
+            .newItemSupplier(PrefetchedShelf::new)
+            .addAttribute(String.class, a -> a.name("shelfId")
+                    .getter(PrefetchedShelf::getShelfId)
+                    .setter(PrefetchedShelf::setShelfId))
+            .addAttribute(String.class, a -> a.name("shelfName")
+                    .getter(PrefetchedShelf::getShelfName)
+                    .setter(PrefetchedShelf::setShelfName))
+            .addAttribute(ShelfType.class, a -> a.name("shelfType")
+                    .getter(PrefetchedShelf::getShelfType)
+                    .setter(PrefetchedShelf::setShelfType))
+            .build();
+
+    public static final TableSchema<UserProfile> USER_PROFILE = StaticTableSchema.builder(UserProfile.class)
+            .newItemSupplier(UserProfile::new)
+            .addAttribute(String.class, a -> a.name("userId")
+                    .getter(UserProfile::getUserId)
+                    .setter(UserProfile::setUserId)
+                    .tags(StaticAttributeTags.primaryPartitionKey()))
+            .addAttribute(String.class, a -> a.name("nickname")
+                    .getter(UserProfile::getNickname)
+                    .setter(UserProfile::setNickname))
+            .addAttribute(EnhancedType.listOf(EnhancedType.documentOf(PrefetchedShelf.class, PREFETCHED_SHELF)), a -> a.name("shelves")
+                    .getter(UserProfile::getShelves)
+                    .setter(UserProfile::setShelves))
+            .addAttribute(Long.class, a -> a.name("version")
+                    .getter(UserProfile::getVersion)
+                    .setter(UserProfile::setVersion)
+                    .tags(VersionedRecordExtension.AttributeTags.versionAttribute()))
+            .build();
+
+    public static final TableSchema<Shelf> SHELF = StaticTableSchema.builder(Shelf.class)
+            .newItemSupplier(Shelf::new)
+            .addAttribute(String.class, a -> a.name("shelfId")
+                    .getter(Shelf::getShelfId)
+                    .setter(Shelf::setShelfId)
+                    .tags(StaticAttributeTags.primaryPartitionKey()))
+            .addAttribute(String.class, a -> a.name("shelfName")
+                    .getter(Shelf::getShelfName)
+                    .setter(Shelf::setShelfName))
+            .addAttribute(String.class, a -> a.name("ownerId")
+                    .getter(Shelf::getOwnerId)
+                    .setter(Shelf::setOwnerId))
+            .addAttribute(ShelfType.class, a -> a.name("shelfType")
+                    .getter(Shelf::getShelfType)
+                    .setter(Shelf::setShelfType))
+            .addAttribute(Long.class, a -> a.name("version")
+                    .getter(Shelf::getVersion)
+                    .setter(Shelf::setVersion)
+                    .tags(VersionedRecordExtension.AttributeTags.versionAttribute()))
+            .build();
+
+    public static final TableSchema<ShelfItem> SHELF_ITEM = StaticTableSchema.builder(ShelfItem.class)
+            .newItemSupplier(ShelfItem::new)
+            .addAttribute(String.class, a -> a.name("shelfId")
+                    .getter(ShelfItem::getShelfId)
+                    .setter(ShelfItem::setShelfId)
+                    .tags(StaticAttributeTags.primaryPartitionKey()))
+            .addAttribute(String.class, a -> a.name("itemId")
+                    .getter(ShelfItem::getItemId)
+                    .setter(ShelfItem::setItemId)
+                    .tags(StaticAttributeTags.primarySortKey()))
+            .addAttribute(String.class, a -> a.name("title")
+                    .getter(ShelfItem::getTitle)
+                    .setter(ShelfItem::setTitle))
+            .addAttribute(Date.class, a -> a.name("creationDate")
+                    .getter(ShelfItem::getCreationDate)
+                    .setter(ShelfItem::setCreationDate)
+                    .attributeConverter(new DateAttributeConverter())
+                    .tags(StaticAttributeTags.secondarySortKey(ShelfItem.CREATION_DATE_INDEX)))
+            .addAttribute(ShelfItemStatus.class, a -> a.name("status")
+                    .getter(ShelfItem::getStatus)
+                    .setter(ShelfItem::setStatus))
+            .addAttribute(Integer.class, a -> a.name("rating")
+                    .getter(ShelfItem::getRating)
+                    .setter(ShelfItem::setRating))
+            .addAttribute(Integer.class, a -> a.name("finishedCount")
+                    .getter(ShelfItem::getFinishedCount)
+                    .setter(ShelfItem::setFinishedCount))
+            .build();
+
+    public static final TableSchema<AccountDeletionTask> ACCOUNT_DELETION_TASK = StaticTableSchema.builder(AccountDeletionTask.class)
+            .newItemSupplier(AccountDeletionTask::new)
+            .addAttribute(String.class, a -> a.name("userId")
+                    .getter(AccountDeletionTask::getUserId)
+                    .setter(AccountDeletionTask::setUserId)
+                    .tags(StaticAttributeTags.primaryPartitionKey()))
+            .addAttribute(Date.class, a -> a.name("requestDate")
+                    .getter(AccountDeletionTask::getRequestDate)
+                    .setter(AccountDeletionTask::setRequestDate)
+                    .attributeConverter(new DateAttributeConverter()))
+            .addAttribute(Integer.class, a -> a.name("attempts")
+                    .getter(AccountDeletionTask::getAttempts)
+                    .setter(AccountDeletionTask::setAttempts))
+            .addAttribute(Date.class, a -> a.name("nextAttemptDate")
+                    .getter(AccountDeletionTask::getNextAttemptDate)
+                    .setter(AccountDeletionTask::setNextAttemptDate)
+                    .attributeConverter(new DateAttributeConverter()))
+            .addAttribute(String.class, a -> a.name("lastError")
+                    .getter(AccountDeletionTask::getLastError)
+                    .setter(AccountDeletionTask::setLastError))
+            .build();
+
+    private ShelfSpaceTableSchemas() {
+    }
+
+    /**
+     * Returns name of the table of the specified entity. Table names are declared once, on the entity classes.
+     */
+    public static String tableName(Class<?> entityClass) {
+        return entityClass.getAnnotation(DynamoDBTable.class).tableName();
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Records metrics of the calls to AWS services, made with both AWS SDK v1 ({@link DynamoDBMetricsRequestHandler})
+ * and AWS SDK v2 ({@link AwsSdkMetricsInterceptor}) clients. All metrics are tagged with "service", "operation"
+ * and "table" ("none" for calls which do not refer to a table, "multiple" for calls which refer to many):</p>
+ * <ul>
+ *     <li>"shelfspace.aws.calls" - latency of the calls (including retries), with the "exception" tag
+ *     ("none" for successful calls), which also counts the failed calls,</li>
+ *     <li>"shelfspace.aws.request.size", "shelfspace.aws.response.size" - sizes of the HTTP bodies, in bytes,</li>
+ *     <li>"shelfspace.dynamodb.consumed.capacity" - read and write capacity units consumed by DynamoDB calls.</li>
+ * </ul>
+ */
+@RequiredArgsConstructor
+public class AwsCallMetrics {
+    public static final String NO_TABLE = "none";
+    public static final String MULTIPLE_TABLES = "multiple";
+
+    private final MeterRegistry registry;
+
+    public void recordCall(String service, String operation, String table, long durationNanos, Throwable exception) {
+        Timer.builder("shelfspace.aws.calls")
+                .tags(tags(service, operation, table))
+                .tag("exception", exception == null ? "none" : exception.getClass().getSimpleName())
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param requestBytes Size of the request body, or null if it is unknown
+     * @param responseBytes Size of the response body, or null if it is unknown
+     */
+    public void recordPayload(String service, String operation, String table, Long requestBytes, Long responseBytes) {
+        if (requestBytes != null) {
+            summary("shelfspace.aws.request.size", service, operation, table).record(requestBytes);
+        }
+        if (responseBytes != null) {
+            summary("shelfspace.aws.response.size", service, operation, table).record(responseBytes);
+        }
+    }
+
+    public void recordConsumedCapacity(String service, String operation, String table, Double capacityUnits) {
+        if (capacityUnits != null) {
+            DistributionSummary.builder("shelfspace.dynamodb.consumed.capacity")
+                    .baseUnit("capacity.units")
+                    .tags(tags(service, operation, table))
+                    .register(registry)
+                    .record(capacityUnits);
+        }
+    }
+
+    /**
+     * Parses the value of "Content-Length" header.
+     * @return Number of bytes, or null if the header is missing or malformed
+     */
+    static Long parseContentLength(String contentLength) {
+        try {
+            return contentLength == null ? null : Long.parseLong(contentLength.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private DistributionSummary summary(String name, String service, String operation, String table) {
+        return DistributionSummary.builder(name)
+                .baseUnit("bytes")
+                .tags(tags(service, operation, table))
+                .register(registry);
+    }
+
+    private static Tags tags(String service, String operation, String table) {
+        return Tags.of("service", service, "operation", operation, "table", table == null ? NO_TABLE : table);
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.core.SdkField;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <p>Records {@link AwsCallMetrics} of the calls made by AWS SDK v2 clients (DynamoDB and Cognito).</p>
+ * <p>DynamoDB requests, which do not specify "ReturnConsumedCapacity" themselves, are modified to return
+ * the total consumed capacity, so that it can be recorded.</p>
+ */
+@RequiredArgsConstructor
+public class AwsSdkMetricsInterceptor implements ExecutionInterceptor {
+    private static final ExecutionAttribute<Long> START_TIME = new ExecutionAttribute<>("ShelfSpaceMetricsStartTime");
+    private static final String RETURN_CONSUMED_CAPACITY = "ReturnConsumedCapacity";
+
+    private final AwsCallMetrics metrics;
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_TIME, System.nanoTime());
+    }
+
+    @Override
+    public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+        SdkRequest request = context.request();
+        Optional<SdkField<?>> field = request.sdkFields().stream()
+                .filter(f -> RETURN_CONSUMED_CAPACITY.equals(f.memberName()))
+                .findFirst();
+        if (field.isEmpty() || request.getValueForField(RETURN_CONSUMED_CAPACITY, String.class).isPresent()) {
+            return request;
+        }
+
+        // Builders of the generated requests expose the same fields as the requests
+        SdkRequest.Builder builder = request.toBuilder();
+        field.get().set(builder, ReturnConsumedCapacity.TOTAL.toString());
+        return builder.build();
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        Long requestBytes = AwsCallMetrics.parseContentLength(
+                context.httpRequest().firstMatchingHeader("Content-Length").orElse(null));
+        if (requestBytes == null) {
+            requestBytes = context.requestBody().flatMap(RequestBody::optionalContentLength)
+                    .or(() -> context.asyncRequestBody().flatMap(AsyncRequestBody::contentLength))
+                    .orElse(null);
+        }
+        Long responseBytes = AwsCallMetrics.parseContentLength(
+                context.httpResponse().firstMatchingHeader("Content-Length").orElse(null));
+
+        metrics.recordPayload(getService(executionAttributes), getOperation(executionAttributes),
+                getTable(context.request()), requestBytes, responseBytes);
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        String service = getService(executionAttributes);
+        String operation = getOperation(executionAttributes);
+        String table = getTable(context.request());
+        metrics.recordCall(service, operation, table, getDuration(executionAttributes), null);
+
+        // Single-table operations return one ConsumedCapacity, batch and transactional operations return a list
+        Object consumedCapacity = context.response().getValueForField("ConsumedCapacity", Object.class).orElse(null);
+        if (consumedCapacity instanceof ConsumedCapacity) {
+            recordConsumedCapacity(service, operation, table, (ConsumedCapacity) consumedCapacity);
+        } else if (consumedCapacity instanceof List) {
+            for (Object tableCapacity : (List<?>) consumedCapacity) {
+                recordConsumedCapacity(service, operation, table, (ConsumedCapacity) tableCapacity);
+            }
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        metrics.recordCall(getService(executionAttributes), getOperation(executionAttributes),
+                getTable(context.request()), getDuration(executionAttributes), context.exception());
+    }
+
+    private void recordConsumedCapacity(String service, String operation, String table, ConsumedCapacity capacity) {
+        String capacityTable = capacity.tableName() != null ? capacity.tableName() : table;
+        metrics.recordConsumedCapacity(service, operation, capacityTable, capacity.capacityUnits());
+    }
+
+    private static String getTable(SdkRequest request) {
+        Optional<String> tableName = request.getValueForField("TableName", String.class);
+        if (tableName.isPresent()) {
+            return tableName.get();
+        }
+
+        Optional<Map> requestItems = request.getValueForField("RequestItems", Map.class);
+        if (requestItems.isPresent()) {
+            return requestItems.get().size() == 1
+                    ? String.valueOf(requestItems.get().keySet().iterator().next())
+                    : AwsCallMetrics.MULTIPLE_TABLES;
+        }
+        return request.getValueForField("TransactItems", List.class).isPresent()
+                ? AwsCallMetrics.MULTIPLE_TABLES
+                : AwsCallMetrics.NO_TABLE;
+    }
+
+    private static String getService(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME);
+    }
+
+    private static String getOperation(ExecutionAttributes executionAttributes) {
+        return executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+    }
+
+    private static long getDuration(ExecutionAttributes executionAttributes) {
+        Long start = executionAttributes.getAttribute(START_TIME);
+        return start == null ? 0 : System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,35 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * <p>Measures the time spent by the controllers, from the handler interceptors until the request is completed
+ * (including the message conversion and the exception handling of the controller advice), and adds it to the
+ * invocation recorded by {@link LambdaInvocationTelemetry}. Does nothing outside of Lambda.</p>
+ * <p>Asynchronous requests (e.g. with a {@code StreamingResponseBody}) are intercepted again on their async
+ * dispatch, which keeps the start of the first dispatch, so the time spent writing the body is counted as well.</p>
+ */
+public class ControllerTimingInterceptor implements HandlerInterceptor {
+    private static final String START_ATTRIBUTE = ControllerTimingInterceptor.class.getName() + ".start";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (start instanceof Long) {
+            request.removeAttribute(START_ATTRIBUTE);
+            LambdaInvocationTelemetry.addControllerTime(System.nanoTime() - (Long) start);
+        }
+    }
+}
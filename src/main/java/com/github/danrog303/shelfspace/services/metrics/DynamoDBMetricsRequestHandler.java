@@ -0,0 +1,133 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.dynamodbv2.model.*;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Records {@link AwsCallMetrics} of the calls made by the AWS SDK v1 DynamoDB client (used by DynamoDBMapper),
+ * with the same tags as {@link AwsSdkMetricsInterceptor} records for the AWS SDK v2 clients.</p>
+ * <p>Item operations, which do not specify "ReturnConsumedCapacity" themselves, are modified to return
+ * the total consumed capacity, so that it can be recorded.</p>
+ */
+@RequiredArgsConstructor
+public class DynamoDBMetricsRequestHandler extends RequestHandler2 {
+    static final String SERVICE = "DynamoDb";
+    private static final HandlerContextKey<Long> START_TIME = new HandlerContextKey<>("ShelfSpaceMetricsStartTime");
+
+    private final AwsCallMetrics metrics;
+
+    @Override
+    public AmazonWebServiceRequest beforeExecution(AmazonWebServiceRequest request) {
+        String total = ReturnConsumedCapacity.TOTAL.toString();
+        if (request instanceof GetItemRequest && ((GetItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((GetItemRequest) request).setReturnConsumedCapacity(total);
+        } else if (request instanceof PutItemRequest && ((PutItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((PutItemRequest) request).setReturnConsumedCapacity(total);
+        } else if (request instanceof UpdateItemRequest && ((UpdateItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((UpdateItemRequest) request).setReturnConsumedCapacity(total);
+        } else if (request instanceof DeleteItemRequest && ((DeleteItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((DeleteItemRequest) request).setReturnConsumedCapacity(total);
+        } else if (request instanceof QueryRequest && ((QueryRequest) request).getReturnConsumedCapacity() == null) {
+            ((QueryRequest) request).setReturnConsumedCapacity(total);
+        } else if (request instanceof ScanRequest && ((ScanRequest) request).getReturnConsumedCapacity() == null) {
+            ((ScanRequest) request).setReturnConsumedCapacity(total);
+        } else if (request instanceof BatchGetItemRequest && ((BatchGetItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((BatchGetItemRequest) request).setReturnConsumedCapacity(total);
+        } else if (request instanceof BatchWriteItemRequest && ((BatchWriteItemRequest) request).getReturnConsumedCapacity() == null) {
+            ((BatchWriteItemRequest) request).setReturnConsumedCapacity(total);
+        }
+        return request;
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(START_TIME, System.nanoTime());
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        String operation = request.getHandlerContext(HandlerContextKey.OPERATION_NAME);
+        String table = getTable(request.getOriginalRequest());
+        metrics.recordCall(SERVICE, operation, table, getDuration(request), null);
+
+        Long requestBytes = AwsCallMetrics.parseContentLength(request.getHeaders().get("Content-Length"));
+        Long responseBytes = response.getHttpResponse() == null ? null
+                : AwsCallMetrics.parseContentLength(response.getHttpResponse().getHeader("Content-Length"));
+        metrics.recordPayload(SERVICE, operation, table, requestBytes, responseBytes);
+
+        for (ConsumedCapacity capacity : getConsumedCapacity(response.getAwsResponse())) {
+            String capacityTable = capacity.getTableName() != null ? capacity.getTableName() : table;
+            metrics.recordConsumedCapacity(SERVICE, operation, capacityTable, capacity.getCapacityUnits());
+        }
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        metrics.recordCall(SERVICE, request.getHandlerContext(HandlerContextKey.OPERATION_NAME),
+                getTable(request.getOriginalRequest()), getDuration(request), e);
+    }
+
+    private static String getTable(AmazonWebServiceRequest request) {
+        if (request instanceof GetItemRequest) {
+            return ((GetItemRequest) request).getTableName();
+        } else if (request instanceof PutItemRequest) {
+            return ((PutItemRequest) request).getTableName();
+        } else if (request instanceof UpdateItemRequest) {
+            return ((UpdateItemRequest) request).getTableName();
+        } else if (request instanceof DeleteItemRequest) {
+            return ((DeleteItemRequest) request).getTableName();
+        } else if (request instanceof QueryRequest) {
+            return ((QueryRequest) request).getTableName();
+        } else if (request instanceof ScanRequest) {
+            return ((ScanRequest) request).getTableName();
+        } else if (request instanceof DescribeTableRequest) {
+            return ((DescribeTableRequest) request).getTableName();
+        } else if (request instanceof BatchGetItemRequest) {
+            return getTable(((BatchGetItemRequest) request).getRequestItems());
+        } else if (request instanceof BatchWriteItemRequest) {
+            return getTable(((BatchWriteItemRequest) request).getRequestItems());
+        }
+        return AwsCallMetrics.NO_TABLE;
+    }
+
+    private static String getTable(Map<String, ?> requestItems) {
+        return requestItems != null && requestItems.size() == 1
+                ? requestItems.keySet().iterator().next()
+                : AwsCallMetrics.MULTIPLE_TABLES;
+    }
+
+    private static List<ConsumedCapacity> getConsumedCapacity(Object result) {
+        ConsumedCapacity capacity = null;
+        if (result instanceof GetItemResult) {
+            capacity = ((GetItemResult) result).getConsumedCapacity();
+        } else if (result instanceof PutItemResult) {
+            capacity = ((PutItemResult) result).getConsumedCapacity();
+        } else if (result instanceof UpdateItemResult) {
+            capacity = ((UpdateItemResult) result).getConsumedCapacity();
+        } else if (result instanceof DeleteItemResult) {
+            capacity = ((DeleteItemResult) result).getConsumedCapacity();
+        } else if (result instanceof QueryResult) {
+            capacity = ((QueryResult) result).getConsumedCapacity();
+        } else if (result instanceof ScanResult) {
+            capacity = ((ScanResult) result).getConsumedCapacity();
+        } else if (result instanceof BatchGetItemResult && ((BatchGetItemResult) result).getConsumedCapacity() != null) {
+            return ((BatchGetItemResult) result).getConsumedCapacity();
+        } else if (result instanceof BatchWriteItemResult && ((BatchWriteItemResult) result).getConsumedCapacity() != null) {
+            return ((BatchWriteItemResult) result).getConsumedCapacity();
+        }
+        return capacity == null ? List.of() : List.of(capacity);
+    }
+
+    private static long getDuration(Request<?> request) {
+        Long start = request.getHandlerContext(START_TIME);
+        return start == null ? 0 : System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Layout of the CloudWatch Embedded Metric Format log lines, shared by {@link EmbeddedMetricFormatMeterRegistry}
+ * and {@link LambdaInvocationTelemetry}.
+ */
+final class EmbeddedMetricFormat {
+    private EmbeddedMetricFormat() {
+    }
+
+    /**
+     * Creates the content of a log line, with the metadata followed by the dimensions and the values.
+     * Further properties (which are not turned into metrics) may be added to the returned map.
+     *
+     * @param units Units of the values, by the names of the values
+     */
+    static Map<String, Object> createLine(String namespace, long timestamp, Map<String, String> dimensions,
+                                          Map<String, Number> values, Map<String, String> units) {
+        List<Map<String, String>> metrics = units.entrySet().stream()
+                .map(unit -> Map.of("Name", unit.getKey(), "Unit", unit.getValue()))
+                .collect(Collectors.toList());
+
+        Map<String, Object> directive = Map.of(
+                "Namespace", namespace,
+                "Dimensions", List.of(new ArrayList<>(dimensions.keySet())),
+                "Metrics", metrics);
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("_aws", Map.of("Timestamp", timestamp, "CloudWatchMetrics", List.of(directive)));
+        line.putAll(dimensions);
+        line.putAll(values);
+        return line;
+    }
+}
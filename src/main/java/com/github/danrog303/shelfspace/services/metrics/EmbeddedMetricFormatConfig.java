@@ -0,0 +1,38 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import io.micrometer.core.instrument.step.StepRegistryConfig;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static io.micrometer.core.instrument.config.validate.PropertyValidator.getString;
+
+/**
+ * Configuration of {@link EmbeddedMetricFormatMeterRegistry}, read from "shelfspace.metrics.emf.*" properties.
+ */
+public interface EmbeddedMetricFormatConfig extends StepRegistryConfig {
+    @Override
+    default String prefix() {
+        return "shelfspace.metrics.emf";
+    }
+
+    /**
+     * CloudWatch namespace of the metrics.
+     */
+    default String namespace() {
+        return getString(this, "namespace").orElse("ShelfSpace");
+    }
+
+    /**
+     * Only the meters whose names start with one of the prefixes are published, because every published meter
+     * is a separate log line (and a separate custom metric in CloudWatch).
+     */
+    default List<String> meterNamePrefixes() {
+        return Arrays.stream(getString(this, "meter-name-prefixes").orElse("shelfspace.,cache.,http.server.requests")
+                        .split(","))
+                .map(String::trim)
+                .filter(prefix -> !prefix.isEmpty())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,163 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.step.StepMeterRegistry;
+import io.micrometer.core.instrument.util.NamedThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>Publishes metrics as CloudWatch Embedded Metric Format (EMF) log lines, which CloudWatch Logs turns into
+ * CloudWatch metrics, so that the Lambda function does not have to call the CloudWatch API.</p>
+ * <p>Every meter is published as a separate line once per step, with its tags as dimensions. Counters, timers
+ * and distribution summaries which were not used during the step are skipped. The publishing thread is frozen
+ * between invocations of the function, so metrics of a step are published when the next invocation thaws it,
+ * and metrics of the last step are lost when the execution environment is shut down.</p>
+ */
+@Slf4j
+public class EmbeddedMetricFormatMeterRegistry extends StepMeterRegistry {
+    private final EmbeddedMetricFormatConfig config;
+    private final Consumer<String> sink;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    /**
+     * Creates the registry, which writes the metrics to the standard output (forwarded to CloudWatch Logs by Lambda).
+     */
+    public EmbeddedMetricFormatMeterRegistry(EmbeddedMetricFormatConfig config, Clock clock) {
+        this(config, clock, System.out::println);
+        start(new NamedThreadFactory("emf-metrics-publisher"));
+    }
+
+    EmbeddedMetricFormatMeterRegistry(EmbeddedMetricFormatConfig config, Clock clock, Consumer<String> sink) {
+        super(config, clock);
+        this.config = config;
+        this.sink = sink;
+
+        List<String> prefixes = config.meterNamePrefixes();
+        config().meterFilter(MeterFilter.denyUnless(id -> prefixes.stream().anyMatch(id.getName()::startsWith)));
+    }
+
+    @Override
+    protected void publish() {
+        long timestamp = clock.wallTime();
+        for (Meter meter : getMeters()) {
+            // Percentiles are published with their timers and summaries, instead of as separate gauges
+            if (meter.getId().syntheticAssociation() != null) {
+                continue;
+            }
+
+            Map<String, Number> values = new LinkedHashMap<>();
+            Map<String, String> units = new LinkedHashMap<>();
+            collectValues(meter, values, units);
+            if (!values.isEmpty()) {
+                writeLine(meter, timestamp, values, units);
+            }
+        }
+    }
+
+    /**
+     * Percentiles are computed from the samples of the last one or two steps, so that the published percentiles
+     * always cover the whole step. With the default configuration, they would cover only a part of it.
+     */
+    @Override
+    protected DistributionStatisticConfig defaultHistogramConfig() {
+        return DistributionStatisticConfig.builder()
+                .expiry(config.step().multipliedBy(2))
+                .bufferLength(2)
+                .build()
+                .merge(DistributionStatisticConfig.DEFAULT);
+    }
+
+    @Override
+    protected TimeUnit getBaseTimeUnit() {
+        return TimeUnit.MILLISECONDS;
+    }
+
+    private void collectValues(Meter meter, Map<String, Number> values, Map<String, String> units) {
+        String name = meter.getId().getName();
+        meter.use(
+                gauge -> putValue(values, units, name, gauge.value(), "None"),
+                counter -> putCount(values, units, name, counter.count()),
+                timer -> putDistribution(values, units, name, timer.takeSnapshot(), true, "Milliseconds"),
+                summary -> putDistribution(values, units, name, summary.takeSnapshot(), false,
+                        getUnit(summary.getId().getBaseUnit())),
+                longTaskTimer -> {
+                    putValue(values, units, name + ".active", longTaskTimer.activeTasks(), "Count");
+                    putValue(values, units, name + ".duration", longTaskTimer.duration(TimeUnit.MILLISECONDS), "Milliseconds");
+                },
+                timeGauge -> putValue(values, units, name, timeGauge.value(TimeUnit.MILLISECONDS), "Milliseconds"),
+                functionCounter -> putCount(values, units, name, functionCounter.count()),
+                functionTimer -> {
+                    if (functionTimer.count() > 0) {
+                        putValue(values, units, name + ".count", functionTimer.count(), "Count");
+                        putValue(values, units, name + ".sum", functionTimer.totalTime(TimeUnit.MILLISECONDS), "Milliseconds");
+                    }
+                },
+                other -> {
+                    for (Measurement measurement : other.measure()) {
+                        putValue(values, units, name + "." + measurement.getStatistic().getTagValueRepresentation(),
+                                measurement.getValue(), "None");
+                    }
+                });
+    }
+
+    private void putCount(Map<String, Number> values, Map<String, String> units, String name, double count) {
+        if (count > 0) {
+            putValue(values, units, name, count, "Count");
+        }
+    }
+
+    private void putDistribution(Map<String, Number> values, Map<String, String> units, String name,
+                                 HistogramSnapshot snapshot, boolean isTimer, String unit) {
+        if (snapshot.count() == 0) {
+            return;
+        }
+
+        putValue(values, units, name + ".count", snapshot.count(), "Count");
+        putValue(values, units, name + ".sum", isTimer ? snapshot.total(TimeUnit.MILLISECONDS) : snapshot.total(), unit);
+        putValue(values, units, name + ".max", isTimer ? snapshot.max(TimeUnit.MILLISECONDS) : snapshot.max(), unit);
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            String percentileName = "p" + BigDecimal.valueOf(percentile.percentile() * 100)
+                    .setScale(3, RoundingMode.HALF_UP).stripTrailingZeros().toPlainString();
+            putValue(values, units, name + "." + percentileName,
+                    isTimer ? percentile.value(TimeUnit.MILLISECONDS) : percentile.value(), unit);
+        }
+    }
+
+    private void putValue(Map<String, Number> values, Map<String, String> units, String name, double value, String unit) {
+        // CloudWatch rejects values which are not finite
+        if (Double.isFinite(value)) {
+            values.put(name, value);
+            units.put(name, unit);
+        }
+    }
+
+    private void writeLine(Meter meter, long timestamp, Map<String, Number> values, Map<String, String> units) {
+        Map<String, String> dimensions = new LinkedHashMap<>();
+        getConventionTags(meter.getId()).forEach(tag -> dimensions.put(tag.getKey(), tag.getValue()));
+
+        try {
+            sink.accept(jsonMapper.writeValueAsString(
+                    EmbeddedMetricFormat.createLine(config.namespace(), timestamp, dimensions, values, units)));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not publish meter {}", meter.getId().getName(), e);
+        }
+    }
+
+    private static String getUnit(String baseUnit) {
+        return "bytes".equals(baseUnit) ? "Bytes" : "None";
+    }
+}
@@ -0,0 +1,275 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.core.metrics.StartupStep;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * <p>Records how long the initialization of the Lambda function takes, and how the time of every invocation
+ * is split, and writes it to the logs in the CloudWatch Embedded Metric Format (see {@link StartupReport}
+ * for a summary of the logs).</p>
+ * <p>The initialization is recorded with a {@link BufferingApplicationStartup} (context refresh, bean
+ * post-processing and instantiation of every bean), which {@link StartupTimelineInitializer} attaches to the
+ * application context. It is written once, before the SnapStart snapshot is taken or on the first invocation
+ * of a cold start. Every invocation is tagged with its {@link StartType}, and its handler time is split into
+ * the controller time (from the handler interceptors until the request is completed, see
+ * {@link ControllerTimingInterceptor}) and the overhead of the container proxy (event parsing, servlet filters
+ * and response writing).</p>
+ * <p>Nothing is written unless "shelfspace.metrics.emf.enabled" is set to true.</p>
+ */
+@Slf4j
+public class LambdaInvocationTelemetry {
+    static final String HANDLER_DURATION = "shelfspace.lambda.handler.duration";
+    static final String PROXY_OVERHEAD = "shelfspace.lambda.proxy.overhead";
+    static final String CONTROLLER_DURATION = "shelfspace.lambda.controller.duration";
+    static final String INIT_WAIT = "shelfspace.lambda.init.wait";
+    static final String RESTORE_DURATION = "shelfspace.lambda.restore.duration";
+    static final String INIT_DURATION = "shelfspace.lambda.init.duration";
+    static final String CONTEXT_REFRESH_DURATION = "shelfspace.lambda.init.context.refresh";
+    static final String INIT_PHASES = "initPhases";
+    static final String SLOWEST_BEANS = "slowestBeans";
+
+    private static final String CONTEXT_REFRESH_STEP = "spring.context.refresh";
+    private static final String BEAN_INSTANTIATION_STEP = "spring.beans.instantiate";
+    private static final int STARTUP_STEPS_CAPACITY = 10_000;
+    private static final int REPORTED_BEANS = 15;
+
+    /**
+     * Controller time of the invocation processed by the current thread.
+     */
+    private static final ThreadLocal<long[]> controllerNanos = new ThreadLocal<>();
+
+    private static volatile LambdaInvocationTelemetry installed;
+
+    /**
+     * How the execution environment of the function was started, before its first invocation.
+     */
+    public enum StartType {
+        /**
+         * First invocation after the function was initialized from scratch.
+         */
+        COLD,
+        /**
+         * First invocation after the function was restored from a SnapStart snapshot.
+         */
+        RESTORED,
+        WARM
+    }
+
+    private final Clock clock;
+    private final Consumer<String> sink;
+    private final Instant initStart;
+    private final BufferingApplicationStartup applicationStartup = new BufferingApplicationStartup(STARTUP_STEPS_CAPACITY);
+    private final AtomicReference<StartType> nextStartType = new AtomicReference<>(StartType.COLD);
+    private final AtomicBoolean initReported = new AtomicBoolean();
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    private volatile boolean enabled;
+    private volatile String namespace;
+    private volatile long restoreNanos;
+
+    LambdaInvocationTelemetry(Clock clock, Consumer<String> sink) {
+        this.clock = clock;
+        this.sink = sink;
+        this.initStart = clock.instant();
+    }
+
+    /**
+     * Starts recording the initialization of the function. Must be called before the application context is
+     * created, so that {@link StartupTimelineInitializer} can attach the telemetry to it.
+     */
+    public static LambdaInvocationTelemetry install() {
+        installed = new LambdaInvocationTelemetry(Clock.systemUTC(), System.out::println);
+        return installed;
+    }
+
+    static Optional<LambdaInvocationTelemetry> getInstalled() {
+        return Optional.ofNullable(installed);
+    }
+
+    /**
+     * Adds the time spent by a controller to the invocation processed by the current thread, if any.
+     */
+    static void addControllerTime(long nanos) {
+        long[] invocationControllerNanos = controllerNanos.get();
+        if (invocationControllerNanos != null) {
+            invocationControllerNanos[0] += nanos;
+        }
+    }
+
+    /**
+     * Records the startup steps of the application context, if enabled by its environment.
+     */
+    void attach(ConfigurableApplicationContext context) {
+        Environment environment = context.getEnvironment();
+        EmbeddedMetricFormatConfig config = environment::getProperty;
+        namespace = config.namespace();
+        enabled = environment.getProperty("shelfspace.metrics.emf.enabled", Boolean.class, false);
+        if (enabled) {
+            context.setApplicationStartup(applicationStartup);
+        }
+    }
+
+    /**
+     * Marks the function as restored from a SnapStart snapshot, so that its next invocation is not counted
+     * as warm.
+     *
+     * @param restoreNanos Time spent by the restore hooks of the application
+     */
+    public void markRestored(long restoreNanos) {
+        this.restoreNanos = restoreNanos;
+        nextStartType.set(StartType.RESTORED);
+    }
+
+    /**
+     * Writes the recorded initialization of the application, unless it was already written. The buffered
+     * startup steps are released afterwards, and the steps of the beans created later on (e.g. request scoped
+     * beans) are no longer buffered.
+     */
+    public void reportInitialization() {
+        if (!enabled || !initReported.compareAndSet(false, true)) {
+            return;
+        }
+
+        StartupTimeline timeline = applicationStartup.drainBufferedTimeline();
+        applicationStartup.addFilter(step -> false);
+        Optional<StartupTimeline.TimelineEvent> contextRefresh = timeline.getEvents().stream()
+                .filter(event -> event.getStartupStep().getName().equals(CONTEXT_REFRESH_STEP))
+                .findFirst();
+        if (contextRefresh.isEmpty()) {
+            return;
+        }
+
+        Map<String, Number> values = new LinkedHashMap<>();
+        Map<String, String> units = new LinkedHashMap<>();
+        putMillis(values, units, INIT_DURATION, Duration.between(initStart, contextRefresh.get().getEndTime()).toNanos());
+        putMillis(values, units, CONTEXT_REFRESH_DURATION, contextRefresh.get().getDuration().toNanos());
+
+        Map<String, Object> line = EmbeddedMetricFormat.createLine(namespace, clock.millis(), Map.of(), values, units);
+        line.put(INIT_PHASES, summarizePhases(timeline));
+        line.put(SLOWEST_BEANS, summarizeBeans(timeline));
+        write(line);
+    }
+
+    /**
+     * Runs and records an invocation of the function.
+     *
+     * @param context         Context of the invocation, or null if it was not invoked by Lambda
+     * @param initWaitNanos   Time the invocation waited for the asynchronous initialization to complete
+     * @param invocation      Invocation of the handler
+     */
+    public void recordInvocation(Context context, long initWaitNanos, Invocation invocation) throws IOException {
+        StartType startType = nextStartType.getAndSet(StartType.WARM);
+        if (startType == StartType.COLD) {
+            reportInitialization();
+        }
+
+        long[] invocationControllerNanos = new long[1];
+        controllerNanos.set(invocationControllerNanos);
+        long start = System.nanoTime();
+        try {
+            invocation.run();
+        } finally {
+            long handlerNanos = System.nanoTime() - start;
+            controllerNanos.remove();
+            if (enabled) {
+                writeInvocation(context, startType, initWaitNanos, handlerNanos, invocationControllerNanos[0]);
+            }
+        }
+    }
+
+    private void writeInvocation(Context context, StartType startType, long initWaitNanos, long handlerNanos,
+                                 long controllerNanos) {
+        Map<String, Number> values = new LinkedHashMap<>();
+        Map<String, String> units = new LinkedHashMap<>();
+        putMillis(values, units, HANDLER_DURATION, handlerNanos);
+        putMillis(values, units, PROXY_OVERHEAD, handlerNanos - controllerNanos);
+        putMillis(values, units, CONTROLLER_DURATION, controllerNanos);
+        if (startType == StartType.COLD) {
+            putMillis(values, units, INIT_WAIT, initWaitNanos);
+        } else if (startType == StartType.RESTORED) {
+            putMillis(values, units, RESTORE_DURATION, restoreNanos);
+        }
+
+        Map<String, Object> line = EmbeddedMetricFormat.createLine(namespace, clock.millis(),
+                Map.of("startType", startType.name()), values, units);
+        if (context != null) {
+            line.put("requestId", context.getAwsRequestId());
+        }
+        write(line);
+    }
+
+    /**
+     * Sums the durations of the startup steps by their names, except for the instantiation of the beans,
+     * which are nested in each other.
+     */
+    private static Map<String, Double> summarizePhases(StartupTimeline timeline) {
+        return timeline.getEvents().stream()
+                .filter(event -> !event.getStartupStep().getName().equals(BEAN_INSTANTIATION_STEP))
+                .collect(Collectors.groupingBy(event -> event.getStartupStep().getName(), TreeMap::new,
+                        Collectors.summingDouble(event -> toMillis(event.getDuration().toNanos()))));
+    }
+
+    /**
+     * Finds the beans which took the longest to instantiate, including the instantiation of their dependencies.
+     */
+    private static Map<String, Double> summarizeBeans(StartupTimeline timeline) {
+        Map<String, Double> beans = new LinkedHashMap<>();
+        timeline.getEvents().stream()
+                .filter(event -> event.getStartupStep().getName().equals(BEAN_INSTANTIATION_STEP))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(REPORTED_BEANS)
+                .forEach(event -> beans.put(getBeanName(event), toMillis(event.getDuration().toNanos())));
+        return beans;
+    }
+
+    private static String getBeanName(StartupTimeline.TimelineEvent event) {
+        for (StartupStep.Tag tag : event.getStartupStep().getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                return tag.getValue();
+            }
+        }
+        return "unknown";
+    }
+
+    private static void putMillis(Map<String, Number> values, Map<String, String> units, String name, long nanos) {
+        values.put(name, toMillis(nanos));
+        units.put(name, "Milliseconds");
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private void write(Map<String, Object> line) {
+        try {
+            sink.accept(jsonMapper.writeValueAsString(line));
+        } catch (JsonProcessingException e) {
+            log.warn("Could not write the telemetry of the function", e);
+        }
+    }
+
+    /**
+     * Invocation of the handler of the function.
+     */
+    @FunctionalInterface
+    public interface Invocation {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.Environment;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * <p>Exposes Spring Beans which measure the application. Metrics are recorded in {@link Metrics#globalRegistry},
+ * like in the rest of the application, which contains the registries configured by Spring Boot Actuator
+ * (exposed by the "/actuator/metrics" endpoint when the application runs as a server).</p>
+ * <p>Under Lambda ("shelfspace.metrics.emf.enabled" set to true), the metrics are published as CloudWatch
+ * Embedded Metric Format log lines by {@link EmbeddedMetricFormatMeterRegistry}.</p>
+ */
+@Configuration
+public class MetricsConfig {
+    /**
+     * Times the methods of beans annotated with {@link io.micrometer.core.annotation.Timed}. The advisor is
+     * applied by the same auto proxy creator as the method security advisors, which only takes infrastructure
+     * advisors into account. It is the outermost advisor, so that rejected calls are measured as well.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor timedServiceAdvisor() {
+        DefaultPointcutAdvisor advisor = TimedServiceInterceptor.createAdvisor(Metrics.globalRegistry);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+
+    @Bean
+    public AwsCallMetrics awsCallMetrics() {
+        return new AwsCallMetrics(Metrics.globalRegistry);
+    }
+
+    /**
+     * Interceptor of the AWS SDK v2 clients, see {@link AwsSdkMetricsInterceptor}.
+     */
+    @Bean
+    public AwsSdkMetricsInterceptor awsSdkMetricsInterceptor(AwsCallMetrics awsCallMetrics) {
+        return new AwsSdkMetricsInterceptor(awsCallMetrics);
+    }
+
+    /**
+     * Request handler of the AWS SDK v1 DynamoDB client, see {@link DynamoDBMetricsRequestHandler}.
+     */
+    @Bean
+    public DynamoDBMetricsRequestHandler dynamoDBMetricsRequestHandler(AwsCallMetrics awsCallMetrics) {
+        return new DynamoDBMetricsRequestHandler(awsCallMetrics);
+    }
+
+    /**
+     * Registers {@link ControllerTimingInterceptor}, which splits the handler time of the Lambda invocations
+     * recorded by {@link LambdaInvocationTelemetry}.
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public WebMvcConfigurer controllerTimingConfigurer() {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new ControllerTimingInterceptor());
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "shelfspace.metrics.emf.enabled", havingValue = "true")
+    public EmbeddedMetricFormatMeterRegistry embeddedMetricFormatMeterRegistry(Environment environment) {
+        EmbeddedMetricFormatConfig config = environment::getProperty;
+        return new EmbeddedMetricFormatMeterRegistry(config, Clock.SYSTEM);
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.services.metrics.LambdaInvocationTelemetry.StartType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static com.github.danrog303.shelfspace.services.metrics.LambdaInvocationTelemetry.*;
+
+/**
+ * <p>Offline tool, which summarizes the logs written by {@link LambdaInvocationTelemetry}: the share of cold and
+ * restored invocations, the percentiles of the handler, controller and proxy overhead times by the start type,
+ * and the slowest phases and beans of the initialization. The "REPORT" lines written by Lambda are taken into
+ * account as well, for the init and restore durations measured by the platform.</p>
+ * <p>Reads the given log files (or the standard input), in which every log event is on a separate line,
+ * e.g. exported with {@code aws logs filter-log-events --output text}. Other lines are skipped.</p>
+ */
+public class StartupReport {
+    private static final String[] INVOCATION_METRICS =
+            {HANDLER_DURATION, PROXY_OVERHEAD, CONTROLLER_DURATION, INIT_WAIT, RESTORE_DURATION};
+    private static final String[] INIT_METRICS = {INIT_DURATION, CONTEXT_REFRESH_DURATION};
+    private static final String PLATFORM_INIT_DURATION = "lambda.init.duration (platform)";
+    private static final String PLATFORM_RESTORE_DURATION = "lambda.restore.duration (platform)";
+    private static final Pattern PLATFORM_INIT_PATTERN = Pattern.compile("\\bInit Duration: ([0-9.]+) ms");
+    private static final Pattern PLATFORM_RESTORE_PATTERN = Pattern.compile("\\bRestore Duration: ([0-9.]+) ms");
+    private static final int REPORTED_STEPS = 15;
+
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+    private final Map<StartType, Map<String, List<Double>>> invocations = new EnumMap<>(StartType.class);
+    private final Map<String, List<Double>> initialization = new LinkedHashMap<>();
+    private final Map<String, List<Double>> initPhases = new HashMap<>();
+    private final Map<String, List<Double>> slowestBeans = new HashMap<>();
+
+    public static void main(String[] args) throws IOException {
+        StartupReport report = new StartupReport();
+        if (args.length == 0) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            reader.lines().forEach(report::add);
+        }
+        for (String file : args) {
+            try (Stream<String> lines = Files.lines(Path.of(file), StandardCharsets.UTF_8)) {
+                lines.forEach(report::add);
+            }
+        }
+        System.out.print(report.render());
+    }
+
+    /**
+     * Adds a line of the logs to the report. Lines which were not written by {@link LambdaInvocationTelemetry}
+     * or by the platform are skipped.
+     */
+    void add(String line) {
+        addPlatformDuration(line, PLATFORM_INIT_PATTERN, PLATFORM_INIT_DURATION);
+        addPlatformDuration(line, PLATFORM_RESTORE_PATTERN, PLATFORM_RESTORE_DURATION);
+
+        int jsonStart = line.indexOf('{');
+        if (jsonStart < 0 || !line.contains("shelfspace.lambda.")) {
+            return;
+        }
+
+        JsonNode record;
+        try {
+            record = jsonMapper.readTree(line.substring(jsonStart));
+        } catch (JsonProcessingException e) {
+            return;
+        }
+
+        if (record.has(HANDLER_DURATION) && record.has("startType")) {
+            StartType startType = StartType.valueOf(record.get("startType").asText());
+            Map<String, List<Double>> samples = invocations.computeIfAbsent(startType, type -> new LinkedHashMap<>());
+            for (String metric : INVOCATION_METRICS) {
+                addValue(samples, metric, record.get(metric));
+            }
+        } else if (record.has(INIT_DURATION)) {
+            for (String metric : INIT_METRICS) {
+                addValue(initialization, metric, record.get(metric));
+            }
+            record.path(INIT_PHASES).fields().forEachRemaining(phase -> addValue(initPhases, phase.getKey(), phase.getValue()));
+            record.path(SLOWEST_BEANS).fields().forEachRemaining(bean -> addValue(slowestBeans, bean.getKey(), bean.getValue()));
+        }
+    }
+
+    /**
+     * Renders the report as plain text, with the times in milliseconds.
+     */
+    String render() {
+        StringBuilder report = new StringBuilder();
+        long total = invocations.values().stream().mapToLong(samples -> samples.get(HANDLER_DURATION).size()).sum();
+        report.append(String.format("Invocations: %d%n", total));
+        invocations.forEach((startType, samples) -> {
+            int count = samples.get(HANDLER_DURATION).size();
+            report.append(String.format("  %-40s %8d %7.1f %%%n", startType, count, 100.0 * count / total));
+        });
+
+        report.append(String.format("%nInvocation times [ms]%n"));
+        appendHeader(report);
+        invocations.forEach((startType, samples) -> samples.forEach((metric, values) ->
+                appendPercentiles(report, startType + " " + metric.substring("shelfspace.".length()), values)));
+
+        report.append(String.format("%nInitialization [ms]%n"));
+        appendHeader(report);
+        initialization.forEach((metric, values) -> appendPercentiles(report,
+                metric.startsWith("shelfspace.") ? metric.substring("shelfspace.".length()) : metric, values));
+
+        report.append(String.format("%nSlowest initialization phases [mean ms]%n"));
+        appendMeans(report, initPhases);
+        report.append(String.format("%nSlowest beans, including their dependencies [mean ms]%n"));
+        appendMeans(report, slowestBeans);
+        return report.toString();
+    }
+
+    private void addPlatformDuration(String line, Pattern pattern, String metric) {
+        Matcher matcher = pattern.matcher(line);
+        if (line.contains("REPORT") && matcher.find()) {
+            initialization.computeIfAbsent(metric, name -> new ArrayList<>()).add(Double.parseDouble(matcher.group(1)));
+        }
+    }
+
+    private static void addValue(Map<String, List<Double>> samples, String name, JsonNode value) {
+        if (value != null && value.isNumber()) {
+            samples.computeIfAbsent(name, key -> new ArrayList<>()).add(value.asDouble());
+        }
+    }
+
+    private static void appendHeader(StringBuilder report) {
+        report.append(String.format("  %-40s %8s %8s %8s %8s %8s%n", "", "count", "p50", "p95", "p99", "max"));
+    }
+
+    private static void appendPercentiles(StringBuilder report, String name, List<Double> values) {
+        List<Double> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        report.append(String.format("  %-40s %8d %8.1f %8.1f %8.1f %8.1f%n", name, sorted.size(),
+                percentile(sorted, 0.5), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted.get(sorted.size() - 1)));
+    }
+
+    private static void appendMeans(StringBuilder report, Map<String, List<Double>> samples) {
+        samples.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(),
+                        entry.getValue().stream().mapToDouble(Double::doubleValue).average().orElse(0)))
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(REPORTED_STEPS)
+                .forEach(entry -> report.append(String.format("  %-58s %8.1f%n", entry.getKey(), entry.getValue())));
+    }
+
+    /**
+     * Nearest-rank percentile of the sorted values.
+     */
+    static double percentile(List<Double> sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.size());
+        return sorted.get(Math.max(rank - 1, 0));
+    }
+}
@@ -0,0 +1,17 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Attaches the {@link LambdaInvocationTelemetry} installed by the Lambda entrypoint to the application context
+ * before it is refreshed. The context is created by aws-serverless-java-container, which does not allow to
+ * customize the {@link org.springframework.boot.SpringApplication}, so the initializer is registered in
+ * "META-INF/spring.factories". Does nothing when no telemetry was installed.
+ */
+public class StartupTimelineInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+    @Override
+    public void initialize(ConfigurableApplicationContext context) {
+        LambdaInvocationTelemetry.getInstalled().ifPresent(telemetry -> telemetry.attach(context));
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * <p>Times public methods of the beans annotated with {@link Timed}, like Micrometer's {@code TimedAspect} does,
+ * but with a plain Spring AOP interceptor (the same proxies as the method security uses), so that AspectJ is
+ * not needed at runtime. The timers are named after {@link Timed#value()}, and tagged with "class", "method"
+ * and "exception" ("none" for successful calls), so the failed calls are counted as well.</p>
+ * <p>Only the annotation of the class is taken into account, with its value, extra tags, percentiles and
+ * histogram settings.</p>
+ */
+@RequiredArgsConstructor
+public class TimedServiceInterceptor implements MethodInterceptor {
+    private final MeterRegistry registry;
+
+    /**
+     * Creates the advisor, which applies the interceptor to the public methods of the beans annotated with
+     * {@link Timed}.
+     */
+    public static DefaultPointcutAdvisor createAdvisor(MeterRegistry registry) {
+        StaticMethodMatcherPointcut pointcut = new StaticMethodMatcherPointcut() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return isTimed(method, targetClass);
+            }
+        };
+        return new DefaultPointcutAdvisor(pointcut, new TimedServiceInterceptor(registry));
+    }
+
+    static boolean isTimed(Method method, Class<?> targetClass) {
+        return Modifier.isPublic(method.getModifiers())
+                && method.getDeclaringClass() != Object.class
+                && AnnotatedElementUtils.hasAnnotation(targetClass, Timed.class);
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Class<?> targetClass = invocation.getThis() != null
+                ? AopUtils.getTargetClass(invocation.getThis())
+                : invocation.getMethod().getDeclaringClass();
+        Timed timed = AnnotatedElementUtils.findMergedAnnotation(targetClass, Timed.class);
+        if (timed == null) {
+            return invocation.proceed();
+        }
+
+        Timer.Sample sample = Timer.start(registry);
+        Throwable exception = null;
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            exception = e;
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(timed.value())
+                    .description(timed.description().isEmpty() ? null : timed.description())
+                    .tags(timed.extraTags())
+                    .tag("class", targetClass.getSimpleName())
+                    .tag("method", invocation.getMethod().getName())
+                    .tag("exception", exception == null ? "none" : exception.getClass().getSimpleName())
+                    .publishPercentileHistogram(timed.histogram())
+                    .publishPercentiles(timed.percentiles().length == 0 ? null : timed.percentiles())
+                    .register(registry));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.danrog303.shelfspace.services.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * <p>Decorator of {@link JwtDecoder}, which remembers successfully decoded (so verified and validated) tokens
+ * until they expire. Clients send the same access token with every request, so the signature of the token
+ * is verified only once per application instance.</p>
+ * <p>Tokens are identified by their SHA-256 hash, so the cache does not keep the raw tokens. Tokens without
+ * expiration time and rejected tokens are never cached. Time of the actual decoding is reported as the
+ * "shelfspace.jwt.verification" timer, and cache statistics with the "verifiedJwts" cache tag.</p>
+ */
+public class CachingJwtDecoder implements JwtDecoder {
+    private final JwtDecoder delegate;
+    private final Clock clock;
+    private final Cache<String, Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize, Clock clock) {
+        this.delegate = delegate;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .expireAfter(new JwtExpiry(clock))
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, cache, "verifiedJwts");
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        String tokenHash = hashOf(token);
+        Jwt cachedJwt = cache.getIfPresent(tokenHash);
+        if (cachedJwt != null && isNotExpired(cachedJwt)) {
+            return cachedJwt;
+        }
+
+        Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+        String result = "valid";
+        try {
+            Jwt jwt = delegate.decode(token);
+            if (jwt.getExpiresAt() != null) {
+                cache.put(tokenHash, jwt);
+            }
+            return jwt;
+        } catch (JwtException e) {
+            result = "invalid";
+            throw e;
+        } finally {
+            sample.stop(Metrics.timer("shelfspace.jwt.verification", "result", result));
+        }
+    }
+
+    private boolean isNotExpired(Jwt jwt) {
+        return jwt.getExpiresAt().isAfter(clock.instant());
+    }
+
+    private static String hashOf(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    }
+
+    /**
+     * Keeps every token in the cache until its expiration time.
+     */
+    @RequiredArgsConstructor
+    private static class JwtExpiry implements Expiry<String, Jwt> {
+        private final Clock clock;
+
+        @Override
+        public long expireAfterCreate(String tokenHash, Jwt jwt, long currentTime) {
+            Instant expiresAt = jwt.getExpiresAt();
+            return Math.max(Duration.between(clock.instant(), expiresAt).toNanos(), 0);
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenHash, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(tokenHash, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenHash, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.danrog303.shelfspace.services.security;
+
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jose.util.DefaultResourceRetriever;
+import com.nimbusds.jose.util.ResourceRetriever;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.IOException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Source of the keys used to verify JWT signatures, which keeps the JSON Web Key Set of the authentication
+ * server in memory. Unlike the default lazily loaded key set, this one can be {@link #refresh() fetched}
+ * before the first request arrives (at startup or before a snapshot of the application is taken), and it is
+ * refreshed periodically in the background.</p>
+ * <p>When a token is signed with a key which is not in the set (e.g. after the keys were rotated), the set is
+ * fetched again, but not more often than once per the specified minimum interval.</p>
+ * <p>The connection is closed after every fetch, so no connection to the authentication server is kept open
+ * between the fetches (nor in a snapshot of the application).</p>
+ */
+@Slf4j
+public class PrefetchingJwkSource implements JWKSource<SecurityContext>, DisposableBean {
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int READ_TIMEOUT_MILLIS = 2000;
+    private static final int SIZE_LIMIT_BYTES = 50 * 1024;
+
+    private final ResourceRetriever resourceRetriever =
+            new DefaultResourceRetriever(CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS, SIZE_LIMIT_BYTES, true);
+    private final URL jwkSetUrl;
+    private final Duration minRefreshInterval;
+    private final Clock clock;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile JWKSet jwkSet;
+    private volatile Instant lastRefreshAttempt = Instant.MIN;
+
+    public PrefetchingJwkSource(URL jwkSetUrl, Duration refreshInterval, Duration minRefreshInterval, Clock clock) {
+        this.jwkSetUrl = jwkSetUrl;
+        this.minRefreshInterval = minRefreshInterval;
+        this.clock = clock;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "jwks-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long refreshMillis = refreshInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Fetches the key set from the authentication server and replaces the one kept in memory.
+     * @throws KeySourceException When the key set could not be fetched; the previous key set is kept
+     */
+    public void refresh() throws KeySourceException {
+        lastRefreshAttempt = clock.instant();
+        try {
+            jwkSet = JWKSet.parse(resourceRetriever.retrieveResource(jwkSetUrl).getContent());
+        } catch (IOException | ParseException e) {
+            throw new KeySourceException("Could not fetch the JSON Web Key Set from " + jwkSetUrl, e);
+        }
+    }
+
+    /**
+     * Same as {@link #refresh()}, but only logs the failure. Used when the key set is fetched in advance,
+     * so that the failure is reported again (and rethrown) when the keys are actually needed.
+     */
+    public void refreshQuietly() {
+        try {
+            refresh();
+        } catch (KeySourceException e) {
+            log.warn("Could not refresh the JSON Web Key Set", e);
+        }
+    }
+
+    @Override
+    public List<JWK> get(JWKSelector jwkSelector, SecurityContext context) throws KeySourceException {
+        JWKSet currentSet = jwkSet;
+        if (currentSet != null) {
+            List<JWK> keys = jwkSelector.select(currentSet);
+            if (!keys.isEmpty() || !canRefreshNow()) {
+                return keys;
+            }
+        }
+
+        synchronized (this) {
+            // Another thread might have refreshed the set while this one was waiting
+            if (jwkSet == currentSet && canRefreshNow()) {
+                refresh();
+            }
+            if (jwkSet == null) {
+                throw new KeySourceException("The JSON Web Key Set has not been fetched yet");
+            }
+            return jwkSelector.select(jwkSet);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdown();
+    }
+
+    private boolean canRefreshNow() {
+        return lastRefreshAttempt.plus(minRefreshInterval).isBefore(clock.instant());
+    }
+}
@@ -1,15 +1,24 @@
 package com.github.danrog303.shelfspace.services.security;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
 import lombok.RequiredArgsConstructor;
 import org.apache.http.HttpStatus;
 import org.apache.http.entity.ContentType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtValidators;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.AccessDeniedHandler;
@@ -18,6 +27,10 @@ import com.github.danrog303.shelfspace.errors.ErrorResponseAdvice;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 
@@ -33,16 +46,23 @@ public class SecurityConfig {
 
     @Bean
     public CorsConfigurationSource corsConfiguration() {
-        return (request) -> {
-            CorsConfiguration config = new CorsConfiguration();
-            List<String> allowedOrigins = List.of("http://localhost:4200", "https://shelfspace.danielrogowski.net");
-            config.setAllowedOrigins(allowedOrigins);
-            config.setAllowedMethods(Collections.singletonList("*"));
-            config.setAllowedHeaders(Collections.singletonList("*"));
-            config.setAllowCredentials(true);
-            config.setMaxAge(3600L);
-            return config;
-        };
+        return (request) -> createCorsConfiguration();
+    }
+
+    /**
+     * CORS policy of the API, shared by the servlet filter chain and the functional router.
+     */
+    public static CorsConfiguration createCorsConfiguration() {
+        CorsConfiguration config = new CorsConfiguration();
+        List<String> allowedOrigins = List.of("http://localhost:4200", "https://shelfspace.danielrogowski.net");
+        config.setAllowedOrigins(allowedOrigins);
+        config.setAllowedMethods(Collections.singletonList("*"));
+        config.setAllowedHeaders(Collections.singletonList("*"));
+        config.setAllowCredentials(true);
+        // Browsers hide the ETag header from scripts, unless it is exposed
+        config.setExposedHeaders(Collections.singletonList(HttpHeaders.ETAG));
+        config.setMaxAge(3600L);
+        return config;
     }
 
     @Bean
@@ -50,6 +70,7 @@ public class SecurityConfig {
         http.cors().configurationSource(corsConfiguration()).and().csrf().disable()
         .authorizeRequests(req -> req
             .antMatchers("/docs/**").permitAll()
+            .antMatchers("/actuator/health").permitAll()
             .anyRequest().authenticated()
         )
         .sessionManagement(sess -> sess
@@ -63,6 +84,41 @@ public class SecurityConfig {
         return http.build();
     }
 
+    /**
+     * Keys of the authentication server used to verify JWT signatures. The keys are fetched at startup, so that
+     * the first authenticated request does not wait for them.
+     */
+    @Bean
+    public PrefetchingJwkSource jwkSource(
+            @Value("${spring.security.oauth2.resourceserver.jwt.jwk-set-uri}") String jwkSetUri,
+            @Value("${shelfspace.jwt.jwks-refresh-interval-seconds}") long refreshIntervalSeconds,
+            @Value("${shelfspace.jwt.jwks-min-refresh-interval-seconds}") long minRefreshIntervalSeconds)
+            throws MalformedURLException {
+        PrefetchingJwkSource jwkSource = new PrefetchingJwkSource(new URL(jwkSetUri),
+                Duration.ofSeconds(refreshIntervalSeconds), Duration.ofSeconds(minRefreshIntervalSeconds),
+                Clock.systemUTC());
+        jwkSource.refreshQuietly();
+        return jwkSource;
+    }
+
+    /**
+     * Decodes and verifies RS256-signed access tokens (like the auto-configured decoder does),
+     * and remembers the verified tokens until they expire.
+     */
+    @Bean
+    public JwtDecoder jwtDecoder(PrefetchingJwkSource jwkSource,
+                                 @Value("${spring.security.oauth2.resourceserver.jwt.issuer-uri}") String issuerUri,
+                                 @Value("${shelfspace.jwt.cache-max-size}") long cacheMaxSize) {
+        DefaultJWTProcessor<SecurityContext> jwtProcessor = new DefaultJWTProcessor<>();
+        jwtProcessor.setJWSKeySelector(new JWSVerificationKeySelector<>(JWSAlgorithm.RS256, jwkSource));
+        // Claims are validated by the Spring Security validators below
+        jwtProcessor.setJWTClaimsSetVerifier((claims, context) -> { });
+
+        NimbusJwtDecoder nimbusJwtDecoder = new NimbusJwtDecoder(jwtProcessor);
+        nimbusJwtDecoder.setJwtValidator(JwtValidators.createDefaultWithIssuer(issuerUri));
+        return new CachingJwtDecoder(nimbusJwtDecoder, cacheMaxSize, Clock.systemUTC());
+    }
+
     /**
      * Returns custom HTTP 401/Unauthorized response, which corresponds to {@link ErrorResponse}
      * responses produced by {@link ErrorResponseAdvice}.
@@ -70,17 +126,22 @@ public class SecurityConfig {
     @Bean
     public AuthenticationEntryPoint unauthorizedEntryPoint() {
         return (request, response, authException) -> {
-            String errorName = "UNAUTHORIZED";
-            String errorMessage = "You are not authorized to access this endpoint. Make sure you passed a valid " +
-                    "JWT access token.";
-            ErrorResponse errorResponse = new ErrorResponse(errorName, errorMessage);
-
             response.setContentType(ContentType.APPLICATION_JSON.getMimeType());
             response.setStatus(HttpStatus.SC_UNAUTHORIZED);
-            jsonMapper.writeValue(response.getWriter(), errorResponse);
+            jsonMapper.writeValue(response.getWriter(), createUnauthorizedResponse());
         };
     }
 
+    /**
+     * Body of the HTTP 401/Unauthorized response, sent when the access token is missing or invalid.
+     */
+    public static ErrorResponse createUnauthorizedResponse() {
+        String errorName = "UNAUTHORIZED";
+        String errorMessage = "You are not authorized to access this endpoint. Make sure you passed a valid " +
+                "JWT access token.";
+        return new ErrorResponse(errorName, errorMessage);
+    }
+
     /**
      * Returns custom HTTP 403/Forbidden response, which corresponds to {@link ErrorResponse}
      * responses produced by {@link ErrorResponseAdvice}.
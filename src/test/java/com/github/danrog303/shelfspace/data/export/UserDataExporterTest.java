@@ -0,0 +1,221 @@
+package com.github.danrog303.shelfspace.data.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemRepository;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemStatus;
+import com.github.danrog303.shelfspace.data.shelf.ShelfType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserDataExporterTest {
+    private @Mock ShelfItemRepository shelfItemRepository;
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private UserDataExporter userDataExporter;
+
+    @BeforeEach
+    void createExporter() {
+        userDataExporter = new UserDataExporter(objectMapper, shelfItemRepository, 2);
+    }
+
+    @AfterEach
+    void destroyExporter() {
+        userDataExporter.destroy();
+    }
+
+    @Test
+    void writeExport_shouldWriteJsonLinePerItemAndPerEmptyShelf() throws Exception {
+        List<PrefetchedShelf> shelves = List.of(
+                new PrefetchedShelf("shelf-1", "Books", ShelfType.BOOK),
+                new PrefetchedShelf("shelf-2", "Games", ShelfType.GAME));
+        when(shelfItemRepository.iterateAllByShelfId("shelf-1")).thenReturn(List.of(
+                new ShelfItem("shelf-1", "item-1", "Dune", new Date(0), ShelfItemStatus.FINISHED, 9, 2),
+                new ShelfItem("shelf-1", "item-2", "Solaris", new Date(0), ShelfItemStatus.PLANNED, null, null)));
+        when(shelfItemRepository.iterateAllByShelfId("shelf-2")).thenReturn(List.of());
+
+        String export = export(shelves, ExportFormat.NDJSON);
+
+        assertThat(export).endsWith("}\n").doesNotContain("\n ");
+        String[] lines = export.split("\n");
+        assertThat(lines).hasSize(3);
+        JsonNode first = objectMapper.readTree(lines[0]);
+        assertThat(first.get("shelfId").asText()).isEqualTo("shelf-1");
+        assertThat(first.get("shelfName").asText()).isEqualTo("Books");
+        assertThat(first.get("shelfType").asText()).isEqualTo("BOOK");
+        assertThat(first.get("itemId").asText()).isEqualTo("item-1");
+        assertThat(first.get("rating").asInt()).isEqualTo(9);
+        assertThat(first.get("creationDate").asText()).isEqualTo(objectMapper.valueToTree(new Date(0)).asText());
+        assertThat(objectMapper.readTree(lines[1]).has("rating")).isFalse();
+        assertThat(objectMapper.readTree(lines[2]))
+                .isEqualTo(objectMapper.readTree("{\"shelfId\":\"shelf-2\",\"shelfName\":\"Games\",\"shelfType\":\"GAME\"}"));
+    }
+
+    @Test
+    void writeExport_shouldWriteCsvWithHeaderAndQuotedValues() throws Exception {
+        List<PrefetchedShelf> shelves = List.of(
+                new PrefetchedShelf("shelf-1", "Books, \"classics\"", ShelfType.BOOK),
+                new PrefetchedShelf("shelf-2", "Games", ShelfType.GAME));
+        when(shelfItemRepository.iterateAllByShelfId("shelf-1")).thenReturn(List.of(
+                new ShelfItem("shelf-1", "item-1", "Dune", new Date(0), ShelfItemStatus.FINISHED, 9, 2),
+                new ShelfItem("shelf-1", "item-2", "Line\nbreak", null, ShelfItemStatus.PLANNED, null, null)));
+        when(shelfItemRepository.iterateAllByShelfId("shelf-2")).thenReturn(List.of());
+
+        String export = export(shelves, ExportFormat.CSV);
+
+        assertThat(export).isEqualTo(
+                "shelfId,shelfName,shelfType,itemId,title,creationDate,status,rating,finishedCount\r\n" +
+                "shelf-1,\"Books, \"\"classics\"\"\",BOOK,item-1,Dune,1970-01-01T00:00:00Z,FINISHED,9,2\r\n" +
+                "shelf-1,\"Books, \"\"classics\"\"\",BOOK,item-2,\"Line\nbreak\",,PLANNED,,\r\n" +
+                "shelf-2,Games,GAME,,,,,,\r\n");
+    }
+
+    @Test
+    void writeExport_shouldKeepOrderOfShelvesLargerThanPrefetchQueue() throws Exception {
+        List<PrefetchedShelf> shelves = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String shelfId = "shelf-" + i;
+            shelves.add(new PrefetchedShelf(shelfId, "Shelf " + i, ShelfType.MOVIE));
+            when(shelfItemRepository.iterateAllByShelfId(shelfId)).thenReturn(createItems(shelfId, 250));
+        }
+
+        String[] lines = export(shelves, ExportFormat.CSV).split("\r\n");
+
+        assertThat(lines).hasSize(1 + 5 * 250);
+        for (int i = 0; i < 5 * 250; i++) {
+            assertThat(lines[i + 1]).startsWith("shelf-" + i / 250 + ",Shelf " + i / 250 + ",MOVIE,item-" + i % 250 + ",");
+        }
+    }
+
+    @Test
+    void writeExport_shouldRethrowFailureOfPrefetchAfterPreviousShelves() {
+        List<PrefetchedShelf> shelves = List.of(
+                new PrefetchedShelf("shelf-1", "Books", ShelfType.BOOK),
+                new PrefetchedShelf("shelf-2", "Games", ShelfType.GAME),
+                new PrefetchedShelf("shelf-3", "Movies", ShelfType.MOVIE));
+        when(shelfItemRepository.iterateAllByShelfId("shelf-1")).thenReturn(createItems("shelf-1", 10));
+        when(shelfItemRepository.iterateAllByShelfId("shelf-2")).thenThrow(new IllegalStateException("Read failed"));
+        lenient().when(shelfItemRepository.iterateAllByShelfId("shelf-3")).thenReturn(createItems("shelf-3", 1000));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertThatThrownBy(() -> userDataExporter.writeExport(shelves, ExportFormat.NDJSON, output))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Read failed");
+        assertThat(output.toString(StandardCharsets.UTF_8).split("\n")).hasSize(10);
+    }
+
+    @Test
+    void writeExport_shouldStopReadingShelvesWhenOutputFails() {
+        List<PrefetchedShelf> shelves = List.of(
+                new PrefetchedShelf("shelf-1", "Books", ShelfType.BOOK),
+                new PrefetchedShelf("shelf-2", "Games", ShelfType.GAME));
+        when(shelfItemRepository.iterateAllByShelfId(any())).thenAnswer(invocation ->
+                createItems(invocation.getArgument(0), 1000));
+        OutputStream failingOutput = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Connection closed");
+            }
+        };
+
+        // Every failed export would otherwise keep a thread of the pool blocked on a full queue, and the following
+        // exports would wait for their shelves forever
+        String export = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            for (int i = 0; i < 3; i++) {
+                assertThatThrownBy(() -> userDataExporter.writeExport(shelves, ExportFormat.CSV, failingOutput))
+                        .isInstanceOf(IOException.class);
+            }
+            return export(shelves, ExportFormat.CSV);
+        });
+        assertThat(export.split("\r\n")).hasSize(1 + 2 * 1000);
+    }
+
+    @Test
+    void writeExport_shouldNotWaitForExportWhichIsReadSlowly() throws Exception {
+        List<PrefetchedShelf> shelves = List.of(
+                new PrefetchedShelf("shelf-1", "Books", ShelfType.BOOK),
+                new PrefetchedShelf("shelf-2", "Games", ShelfType.GAME));
+        when(shelfItemRepository.iterateAllByShelfId(any())).thenAnswer(invocation ->
+                createItems(invocation.getArgument(0), 1000));
+        CountDownLatch outputBlocked = new CountDownLatch(1);
+        CountDownLatch clientResumed = new CountDownLatch(1);
+        OutputStream blockedOutput = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                outputBlocked.countDown();
+                try {
+                    clientResumed.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+        };
+
+        // The readers of the slow export are blocked on their full queues, and must not hold the threads
+        // needed by the next export
+        ExecutorService client = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> slowExport = client.submit(() -> {
+                userDataExporter.writeExport(shelves, ExportFormat.CSV, blockedOutput);
+                return null;
+            });
+            assertThat(outputBlocked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            String export = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> export(shelves, ExportFormat.CSV));
+            assertThat(export.split("\r\n")).hasSize(1 + 2 * 1000);
+
+            clientResumed.countDown();
+            slowExport.get(10, TimeUnit.SECONDS);
+        } finally {
+            client.shutdownNow();
+        }
+    }
+
+    @Test
+    void exportFormat_shouldRejectUnknownParameterValue() {
+        assertThat(ExportFormat.fromParameterValue("csv")).isEqualTo(ExportFormat.CSV);
+        assertThatThrownBy(() -> ExportFormat.fromParameterValue("xml"))
+                .isInstanceOf(InvalidExportRequestException.class);
+    }
+
+    private String export(List<PrefetchedShelf> shelves, ExportFormat format) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        userDataExporter.writeExport(shelves, format, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<ShelfItem> createItems(String shelfId, int count) {
+        List<ShelfItem> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            items.add(new ShelfItem(shelfId, "item-" + i, "Item " + i, new Date(), ShelfItemStatus.FINISHED, 8, 1));
+        }
+        return items;
+    }
+}
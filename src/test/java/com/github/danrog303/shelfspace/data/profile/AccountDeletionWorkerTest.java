@@ -0,0 +1,89 @@
+package com.github.danrog303.shelfspace.data.profile;
+
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemRepository;
+import com.github.danrog303.shelfspace.data.shelf.ShelfRepository;
+import com.github.danrog303.shelfspace.data.shelf.ShelfType;
+import com.github.danrog303.shelfspace.services.authorization.UserDeleteProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AccountDeletionWorkerTest {
+    private @Mock AccountDeletionTaskRepository accountDeletionTaskRepository;
+    private @Mock UserProfileRepository userProfileRepository;
+    private @Mock ShelfItemRepository shelfItemRepository;
+    private @Mock ShelfRepository shelfRepository;
+    private @Mock UserDeleteProvider userDeleteProvider;
+    private @Mock UserProfileCache userProfileCache;
+    private @InjectMocks AccountDeletionWorker accountDeletionWorker;
+
+    @Test
+    void processPendingTasks_shouldRemoveAllObjectsRelatedToUser() {
+        PrefetchedShelf shelf1 = new PrefetchedShelf("123", "Movies", ShelfType.MOVIE);
+        PrefetchedShelf shelf2 = new PrefetchedShelf("456", "Games", ShelfType.OTHER);
+        UserProfile mockedProfile = new UserProfile("abc", "bcd", List.of(shelf1, shelf2), 3L);
+        AccountDeletionTask task = new AccountDeletionTask("abc", new Date(), 0, new Date(), null);
+        when(accountDeletionTaskRepository.findAll()).thenReturn(List.of(task));
+        when(userProfileRepository.findById("abc")).thenReturn(Optional.of(mockedProfile));
+
+        assertThat(accountDeletionWorker.processPendingTasks()).isEqualTo(1);
+
+        verify(shelfItemRepository, times(1)).deleteAllByShelfId("123");
+        verify(shelfItemRepository, times(1)).deleteAllByShelfId("456");
+        verify(shelfRepository, times(1)).deleteAll(argThat(shelves -> shelves.spliterator().getExactSizeIfKnown() == 2));
+        verify(userProfileRepository, times(1)).delete(mockedProfile);
+        verify(userDeleteProvider, times(1)).deleteUser("abc");
+        verify(accountDeletionTaskRepository, times(1)).delete(task);
+    }
+
+    @Test
+    void processPendingTasks_shouldOnlyDeleteAccountWhenProfileWasAlreadyDeleted() {
+        AccountDeletionTask task = new AccountDeletionTask("abc", new Date(), 1, new Date(), "Timeout");
+        when(accountDeletionTaskRepository.findAll()).thenReturn(List.of(task));
+        when(userProfileRepository.findById("abc")).thenReturn(Optional.empty());
+
+        assertThat(accountDeletionWorker.processPendingTasks()).isEqualTo(1);
+
+        verify(shelfRepository, never()).deleteAll(any());
+        verify(userDeleteProvider, times(1)).deleteUser("abc");
+        verify(accountDeletionTaskRepository, times(1)).delete(task);
+    }
+
+    @Test
+    void processPendingTasks_shouldPostponeTaskWhenDeletionFailed() {
+        Date requestDate = new Date();
+        AccountDeletionTask task = new AccountDeletionTask("abc", requestDate, 0, requestDate, null);
+        when(accountDeletionTaskRepository.findAll()).thenReturn(List.of(task));
+        when(userProfileRepository.findById("abc")).thenReturn(Optional.empty());
+        doThrow(new IllegalStateException("Authentication server unavailable")).when(userDeleteProvider).deleteUser("abc");
+
+        assertThat(accountDeletionWorker.processPendingTasks()).isEqualTo(0);
+
+        assertThat(task.getAttempts()).isEqualTo(1);
+        assertThat(task.getLastError()).contains("Authentication server unavailable");
+        verify(accountDeletionTaskRepository, times(1)).save(task);
+        verify(accountDeletionTaskRepository, never()).delete(any());
+    }
+
+    @Test
+    void processPendingTasks_shouldSkipTasksScheduledForLater() {
+        Date nextAttemptDate = new Date(System.currentTimeMillis() + 60_000);
+        AccountDeletionTask task = new AccountDeletionTask("abc", new Date(), 2, nextAttemptDate, "Timeout");
+        when(accountDeletionTaskRepository.findAll()).thenReturn(List.of(task));
+
+        assertThat(accountDeletionWorker.processPendingTasks()).isEqualTo(0);
+
+        verifyNoInteractions(userProfileRepository, userDeleteProvider);
+    }
+}
@@ -1,6 +1,9 @@
 package com.github.danrog303.shelfspace.data.profile;
 
+import com.github.danrog303.shelfspace.data.export.ExportFormat;
+import com.github.danrog303.shelfspace.data.export.UserDataExporter;
 import com.github.danrog303.shelfspace.data.shelf.Shelf;
+import com.github.danrog303.shelfspace.data.shelf.ShelfType;
 import com.github.danrog303.shelfspace.errors.ErrorResponseAdvice;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,18 +13,25 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.List;
 
 @ExtendWith(MockitoExtension.class)
 public class UserProfileControllerTest {
     private @Mock UserProfileService userProfileService;
+    private @Mock UserDataExporter userDataExporter;
     private @InjectMocks UserProfileController userProfileController;
     private MockMvc mockMvc;
 
@@ -37,7 +47,7 @@ public class UserProfileControllerTest {
     public void getUserProfile_shouldReturnUserProfile() throws Exception {
         String mockedUserId = "a8426064-b5ec-11ed-afa1-0242ac120002";
         when(userProfileService.getUserProfile(mockedUserId)).thenReturn(new UserProfile(
-                mockedUserId, "John", new ArrayList<PrefetchedShelf>()
+                mockedUserId, "John", new ArrayList<PrefetchedShelf>(), null
         ));
 
         MockHttpServletResponse response = mockMvc
@@ -50,10 +60,72 @@ public class UserProfileControllerTest {
     }
 
     @Test
-    public void deleteUserProfile_shouldReturnDeletedUserProfile() throws Exception {
+    public void getUserProfile_shouldAnswerNotModifiedWhenETagMatches() throws Exception {
+        String mockedUserId = "a8426064-b5ec-11ed-afa1-0242ac120002";
+        when(userProfileService.getUserProfile(mockedUserId)).thenReturn(new UserProfile(
+                mockedUserId, "John", new ArrayList<PrefetchedShelf>(), 7L
+        ));
+
+        MockHttpServletResponse notModified = mockMvc
+                .perform(get("/users/" + mockedUserId)
+                .header("If-None-Match", "\"7\"")
+                .with(jwt()))
+                .andReturn().getResponse();
+        MockHttpServletResponse modified = mockMvc
+                .perform(get("/users/" + mockedUserId)
+                .header("If-None-Match", "\"6\"")
+                .with(jwt()))
+                .andReturn().getResponse();
+
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getContentAsString()).isEmpty();
+        assertThat(modified.getStatus()).isEqualTo(200);
+        assertThat(modified.getHeader("ETag")).isEqualTo("\"7\"");
+    }
+
+    @Test
+    public void exportUserData_shouldStreamExportOfUserShelves() throws Exception {
+        String mockedUserId = "a8426064-b5ec-11ed-afa1-0242ac120002";
+        List<PrefetchedShelf> shelves = List.of(new PrefetchedShelf("shelf", "Books", ShelfType.BOOK));
+        when(userProfileService.getUserProfile(mockedUserId)).thenReturn(new UserProfile(
+                mockedUserId, "John", shelves, null
+        ));
+        doAnswer(invocation -> {
+            invocation.getArgument(2, OutputStream.class).write("exported".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(userDataExporter).writeExport(eq(shelves), eq(ExportFormat.CSV), any());
+
+        MvcResult result = mockMvc
+                .perform(get("/users/" + mockedUserId + "/export")
+                .param("format", "csv")
+                .with(jwt()))
+                .andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(result)).andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentType()).isEqualTo("text/csv;charset=UTF-8");
+        assertThat(response.getHeader("Content-Disposition")).isEqualTo("attachment; filename=\"shelfspace-export.csv\"");
+        assertThat(response.getContentAsString()).isEqualTo("exported");
+    }
+
+    @Test
+    public void exportUserData_shouldRejectUnknownFormat() throws Exception {
+        MockHttpServletResponse response = mockMvc
+                .perform(get("/users/a8426064-b5ec-11ed-afa1-0242ac120002/export")
+                .param("format", "xml")
+                .with(jwt()))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(400);
+        assertThat(response.getContentAsString()).contains("INVALID_EXPORT_REQUEST");
+        verifyNoInteractions(userProfileService, userDataExporter);
+    }
+
+    @Test
+    public void deleteUserProfile_shouldAcceptDeletionRequest() throws Exception {
         String mockedUserId = "a8426064-b5ec-11ed-afa1-0242ac120002";
         when(userProfileService.deleteUserProfile(mockedUserId)).thenReturn(new UserProfile(
-                mockedUserId, "John", new ArrayList<PrefetchedShelf>()
+                mockedUserId, "John", new ArrayList<PrefetchedShelf>(), null
         ));
 
         MockHttpServletResponse response = mockMvc
@@ -61,7 +133,7 @@ public class UserProfileControllerTest {
                 .with(jwt()))
                 .andReturn().getResponse();
 
-        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getStatus()).isEqualTo(202);
         verify(userProfileService, times(1)).deleteUserProfile(mockedUserId);
     }
 }
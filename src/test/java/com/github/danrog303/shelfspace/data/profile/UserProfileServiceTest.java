@@ -1,14 +1,15 @@
 package com.github.danrog303.shelfspace.data.profile;
 
-import com.github.danrog303.shelfspace.data.shelf.ShelfRepository;
 import com.github.danrog303.shelfspace.data.shelf.ShelfType;
-import com.github.danrog303.shelfspace.services.authorization.UserDeleteProvider;
 import com.github.danrog303.shelfspace.services.authorization.UserInfo;
 import com.github.danrog303.shelfspace.services.authorization.UserInfoProvider;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingRetrier;
+import com.github.danrog303.shelfspace.services.database.RequestIdentityMap;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.util.ArrayList;
@@ -23,8 +24,10 @@ import static org.mockito.Mockito.*;
 public class UserProfileServiceTest {
     private @Mock UserProfileRepository userProfileRepository;
     private @Mock UserInfoProvider userInfoProvider;
-    private @Mock UserDeleteProvider userDeleteProvider;
-    private @Mock ShelfRepository shelfRepository;
+    private @Mock AccountDeletionTaskRepository accountDeletionTaskRepository;
+    private @Spy OptimisticLockingRetrier optimisticLockingRetrier = new OptimisticLockingRetrier(3, 0);
+    private @Spy RequestIdentityMap requestIdentityMap = new RequestIdentityMap();
+    private @Spy UserProfileCache userProfileCache = new UserProfileCache(60, 100);
     private @InjectMocks UserProfileService userProfileService;
 
     @Test
@@ -39,7 +42,7 @@ public class UserProfileServiceTest {
 
     @Test
     void getUserProfile_shouldReturnProfileIfPresentInTheDatabase() {
-        UserProfile mockedProfile = new UserProfile("abc", "bcd", new ArrayList<>());
+        UserProfile mockedProfile = new UserProfile("abc", "bcd", new ArrayList<>(), null);
         when(userProfileRepository.findById("abc")).thenReturn(Optional.of(mockedProfile));
 
         UserProfile profile = userProfileService.getUserProfile("abc");
@@ -48,16 +51,30 @@ public class UserProfileServiceTest {
     }
 
     @Test
-    void deleteUser_shouldRemoveAllObjectsRelatedToUser() {
+    void getUserProfile_shouldServeRepeatedReadsFromTheCache() {
+        UserProfile mockedProfile = new UserProfile("abc", "bcd", new ArrayList<>(), 1L);
+        when(userProfileRepository.findById("abc")).thenReturn(Optional.of(mockedProfile));
+
+        UserProfile first = userProfileService.getUserProfile("abc");
+        first.getShelves().add(new PrefetchedShelf("123", "Movies", ShelfType.MOVIE));
+        UserProfile second = userProfileService.getUserProfile("abc");
+
+        assertThat(second.getShelves()).isEmpty();
+        assertThat(second.getVersion()).isEqualTo(1L);
+        verify(userProfileRepository, times(1)).findById("abc");
+    }
+
+    @Test
+    void deleteUser_shouldScheduleAccountDeletion() {
         PrefetchedShelf shelf1 = new PrefetchedShelf("123", "Movies", ShelfType.MOVIE);
         PrefetchedShelf shelf2 = new PrefetchedShelf("456", "Games", ShelfType.OTHER);
-        UserProfile mockedProfile = new UserProfile("abc", "bcd", List.of(shelf1, shelf2));
+        UserProfile mockedProfile = new UserProfile("abc", "bcd", List.of(shelf1, shelf2), null);
         when(userProfileRepository.findById("abc")).thenReturn(Optional.of(mockedProfile));
 
         UserProfile profile = userProfileService.deleteUserProfile("abc");
         assertThat(profile).isEqualTo(mockedProfile);
 
-        verify(shelfRepository, times(2)).deleteById(any());
-        verify(userDeleteProvider, times(1)).deleteUser(any());
+        verify(accountDeletionTaskRepository, times(1)).save(argThat(task -> task.getUserId().equals("abc")));
+        verify(userProfileRepository, never()).delete(any());
     }
 }
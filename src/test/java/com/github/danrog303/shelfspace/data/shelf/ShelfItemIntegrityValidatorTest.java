@@ -11,8 +11,8 @@ public class ShelfItemIntegrityValidatorTest {
     @Test @Disabled
     public void enforceIntegrityConstraints_shouldNotModifyThePassedObjectWhenConstraintsAreNotViolated() {
         String itemId = "5c20b7b0-ff0f-4c05-9e5b-41de2e3ccff3";
-        ShelfItem item = new ShelfItem(itemId, "Foo", new Date(), ShelfItemStatus.PLANNED, null, null);
-        ShelfItem itemClone = new ShelfItem(itemId, "Foo", new Date(), ShelfItemStatus.PLANNED, null, null);
+        ShelfItem item = new ShelfItem(null, itemId, "Foo", new Date(), ShelfItemStatus.PLANNED, null, null);
+        ShelfItem itemClone = new ShelfItem(null, itemId, "Foo", new Date(), ShelfItemStatus.PLANNED, null, null);
 
         ShelfItemIntegrityValidator validator = new ShelfItemIntegrityValidator();
         validator.enforceIntegrityConstraints(item);
@@ -23,7 +23,7 @@ public class ShelfItemIntegrityValidatorTest {
     @Test
     public void enforceIntegrityConstraints_shouldSetRatingToNullWhenItemStatusIsPlanned() {
         String itemId = "5c20b7b0-ff0f-4c05-9e5b-41de2e3ccff3";
-        ShelfItem item = new ShelfItem(itemId, "Foo", new Date(), ShelfItemStatus.PLANNED, 5, 10);
+        ShelfItem item = new ShelfItem(null, itemId, "Foo", new Date(), ShelfItemStatus.PLANNED, 5, 10);
 
         ShelfItemIntegrityValidator validator = new ShelfItemIntegrityValidator();
         validator.enforceIntegrityConstraints(item);
@@ -34,7 +34,7 @@ public class ShelfItemIntegrityValidatorTest {
     @Test
     public void enforceIntegrityConstraints_shouldSetFinishedCountToPositiveIntegerWhenItemStatusIsFinished() {
         String itemId = "5c20b7b0-ff0f-4c05-9e5b-41de2e3ccff3";
-        ShelfItem item = new ShelfItem(itemId, "Foo", new Date(), ShelfItemStatus.FINISHED, null, null);
+        ShelfItem item = new ShelfItem(null, itemId, "Foo", new Date(), ShelfItemStatus.FINISHED, null, null);
 
         ShelfItemIntegrityValidator validator = new ShelfItemIntegrityValidator();
         validator.enforceIntegrityConstraints(item);
@@ -45,7 +45,7 @@ public class ShelfItemIntegrityValidatorTest {
     @Test
     public void enforceIntegrityConstraints_shouldSetFinishedCountToNullWhenItemStatusIsNotFinished() {
         String itemId = "5c20b7b0-ff0f-4c05-9e5b-41de2e3ccff3";
-        ShelfItem item = new ShelfItem(itemId, "Foo", new Date(), ShelfItemStatus.DROPPED, 10, 3);
+        ShelfItem item = new ShelfItem(null, itemId, "Foo", new Date(), ShelfItemStatus.DROPPED, 10, 3);
 
         ShelfItemIntegrityValidator validator = new ShelfItemIntegrityValidator();
         validator.enforceIntegrityConstraints(item);
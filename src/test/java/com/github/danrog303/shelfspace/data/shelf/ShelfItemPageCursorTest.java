@@ -0,0 +1,35 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ShelfItemPageCursorTest {
+    @Test
+    public void decode_shouldReturnEncodedPosition() {
+        Map<String, String> position = Map.of("itemId", "2e2b043c-e338-4b99-ab3e-2fc6279cce3a", "creationDate", "2023-03-01T10:00:00.000Z");
+        String encoded = new ShelfItemPageCursor("creationDate", position).encode();
+
+        assertThat(encoded).doesNotContain("=", "+", "/");
+        assertThat(ShelfItemPageCursor.decode(encoded, ShelfItemOrder.CREATION_DATE).getPosition()).isEqualTo(position);
+    }
+
+    @Test
+    public void decode_shouldThrowWhenCursorWasCreatedForDifferentOrder() {
+        String encoded = new ShelfItemPageCursor("itemId", Map.of("itemId", "2e2b043c-e338-4b99-ab3e-2fc6279cce3a")).encode();
+
+        assertThatThrownBy(() -> ShelfItemPageCursor.decode(encoded, ShelfItemOrder.CREATION_DATE))
+                .isInstanceOf(InvalidPageRequestException.class);
+    }
+
+    @Test
+    public void decode_shouldThrowWhenCursorIsMalformed() {
+        assertThatThrownBy(() -> ShelfItemPageCursor.decode("not a cursor", ShelfItemOrder.ITEM_ID))
+                .isInstanceOf(InvalidPageRequestException.class);
+        assertThatThrownBy(() -> ShelfItemPageCursor.decode("e30", ShelfItemOrder.ITEM_ID))
+                .isInstanceOf(InvalidPageRequestException.class);
+    }
+}
@@ -1,12 +1,21 @@
 package com.github.danrog303.shelfspace.data.shelf;
 
 import com.github.danrog303.shelfspace.services.authorization.AuthorizationProvider;
+import com.github.danrog303.shelfspace.services.conditional.PreconditionFailedException;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingRetrier;
+import com.github.danrog303.shelfspace.services.database.RequestIdentityMap;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import javax.validation.Validation;
+import javax.validation.Validator;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -16,9 +25,13 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 public class ShelfItemServiceTest {
     private @Mock ShelfService shelfService;
-    private @Mock ShelfRepository shelfRepository;
+    private @Mock ShelfItemRepository shelfItemRepository;
+    private @Mock ShelfTransactionRepository shelfTransactionRepository;
     private @Mock AuthorizationProvider authorizationProvider;
     private @Mock ShelfItemIntegrityValidator shelfItemIntegrityValidator;
+    private @Spy OptimisticLockingRetrier optimisticLockingRetrier = new OptimisticLockingRetrier(3, 0);
+    private @Spy RequestIdentityMap requestIdentityMap = new RequestIdentityMap();
+    private @Spy Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
     private @InjectMocks ShelfItemService shelfItemService;
 
     @Test
@@ -26,76 +39,281 @@ public class ShelfItemServiceTest {
         String mockedShelfId = "35bb64a4-00a6-4ab1-ac29-27818490434a";
         String mockedUserId = "4c4bd402-8094-4191-b1f9-f76388af3cbe";
         String mockedItemId = "2e2b043c-e338-4b99-ab3e-2fc6279cce3a";
-        ShelfItem mockedShelfItem = new ShelfItem(mockedItemId, "Movie 1", new Date(), ShelfItemStatus.PLANNED, null, null);
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.GAME, new ArrayList<>(List.of(mockedShelfItem)));
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.GAME, null, null);
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, mockedItemId, "Movie", new Date(), ShelfItemStatus.PLANNED, null, null);
 
-        when(shelfService.getShelf(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findById(mockedShelfId, mockedItemId)).thenReturn(Optional.of(mockedItem));
+        when(shelfTransactionRepository.updateShelfItem(eq(mockedShelf), any(), eq(false))).thenReturn(true);
 
-        ShelfItem changes = new ShelfItem(null, "Movie 2", null, ShelfItemStatus.FINISHED, 1, 1);
-        ShelfItem modifiedItem = shelfItemService.updateShelfItem(mockedUserId, mockedShelfId, mockedItemId, changes);
+        ShelfItem changes = new ShelfItem(null, null, "Movie 2", null, ShelfItemStatus.FINISHED, 1, 1);
+        ShelfItem modifiedItem = shelfItemService.updateShelfItem(mockedUserId, mockedShelfId, mockedItemId, changes, VersionPrecondition.NONE);
 
         assertThat(modifiedItem.getItemId()).isEqualTo(mockedItemId);
+        assertThat(modifiedItem.getShelfId()).isEqualTo(mockedShelfId);
         assertThat(modifiedItem.getTitle()).isEqualTo("Movie 2");
 
-        verify(shelfRepository, times(1)).save(any());
+        verify(shelfItemRepository, never()).update(any());
+        verify(shelfService, never()).markShelfModified(any(), any());
+        verify(requestIdentityMap, times(1)).evict(Shelf.class, mockedShelfId);
+    }
+
+    @Test
+    public void updateShelfItem_shouldRetryWithShelfReadAgainWhenTransactionConflicted() {
+        String mockedShelfId = "35bb64a4-00a6-4ab1-ac29-27818490434a";
+        String mockedUserId = "4c4bd402-8094-4191-b1f9-f76388af3cbe";
+        String mockedItemId = "2e2b043c-e338-4b99-ab3e-2fc6279cce3a";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.GAME, null, 5L);
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, mockedItemId, "Movie", new Date(), ShelfItemStatus.PLANNED, null, null);
+
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findById(mockedShelfId, mockedItemId)).thenReturn(Optional.of(mockedItem));
+        when(shelfTransactionRepository.updateShelfItem(eq(mockedShelf), any(), eq(false)))
+                .thenThrow(new OptimisticLockingException())
+                .thenReturn(true);
+
+        ShelfItem changes = new ShelfItem(null, null, "Movie 2", null, ShelfItemStatus.FINISHED, 1, 1);
+        ShelfItem modifiedItem = shelfItemService.updateShelfItem(mockedUserId, mockedShelfId, mockedItemId, changes, VersionPrecondition.NONE);
+
+        assertThat(modifiedItem.getTitle()).isEqualTo("Movie 2");
+        verify(shelfService, times(2)).getShelfMetadata(mockedUserId, mockedShelfId);
+        verify(requestIdentityMap, times(2)).evict(Shelf.class, mockedShelfId);
     }
 
     @Test
     public void updateShelfItem_shouldThrowWhenShelfOrShelfItemNotFound() {
         String mockedShelfId = "3eba990b-1a3d-4ff0-9d7c-908fb636c2f5";
         String mockedUserId = "317f17da-a8de-456c-b01b-b8e752f38568";
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.BOOK, List.of());
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.BOOK, null, null);
 
-        when(shelfService.getShelf(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findById(mockedShelfId, "abc")).thenReturn(Optional.empty());
 
-        ShelfItem changes = new ShelfItem(null, "Movie 2", null, ShelfItemStatus.FINISHED, 1, 1);
-        assertThatThrownBy(() -> shelfItemService.updateShelfItem(mockedUserId, mockedShelfId, "abc", changes))
+        ShelfItem changes = new ShelfItem(null, null, "Movie 2", null, ShelfItemStatus.FINISHED, 1, 1);
+        assertThatThrownBy(() -> shelfItemService.updateShelfItem(mockedUserId, mockedShelfId, "abc", changes, VersionPrecondition.NONE))
                 .isInstanceOf(NoSuchElementException.class);
 
-        verify(shelfRepository, never()).save(any());
+        verify(shelfTransactionRepository, never()).updateShelfItem(any(), any(), anyBoolean());
+        verify(shelfService, never()).markShelfModified(any(), any());
     }
 
     @Test
     public void createShelfItem_shouldSuccessfullyCreateNewItem() {
         String mockedShelfId = "e1430e5e-4c36-4e40-a98f-339c516203fd";
         String mockedUserId = "1c5a8d2f-10bc-4f72-89e0-3dab1bea56e3";
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.BOOK, new ArrayList<>());
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.BOOK, null, null);
 
-        when(shelfService.getShelf(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
 
-        ShelfItem newItem = new ShelfItem(null, "Title", new Date(), ShelfItemStatus.FINISHED, 3, null);
-        ShelfItem createdItem = shelfItemService.createShelfItem(mockedUserId, mockedShelfId, newItem);
+        ShelfItem newItem = new ShelfItem(null, null, "Title", new Date(), ShelfItemStatus.FINISHED, 3, null);
+        ShelfItem createdItem = shelfItemService.createShelfItem(mockedUserId, mockedShelfId, newItem, VersionPrecondition.NONE);
 
         assertThat(createdItem).isNotNull();
         assertThat(createdItem.getItemId()).isNotNull();
-        verify(shelfRepository, times(1)).save(any());
+        assertThat(createdItem.getShelfId()).isEqualTo(mockedShelfId);
+        verify(shelfTransactionRepository, times(1)).createShelfItem(mockedShelf, createdItem, false);
+        verify(shelfItemRepository, never()).save(any());
+        verify(shelfService, never()).markShelfModified(any(), any());
     }
 
     @Test
     public void createShelfItem_shouldThrowWhenTriedToExceedQuota() {
         String mockedShelfId = "e082021c-5f9a-488b-9a54-8390bf99a897";
         String mockedUserId = "4bf6296b-44d2-4450-8e2e-d74cea590fa3";
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.OTHER, generateShelfItems(2000));
-        when(shelfService.getShelf(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.OTHER, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.countByShelfId(mockedShelfId)).thenReturn(2000);
+
+        ShelfItem newShelfItem = new ShelfItem(null, null, "The title", new Date(), ShelfItemStatus.FINISHED, 1, 1);
+        assertThatThrownBy(() -> shelfItemService.createShelfItem(mockedUserId, mockedShelfId, newShelfItem, VersionPrecondition.NONE))
+                .isInstanceOf(ShelfQuotaException.class);
+
+        verify(shelfTransactionRepository, never()).createShelfItem(any(), any(), anyBoolean());
+    }
+
+    @Test
+    public void createShelfItems_shouldSaveValidItemsAndReportInvalidOnes() {
+        String mockedShelfId = "0f9c5a2e-7d3b-4a8e-9b61-2c4d8e7f1a30";
+        String mockedUserId = "b7e2d4c1-6a5f-4e3b-8d92-1f0a3c5e7b64";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+
+        ShelfItem validItem = new ShelfItem(null, null, "Dune", null, ShelfItemStatus.PLANNED, null, null);
+        ShelfItem invalidItem = new ShelfItem(null, null, "D", null, ShelfItemStatus.PLANNED, null, null);
+        ShelfItemBatchResponse response = shelfItemService.createShelfItems(mockedUserId, mockedShelfId,
+                Arrays.asList(validItem, invalidItem, null), VersionPrecondition.NONE);
+
+        assertThat(response.getResults()).extracting(ShelfItemBatchResponse.Result::getStatus).containsExactly(201, 400, 400);
+        assertThat(response.getResults().get(0).getItem().getItemId()).isNotNull();
+        assertThat(response.getResults().get(1).getError().getMessage()).isEqualTo("Validation failed for field title");
+        InOrder inOrder = inOrder(shelfService, shelfItemRepository);
+        inOrder.verify(shelfService).markShelfModified(mockedUserId, mockedShelfId);
+        inOrder.verify(shelfItemRepository).saveAll(List.of(validItem));
+        inOrder.verify(shelfService).markShelfModified(mockedUserId, mockedShelfId);
+        verify(shelfItemRepository, never()).save(any());
+    }
+
+    @Test
+    public void createShelfItems_shouldReportItemsWhichCouldNotBeWritten() {
+        String mockedShelfId = "0f9c5a2e-7d3b-4a8e-9b61-2c4d8e7f1a30";
+        String mockedUserId = "b7e2d4c1-6a5f-4e3b-8d92-1f0a3c5e7b64";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+
+        ShelfItem savedItem = new ShelfItem(null, null, "Dune", null, ShelfItemStatus.PLANNED, null, null);
+        ShelfItem unsavedItem = new ShelfItem(null, null, "Emma", null, ShelfItemStatus.PLANNED, null, null);
+        when(shelfItemRepository.saveAll(any())).thenReturn(List.of(unsavedItem));
+        ShelfItemBatchResponse response = shelfItemService.createShelfItems(mockedUserId, mockedShelfId,
+                List.of(savedItem, unsavedItem), VersionPrecondition.NONE);
+
+        assertThat(response.getResults()).extracting(ShelfItemBatchResponse.Result::getStatus).containsExactly(201, 503);
+        assertThat(response.getResults().get(1).getIndex()).isEqualTo(1);
+        assertThat(response.getResults().get(1).getError().getError()).isEqualTo("WRITE_FAILED");
+        verify(shelfService, times(2)).markShelfModified(mockedUserId, mockedShelfId);
+    }
 
-        ShelfItem newShelfItem = new ShelfItem(null, "The title", new Date(), ShelfItemStatus.FINISHED, 1, 1);
-        assertThatThrownBy(() -> shelfItemService.createShelfItem(mockedUserId, mockedShelfId, newShelfItem))
+    @Test
+    public void deleteShelfItems_shouldModifyShelfOnlyBeforeDeletingWhenNoItemCouldBeDeleted() {
+        String mockedShelfId = "6d1e8b3a-2f4c-4c7e-a5b9-0e3f7d2c8a41";
+        String mockedUserId = "c3a9f2e7-5b1d-4f8a-9e6c-7d2b4a1f0e53";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, null);
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, "first", "Dune", new Date(), ShelfItemStatus.PLANNED, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findAllByShelfId(mockedShelfId)).thenReturn(List.of(mockedItem));
+        when(shelfItemRepository.deleteAll(List.of(mockedItem))).thenReturn(List.of(mockedItem));
+
+        ShelfItemBatchResponse response = shelfItemService.deleteShelfItems(mockedUserId, mockedShelfId,
+                List.of("first"), VersionPrecondition.NONE);
+
+        assertThat(response.getResults()).extracting(ShelfItemBatchResponse.Result::getStatus).containsExactly(503);
+        verify(shelfService, times(1)).markShelfModified(mockedUserId, mockedShelfId);
+    }
+
+    @Test
+    public void createShelfItems_shouldNotCreateAnyItemWhenQuotaWouldBeExceeded() {
+        String mockedShelfId = "0f9c5a2e-7d3b-4a8e-9b61-2c4d8e7f1a30";
+        String mockedUserId = "b7e2d4c1-6a5f-4e3b-8d92-1f0a3c5e7b64";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.countByShelfId(mockedShelfId)).thenReturn(1999);
+
+        List<ShelfItem> newItems = List.of(
+                new ShelfItem(null, null, "Dune", null, ShelfItemStatus.PLANNED, null, null),
+                new ShelfItem(null, null, "Emma", null, ShelfItemStatus.PLANNED, null, null));
+        assertThatThrownBy(() -> shelfItemService.createShelfItems(mockedUserId, mockedShelfId, newItems, VersionPrecondition.NONE))
                 .isInstanceOf(ShelfQuotaException.class);
 
-        verify(shelfRepository, never()).save(any());
+        verify(shelfItemRepository, times(1)).countByShelfId(mockedShelfId);
+        verify(shelfItemRepository, never()).saveAll(any());
+        verify(shelfService, never()).markShelfModified(any(), any());
+    }
+
+    @Test
+    public void updateShelfItems_shouldApplyPatchesAndSaveEveryModifiedItemOnce() {
+        String mockedShelfId = "6d1e8b3a-2f4c-4c7e-a5b9-0e3f7d2c8a41";
+        String mockedUserId = "c3a9f2e7-5b1d-4f8a-9e6c-7d2b4a1f0e53";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, null);
+        Date creationDate = new Date();
+        ShelfItem firstItem = new ShelfItem(mockedShelfId, "first", "Dune", creationDate, ShelfItemStatus.PLANNED, null, null);
+        ShelfItem secondItem = new ShelfItem(mockedShelfId, "second", "Emma", creationDate, ShelfItemStatus.PLANNED, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findAllByShelfId(mockedShelfId)).thenReturn(List.of(firstItem, secondItem));
+
+        ShelfItem finished = new ShelfItem(null, null, null, null, ShelfItemStatus.FINISHED, null, 2);
+        ShelfItem rated = new ShelfItem(null, null, null, null, null, 8, null);
+        ShelfItem invalidTitle = new ShelfItem(null, null, "E", null, null, null, null);
+        ShelfItemBatchResponse response = shelfItemService.updateShelfItems(mockedUserId, mockedShelfId, List.of(
+                new ShelfItemBatchUpdateRequest.Update("first", finished),
+                new ShelfItemBatchUpdateRequest.Update("missing", finished),
+                new ShelfItemBatchUpdateRequest.Update("second", invalidTitle),
+                new ShelfItemBatchUpdateRequest.Update("first", rated)), VersionPrecondition.NONE);
+
+        assertThat(response.getResults()).extracting(ShelfItemBatchResponse.Result::getStatus).containsExactly(200, 404, 400, 200);
+        ShelfItem expectedItem = new ShelfItem(mockedShelfId, "first", "Dune", creationDate, ShelfItemStatus.FINISHED, 8, 2);
+        assertThat(response.getResults().get(3).getItem()).isEqualTo(expectedItem);
+        verify(shelfItemRepository, times(1)).findAllByShelfId(mockedShelfId);
+        verify(shelfTransactionRepository, times(1)).updateShelfItems(List.of(expectedItem),
+                Map.of("first", firstItem, "second", secondItem));
+        verify(shelfItemRepository, never()).saveAll(any());
+        verify(shelfItemRepository, never()).update(any());
+        verify(shelfService, times(2)).markShelfModified(mockedUserId, mockedShelfId);
+    }
+
+    @Test
+    public void updateShelfItems_shouldReportItemsModifiedOrDeletedInTheMeantime() {
+        String mockedShelfId = "6d1e8b3a-2f4c-4c7e-a5b9-0e3f7d2c8a41";
+        String mockedUserId = "c3a9f2e7-5b1d-4f8a-9e6c-7d2b4a1f0e53";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, null);
+        Date creationDate = new Date();
+        ShelfItem modifiedItem = new ShelfItem(mockedShelfId, "modified", "Dune", creationDate, ShelfItemStatus.PLANNED, null, null);
+        ShelfItem deletedItem = new ShelfItem(mockedShelfId, "deleted", "Emma", creationDate, ShelfItemStatus.PLANNED, null, null);
+        ShelfItem writtenItem = new ShelfItem(mockedShelfId, "written", "Ulysses", creationDate, ShelfItemStatus.PLANNED, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findAllByShelfId(mockedShelfId)).thenReturn(List.of(modifiedItem, deletedItem, writtenItem));
+        when(shelfTransactionRepository.updateShelfItems(any(), any())).thenAnswer(invocation -> {
+            List<ShelfItem> items = invocation.getArgument(0);
+            return items.subList(0, 2);
+        });
+        when(shelfItemRepository.findById(mockedShelfId, "modified")).thenReturn(Optional.of(
+                new ShelfItem(mockedShelfId, "modified", "Dune", creationDate, ShelfItemStatus.IN_PROGRESS, null, null)));
+        when(shelfItemRepository.findById(mockedShelfId, "deleted")).thenReturn(Optional.empty());
+
+        ShelfItem finished = new ShelfItem(null, null, null, null, ShelfItemStatus.FINISHED, null, 1);
+        ShelfItemBatchResponse response = shelfItemService.updateShelfItems(mockedUserId, mockedShelfId, List.of(
+                new ShelfItemBatchUpdateRequest.Update("modified", finished),
+                new ShelfItemBatchUpdateRequest.Update("deleted", finished),
+                new ShelfItemBatchUpdateRequest.Update("written", finished)), VersionPrecondition.NONE);
+
+        assertThat(response.getResults()).extracting(ShelfItemBatchResponse.Result::getStatus).containsExactly(409, 404, 200);
+        verify(shelfService, times(2)).markShelfModified(mockedUserId, mockedShelfId);
+    }
+
+    @Test
+    public void deleteShelfItems_shouldDeleteFoundItemsAndReportMissingOnes() {
+        String mockedShelfId = "6d1e8b3a-2f4c-4c7e-a5b9-0e3f7d2c8a41";
+        String mockedUserId = "c3a9f2e7-5b1d-4f8a-9e6c-7d2b4a1f0e53";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, null);
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, "first", "Dune", new Date(), ShelfItemStatus.PLANNED, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findAllByShelfId(mockedShelfId)).thenReturn(List.of(mockedItem));
+
+        ShelfItemBatchResponse response = shelfItemService.deleteShelfItems(mockedUserId, mockedShelfId,
+                List.of("first", "missing", "first"), VersionPrecondition.NONE);
+
+        assertThat(response.getResults()).extracting(ShelfItemBatchResponse.Result::getStatus).containsExactly(200, 404, 404);
+        assertThat(response.getResults().get(0).getItem()).isEqualTo(mockedItem);
+        verify(shelfItemRepository, times(1)).deleteAll(List.of(mockedItem));
+        verify(shelfItemRepository, never()).deleteById(any(), any());
+        verify(shelfService, times(2)).markShelfModified(mockedUserId, mockedShelfId);
+    }
+
+    @Test
+    public void deleteShelfItems_shouldNotModifyShelfWhenNoItemWasFound() {
+        String mockedShelfId = "6d1e8b3a-2f4c-4c7e-a5b9-0e3f7d2c8a41";
+        String mockedUserId = "c3a9f2e7-5b1d-4f8a-9e6c-7d2b4a1f0e53";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findAllByShelfId(mockedShelfId)).thenReturn(List.of());
+
+        ShelfItemBatchResponse response = shelfItemService.deleteShelfItems(mockedUserId, mockedShelfId,
+                List.of("missing"), VersionPrecondition.NONE);
+
+        assertThat(response.getResults()).extracting(ShelfItemBatchResponse.Result::getStatus).containsExactly(404);
+        verify(shelfItemRepository, never()).deleteAll(any());
+        verify(shelfService, never()).markShelfModified(any(), any());
     }
 
     @Test
     public void createShelfItem_shouldThrowWhenShelfDoesNotExist() {
         String mockedShelfId = "e082021c-5f9a-488b-9a54-8390bf99a897";
         String mockedUserId = "4bf6296b-44d2-4450-8e2e-d74cea590fa3";
-        when(shelfService.getShelf(any(), any())).thenThrow(new NoSuchElementException());
+        when(shelfService.getShelfMetadata(any(), any())).thenThrow(new NoSuchElementException());
 
-        ShelfItem newShelfItem = new ShelfItem(null, "The title", new Date(), ShelfItemStatus.FINISHED, 1, 1);
-        assertThatThrownBy(() -> shelfItemService.createShelfItem(mockedUserId, mockedShelfId, newShelfItem))
+        ShelfItem newShelfItem = new ShelfItem(null, null, "The title", new Date(), ShelfItemStatus.FINISHED, 1, 1);
+        assertThatThrownBy(() -> shelfItemService.createShelfItem(mockedUserId, mockedShelfId, newShelfItem, VersionPrecondition.NONE))
                 .isInstanceOf(NoSuchElementException.class);
 
-        verify(shelfRepository, never()).save(any());
+        verify(shelfTransactionRepository, never()).createShelfItem(any(), any(), anyBoolean());
     }
 
     @Test
@@ -103,14 +321,13 @@ public class ShelfItemServiceTest {
         String mockedShelfId = "e082021c-5f9a-488b-9a54-8390bf99a897";
         String mockedUserId = "4bf6296b-44d2-4450-8e2e-d74cea590fa3";
         String mockedItemId = "8f5a9c18-da8e-4cea-952d-68de1f284360";
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.MOVIE, new ArrayList<>());
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.MOVIE, null, null);
 
-        when(shelfService.getShelf(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findById(mockedShelfId, mockedItemId)).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> shelfItemService.deleteShelfItem(mockedUserId, mockedShelfId, mockedItemId))
+        assertThatThrownBy(() -> shelfItemService.deleteShelfItem(mockedUserId, mockedShelfId, mockedItemId, VersionPrecondition.NONE))
                 .isInstanceOf(NoSuchElementException.class);
-
-        verify(shelfRepository, never()).save(any());
     }
 
     @Test
@@ -118,24 +335,120 @@ public class ShelfItemServiceTest {
         String mockedShelfId = "e082021c-5f9a-488b-9a54-8390bf99a897";
         String mockedUserId = "4bf6296b-44d2-4450-8e2e-d74cea590fa3";
         String mockedItemId = "8f5a9c18-da8e-4cea-952d-68de1f284360";
-        ShelfItem mockedItem = new ShelfItem(mockedItemId, "Foobar", new Date(), ShelfItemStatus.PLANNED, null, null);
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.BOOK, new ArrayList<ShelfItem>(List.of(mockedItem)));
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, mockedItemId, "Foobar", new Date(), ShelfItemStatus.PLANNED, null, null);
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.BOOK, null, null);
 
-        when(shelfService.getShelf(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findById(mockedShelfId, mockedItemId)).thenReturn(Optional.of(mockedItem));
+        when(shelfTransactionRepository.deleteShelfItem(mockedShelf, mockedItemId, false)).thenReturn(true);
 
-        ShelfItem deletedItem = shelfItemService.deleteShelfItem(mockedUserId, mockedShelfId, mockedItemId);
+        ShelfItem deletedItem = shelfItemService.deleteShelfItem(mockedUserId, mockedShelfId, mockedItemId, VersionPrecondition.NONE);
         assertThat(deletedItem).isEqualTo(mockedItem);
-        assertThat(mockedShelf.getItems()).isEmpty();
 
-        verify(shelfRepository, times(1)).save(mockedShelf);
+        verify(shelfItemRepository, never()).deleteById(any(), any());
+        verify(shelfService, never()).markShelfModified(any(), any());
     }
 
-    private List<ShelfItem> generateShelfItems(int n) {
-        ArrayList<ShelfItem> result = new ArrayList<>();
-        for (int i = 0; i < n; i++) {
-            ShelfItem item = new ShelfItem("item"+i, "Some item", new Date(), ShelfItemStatus.PLANNED, null, null);
-            result.add(item);
-        }
-        return result;
+    @Test
+    public void deleteShelfItem_shouldRejectWriteBasedOnOutdatedVersion() {
+        String mockedShelfId = "e082021c-5f9a-488b-9a54-8390bf99a897";
+        String mockedUserId = "4bf6296b-44d2-4450-8e2e-d74cea590fa3";
+        String mockedItemId = "8f5a9c18-da8e-4cea-952d-68de1f284360";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.BOOK, null, 5L);
+
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+
+        assertThatThrownBy(() -> shelfItemService.deleteShelfItem(mockedUserId, mockedShelfId, mockedItemId,
+                VersionPrecondition.ifMatch("\"4\"")))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(shelfTransactionRepository, never()).deleteShelfItem(any(), any(), anyBoolean());
+        verify(shelfService, never()).markShelfModified(any(), any());
+    }
+
+    @Test
+    public void updateShelfItem_shouldWriteItemTogetherWithShelfVersionWhenConditional() {
+        String mockedShelfId = "35bb64a4-00a6-4ab1-ac29-27818490434a";
+        String mockedUserId = "4c4bd402-8094-4191-b1f9-f76388af3cbe";
+        String mockedItemId = "2e2b043c-e338-4b99-ab3e-2fc6279cce3a";
+        Date creationDate = new Date(1_600_000_000_000L);
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.MOVIE, null, 5L);
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, mockedItemId, "Movie", creationDate, ShelfItemStatus.PLANNED, null, null);
+
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findById(mockedShelfId, mockedItemId)).thenReturn(Optional.of(mockedItem));
+        when(shelfTransactionRepository.updateShelfItem(eq(mockedShelf), any(), eq(true))).thenReturn(true);
+
+        ShelfItem changes = new ShelfItem(null, null, "Movie 2", null, ShelfItemStatus.FINISHED, 1, 1);
+        ShelfItem modifiedItem = shelfItemService.updateShelfItem(mockedUserId, mockedShelfId, mockedItemId, changes,
+                VersionPrecondition.ifMatch("\"5\""));
+
+        assertThat(modifiedItem.getTitle()).isEqualTo("Movie 2");
+        assertThat(modifiedItem.getCreationDate()).isEqualTo(creationDate);
+        verify(shelfItemRepository, never()).update(any());
+        verify(shelfService, never()).markShelfModified(any(), any());
+    }
+
+    @Test
+    public void deleteShelfItem_shouldRejectWriteWhenShelfWasModifiedAfterCheck() {
+        String mockedShelfId = "e082021c-5f9a-488b-9a54-8390bf99a897";
+        String mockedUserId = "4bf6296b-44d2-4450-8e2e-d74cea590fa3";
+        String mockedItemId = "8f5a9c18-da8e-4cea-952d-68de1f284360";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.BOOK, null, 5L);
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, mockedItemId, "Foobar", new Date(), ShelfItemStatus.PLANNED, null, null);
+
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findById(mockedShelfId, mockedItemId)).thenReturn(Optional.of(mockedItem));
+        when(shelfTransactionRepository.deleteShelfItem(mockedShelf, mockedItemId, true)).thenThrow(new OptimisticLockingException());
+
+        assertThatThrownBy(() -> shelfItemService.deleteShelfItem(mockedUserId, mockedShelfId, mockedItemId,
+                VersionPrecondition.ifMatch("\"5\"")))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(shelfTransactionRepository, times(1)).deleteShelfItem(mockedShelf, mockedItemId, true);
+    }
+
+    @Test
+    public void deleteShelfItems_shouldClaimShelfVersionBeforeDeletingWhenConditional() {
+        String mockedShelfId = "6d1e8b3a-2f4c-4c7e-a5b9-0e3f7d2c8a41";
+        String mockedUserId = "c3a9f2e7-5b1d-4f8a-9e6c-7d2b4a1f0e53";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Books", mockedUserId, ShelfType.BOOK, null, 5L);
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, "first", "Dune", new Date(), ShelfItemStatus.PLANNED, null, null);
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findAllByShelfId(mockedShelfId)).thenReturn(List.of(mockedItem));
+
+        shelfItemService.deleteShelfItems(mockedUserId, mockedShelfId, List.of("first"), VersionPrecondition.ifMatch("\"5\""));
+
+        InOrder inOrder = inOrder(shelfService, shelfItemRepository);
+        inOrder.verify(shelfService).claimShelfVersion(mockedUserId, mockedShelf);
+        inOrder.verify(shelfItemRepository).deleteAll(List.of(mockedItem));
+    }
+
+    @Test
+    public void getShelfItemsPage_shouldClampLimit() {
+        String mockedShelfId = "35bb64a4-00a6-4ab1-ac29-27818490434a";
+        String mockedUserId = "4c4bd402-8094-4191-b1f9-f76388af3cbe";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.GAME, null, null);
+        ShelfItemPage mockedPage = new ShelfItemPage(List.of(), null);
+
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenReturn(mockedShelf);
+        when(shelfItemRepository.findPageByShelfId(eq(mockedShelfId), eq(ShelfItemOrder.ITEM_ID), anyInt(), isNull()))
+                .thenReturn(mockedPage);
+
+        assertThat(shelfItemService.getShelfItemsPage(mockedUserId, mockedShelfId, ShelfItemOrder.ITEM_ID, 5000, null))
+                .isEqualTo(mockedPage);
+        shelfItemService.getShelfItemsPage(mockedUserId, mockedShelfId, ShelfItemOrder.ITEM_ID, 0, null);
+
+        verify(shelfItemRepository).findPageByShelfId(mockedShelfId, ShelfItemOrder.ITEM_ID, ShelfItemService.MAX_PAGE_SIZE, null);
+        verify(shelfItemRepository).findPageByShelfId(mockedShelfId, ShelfItemOrder.ITEM_ID, 1, null);
+    }
+
+    @Test
+    public void getShelfItemsPage_shouldThrowWhenShelfNotFound() {
+        String mockedShelfId = "35bb64a4-00a6-4ab1-ac29-27818490434a";
+        String mockedUserId = "4c4bd402-8094-4191-b1f9-f76388af3cbe";
+        when(shelfService.getShelfMetadata(mockedUserId, mockedShelfId)).thenThrow(new NoSuchElementException());
+
+        assertThatThrownBy(() -> shelfItemService.getShelfItemsPage(mockedUserId, mockedShelfId, ShelfItemOrder.CREATION_DATE, 10, null))
+                .isInstanceOf(NoSuchElementException.class);
+        verify(shelfItemRepository, never()).findPageByShelfId(any(), any(), anyInt(), any());
     }
 }
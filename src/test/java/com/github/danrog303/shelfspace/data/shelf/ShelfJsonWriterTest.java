@@ -0,0 +1,62 @@
+package com.github.danrog303.shelfspace.data.shelf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShelfJsonWriterTest {
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ShelfJsonWriter shelfJsonWriter = new ShelfJsonWriter(objectMapper);
+
+    @Test
+    void writeShelf_shouldProduceSameDocumentAsRegularSerialization() throws Exception {
+        List<ShelfItem> items = List.of(
+                new ShelfItem("shelf", "item-1", "Dune", new Date(0), ShelfItemStatus.FINISHED, 9, 2),
+                new ShelfItem("shelf", "item-2", "Solaris", new Date(1000), ShelfItemStatus.PLANNED, null, null));
+        Shelf shelf = new Shelf("shelf", "Sci-fi books", "owner", ShelfType.BOOK, items, 3L);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        shelfJsonWriter.writeShelf(shelf, items, output);
+
+        assertThat(output.toString(StandardCharsets.UTF_8)).isEqualTo(objectMapper.writeValueAsString(shelf));
+    }
+
+    @Test
+    void writeShelf_shouldFlushMetadataBeforeItemsAreRead() throws Exception {
+        Shelf shelf = new Shelf("shelf", "Sci-fi books", "owner", ShelfType.BOOK, null, 3L);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        StringBuilder writtenBeforeItems = new StringBuilder();
+        Iterable<ShelfItem> items = () -> {
+            writtenBeforeItems.append(output.toString(StandardCharsets.UTF_8));
+            return List.<ShelfItem>of().iterator();
+        };
+
+        shelfJsonWriter.writeShelf(shelf, items, output);
+
+        assertThat(writtenBeforeItems.toString()).contains("\"shelfName\":\"Sci-fi books\"").endsWith("\"items\"");
+        assertThat(output.toString(StandardCharsets.UTF_8)).endsWith("\"items\":[]}");
+    }
+
+    @Test
+    void writeShelf_shouldNotCloseOutputStream() throws Exception {
+        Shelf shelf = new Shelf("shelf", "Sci-fi books", "owner", ShelfType.BOOK, null, 3L);
+        boolean[] closed = {false};
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        };
+
+        shelfJsonWriter.writeShelf(shelf, List.of(), output);
+
+        assertThat(closed[0]).isFalse();
+    }
+}
@@ -2,15 +2,25 @@ package com.github.danrog303.shelfspace.data.shelf;
 
 import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
 import com.github.danrog303.shelfspace.data.profile.UserProfile;
-import com.github.danrog303.shelfspace.data.profile.UserProfileRepository;
+import com.github.danrog303.shelfspace.data.profile.UserProfileCache;
 import com.github.danrog303.shelfspace.data.profile.UserProfileService;
+import com.github.danrog303.shelfspace.services.conditional.PreconditionFailedException;
+import com.github.danrog303.shelfspace.services.conditional.VersionPrecondition;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingRetrier;
+import com.github.danrog303.shelfspace.services.database.RequestIdentityMap;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -22,14 +32,18 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 public class ShelfServiceTest {
     private @Mock UserProfileService userProfileService;
-    private @Mock UserProfileRepository userProfileRepository;
-    private @Mock ShelfRepository shelfRepository;
+    private @Mock ShelfMetadataRepository shelfMetadataRepository;
+    private @Mock ShelfTransactionRepository shelfTransactionRepository;
+    private @Mock ShelfItemRepository shelfItemRepository;
+    private @Mock UserProfileCache userProfileCache;
+    private @Spy OptimisticLockingRetrier optimisticLockingRetrier = new OptimisticLockingRetrier(3, 0);
+    private @Spy RequestIdentityMap requestIdentityMap = new RequestIdentityMap();
     private @InjectMocks ShelfService shelfService;
 
     @Test
     void createNewShelf_shouldCreateShelfInstancesInBothTables() {
         when(userProfileService.getUserProfile("abc")).thenReturn(
-                new UserProfile("abc", "ABCDEF", new ArrayList<>()));
+                new UserProfile("abc", "ABCDEF", new ArrayList<>(), null));
 
         PrefetchedShelf newShelf = new PrefetchedShelf(null, "abc", ShelfType.GAME);
         PrefetchedShelf createdShelf = shelfService.createNewShelf("abc", newShelf);
@@ -37,34 +51,36 @@ public class ShelfServiceTest {
         assertThat(createdShelf).isNotNull();
         assertThat(createdShelf.getShelfId()).isNotNull();
 
-        verify(shelfRepository, times(1)).save(any());
-        verify(userProfileRepository, times(1)).save(any());
+        verify(shelfTransactionRepository, times(1)).createShelf(argThat(profile -> profile.getShelves().contains(createdShelf)),
+                argThat(shelf -> shelf.getShelfId().equals(createdShelf.getShelfId())));
+        verify(userProfileCache, times(1)).put(argThat(profile -> profile.getShelves().contains(createdShelf)));
     }
 
     @Test
     void createNewShelf_shouldThrowWhenQuotaExceeded() {
         when(userProfileService.getUserProfile("abc")).thenReturn(
-                new UserProfile("abc", "ABCDEF", createShelves(20)));
+                new UserProfile("abc", "ABCDEF", createShelves(20), null));
 
         assertThatThrownBy(() ->
                 shelfService.createNewShelf("abc", new PrefetchedShelf("xxx", "Movies", ShelfType.GAME))
         ).isInstanceOf(ShelfQuotaException.class);
 
-        verify(shelfRepository, never()).save(any());
+        verify(shelfTransactionRepository, never()).createShelf(any(), any());
     }
 
     @Test
     void deleteShelf_shouldThrowWhenShelfWasNotFound() {
         String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
         String mockedShelfId = "64e9e6e8-3950-4581-8d44-402e1c9e6064";
-        UserProfile mockedUserProfile = new UserProfile(mockedUserId, "James", List.of());
+        UserProfile mockedUserProfile = new UserProfile(mockedUserId, "James", List.of(), null);
 
         when(userProfileService.getUserProfile(mockedUserId)).thenReturn(mockedUserProfile);
-        when(shelfRepository.findById(any())).thenReturn(Optional.empty());
+        when(shelfMetadataRepository.findMetadataById(any())).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> shelfService.deleteShelf(mockedUserId, mockedShelfId)).isInstanceOf(NoSuchElementException.class);
-        verify(shelfRepository, never()).delete(any());
-        verify(shelfRepository, never()).deleteById(any());
+        assertThatThrownBy(() -> shelfService.deleteShelf(mockedUserId, mockedShelfId, VersionPrecondition.NONE))
+                .isInstanceOf(NoSuchElementException.class);
+        verify(shelfTransactionRepository, never()).deleteShelf(any(), any());
+        verify(shelfItemRepository, never()).deleteAllByShelfId(any());
     }
 
     @Test
@@ -72,24 +88,24 @@ public class ShelfServiceTest {
         String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
         String mockedShelfId = "64e9e6e8-3950-4581-8d44-402e1c9e6064";
         PrefetchedShelf mockedPrefetchedShelf = new PrefetchedShelf(mockedShelfId, "Movies", ShelfType.OTHER);
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.MOVIE, List.of());
-        UserProfile mockedUserProfile = new UserProfile(mockedUserId, "James", new ArrayList<>(List.of(mockedPrefetchedShelf)));
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.MOVIE, List.of(), null);
+        UserProfile mockedUserProfile = new UserProfile(mockedUserId, "James", new ArrayList<>(List.of(mockedPrefetchedShelf)), null);
 
-        when(shelfRepository.findById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
         when(userProfileService.getUserProfile(mockedUserId)).thenReturn(mockedUserProfile);
-        shelfService.deleteShelf(mockedUserId, mockedShelfId);
+        shelfService.deleteShelf(mockedUserId, mockedShelfId, VersionPrecondition.NONE);
 
         assertThat(mockedUserProfile.getShelves()).isEmpty();
 
-        verify(shelfRepository, times(1)).delete(mockedShelf);
-        verify(userProfileRepository, times(1)).save(mockedUserProfile);
+        verify(shelfTransactionRepository, times(1)).deleteShelf(mockedUserProfile, mockedShelf);
+        verify(shelfItemRepository, times(1)).deleteAllByShelfId(mockedShelfId);
     }
 
     @Test
     void getShelf_shouldThrowWhenShelfNotFound() {
         String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
         String mockedShelfId = "64e9e6e8-3950-4581-8d44-402e1c9e6064";
-        when(shelfRepository.findById(mockedShelfId)).thenReturn(Optional.empty());
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.empty());
 
         assertThatThrownBy(() -> shelfService.getShelf(mockedUserId, mockedShelfId)).isInstanceOf(NoSuchElementException.class);
     }
@@ -99,22 +115,48 @@ public class ShelfServiceTest {
         String mockedShelfOwnerId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
         String mockedRequestedUserId = "093b9e02-7722-4eee-bdb0-8847fe04d05f";
         String mockedShelfId = "08dd20f6-8b99-43d0-85e6-9017f7ed0c9a";
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedShelfOwnerId, ShelfType.GAME, List.of());
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedShelfOwnerId, ShelfType.GAME, List.of(), null);
 
-        when(shelfRepository.findById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
 
         assertThatThrownBy(() -> shelfService.getShelf(mockedRequestedUserId, mockedShelfId)).isInstanceOf(NoSuchElementException.class);
     }
 
+    @Test
+    void iterateShelfItems_shouldNotQueryItemsOfShelfOwnedByAnotherUser() {
+        String mockedShelfOwnerId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedRequestedUserId = "093b9e02-7722-4eee-bdb0-8847fe04d05f";
+        String mockedShelfId = "08dd20f6-8b99-43d0-85e6-9017f7ed0c9a";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedShelfOwnerId, ShelfType.GAME, List.of(), null);
+
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+
+        assertThatThrownBy(() -> shelfService.iterateShelfItems(mockedRequestedUserId, mockedShelfId)).isInstanceOf(NoSuchElementException.class);
+        verify(shelfItemRepository, never()).iterateAllByShelfId(any());
+    }
+
     @Test
     void getShelf_shouldReturnShelfWhenPresent() {
         String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
         String mockedShelfId = "08dd20f6-8b99-43d0-85e6-9017f7ed0c9a";
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.BOOK, List.of());
-        when(shelfRepository.findById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.BOOK, List.of(), null);
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
 
         assertThat(shelfService.getShelf(mockedUserId, mockedShelfId)).isEqualTo(mockedShelf);
-        verify(shelfRepository, times(1)).findById(mockedShelfId);
+        verify(shelfMetadataRepository, times(1)).findMetadataById(mockedShelfId);
+    }
+
+    @Test
+    void getShelf_shouldFetchItemsFromTheItemsTable() {
+        String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedShelfId = "08dd20f6-8b99-43d0-85e6-9017f7ed0c9a";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.BOOK, null, null);
+        ShelfItem mockedItem = new ShelfItem(mockedShelfId, "2b0d4cf5-5f0c-4a6c-8d8c-4b7e0e0b2f43", "Game 1",
+                new Date(), ShelfItemStatus.PLANNED, null, null);
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+        when(shelfItemRepository.findAllByShelfId(mockedShelfId)).thenReturn(List.of(mockedItem));
+
+        assertThat(shelfService.getShelf(mockedUserId, mockedShelfId).getItems()).containsExactly(mockedItem);
     }
 
     @Test
@@ -122,14 +164,14 @@ public class ShelfServiceTest {
         String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
         String mockedShelfId = "428ddf23-2682-4d44-a5ec-052c0bb6d620";
         PrefetchedShelf mockedPrefetchedShelf = new PrefetchedShelf(mockedShelfId, "Games", ShelfType.MOVIE);
-        UserProfile mockedUserProfile = new UserProfile(mockedUserId, "James", List.of());
+        UserProfile mockedUserProfile = new UserProfile(mockedUserId, "James", List.of(), null);
 
         when(userProfileService.getUserProfile(mockedUserId)).thenReturn(mockedUserProfile);
-        when(shelfRepository.findById(any())).thenReturn(Optional.empty());
+        when(shelfMetadataRepository.findMetadataById(any())).thenReturn(Optional.empty());
 
-        assertThatThrownBy(() -> shelfService.updateShelf(mockedUserId, mockedShelfId, mockedPrefetchedShelf))
+        assertThatThrownBy(() -> shelfService.updateShelf(mockedUserId, mockedShelfId, mockedPrefetchedShelf, VersionPrecondition.NONE))
                 .isInstanceOf(NoSuchElementException.class);
-        verify(shelfRepository, never()).save(any());
+        verify(shelfTransactionRepository, never()).updateShelf(any(), any());
     }
 
     @Test
@@ -137,22 +179,141 @@ public class ShelfServiceTest {
         String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
         String mockedShelfId = "428ddf23-2682-4d44-a5ec-052c0bb6d620";
         PrefetchedShelf mockedPrefetchedShelf = new PrefetchedShelf(mockedShelfId, "Games", ShelfType.MOVIE);
-        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.GAME, List.of());
-        UserProfile mockedUser = new UserProfile(mockedUserId, "Ann", new ArrayList<>(List.of(mockedPrefetchedShelf)));
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.GAME, List.of(), null);
+        UserProfile mockedUser = new UserProfile(mockedUserId, "Ann", new ArrayList<>(List.of(mockedPrefetchedShelf)), null);
 
         when(userProfileService.getUserProfile(mockedUserId)).thenReturn(mockedUser);
-        when(shelfRepository.findById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
 
         PrefetchedShelf changes = new PrefetchedShelf(null, "Sci-fi movies", ShelfType.GAME);
-        Shelf modifiedShelf = shelfService.updateShelf(mockedUserId, mockedShelfId, changes);
+        Shelf modifiedShelf = shelfService.updateShelf(mockedUserId, mockedShelfId, changes, VersionPrecondition.NONE);
 
         assertThat(modifiedShelf).isNotNull();
         assertThat(modifiedShelf.getShelfId()).isEqualTo(mockedShelfId);
         assertThat(modifiedShelf.getShelfName()).isEqualTo("Sci-fi movies");
         assertThat(modifiedShelf.getShelfType()).isEqualTo(ShelfType.GAME);
 
-        verify(shelfRepository, times(1)).save(any());
-        verify(userProfileRepository, times(1)).save(any());
+        verify(shelfTransactionRepository, times(1)).updateShelf(mockedUser, mockedShelf);
+    }
+
+    @Test
+    void updateShelf_shouldRetryWhenProfileWasConcurrentlyModified() {
+        String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedShelfId = "428ddf23-2682-4d44-a5ec-052c0bb6d620";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.GAME, List.of(), null);
+
+        when(userProfileService.getUserProfile(mockedUserId)).thenAnswer(invocation ->
+                new UserProfile(mockedUserId, "Ann", new ArrayList<>(), 1L));
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+        doThrow(new OptimisticLockingException("Version mismatch"))
+                .doNothing()
+                .when(shelfTransactionRepository).updateShelf(any(), any());
+
+        PrefetchedShelf changes = new PrefetchedShelf(null, "Sci-fi movies", ShelfType.GAME);
+        shelfService.updateShelf(mockedUserId, mockedShelfId, changes, VersionPrecondition.NONE);
+
+        verify(userProfileService, times(2)).getUserProfile(mockedUserId);
+        verify(shelfTransactionRepository, times(2)).updateShelf(any(), any());
+        verify(userProfileCache, times(1)).invalidate(mockedUserId);
+        verify(userProfileCache, times(1)).put(any());
+    }
+
+    @Test
+    void updateShelf_shouldReadShelfAgainAfterConflictWithinTheSameRequest() {
+        String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedShelfId = "428ddf23-2682-4d44-a5ec-052c0bb6d620";
+
+        when(userProfileService.getUserProfile(mockedUserId)).thenAnswer(invocation ->
+                new UserProfile(mockedUserId, "Ann", new ArrayList<>(), 1L));
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenAnswer(invocation ->
+                Optional.of(new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.GAME, List.of(), 1L)));
+        doThrow(new OptimisticLockingException("Version mismatch"))
+                .doNothing()
+                .when(shelfTransactionRepository).updateShelf(any(), any());
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        try {
+            shelfService.updateShelf(mockedUserId, mockedShelfId, new PrefetchedShelf(null, "Sci-fi movies", ShelfType.GAME),
+                    VersionPrecondition.NONE);
+            Shelf shelf = shelfService.getShelfMetadata(mockedUserId, mockedShelfId);
+            assertThat(shelf.getShelfName()).isEqualTo("Sci-fi movies");
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        verify(shelfMetadataRepository, times(2)).findMetadataById(mockedShelfId);
+    }
+
+    @Test
+    void updateShelf_shouldGiveUpAfterTooManyConflicts() {
+        String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedShelfId = "428ddf23-2682-4d44-a5ec-052c0bb6d620";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.GAME, List.of(), null);
+
+        when(userProfileService.getUserProfile(mockedUserId)).thenAnswer(invocation ->
+                new UserProfile(mockedUserId, "Ann", new ArrayList<>(), 1L));
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+        doThrow(new OptimisticLockingException("Version mismatch"))
+                .when(shelfTransactionRepository).updateShelf(any(), any());
+
+        PrefetchedShelf changes = new PrefetchedShelf(null, "Sci-fi movies", ShelfType.GAME);
+        assertThatThrownBy(() -> shelfService.updateShelf(mockedUserId, mockedShelfId, changes, VersionPrecondition.NONE))
+                .isInstanceOf(OptimisticLockingException.class);
+        verify(shelfTransactionRepository, times(3)).updateShelf(any(), any());
+    }
+
+    @Test
+    void updateShelf_shouldRejectWriteBasedOnOutdatedVersion() {
+        String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedShelfId = "428ddf23-2682-4d44-a5ec-052c0bb6d620";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Games", mockedUserId, ShelfType.GAME, List.of(), 2L);
+
+        when(userProfileService.getUserProfile(mockedUserId)).thenReturn(
+                new UserProfile(mockedUserId, "Ann", new ArrayList<>(), 1L));
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+
+        PrefetchedShelf changes = new PrefetchedShelf(null, "Sci-fi movies", ShelfType.GAME);
+        assertThatThrownBy(() -> shelfService.updateShelf(mockedUserId, mockedShelfId, changes, VersionPrecondition.ifMatch("\"1\"")))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(shelfTransactionRepository, never()).updateShelf(any(), any());
+    }
+
+    @Test
+    void deleteShelf_shouldDeleteWhenPreconditionMatchesCurrentVersion() {
+        String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedShelfId = "64e9e6e8-3950-4581-8d44-402e1c9e6064";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.MOVIE, List.of(), 3L);
+        UserProfile mockedUserProfile = new UserProfile(mockedUserId, "James", new ArrayList<>(), null);
+
+        when(shelfMetadataRepository.findMetadataById(mockedShelfId)).thenReturn(Optional.of(mockedShelf));
+        when(userProfileService.getUserProfile(mockedUserId)).thenReturn(mockedUserProfile);
+        shelfService.deleteShelf(mockedUserId, mockedShelfId, VersionPrecondition.ifMatch("\"2\", \"3\""));
+
+        verify(shelfTransactionRepository, times(1)).deleteShelf(mockedUserProfile, mockedShelf);
+    }
+
+    @Test
+    void markShelfModified_shouldIncrementVersionAndForgetReadShelf() {
+        String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedShelfId = "64e9e6e8-3950-4581-8d44-402e1c9e6064";
+
+        shelfService.markShelfModified(mockedUserId, mockedShelfId);
+
+        verify(shelfMetadataRepository, times(1)).incrementVersion(mockedShelfId);
+        verify(requestIdentityMap, times(1)).evict(Shelf.class, mockedShelfId);
+    }
+
+    @Test
+    void claimShelfVersion_shouldRejectWriteWhenShelfWasModifiedAfterCheck() {
+        String mockedUserId = "38860c35-637c-4d10-9aad-fc1353ee3aa0";
+        String mockedShelfId = "64e9e6e8-3950-4581-8d44-402e1c9e6064";
+        Shelf mockedShelf = new Shelf(mockedShelfId, "Movies", mockedUserId, ShelfType.MOVIE, null, 3L);
+        doThrow(new OptimisticLockingException("Version mismatch"))
+                .when(shelfMetadataRepository).incrementVersion(mockedShelfId, 3L);
+
+        assertThatThrownBy(() -> shelfService.claimShelfVersion(mockedUserId, mockedShelf))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(requestIdentityMap, times(1)).evict(Shelf.class, mockedShelfId);
     }
 
     private List<PrefetchedShelf> createShelves(int n) {
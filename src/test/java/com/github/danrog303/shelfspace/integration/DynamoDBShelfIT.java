@@ -2,6 +2,7 @@ package com.github.danrog303.shelfspace.integration;
 
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
 import com.github.danrog303.shelfspace.data.shelf.*;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -9,9 +10,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 
 /**
@@ -21,19 +26,17 @@ import static org.assertj.core.api.Assertions.assertThat;
 @SpringBootTest
 public class DynamoDBShelfIT {
     private @Autowired ShelfRepository shelfRepo;
+    private @Autowired ShelfMetadataRepository shelfMetadataRepo;
+    private @Autowired ShelfTransactionRepository shelfTransactionRepo;
     private @Autowired DynamoDBMapper dynamoDBMapper;
 
     private Shelf createExampleShelf() {
-        List<ShelfItem> shelfItems = new ArrayList<>();
+        // Items are not persisted in the shelves table, see DynamoDBShelfItemIT
         Shelf shelf = new Shelf();
         shelf.setShelfId(UUID.randomUUID().toString());
         shelf.setOwnerId(UUID.randomUUID().toString());
         shelf.setShelfType(ShelfType.MOVIE);
         shelf.setShelfName("Movies");
-        shelf.setItems(shelfItems);
-
-        shelfItems.add(new ShelfItem(UUID.randomUUID().toString(), "AB", new Date(), ShelfItemStatus.FINISHED, 10, 1));
-        shelfItems.add(new ShelfItem(UUID.randomUUID().toString(), "BA", new Date(), ShelfItemStatus.STALLED, null, null));
         return shelf;
     }
 
@@ -67,4 +70,114 @@ public class DynamoDBShelfIT {
         assertThat(fetchedshelf).isNull();
     }
 
+    @Test
+    public void shelf_checkIfMetadataFetchingIsSuccessful() {
+        Shelf exampleShelf = createExampleShelf();
+        shelfRepo.save(exampleShelf);
+
+        Shelf fetchedShelf = shelfMetadataRepo.findMetadataById(exampleShelf.getShelfId()).orElseThrow();
+        assertThat(fetchedShelf).isEqualTo(exampleShelf);
+        assertThat(shelfMetadataRepo.findMetadataById(UUID.randomUUID().toString())).isEmpty();
+        dynamoDBMapper.delete(fetchedShelf);
+    }
+
+    @Test
+    public void shelf_checkIfVersionIncrementIsSuccessful() {
+        Shelf exampleShelf = createExampleShelf();
+        shelfRepo.save(exampleShelf);
+
+        shelfMetadataRepo.incrementVersion(exampleShelf.getShelfId());
+        Shelf fetchedShelf = shelfMetadataRepo.findMetadataById(exampleShelf.getShelfId()).orElseThrow();
+        assertThat(fetchedShelf.getVersion()).isEqualTo(exampleShelf.getVersion() + 1);
+        assertThat(fetchedShelf.getShelfName()).isEqualTo(exampleShelf.getShelfName());
+
+        // Missing shelves are not created by the increment
+        String missingShelfId = UUID.randomUUID().toString();
+        shelfMetadataRepo.incrementVersion(missingShelfId);
+        assertThat(shelfMetadataRepo.findMetadataById(missingShelfId)).isEmpty();
+        dynamoDBMapper.delete(fetchedShelf);
+    }
+
+    @Test
+    public void shelf_checkIfExpectedVersionIncrementRejectsOutdatedVersion() {
+        Shelf exampleShelf = createExampleShelf();
+        shelfRepo.save(exampleShelf);
+
+        shelfMetadataRepo.incrementVersion(exampleShelf.getShelfId(), exampleShelf.getVersion());
+        assertThatThrownBy(() -> shelfMetadataRepo.incrementVersion(exampleShelf.getShelfId(), exampleShelf.getVersion()))
+                .isInstanceOf(OptimisticLockingException.class);
+        assertThatThrownBy(() -> shelfMetadataRepo.incrementVersion(UUID.randomUUID().toString(), 1L))
+                .isInstanceOf(OptimisticLockingException.class);
+
+        Shelf fetchedShelf = shelfMetadataRepo.findMetadataById(exampleShelf.getShelfId()).orElseThrow();
+        assertThat(fetchedShelf.getVersion()).isEqualTo(exampleShelf.getVersion() + 1);
+        dynamoDBMapper.delete(fetchedShelf);
+    }
+
+    @Test
+    public void shelf_checkIfItemTransactionsAreConditionalOnShelfVersion() {
+        Shelf exampleShelf = createExampleShelf();
+        shelfRepo.save(exampleShelf);
+        Shelf staleShelf = shelfMetadataRepo.findMetadataById(exampleShelf.getShelfId()).orElseThrow();
+
+        ShelfItem item = new ShelfItem(exampleShelf.getShelfId(), UUID.randomUUID().toString(), "Alien", new Date(),
+                ShelfItemStatus.PLANNED, null, null);
+        shelfTransactionRepo.createShelfItem(exampleShelf, item, true);
+        assertThat(exampleShelf.getVersion()).isEqualTo(staleShelf.getVersion() + 1);
+
+        // Another write based on the same version of the shelf is rejected
+        item.setTitle("Aliens");
+        assertThatThrownBy(() -> shelfTransactionRepo.updateShelfItem(staleShelf, item, true))
+                .isInstanceOf(OptimisticLockingException.class);
+        assertThat(shelfTransactionRepo.updateShelfItem(exampleShelf, item, true)).isTrue();
+        assertThat(dynamoDBMapper.load(ShelfItem.class, item.getShelfId(), item.getItemId()).getTitle()).isEqualTo("Aliens");
+
+        // A write which does not check the version increments it whatever its value
+        item.setTitle("Aliens 3");
+        assertThat(shelfTransactionRepo.updateShelfItem(staleShelf, item, false)).isTrue();
+        assertThat(dynamoDBMapper.load(ShelfItem.class, item.getShelfId(), item.getItemId()).getTitle()).isEqualTo("Aliens 3");
+        assertThat(shelfMetadataRepo.findMetadataById(exampleShelf.getShelfId()).orElseThrow().getVersion())
+                .isEqualTo(exampleShelf.getVersion() + 1);
+        assertThat(shelfTransactionRepo.deleteShelfItem(staleShelf, item.getItemId(), false)).isTrue();
+        assertThat(shelfTransactionRepo.deleteShelfItem(staleShelf, item.getItemId(), false)).isFalse();
+        assertThat(dynamoDBMapper.load(ShelfItem.class, item.getShelfId(), item.getItemId())).isNull();
+        Shelf fetchedShelf = shelfMetadataRepo.findMetadataById(exampleShelf.getShelfId()).orElseThrow();
+        assertThat(fetchedShelf.getVersion()).isEqualTo(exampleShelf.getVersion() + 2);
+        dynamoDBMapper.delete(fetchedShelf);
+    }
+
+    @Test
+    public void shelf_checkIfBatchItemUpdatesAreConditionalOnReadItems() {
+        String shelfId = UUID.randomUUID().toString();
+        List<ShelfItem> readItems = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            readItems.add(new ShelfItem(shelfId, String.format("item-%03d", i), "Item " + i, new Date(),
+                    ShelfItemStatus.PLANNED, null, null));
+        }
+        dynamoDBMapper.batchSave(readItems);
+        Map<String, ShelfItem> readItemsById = readItems.stream()
+                .collect(Collectors.toMap(ShelfItem::getItemId, Function.identity()));
+
+        // One item is modified and another one deleted after the items were read
+        ShelfItem concurrentlyModifiedItem = readItems.get(10);
+        ShelfItem concurrentlyDeletedItem = readItems.get(110);
+        dynamoDBMapper.save(new ShelfItem(shelfId, concurrentlyModifiedItem.getItemId(), "Modified",
+                concurrentlyModifiedItem.getCreationDate(), ShelfItemStatus.DROPPED, null, null));
+        dynamoDBMapper.delete(concurrentlyDeletedItem);
+
+        List<ShelfItem> modifiedItems = readItems.stream()
+                .map(item -> new ShelfItem(shelfId, item.getItemId(), item.getTitle(), item.getCreationDate(),
+                        ShelfItemStatus.FINISHED, 7, 1))
+                .collect(Collectors.toList());
+        List<ShelfItem> unwrittenItems = shelfTransactionRepo.updateShelfItems(modifiedItems, readItemsById);
+
+        assertThat(unwrittenItems).extracting(ShelfItem::getItemId)
+                .containsExactly(concurrentlyModifiedItem.getItemId(), concurrentlyDeletedItem.getItemId());
+        assertThat(dynamoDBMapper.load(ShelfItem.class, shelfId, concurrentlyModifiedItem.getItemId()).getTitle())
+                .isEqualTo("Modified");
+        assertThat(dynamoDBMapper.load(ShelfItem.class, shelfId, concurrentlyDeletedItem.getItemId())).isNull();
+        assertThat(dynamoDBMapper.load(ShelfItem.class, shelfId, readItems.get(105).getItemId()).getStatus())
+                .isEqualTo(ShelfItemStatus.FINISHED);
+        dynamoDBMapper.batchDelete(readItems);
+    }
 }
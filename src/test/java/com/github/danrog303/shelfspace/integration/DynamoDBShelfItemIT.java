@@ -0,0 +1,131 @@
+package com.github.danrog303.shelfspace.integration;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemOrder;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemPage;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemRepository;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * This test ensures that integration between the application, DynamoDBMapper and {@link ShelfItemRepository}
+ * works correctly in the {@link ShelfItem} model context.
+ */
+@SpringBootTest
+public class DynamoDBShelfItemIT {
+    private @Autowired ShelfItemRepository shelfItemRepo;
+    private @Autowired DynamoDBMapper dynamoDBMapper;
+
+    private ShelfItem createExampleShelfItem(String shelfId) {
+        return new ShelfItem(shelfId, UUID.randomUUID().toString(), "Dune", new Date(), ShelfItemStatus.FINISHED, 10, 1);
+    }
+
+    @Test
+    public void shelfItem_checkIfItemCreationIsSuccessful() {
+        ShelfItem exampleItem = createExampleShelfItem(UUID.randomUUID().toString());
+        shelfItemRepo.save(exampleItem);
+
+        ShelfItem fetchedItem = dynamoDBMapper.load(ShelfItem.class, exampleItem.getShelfId(), exampleItem.getItemId());
+        assertThat(fetchedItem).isEqualTo(exampleItem);
+        dynamoDBMapper.delete(fetchedItem);
+    }
+
+    @Test
+    public void shelfItem_checkIfItemFetchingIsSuccessful() {
+        String shelfId = UUID.randomUUID().toString();
+        ShelfItem exampleItem1 = createExampleShelfItem(shelfId);
+        ShelfItem exampleItem2 = createExampleShelfItem(shelfId);
+        dynamoDBMapper.batchSave(exampleItem1, exampleItem2);
+
+        List<ShelfItem> fetchedItems = shelfItemRepo.findAllByShelfId(shelfId);
+        assertThat(fetchedItems).containsExactlyInAnyOrder(exampleItem1, exampleItem2);
+        assertThat(shelfItemRepo.countByShelfId(shelfId)).isEqualTo(2);
+        dynamoDBMapper.batchDelete(exampleItem1, exampleItem2);
+    }
+
+    @Test
+    public void shelfItem_checkIfPartialUpdateIsSuccessful() {
+        ShelfItem exampleItem = createExampleShelfItem(UUID.randomUUID().toString());
+        dynamoDBMapper.save(exampleItem);
+
+        ShelfItem changes = new ShelfItem(exampleItem.getShelfId(), exampleItem.getItemId(), "Dune Messiah",
+                null, ShelfItemStatus.PLANNED, null, null);
+        ShelfItem updatedItem = shelfItemRepo.update(changes).orElseThrow();
+
+        assertThat(updatedItem.getTitle()).isEqualTo("Dune Messiah");
+        assertThat(updatedItem.getRating()).isNull();
+        assertThat(updatedItem.getCreationDate()).isEqualTo(exampleItem.getCreationDate());
+        dynamoDBMapper.delete(updatedItem);
+    }
+
+    @Test
+    public void shelfItem_checkIfUpdateOfMissingItemIsRejected() {
+        ShelfItem changes = createExampleShelfItem(UUID.randomUUID().toString());
+        assertThat(shelfItemRepo.update(changes)).isEmpty();
+        assertThat(shelfItemRepo.findById(changes.getShelfId(), changes.getItemId())).isEmpty();
+    }
+
+    @Test
+    public void shelfItem_checkIfItemDeleteIsSuccessful() {
+        ShelfItem exampleItem = createExampleShelfItem(UUID.randomUUID().toString());
+        dynamoDBMapper.save(exampleItem);
+
+        assertThat(shelfItemRepo.deleteById(exampleItem.getShelfId(), exampleItem.getItemId())).contains(exampleItem);
+        assertThat(shelfItemRepo.deleteById(exampleItem.getShelfId(), exampleItem.getItemId())).isEmpty();
+    }
+
+    @Test
+    public void shelfItem_checkIfBatchDeleteRemovesOnlySpecifiedItems() {
+        String shelfId = UUID.randomUUID().toString();
+        ShelfItem deletedItem = createExampleShelfItem(shelfId);
+        ShelfItem remainingItem = createExampleShelfItem(shelfId);
+        dynamoDBMapper.batchSave(deletedItem, remainingItem);
+
+        shelfItemRepo.deleteAll(List.of(deletedItem));
+        assertThat(shelfItemRepo.findAllByShelfId(shelfId)).containsExactly(remainingItem);
+        shelfItemRepo.deleteAllByShelfId(shelfId);
+    }
+
+    @Test
+    public void shelfItem_checkIfShelfDeleteIsSuccessful() {
+        String shelfId = UUID.randomUUID().toString();
+        dynamoDBMapper.batchSave(createExampleShelfItem(shelfId), createExampleShelfItem(shelfId));
+
+        shelfItemRepo.deleteAllByShelfId(shelfId);
+        assertThat(shelfItemRepo.findAllByShelfId(shelfId)).isEmpty();
+    }
+
+    @Test
+    public void shelfItem_checkIfPaginationReturnsEveryItemOnce() {
+        String shelfId = UUID.randomUUID().toString();
+        List<ShelfItem> exampleItems = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            exampleItems.add(createExampleShelfItem(shelfId));
+        }
+        dynamoDBMapper.batchSave(exampleItems);
+
+        for (ShelfItemOrder order : ShelfItemOrder.values()) {
+            List<ShelfItem> fetchedItems = new ArrayList<>();
+            String cursor = null;
+            do {
+                ShelfItemPage page = shelfItemRepo.findPageByShelfId(shelfId, order, 2, cursor);
+                assertThat(page.getItems()).hasSizeLessThanOrEqualTo(2);
+                fetchedItems.addAll(page.getItems());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+
+            assertThat(fetchedItems).containsExactlyInAnyOrderElementsOf(exampleItems);
+        }
+        dynamoDBMapper.batchDelete(exampleItems);
+    }
+}
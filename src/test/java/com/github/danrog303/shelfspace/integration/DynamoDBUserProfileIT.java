@@ -25,7 +25,7 @@ public class DynamoDBUserProfileIT {
     private UserProfile createExampleUserProfile(String shelfName1, String shelfName2) {
         PrefetchedShelf shelf1 = new PrefetchedShelf(UUID.randomUUID().toString(), shelfName1, ShelfType.BOOK);
         PrefetchedShelf shelf2 = new PrefetchedShelf(UUID.randomUUID().toString(), shelfName2, ShelfType.GAME);
-        return new UserProfile(UUID.randomUUID().toString(), "Some user", List.of(shelf1, shelf2));
+        return new UserProfile(UUID.randomUUID().toString(), "Some user", List.of(shelf1, shelf2), null);
     }
 
     @Test
@@ -0,0 +1,91 @@
+package com.github.danrog303.shelfspace.integration;
+
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.profile.UserProfileRepository;
+import com.github.danrog303.shelfspace.data.shelf.*;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * This test ensures that the persistence layer based on DynamoDB Enhanced Client implements
+ * the repository contracts in the same way as the default one.
+ */
+@SpringBootTest(properties="shelfspace.persistence=enhanced")
+public class EnhancedPersistenceIT {
+    private @Autowired UserProfileRepository userProfileRepo;
+    private @Autowired ShelfRepository shelfRepo;
+    private @Autowired ShelfMetadataRepository shelfMetadataRepo;
+    private @Autowired ShelfItemRepository shelfItemRepo;
+
+    @Test
+    public void userProfile_checkIfVersionedWritesAreSuccessful() {
+        PrefetchedShelf shelf = new PrefetchedShelf(UUID.randomUUID().toString(), "Books", ShelfType.BOOK);
+        UserProfile profile = new UserProfile(UUID.randomUUID().toString(), "Some user", List.of(shelf), null);
+        userProfileRepo.save(profile);
+        assertThat(profile.getVersion()).isEqualTo(1L);
+        assertThat(userProfileRepo.findById(profile.getUserId())).contains(profile);
+
+        UserProfile outdatedProfile = new UserProfile(profile.getUserId(), "Other user", List.of(), null);
+        assertThatThrownBy(() -> userProfileRepo.save(outdatedProfile)).isInstanceOf(OptimisticLockingException.class);
+
+        userProfileRepo.delete(profile);
+        assertThat(userProfileRepo.findById(profile.getUserId())).isEmpty();
+    }
+
+    @Test
+    public void shelf_checkIfMetadataFetchingIsSuccessful() {
+        Shelf shelf = new Shelf(UUID.randomUUID().toString(), "Movies", UUID.randomUUID().toString(), ShelfType.MOVIE, null, null);
+        shelfRepo.save(shelf);
+
+        assertThat(shelfMetadataRepo.findMetadataById(shelf.getShelfId())).contains(shelf);
+        shelfRepo.deleteAll(List.of(shelf));
+        assertThat(shelfMetadataRepo.findMetadataById(shelf.getShelfId())).isEmpty();
+    }
+
+    @Test
+    public void shelf_checkIfVersionIncrementIsSuccessful() {
+        Shelf shelf = new Shelf(UUID.randomUUID().toString(), "Movies", UUID.randomUUID().toString(), ShelfType.MOVIE, null, null);
+        shelfRepo.save(shelf);
+
+        shelfMetadataRepo.incrementVersion(shelf.getShelfId());
+        assertThat(shelfMetadataRepo.findMetadataById(shelf.getShelfId()).orElseThrow().getVersion())
+                .isEqualTo(shelf.getVersion() + 1);
+        shelfRepo.deleteAll(List.of(shelf));
+
+        shelfMetadataRepo.incrementVersion(shelf.getShelfId());
+        assertThat(shelfMetadataRepo.findMetadataById(shelf.getShelfId())).isEmpty();
+    }
+
+    @Test
+    public void shelfItem_checkIfBatchOperationsAreSuccessful() {
+        String shelfId = UUID.randomUUID().toString();
+        List<ShelfItem> items = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            items.add(new ShelfItem(shelfId, UUID.randomUUID().toString(), "Dune " + i, new Date(), ShelfItemStatus.PLANNED, null, null));
+        }
+        shelfItemRepo.saveAll(items);
+        assertThat(shelfItemRepo.countByShelfId(shelfId)).isEqualTo(60);
+        assertThat(shelfItemRepo.findAllByShelfId(shelfId)).containsExactlyInAnyOrderElementsOf(items);
+
+        ShelfItemPage page = shelfItemRepo.findPageByShelfId(shelfId, ShelfItemOrder.CREATION_DATE, 10, null);
+        assertThat(page.getItems()).hasSize(10);
+        assertThat(page.getNextCursor()).isNotNull();
+
+        shelfItemRepo.deleteAll(items.subList(0, 30));
+        assertThat(shelfItemRepo.findAllByShelfId(shelfId)).containsExactlyInAnyOrderElementsOf(items.subList(30, 60));
+
+        shelfItemRepo.deleteAllByShelfId(shelfId);
+        assertThat(shelfItemRepo.countByShelfId(shelfId)).isZero();
+    }
+}
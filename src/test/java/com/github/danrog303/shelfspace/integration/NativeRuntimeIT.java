@@ -0,0 +1,60 @@
+package com.github.danrog303.shelfspace.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.runtime.LambdaRuntimeApiStub;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * This test drives the native executable built by the "native" profile (mvn -Pnative package) through a local
+ * imitation of the Lambda Runtime API, and ensures that a sample API Gateway event is handled end-to-end.
+ * The test is skipped when the executable was not built.
+ */
+@Slf4j
+public class NativeRuntimeIT {
+    private static final Path NATIVE_EXECUTABLE = Path.of("target", "shelf-space");
+
+    @Test
+    public void nativeExecutable_checkIfApiGatewayEventIsHandled() throws Exception {
+        assumeTrue(Files.isExecutable(NATIVE_EXECUTABLE), "Native executable was not built");
+
+        byte[] event;
+        try (InputStream input = getClass().getResourceAsStream("/events/get-shelves-unauthenticated.json")) {
+            event = input.readAllBytes();
+        }
+
+        try (LambdaRuntimeApiStub runtimeApi = new LambdaRuntimeApiStub()) {
+            ProcessBuilder processBuilder = new ProcessBuilder(NATIVE_EXECUTABLE.toAbsolutePath().toString())
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT);
+            processBuilder.environment().put("AWS_LAMBDA_RUNTIME_API", runtimeApi.getAddress());
+            processBuilder.environment().put("_HANDLER", "com.github.danrog303.shelfspace.ShelfSpaceAwsLambdaEntrypoint::handleRequest");
+
+            long start = System.nanoTime();
+            Process process = processBuilder.start();
+            try {
+                runtimeApi.enqueue("request-1", event);
+                LambdaRuntimeApiStub.Result result = runtimeApi.awaitResult("request-1", 30, TimeUnit.SECONDS);
+                log.info("First response of the native executable after {} ms", (System.nanoTime() - start) / 1_000_000);
+
+                assertThat(result).isNotNull();
+                assertThat(result.isError()).isFalse();
+                JsonNode response = new ObjectMapper().readTree(result.getBody());
+                assertThat(response.get("statusCode").asInt()).isEqualTo(401);
+                assertThat(response.get("body").asText()).contains("UNAUTHORIZED");
+            } finally {
+                process.destroy();
+                process.waitFor(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,353 @@
+package com.github.danrog303.shelfspace.routing;
+
+import com.amazonaws.serverless.proxy.model.AwsProxyRequest;
+import com.amazonaws.serverless.proxy.model.AwsProxyResponse;
+import com.amazonaws.serverless.proxy.model.Headers;
+import com.amazonaws.serverless.proxy.model.MultiValuedTreeMap;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfileController;
+import com.github.danrog303.shelfspace.data.shelf.*;
+import com.github.danrog303.shelfspace.errors.ErrorResponseAdvice;
+import com.github.danrog303.shelfspace.services.authorization.AuthorizationProvider;
+import com.github.danrog303.shelfspace.services.compression.ResponseCompression;
+import com.github.danrog303.shelfspace.services.conditional.PreconditionFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class FunctionalRequestRouterTest {
+    private @Mock JwtDecoder jwtDecoder;
+    private @Mock ShelfController shelfController;
+    private @Mock ShelfItemController shelfItemController;
+    private @Mock ShelfItemBatchController shelfItemBatchController;
+    private @Mock UserProfileController userProfileController;
+    private @Mock AuthorizationProvider authorizationProvider;
+    private @Mock ShelfService shelfService;
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private FunctionalRequestRouter router;
+
+    @BeforeEach
+    void createRouter() {
+        LocalValidatorFactoryBean validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        router = new FunctionalRequestRouter(jsonMapper, validator, new ErrorResponseAdvice(), jwtDecoder,
+                shelfController, shelfItemController, userProfileController, authorizationProvider, shelfService,
+                new ShelfJsonWriter(jsonMapper), new ResponseCompression(true, 2048, List.of("application/json")),
+                shelfItemBatchController);
+    }
+
+    @Test
+    void route_shouldCallControllerAsAuthenticatedUser() throws Exception {
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(shelfController.getUserPrefetchedShelves(null)).thenAnswer(invocation -> {
+            String userId = SecurityContextHolder.getContext().getAuthentication().getName();
+            return ResponseEntity.ok(List.of(new PrefetchedShelf("shelf", userId, ShelfType.BOOK)));
+        });
+
+        AwsProxyResponse response = router.route(createRequest("GET", "/shelves", "token", null));
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getBody()).contains("\"shelfId\":\"shelf\"", "\"shelfName\":\"abc\"");
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+    }
+
+    @Test
+    void route_shouldReturnUnauthorizedWithoutAccessToken() throws Exception {
+        AwsProxyResponse response = router.route(createRequest("GET", "/shelves", null, null));
+
+        assertThat(response.getStatusCode()).isEqualTo(401);
+        assertThat(response.getBody()).contains("UNAUTHORIZED");
+        verifyNoInteractions(shelfController);
+    }
+
+    @Test
+    void route_shouldReturnBadRequestWhenBodyIsInvalid() throws Exception {
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+
+        AwsProxyResponse response = router.route(createRequest("POST", "/shelves", "token",
+                "{\"shelfName\":\"a\",\"shelfType\":\"BOOK\"}"));
+
+        assertThat(response.getStatusCode()).isEqualTo(400);
+        assertThat(response.getBody()).contains("INVALID_DATA");
+        verify(shelfController, never()).createNewShelf(any());
+    }
+
+    @Test
+    void route_shouldConvertExceptionsWithErrorResponseAdvice() throws Exception {
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(authorizationProvider.getAuthenticatedUserId()).thenReturn("abc");
+        when(shelfService.getShelfMetadata("abc", "missing")).thenThrow(new NoSuchElementException());
+
+        AwsProxyResponse notFound = router.route(createRequest("GET", "/shelves/missing", "token", null));
+        AwsProxyResponse methodNotAllowed = router.route(createRequest("PATCH", "/shelves/missing", "token", null));
+        AwsProxyResponse invalidLimit = router.route(createRequest("GET", "/shelves/missing/items?limit=x", "token", null));
+
+        assertThat(notFound.getStatusCode()).isEqualTo(404);
+        assertThat(notFound.getBody()).contains("NOT_FOUND");
+        assertThat(methodNotAllowed.getStatusCode()).isEqualTo(405);
+        assertThat(invalidLimit.getStatusCode()).isEqualTo(400);
+        assertThat(invalidLimit.getBody()).contains("Invalid value of parameter limit");
+    }
+
+    @Test
+    void route_shouldReturnStreamedShelfAsRegularResponse() throws Exception {
+        Shelf shelf = createShelf();
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(authorizationProvider.getAuthenticatedUserId()).thenReturn("abc");
+        when(shelfService.getShelfMetadata("abc", "shelf")).thenReturn(shelf);
+        when(shelfService.iterateShelfItems("abc", "shelf")).thenReturn(shelf.getItems());
+
+        AwsProxyResponse response = router.route(createRequest("GET", "/shelves/shelf", "token", null));
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getMultiValueHeaders().getFirst("ETag")).isEqualTo("\"1\"");
+        assertThat(jsonMapper.readTree(response.getBody())).isEqualTo(jsonMapper.valueToTree(shelf));
+    }
+
+    @Test
+    void route_shouldCompressLargeResponsesWhenAccepted() throws Exception {
+        Shelf shelf = createShelf(200);
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(authorizationProvider.getAuthenticatedUserId()).thenReturn("abc");
+        when(shelfService.getShelfMetadata("abc", "shelf")).thenReturn(shelf);
+        when(shelfService.iterateShelfItems("abc", "shelf")).thenReturn(shelf.getItems());
+
+        AwsProxyRequest request = createRequest("GET", "/shelves/shelf", "token", null);
+        request.getMultiValueHeaders().putSingle("Accept-Encoding", "gzip, deflate, br");
+        AwsProxyResponse response = router.route(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.isBase64Encoded()).isTrue();
+        assertThat(response.getMultiValueHeaders().getFirst("Content-Encoding")).isEqualTo("gzip");
+        assertThat(response.getMultiValueHeaders().getFirst("ETag")).isEqualTo("\"1-gzip\"");
+        byte[] body = new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(response.getBody())))
+                .readAllBytes();
+        assertThat(jsonMapper.readTree(body)).isEqualTo(jsonMapper.valueToTree(shelf));
+    }
+
+    @Test
+    void streamResponse_shouldCompressStreamedBody() throws Exception {
+        Shelf shelf = createShelf();
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(authorizationProvider.getAuthenticatedUserId()).thenReturn("abc");
+        when(shelfService.getShelfMetadata("abc", "shelf")).thenReturn(shelf);
+        when(shelfService.iterateShelfItems("abc", "shelf")).thenReturn(shelf.getItems());
+
+        AwsProxyRequest request = createRequest("GET", "/shelves/shelf", "token", null);
+        request.getMultiValueHeaders().putSingle("Accept-Encoding", "gzip");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        router.streamResponse(request, output);
+
+        byte[] bytes = output.toByteArray();
+        int bodyStart = indexOfSeparator(bytes) + 8;
+        String prelude = new String(bytes, 0, bodyStart - 8, StandardCharsets.UTF_8);
+        assertThat(jsonMapper.readTree(prelude).get("headers").get("Content-Encoding").asText()).isEqualTo("gzip");
+        assertThat(jsonMapper.readTree(prelude).get("headers").get("ETag").asText()).isEqualTo("\"1-gzip\"");
+        byte[] body = new GZIPInputStream(new ByteArrayInputStream(bytes, bodyStart, bytes.length - bodyStart))
+                .readAllBytes();
+        assertThat(jsonMapper.readTree(body)).isEqualTo(jsonMapper.valueToTree(shelf));
+    }
+
+    @Test
+    void route_shouldAnswerNotModifiedWithoutReadingItems() throws Exception {
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(authorizationProvider.getAuthenticatedUserId()).thenReturn("abc");
+        when(shelfService.getShelfMetadata("abc", "shelf")).thenReturn(createShelf());
+
+        AwsProxyRequest request = createRequest("GET", "/shelves/shelf", "token", null);
+        request.getMultiValueHeaders().putSingle("If-None-Match", "\"1\"");
+        AwsProxyResponse response = router.route(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(304);
+        assertThat(response.getMultiValueHeaders().getFirst("ETag")).isEqualTo("\"1\"");
+        assertThat(response.getMultiValueHeaders().getFirst("Content-Type")).isNull();
+        assertThat(response.getBody()).isNull();
+        verify(shelfService, never()).iterateShelfItems(any(), any());
+    }
+
+    @Test
+    void route_shouldRouteBatchRequestsAndValidateTheirSize() throws Exception {
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(shelfItemBatchController.createShelfItems(eq("shelf"), any(), isNull())).thenAnswer(invocation -> {
+            ShelfItemBatchCreateRequest request = invocation.getArgument(1);
+            ShelfItem item = request.getItems().get(0);
+            return new ShelfItemBatchResponse(List.of(ShelfItemBatchResponse.Result.success(0, HttpStatus.CREATED, item)));
+        });
+
+        AwsProxyResponse created = router.route(createRequest("POST", "/shelves/shelf/items:batch", "token",
+                "{\"items\":[{\"title\":\"Dune\",\"status\":\"PLANNED\"}]}"));
+        AwsProxyResponse empty = router.route(createRequest("POST", "/shelves/shelf/items:batch", "token",
+                "{\"items\":[]}"));
+        router.route(createRequest("POST", "/shelves/shelf/items:batchDelete", "token", "{\"itemIds\":[\"item\"]}"));
+
+        assertThat(created.getStatusCode()).isEqualTo(200);
+        assertThat(created.getBody()).contains("\"index\":0", "\"status\":201", "\"title\":\"Dune\"");
+        assertThat(empty.getStatusCode()).isEqualTo(400);
+        verify(shelfItemBatchController, times(1)).createShelfItems(any(), any(), any());
+        verify(shelfItemBatchController).deleteShelfItems("shelf", new ShelfItemBatchDeleteRequest(List.of("item")), null);
+    }
+
+    @Test
+    void route_shouldPassIfMatchHeaderToController() throws Exception {
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(shelfItemController.deleteShelfItem("shelf", "item", "\"1\""))
+                .thenThrow(new PreconditionFailedException("Resource was modified since it was read by the client."));
+
+        AwsProxyRequest request = createRequest("DELETE", "/shelves/shelf/items/item", "token", null);
+        request.getMultiValueHeaders().putSingle("If-Match", "\"1\"");
+        AwsProxyResponse response = router.route(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(412);
+        assertThat(response.getBody()).contains("PRECONDITION_FAILED");
+    }
+
+    @Test
+    void streamResponse_shouldWritePreludeFollowedByBody() throws Exception {
+        Shelf shelf = createShelf();
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(authorizationProvider.getAuthenticatedUserId()).thenReturn("abc");
+        when(shelfService.getShelfMetadata("abc", "shelf")).thenReturn(shelf);
+        when(shelfService.iterateShelfItems("abc", "shelf")).thenReturn(shelf.getItems());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        router.streamResponse(createRequest("GET", "/shelves/shelf", "token", null), output);
+
+        String[] response = output.toString(StandardCharsets.UTF_8).split("\0{8}");
+        assertThat(jsonMapper.readTree(response[0]).get("statusCode").asInt()).isEqualTo(200);
+        assertThat(jsonMapper.readTree(response[1])).isEqualTo(jsonMapper.valueToTree(shelf));
+    }
+
+    @Test
+    void streamResponse_shouldWriteErrorsWhichHappenedBeforeTheResponseStarted() throws Exception {
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(authorizationProvider.getAuthenticatedUserId()).thenReturn("abc");
+        when(shelfService.getShelfMetadata("abc", "missing")).thenThrow(new NoSuchElementException());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        router.streamResponse(createRequest("GET", "/shelves/missing", "token", null), output);
+
+        String[] response = output.toString(StandardCharsets.UTF_8).split("\0{8}");
+        assertThat(jsonMapper.readTree(response[0]).get("statusCode").asInt()).isEqualTo(404);
+        assertThat(response[1]).contains("NOT_FOUND");
+    }
+
+    @Test
+    void route_shouldAnswerCorsPreflightWithoutAccessToken() throws Exception {
+        AwsProxyRequest request = createRequest("OPTIONS", "/shelves", null, null);
+        request.getMultiValueHeaders().putSingle("Origin", "http://localhost:4200");
+        request.getMultiValueHeaders().putSingle("Access-Control-Request-Method", "POST");
+
+        AwsProxyResponse response = router.route(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getMultiValueHeaders().getFirst("Access-Control-Allow-Origin"))
+                .isEqualTo("http://localhost:4200");
+        verifyNoInteractions(jwtDecoder);
+    }
+
+    @Test
+    void route_shouldExposeETagToCrossOriginRequests() throws Exception {
+        AwsProxyRequest request = createRequest("GET", "/shelves", null, null);
+        request.getMultiValueHeaders().putSingle("Origin", "http://localhost:4200");
+
+        AwsProxyResponse response = router.route(request);
+
+        assertThat(response.getMultiValueHeaders().getFirst("Access-Control-Expose-Headers")).isEqualTo("ETag");
+    }
+
+    @Test
+    void route_shouldKeepContentTypeOfExports() throws Exception {
+        when(jwtDecoder.decode("token")).thenReturn(createJwt("abc"));
+        when(userProfileController.exportUserData("abc", "csv")).thenReturn(ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .body(output -> output.write("shelfId\r\nshelf\r\n".getBytes(StandardCharsets.UTF_8))));
+
+        AwsProxyResponse response = router.route(createRequest("GET", "/users/abc/export?format=csv", "token", null));
+
+        assertThat(response.getStatusCode()).isEqualTo(200);
+        assertThat(response.getMultiValueHeaders().get("Content-Type")).containsExactly("text/csv;charset=UTF-8");
+        assertThat(response.getBody()).isEqualTo("shelfId\r\nshelf\r\n");
+    }
+
+    private AwsProxyRequest createRequest(String method, String pathAndQuery, String token, String body) {
+        AwsProxyRequest request = new AwsProxyRequest();
+        request.setHttpMethod(method);
+        request.setPath(pathAndQuery.split("\\?")[0]);
+        if (pathAndQuery.contains("?")) {
+            String[] parameter = pathAndQuery.split("\\?")[1].split("=");
+            request.setMultiValueQueryStringParameters(new MultiValuedTreeMap<>());
+            request.getMultiValueQueryStringParameters().putSingle(parameter[0], parameter[1]);
+        }
+
+        request.setMultiValueHeaders(new Headers());
+        if (token != null) {
+            request.getMultiValueHeaders().putSingle("Authorization", "Bearer " + token);
+        }
+        request.setBody(body);
+        return request;
+    }
+
+    private Shelf createShelf(int size) {
+        List<ShelfItem> items = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            items.add(new ShelfItem("shelf", "item-" + i, "Item " + i, new Date(), ShelfItemStatus.FINISHED, 8, 1));
+        }
+        return new Shelf("shelf", "Books", "abc", ShelfType.BOOK, items, 1L);
+    }
+
+    private static int indexOfSeparator(byte[] bytes) {
+        for (int i = 0; i + 8 <= bytes.length; i++) {
+            boolean separator = true;
+            for (int j = 0; j < 8 && separator; j++) {
+                separator = bytes[i + j] == 0;
+            }
+            if (separator) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Shelf createShelf() {
+        List<ShelfItem> items = List.of(
+                new ShelfItem("shelf", "item-1", "First", new Date(), ShelfItemStatus.FINISHED, 8, 1),
+                new ShelfItem("shelf", "item-2", "Second", new Date(), ShelfItemStatus.PLANNED, null, null));
+        return new Shelf("shelf", "Books", "abc", ShelfType.BOOK, items, 1L);
+    }
+
+    private Jwt createJwt(String userId) {
+        return Jwt.withTokenValue("token")
+                .header("alg", "RS256")
+                .subject(userId)
+                .issuedAt(Instant.now())
+                .expiresAt(Instant.now().plusSeconds(60))
+                .build();
+    }
+}
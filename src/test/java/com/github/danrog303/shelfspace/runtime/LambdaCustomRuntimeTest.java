@@ -0,0 +1,100 @@
+package com.github.danrog303.shelfspace.runtime;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LambdaCustomRuntimeTest {
+    private LambdaRuntimeApiStub runtimeApi;
+
+    @BeforeEach
+    public void startRuntimeApi() throws IOException {
+        runtimeApi = new LambdaRuntimeApiStub();
+    }
+
+    @AfterEach
+    public void stopRuntimeApi() {
+        runtimeApi.close();
+    }
+
+    @Test
+    public void processNextInvocation_shouldPostResponseOfTheHandler() throws Exception {
+        LambdaCustomRuntime runtime = new LambdaCustomRuntime(runtimeApi.getAddress(), (input, output, context) -> {
+            String event = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+            String response = event + " handled by " + context.getAwsRequestId()
+                    + (context.getRemainingTimeInMillis() > 0 ? " in time" : " too late");
+            output.write(response.getBytes(StandardCharsets.UTF_8));
+        }, Clock.systemUTC());
+
+        runtimeApi.enqueue("request-1", "event".getBytes(StandardCharsets.UTF_8));
+        runtime.processNextInvocation();
+
+        LambdaRuntimeApiStub.Result result = runtimeApi.awaitResult("request-1", 5, TimeUnit.SECONDS);
+        assertThat(result.isError()).isFalse();
+        assertThat(new String(result.getBody(), StandardCharsets.UTF_8)).isEqualTo("event handled by request-1 in time");
+    }
+
+    @Test
+    public void processNextInvocation_shouldPostErrorWhenHandlerFailed() throws Exception {
+        LambdaCustomRuntime runtime = new LambdaCustomRuntime(runtimeApi.getAddress(), (input, output, context) -> {
+            throw new IllegalStateException("Handler failed");
+        }, Clock.systemUTC());
+
+        runtimeApi.enqueue("request-1", "event".getBytes(StandardCharsets.UTF_8));
+        runtime.processNextInvocation();
+
+        LambdaRuntimeApiStub.Result result = runtimeApi.awaitResult("request-1", 5, TimeUnit.SECONDS);
+        JsonNode error = new ObjectMapper().readTree(result.getBody());
+        assertThat(result.isError()).isTrue();
+        assertThat(error.get("errorType").asText()).isEqualTo(IllegalStateException.class.getName());
+        assertThat(error.get("errorMessage").asText()).isEqualTo("Handler failed");
+    }
+
+    @Test
+    public void processNextInvocation_shouldStreamOutputOfStreamingHandler() throws Exception {
+        LambdaCustomRuntime runtime = new LambdaCustomRuntime(runtimeApi.getAddress(),
+                (ResponseStreamingHandler) (input, output, context) -> {
+                    OutputStream body = HttpResponseStream.from(output, 200, Map.of("Content-Type", "application/json"));
+                    body.write("[1,".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+
+                    // The rest of the response is produced only after the beginning was received
+                    try {
+                        assertThat(runtimeApi.awaitFirstBytes("request-1", 5, TimeUnit.SECONDS)).isTrue();
+                    } catch (InterruptedException e) {
+                        throw new InterruptedIOException();
+                    }
+                    body.write("2]".getBytes(StandardCharsets.UTF_8));
+                }, Clock.systemUTC());
+
+        runtimeApi.enqueue("request-1", "event".getBytes(StandardCharsets.UTF_8));
+        runtime.processNextInvocation();
+
+        LambdaRuntimeApiStub.Result result = runtimeApi.awaitResult("request-1", 5, TimeUnit.SECONDS);
+        String response = new String(result.getBody(), StandardCharsets.UTF_8);
+        assertThat(result.isStreamed()).isTrue();
+        assertThat(response).isEqualTo("{\"statusCode\":200,\"headers\":{\"Content-Type\":\"application/json\"}}"
+                + "\0\0\0\0\0\0\0\0[1,2]");
+    }
+
+    @Test
+    public void createHandler_shouldRejectUnknownHandler() {
+        assertThatThrownBy(() -> LambdaCustomRuntime.createHandler("ShelfSpaceAwsLambdaEntrypoint::unknown"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LambdaCustomRuntime.createHandler("ShelfSpaceAwsLambdaEntrypoint::handleStreamingRequest"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
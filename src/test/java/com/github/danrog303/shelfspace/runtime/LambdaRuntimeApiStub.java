@@ -0,0 +1,143 @@
+package com.github.danrog303.shelfspace.runtime;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local imitation of the Lambda Runtime API, which serves the enqueued events to {@link LambdaCustomRuntime}
+ * (or to the native executable) and records the reported results.
+ */
+public class LambdaRuntimeApiStub implements AutoCloseable {
+    private static final String PREFIX = "/2018-06-01/runtime";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final BlockingQueue<Invocation> pendingInvocations = new LinkedBlockingQueue<>();
+    private final Map<String, Result> results = new ConcurrentHashMap<>();
+    private final Map<String, CountDownLatch> resultLatches = new ConcurrentHashMap<>();
+    private final Map<String, CountDownLatch> firstBytesLatches = new ConcurrentHashMap<>();
+
+    public LambdaRuntimeApiStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext(PREFIX + "/invocation/next", this::handleNext);
+        server.createContext(PREFIX + "/invocation/", this::handleResult);
+        server.createContext(PREFIX + "/init/error", exchange -> {
+            recordResult(exchange, "init", true);
+        });
+        server.start();
+    }
+
+    /**
+     * Address passed to the runtime in the "AWS_LAMBDA_RUNTIME_API" environment variable.
+     */
+    public String getAddress() {
+        return "localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Makes the event available for the next "invocation/next" call.
+     */
+    public void enqueue(String requestId, byte[] event) {
+        resultLatches.put(requestId, new CountDownLatch(1));
+        pendingInvocations.add(new Invocation(requestId, event));
+    }
+
+    /**
+     * Waits until the runtime reports the result of the specified invocation ("init" for the initialization error).
+     */
+    public Result awaitResult(String requestId, long timeout, TimeUnit unit) throws InterruptedException {
+        resultLatches.computeIfAbsent(requestId, id -> new CountDownLatch(1)).await(timeout, unit);
+        return results.get(requestId);
+    }
+
+    /**
+     * Waits until the first bytes of the (streamed) response of the specified invocation are received.
+     * @return False if the timeout elapsed before that
+     */
+    public boolean awaitFirstBytes(String requestId, long timeout, TimeUnit unit) throws InterruptedException {
+        return firstBytesLatches.computeIfAbsent(requestId, id -> new CountDownLatch(1)).await(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        // Interrupts the "invocation/next" calls waiting for an event
+        executor.shutdownNow();
+    }
+
+    private void handleNext(HttpExchange exchange) throws IOException {
+        Invocation invocation;
+        try {
+            invocation = pendingInvocations.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        exchange.getResponseHeaders().add("Lambda-Runtime-Aws-Request-Id", invocation.requestId);
+        exchange.getResponseHeaders().add("Lambda-Runtime-Deadline-Ms", String.valueOf(System.currentTimeMillis() + 30_000));
+        exchange.getResponseHeaders().add("Lambda-Runtime-Invoked-Function-Arn", "arn:aws:lambda:eu-central-1:000000000000:function:shelf-space-lambda");
+        exchange.sendResponseHeaders(200, invocation.event.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(invocation.event);
+        }
+    }
+
+    private void handleResult(HttpExchange exchange) throws IOException {
+        // Path: /invocation/{requestId}/response or /invocation/{requestId}/error
+        String[] segments = exchange.getRequestURI().getPath().substring(PREFIX.length()).split("/");
+        recordResult(exchange, segments[2], segments[3].equals("error"));
+    }
+
+    private void recordResult(HttpExchange exchange, String requestId, boolean error) throws IOException {
+        InputStream input = exchange.getRequestBody();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        int firstByte = input.read();
+        if (firstByte != -1) {
+            body.write(firstByte);
+            firstBytesLatches.computeIfAbsent(requestId, id -> new CountDownLatch(1)).countDown();
+        }
+        input.transferTo(body);
+
+        String responseMode = exchange.getRequestHeaders().getFirst("Lambda-Runtime-Function-Response-Mode");
+        results.put(requestId, new Result(body.toByteArray(), error, "streaming".equals(responseMode)));
+        exchange.sendResponseHeaders(202, -1);
+        exchange.close();
+        resultLatches.computeIfAbsent(requestId, id -> new CountDownLatch(1)).countDown();
+    }
+
+    @AllArgsConstructor
+    private static class Invocation {
+        private final String requestId;
+        private final byte[] event;
+    }
+
+    /**
+     * Response or error reported by the runtime.
+     */
+    @Getter @AllArgsConstructor
+    public static class Result {
+        private final byte[] body;
+        private final boolean error;
+        private final boolean streamed;
+    }
+}
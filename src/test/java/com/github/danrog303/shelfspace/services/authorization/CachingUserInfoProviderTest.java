@@ -0,0 +1,92 @@
+package com.github.danrog303.shelfspace.services.authorization;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingUserInfoProviderTest {
+    private @Mock UserInfoProvider delegate;
+
+    private CachingUserInfoProvider createProvider() {
+        return new CachingUserInfoProvider(delegate, NoSuchElementException.class,
+                Duration.ofMinutes(5), Duration.ofSeconds(30), 100);
+    }
+
+    @Test
+    void getUserInfo_shouldCacheRetrievedUserInfo() {
+        when(delegate.getUserInfo("abc")).thenReturn(new UserInfo("abc", "Ann", "ann@example.com"));
+        CachingUserInfoProvider provider = createProvider();
+
+        assertThat(provider.getUserInfo("abc").getNickname()).isEqualTo("Ann");
+        assertThat(provider.getUserInfo("abc").getNickname()).isEqualTo("Ann");
+        verify(delegate, times(1)).getUserInfo("abc");
+    }
+
+    @Test
+    void getUserInfo_shouldCacheNotFoundFailures() {
+        when(delegate.getUserInfo("abc")).thenThrow(new NoSuchElementException("User does not exist."));
+        CachingUserInfoProvider provider = createProvider();
+
+        assertThatThrownBy(() -> provider.getUserInfo("abc")).isInstanceOf(NoSuchElementException.class);
+        assertThatThrownBy(() -> provider.getUserInfo("abc")).isInstanceOf(NoSuchElementException.class);
+        verify(delegate, times(1)).getUserInfo("abc");
+    }
+
+    @Test
+    void getUserInfo_shouldNotCacheOtherFailures() {
+        when(delegate.getUserInfo("abc"))
+                .thenThrow(new IllegalStateException("Rate exceeded"))
+                .thenReturn(new UserInfo("abc", "Ann", "ann@example.com"));
+        CachingUserInfoProvider provider = createProvider();
+
+        assertThatThrownBy(() -> provider.getUserInfo("abc")).isInstanceOf(IllegalStateException.class);
+        assertThat(provider.getUserInfo("abc").getNickname()).isEqualTo("Ann");
+        verify(delegate, times(2)).getUserInfo("abc");
+    }
+
+    @Test
+    void getUserInfo_shouldShareSingleCallBetweenConcurrentMisses() throws Exception {
+        CountDownLatch delegateCalled = new CountDownLatch(1);
+        CountDownLatch releaseDelegate = new CountDownLatch(1);
+        when(delegate.getUserInfo("abc")).thenAnswer(invocation -> {
+            delegateCalled.countDown();
+            releaseDelegate.await(5, TimeUnit.SECONDS);
+            return new UserInfo("abc", "Ann", "ann@example.com");
+        });
+        CachingUserInfoProvider provider = createProvider();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<UserInfo>> results = new ArrayList<>();
+            results.add(executor.submit(() -> provider.getUserInfo("abc")));
+            assertThat(delegateCalled.await(5, TimeUnit.SECONDS)).isTrue();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> provider.getUserInfo("abc")));
+            }
+            releaseDelegate.countDown();
+
+            for (Future<UserInfo> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS).getNickname()).isEqualTo("Ann");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(delegate, times(1)).getUserInfo("abc");
+    }
+}
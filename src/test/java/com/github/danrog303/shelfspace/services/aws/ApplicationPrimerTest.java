@@ -0,0 +1,70 @@
+package com.github.danrog303.shelfspace.services.aws;
+
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.danrog303.shelfspace.data.profile.UserProfileCache;
+import com.github.danrog303.shelfspace.data.profile.UserProfileService;
+import com.github.danrog303.shelfspace.services.database.OptimisticLockingRetrier;
+import com.github.danrog303.shelfspace.services.security.PrefetchingJwkSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ApplicationPrimerTest {
+    private @Mock ObjectProvider<DynamoDBMapper> dynamoDBMapper;
+    private @Mock PrefetchingJwkSource jwkSource;
+    private @Mock UserProfileService userProfileService;
+    private @Mock ResettableSdkHttpClient awsHttpClient;
+    private @Mock ObjectProvider<ResettableSdkAsyncHttpClient> dynamoDbAsyncHttpClient;
+    private @Mock OptimisticLockingRetrier optimisticLockingRetrier;
+
+    @Test
+    void primeBeforeCheckpoint_shouldNotLeaveSyntheticStateBehind() throws IOException {
+        UserProfileCache userProfileCache = new UserProfileCache(60, 100);
+        ApplicationPrimer primer = new ApplicationPrimer(new ObjectMapper(), dynamoDBMapper, jwkSource,
+                userProfileService, userProfileCache, awsHttpClient, dynamoDbAsyncHttpClient, optimisticLockingRetrier);
+        when(userProfileService.getUserProfile(ApplicationPrimer.SYNTHETIC_USER_ID)).thenAnswer(invocation ->
+                userProfileCache.get(ApplicationPrimer.SYNTHETIC_USER_ID).orElseThrow());
+
+        primer.primeBeforeCheckpoint();
+
+        verify(jwkSource, times(1)).refreshQuietly();
+        verify(userProfileService, times(1)).getUserProfile(ApplicationPrimer.SYNTHETIC_USER_ID);
+        assertThat(userProfileCache.get(ApplicationPrimer.SYNTHETIC_USER_ID)).isEmpty();
+        assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
+        verifyNoInteractions(awsHttpClient, dynamoDbAsyncHttpClient);
+    }
+
+    @Test
+    void resetAfterRestore_shouldRefreshKeysOfAuthenticationServer() {
+        ApplicationPrimer primer = new ApplicationPrimer(new ObjectMapper(), dynamoDBMapper, jwkSource,
+                userProfileService, new UserProfileCache(60, 100), awsHttpClient, dynamoDbAsyncHttpClient,
+                optimisticLockingRetrier);
+
+        primer.resetAfterRestore();
+
+        verify(jwkSource, times(1)).refreshQuietly();
+    }
+
+    @Test
+    void resetAfterRestore_shouldRecreateHttpClientsAndRandomDelays() {
+        ApplicationPrimer primer = new ApplicationPrimer(new ObjectMapper(), dynamoDBMapper, jwkSource,
+                userProfileService, new UserProfileCache(60, 100), awsHttpClient, dynamoDbAsyncHttpClient,
+                optimisticLockingRetrier);
+
+        primer.resetAfterRestore();
+
+        verify(awsHttpClient, times(1)).reset();
+        verify(dynamoDbAsyncHttpClient, times(1)).ifAvailable(any());
+        verify(optimisticLockingRetrier, times(1)).resetRandom();
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.danrog303.shelfspace.services.aws;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ResettableSdkHttpClientTest {
+    @Test
+    void reset_shouldCloseConnectionsOfPreviousClientAndSendRequestsWithNewOne() {
+        SdkHttpClient firstClient = mock(SdkHttpClient.class);
+        SdkHttpClient secondClient = mock(SdkHttpClient.class);
+        ExecutableHttpRequest preparedRequest = mock(ExecutableHttpRequest.class);
+        HttpExecuteRequest request = HttpExecuteRequest.builder().build();
+        when(secondClient.prepareRequest(request)).thenReturn(preparedRequest);
+        Queue<SdkHttpClient> clients = new ArrayDeque<>(List.of(firstClient, secondClient));
+        ResettableSdkHttpClient resettableClient = new ResettableSdkHttpClient(clients::remove);
+
+        resettableClient.reset();
+
+        verify(firstClient, times(1)).close();
+        assertThat(resettableClient.prepareRequest(request)).isSameAs(preparedRequest);
+        verify(firstClient, never()).prepareRequest(any());
+        verify(secondClient, never()).close();
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.danrog303.shelfspace.services.compression;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ContentCodingTest {
+    @Test
+    void negotiate_shouldChooseCodingByQuality() {
+        assertThat(ContentCoding.negotiate("gzip, deflate, br")).contains(ContentCoding.GZIP);
+        assertThat(ContentCoding.negotiate("gzip;q=0.5, deflate")).contains(ContentCoding.DEFLATE);
+        assertThat(ContentCoding.negotiate("br, *;q=0.1")).contains(ContentCoding.GZIP);
+        assertThat(ContentCoding.negotiate("X-GZIP")).contains(ContentCoding.GZIP);
+    }
+
+    @Test
+    void negotiate_shouldRefuseCodingsWhichAreNotAccepted() {
+        assertThat(ContentCoding.negotiate(null)).isEmpty();
+        assertThat(ContentCoding.negotiate("identity, br")).isEmpty();
+        assertThat(ContentCoding.negotiate("gzip;q=0, deflate;q=0")).isEmpty();
+        assertThat(ContentCoding.negotiate("*, gzip;q=0")).contains(ContentCoding.DEFLATE);
+    }
+
+    @Test
+    void encode_shouldProduceDecodableBodies() throws Exception {
+        byte[] body = "{\"status\":\"FINISHED\"}".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+        byte[] gzip = ContentCoding.GZIP.encode(body);
+        byte[] deflate = ContentCoding.DEFLATE.encode(body);
+
+        assertThat(gzip.length).isLessThan(body.length / 5);
+        assertThat(new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes()).isEqualTo(body);
+        assertThat(new InflaterInputStream(new ByteArrayInputStream(deflate)).readAllBytes()).isEqualTo(body);
+    }
+}
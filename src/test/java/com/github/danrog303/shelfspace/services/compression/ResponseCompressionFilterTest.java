@@ -0,0 +1,119 @@
+package com.github.danrog303.shelfspace.services.compression;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ResponseCompressionFilterTest {
+    private static final String LARGE_BODY = "{\"status\":\"FINISHED\"}".repeat(200);
+
+    private final ResponseCompressionFilter filter = new ResponseCompressionFilter(
+            new ResponseCompression(true, 2048, List.of("application/json", "text/html")));
+
+    @Test
+    void doFilter_shouldCompressLargeResponsesWhenAccepted() throws Exception {
+        MockHttpServletResponse response = send("gzip, deflate", "application/json", LARGE_BODY);
+
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        assertThat(response.getHeader("ETag")).isEqualTo("\"3-gzip\"");
+        assertThat(response.getHeader("Vary")).isEqualTo("Accept-Encoding");
+        assertThat(response.getHeader("Content-Length")).isNull();
+        byte[] body = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes();
+        assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo(LARGE_BODY);
+    }
+
+    @Test
+    void doFilter_shouldNotCompressSmallOrUnacceptedResponses() throws Exception {
+        MockHttpServletResponse small = send("gzip", "application/json", "{\"status\":\"FINISHED\"}");
+        MockHttpServletResponse unaccepted = send(null, "application/json", LARGE_BODY);
+        MockHttpServletResponse binary = send("gzip", "image/png", LARGE_BODY);
+
+        assertThat(small.getHeader("Content-Encoding")).isNull();
+        assertThat(small.getHeader("ETag")).isEqualTo("\"3\"");
+        assertThat(small.getContentAsString()).isEqualTo("{\"status\":\"FINISHED\"}");
+        assertThat(unaccepted.getHeader("Content-Encoding")).isNull();
+        assertThat(unaccepted.getHeader("Vary")).isEqualTo("Accept-Encoding");
+        assertThat(unaccepted.getContentAsString()).isEqualTo(LARGE_BODY);
+        assertThat(binary.getHeader("Content-Encoding")).isNull();
+    }
+
+    @Test
+    void doFilter_shouldCompressStreamedBodyWhileItIsWritten() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/users/user/export");
+        request.addHeader("Accept-Encoding", "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType("application/json");
+                resp.getOutputStream().write("{".getBytes(StandardCharsets.UTF_8));
+                // Flushes of the beginning of the body do not commit the response
+                resp.getOutputStream().flush();
+                assertThat(resp.isCommitted()).isFalse();
+
+                resp.getOutputStream().write(LARGE_BODY.getBytes(StandardCharsets.UTF_8));
+                resp.getOutputStream().flush();
+                assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+                assertThat(response.getContentAsByteArray()).isNotEmpty();
+            }
+        };
+
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+
+        byte[] body = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes();
+        assertThat(new String(body, StandardCharsets.UTF_8)).isEqualTo("{" + LARGE_BODY);
+    }
+
+    @Test
+    void doFilter_shouldKeepDeclaredContentLengthOfUncompressedResponses() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/docs/openapi");
+        request.addHeader("Accept-Encoding", "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                byte[] body = LARGE_BODY.getBytes(StandardCharsets.UTF_8);
+                resp.setContentType("image/png");
+                resp.setContentLength(body.length);
+                resp.getOutputStream().write(body);
+            }
+        };
+
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+
+        assertThat(response.getHeader("Content-Encoding")).isNull();
+        assertThat(response.getContentLength()).isEqualTo(LARGE_BODY.length());
+        assertThat(response.getContentAsString()).isEqualTo(LARGE_BODY);
+    }
+
+    private MockHttpServletResponse send(String acceptEncoding, String contentType, String body) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/shelves/shelf");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                resp.setContentType(contentType);
+                resp.setHeader("ETag", "\"3\"");
+                resp.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+}
@@ -0,0 +1,59 @@
+package com.github.danrog303.shelfspace.services.conditional;
+
+import com.github.danrog303.shelfspace.services.compression.ContentCoding;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class EntityTagsTest {
+    @Test
+    void conditionalGet_shouldNotProduceBodyWhenETagMatches() {
+        @SuppressWarnings("unchecked")
+        Supplier<String> body = mock(Supplier.class);
+
+        ResponseEntity<String> response = EntityTags.conditionalGet("W/\"2\", \"3\"", 3L, body);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(304);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"3\"");
+        assertThat(response.getBody()).isNull();
+        verifyNoInteractions(body);
+    }
+
+    @Test
+    void conditionalGet_shouldReturnBodyWithETagWhenModified() {
+        ResponseEntity<String> response = EntityTags.conditionalGet("\"2\"", 3L, () -> "shelf");
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"3\"");
+        assertThat(response.getBody()).isEqualTo("shelf");
+    }
+
+    @Test
+    void conditionalGet_shouldAnswerWithTagOfCachedCodingWhenItMatches() {
+        ResponseEntity<String> response = EntityTags.conditionalGet("\"2-gzip\", \"3-gzip\"", 3L, () -> "shelf");
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(304);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"3-gzip\"");
+    }
+
+    @Test
+    void withCoding_shouldSuffixOnlyStrongTags() {
+        assertThat(EntityTags.withCoding("\"3\"", ContentCoding.DEFLATE)).isEqualTo("\"3-deflate\"");
+        assertThat(EntityTags.withCoding("W/\"3\"", ContentCoding.GZIP)).isEqualTo("W/\"3\"");
+        assertThat(EntityTags.withCoding(null, ContentCoding.GZIP)).isNull();
+    }
+
+    @Test
+    void conditionalGet_shouldIgnoreMalformedHeaderAndMissingVersion() {
+        ResponseEntity<String> malformed = EntityTags.conditionalGet("3", 3L, () -> "shelf");
+        ResponseEntity<String> unversioned = EntityTags.conditionalGet("*", null, () -> "shelf");
+
+        assertThat(malformed.getStatusCodeValue()).isEqualTo(200);
+        assertThat(unversioned.getStatusCodeValue()).isEqualTo(200);
+        assertThat(unversioned.getHeaders().getETag()).isNull();
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.danrog303.shelfspace.services.conditional;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class VersionPreconditionTest {
+    @Test
+    void check_shouldAllowWritesWithoutPreconditionOrWithWildcard() {
+        assertThatCode(() -> VersionPrecondition.ifMatch(null).check(4L)).doesNotThrowAnyException();
+        assertThatCode(() -> VersionPrecondition.ifMatch("*").check(null)).doesNotThrowAnyException();
+        assertThatCode(() -> VersionPrecondition.ifMatch("\"3\", \"4\"").check(4L)).doesNotThrowAnyException();
+        assertThatCode(() -> VersionPrecondition.ifMatch("\"4-gzip\"").check(4L)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void check_shouldRejectOutdatedAndWeakEntityTags() {
+        assertThatThrownBy(() -> VersionPrecondition.ifMatch("\"3\"").check(4L))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> VersionPrecondition.ifMatch("W/\"4\"").check(4L))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> VersionPrecondition.ifMatch("\"3-deflate\"").check(4L))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> VersionPrecondition.ifMatch("\"1\"").check(null))
+                .isInstanceOf(PreconditionFailedException.class);
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.danrog303.shelfspace.services.database;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ParallelBatchWriterTest {
+    private final AmazonDynamoDB amazonDynamoDB = mock(AmazonDynamoDB.class);
+    private final ParallelBatchWriter parallelBatchWriter = new ParallelBatchWriter(new DynamoDBMapper(amazonDynamoDB), 2);
+
+    @AfterEach
+    public void shutdown() {
+        parallelBatchWriter.destroy();
+    }
+
+    @Test
+    public void saveAll_shouldReturnOnlyItemsOfFailedBatches() {
+        List<ShelfItem> items = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            items.add(new ShelfItem("shelf", String.format("item-%02d", i), "Item " + i, new Date(),
+                    ShelfItemStatus.PLANNED, null, null));
+        }
+
+        // The second batch (items 25-49) is rejected, the other batches are written
+        when(amazonDynamoDB.batchWriteItem(any(BatchWriteItemRequest.class))).thenAnswer(invocation -> {
+            BatchWriteItemRequest request = invocation.getArgument(0);
+            boolean containsRejectedItem = request.getRequestItems().values().stream()
+                    .flatMap(List::stream)
+                    .anyMatch(write -> write.getPutRequest().getItem().get("itemId").getS().equals("item-30"));
+            if (containsRejectedItem) {
+                throw new AmazonServiceException("Rejected");
+            }
+            return new BatchWriteItemResult().withUnprocessedItems(Map.of());
+        });
+
+        List<ShelfItem> unsavedItems = parallelBatchWriter.saveAll(items);
+
+        assertThat(unsavedItems).containsExactlyElementsOf(items.subList(25, 50));
+    }
+
+    @Test
+    public void deleteAll_shouldReturnNothingWhenAllBatchesWereWritten() {
+        List<ShelfItem> items = List.of(new ShelfItem("shelf", "item", "Item", new Date(), ShelfItemStatus.PLANNED, null, null));
+        when(amazonDynamoDB.batchWriteItem(any(BatchWriteItemRequest.class)))
+                .thenReturn(new BatchWriteItemResult().withUnprocessedItems(Map.of()));
+
+        assertThat(parallelBatchWriter.deleteAll(items)).isEmpty();
+    }
+}
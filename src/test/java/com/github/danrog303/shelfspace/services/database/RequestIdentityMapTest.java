@@ -0,0 +1,71 @@
+package com.github.danrog303.shelfspace.services.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestIdentityMapTest {
+    private final RequestIdentityMap requestIdentityMap = new RequestIdentityMap();
+
+    @AfterEach
+    public void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void find_shouldLoadEntityOnlyOncePerRequest() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<StringBuilder>> loader = () -> {
+            loads.incrementAndGet();
+            return Optional.of(new StringBuilder("abc"));
+        };
+
+        StringBuilder first = requestIdentityMap.find(StringBuilder.class, "abc", loader).orElseThrow();
+        StringBuilder second = requestIdentityMap.find(StringBuilder.class, "abc", loader).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        requestIdentityMap.evict(StringBuilder.class, "abc");
+        assertThat(requestIdentityMap.find(StringBuilder.class, "abc", loader).orElseThrow()).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void find_shouldNotRememberEntitiesBetweenRequests() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<StringBuilder>> loader = () -> {
+            loads.incrementAndGet();
+            return Optional.of(new StringBuilder("abc"));
+        };
+
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        requestIdentityMap.find(StringBuilder.class, "abc", loader);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        requestIdentityMap.find(StringBuilder.class, "abc", loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    public void find_shouldDelegateToLoaderOutsideRequest() {
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Optional<StringBuilder>> loader = () -> {
+            loads.incrementAndGet();
+            return Optional.of(new StringBuilder("abc"));
+        };
+
+        requestIdentityMap.find(StringBuilder.class, "abc", loader);
+        requestIdentityMap.find(StringBuilder.class, "abc", loader);
+        assertThat(loads).hasValue(2);
+    }
+}
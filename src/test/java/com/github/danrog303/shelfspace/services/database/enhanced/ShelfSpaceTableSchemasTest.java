@@ -0,0 +1,65 @@
+package com.github.danrog303.shelfspace.services.database.enhanced;
+
+import com.github.danrog303.shelfspace.data.profile.PrefetchedShelf;
+import com.github.danrog303.shelfspace.data.profile.UserProfile;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItem;
+import com.github.danrog303.shelfspace.data.shelf.ShelfItemStatus;
+import com.github.danrog303.shelfspace.data.shelf.ShelfType;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ensures that the static schemas use the same attribute format as DynamoDBMapper.
+ */
+public class ShelfSpaceTableSchemasTest {
+    @Test
+    public void shelfItem_shouldUseDynamoDBMapperFormat() {
+        Map<String, AttributeValue> mapperItem = Map.of(
+                "shelfId", s("35bb64a4-00a6-4ab1-ac29-27818490434a"),
+                "itemId", s("2e2b043c-e338-4b99-ab3e-2fc6279cce3a"),
+                "title", s("Dune"),
+                "creationDate", s("2023-03-01T10:15:30.123Z"),
+                "status", s("FINISHED"),
+                "rating", n("10"),
+                "finishedCount", n("2")
+        );
+        ShelfItem item = new ShelfItem("35bb64a4-00a6-4ab1-ac29-27818490434a", "2e2b043c-e338-4b99-ab3e-2fc6279cce3a",
+                "Dune", new Date(1677665730123L), ShelfItemStatus.FINISHED, 10, 2);
+
+        assertThat(ShelfSpaceTableSchemas.SHELF_ITEM.mapToItem(mapperItem)).isEqualTo(item);
+        assertThat(ShelfSpaceTableSchemas.SHELF_ITEM.itemToMap(item, true)).isEqualTo(mapperItem);
+    }
+
+    @Test
+    public void userProfile_shouldUseDynamoDBMapperFormat() {
+        Map<String, AttributeValue> mapperItem = Map.of(
+                "userId", s("4c4bd402-8094-4191-b1f9-f76388af3cbe"),
+                "nickname", s("Ann"),
+                "shelves", AttributeValue.builder().l(AttributeValue.builder().m(Map.of(
+                        "shelfId", s("35bb64a4-00a6-4ab1-ac29-27818490434a"),
+                        "shelfName", s("Movies"),
+                        "shelfType", s("MOVIE")
+                )).build()).build(),
+                "version", n("3")
+        );
+        PrefetchedShelf shelf = new PrefetchedShelf("35bb64a4-00a6-4ab1-ac29-27818490434a", "Movies", ShelfType.MOVIE);
+        UserProfile profile = new UserProfile("4c4bd402-8094-4191-b1f9-f76388af3cbe", "Ann", List.of(shelf), 3L);
+
+        assertThat(ShelfSpaceTableSchemas.USER_PROFILE.mapToItem(mapperItem)).isEqualTo(profile);
+        assertThat(ShelfSpaceTableSchemas.USER_PROFILE.itemToMap(profile, true)).isEqualTo(mapperItem);
+    }
+
+    private static AttributeValue s(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue n(String value) {
+        return AttributeValue.builder().n(value).build();
+    }
+}
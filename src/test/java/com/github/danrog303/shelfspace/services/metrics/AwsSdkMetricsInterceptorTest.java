@@ -0,0 +1,154 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.http.*;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AwsSdkMetricsInterceptorTest {
+    private SimpleMeterRegistry registry;
+    private StubHttpClient httpClient;
+    private DynamoDbClient dynamoDbClient;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        httpClient = new StubHttpClient();
+        dynamoDbClient = DynamoDbClient.builder()
+                .httpClient(httpClient)
+                .region(Region.EU_CENTRAL_1)
+                .endpointOverride(URI.create("http://localhost:8000"))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")))
+                .overrideConfiguration(config -> config
+                        .addExecutionInterceptor(new AwsSdkMetricsInterceptor(new AwsCallMetrics(registry))))
+                .build();
+    }
+
+    @Test
+    void getItem_shouldRecordLatencyPayloadAndConsumedCapacity() {
+        String responseBody = "{\"ConsumedCapacity\":{\"TableName\":\"shelf\",\"CapacityUnits\":0.5}}";
+        httpClient.respond(200, responseBody);
+
+        dynamoDbClient.getItem(request -> request.tableName("shelf").key(Map.of("shelfId", AttributeValue.fromS("abc"))));
+
+        assertThat(httpClient.lastRequestBody).contains("\"ReturnConsumedCapacity\":\"TOTAL\"");
+        assertThat(registry.get("shelfspace.aws.calls")
+                .tags("service", "DynamoDb", "operation", "GetItem", "table", "shelf", "exception", "none")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("shelfspace.dynamodb.consumed.capacity").tags("table", "shelf").summary().totalAmount())
+                .isEqualTo(0.5);
+        assertThat(registry.get("shelfspace.aws.request.size").summary().totalAmount())
+                .isEqualTo(httpClient.lastRequestBody.length());
+        assertThat(registry.get("shelfspace.aws.response.size").summary().totalAmount())
+                .isEqualTo(responseBody.length());
+    }
+
+    @Test
+    void getItem_shouldKeepRequestedConsumedCapacity() {
+        httpClient.respond(200, "{}");
+
+        dynamoDbClient.getItem(request -> request.tableName("shelf").key(Map.of("shelfId", AttributeValue.fromS("abc")))
+                .returnConsumedCapacity(ReturnConsumedCapacity.INDEXES));
+
+        assertThat(httpClient.lastRequestBody).contains("\"ReturnConsumedCapacity\":\"INDEXES\"");
+    }
+
+    @Test
+    void transactWriteItems_shouldRecordConsumedCapacityOfEveryTable() {
+        httpClient.respond(200, "{\"ConsumedCapacity\":[{\"TableName\":\"shelf\",\"CapacityUnits\":2.0},"
+                + "{\"TableName\":\"user_profile\",\"CapacityUnits\":4.0}]}");
+
+        TransactWriteItem shelfDelete = TransactWriteItem.builder()
+                .delete(delete -> delete.tableName("shelf").key(Map.of("shelfId", AttributeValue.fromS("a"))))
+                .build();
+        TransactWriteItem profileDelete = TransactWriteItem.builder()
+                .delete(delete -> delete.tableName("user_profile").key(Map.of("userId", AttributeValue.fromS("b"))))
+                .build();
+        dynamoDbClient.transactWriteItems(request -> request.transactItems(shelfDelete, profileDelete));
+
+        assertThat(registry.get("shelfspace.aws.calls").tags("table", "multiple").timer().count()).isEqualTo(1);
+        assertThat(registry.get("shelfspace.dynamodb.consumed.capacity").tags("table", "shelf").summary().totalAmount())
+                .isEqualTo(2.0);
+        assertThat(registry.get("shelfspace.dynamodb.consumed.capacity").tags("table", "user_profile").summary().totalAmount())
+                .isEqualTo(4.0);
+    }
+
+    @Test
+    void getItem_shouldRecordFailedCalls() {
+        httpClient.respond(400, "{\"__type\":\"com.amazonaws.dynamodb.v20120810#ResourceNotFoundException\","
+                + "\"message\":\"Requested resource not found\"}");
+
+        assertThatThrownBy(() -> dynamoDbClient.getItem(request -> request.tableName("shelf")
+                .key(Map.of("shelfId", AttributeValue.fromS("abc")))))
+                .isInstanceOf(ResourceNotFoundException.class);
+        assertThat(registry.get("shelfspace.aws.calls").tags("table", "shelf", "exception", "ResourceNotFoundException")
+                .timer().count()).isEqualTo(1);
+    }
+
+    /**
+     * HTTP client which returns the same response to every request, and remembers the last request.
+     */
+    private static class StubHttpClient implements SdkHttpClient {
+        private int status;
+        private byte[] responseBody;
+        private String lastRequestBody;
+
+        void respond(int status, String responseBody) {
+            this.status = status;
+            this.responseBody = responseBody.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+            return new ExecutableHttpRequest() {
+                @Override
+                public HttpExecuteResponse call() {
+                    try {
+                        lastRequestBody = request.contentStreamProvider().isPresent()
+                                ? new String(request.contentStreamProvider().get().newStream().readAllBytes(),
+                                StandardCharsets.UTF_8)
+                                : "";
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+
+                    SdkHttpResponse response = SdkHttpResponse.builder()
+                            .statusCode(status)
+                            .putHeader("Content-Type", "application/x-amz-json-1.0")
+                            .putHeader("Content-Length", String.valueOf(responseBody.length))
+                            .build();
+                    return HttpExecuteResponse.builder()
+                            .response(response)
+                            .responseBody(AbortableInputStream.create(new ByteArrayInputStream(responseBody)))
+                            .build();
+                }
+
+                @Override
+                public void abort() {
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+public class ControllerTimingInterceptorTest {
+    private static final long BODY_WRITE_MILLIS = 50;
+
+    private final List<String> lines = new ArrayList<>();
+    private final LambdaInvocationTelemetry telemetry = new LambdaInvocationTelemetry(Clock.systemUTC(), lines::add);
+    private final MockMvc mockMvc = MockMvcBuilders
+            .standaloneSetup(new StreamingController())
+            .addInterceptors(new ControllerTimingInterceptor())
+            .build();
+
+    @Test
+    void afterCompletion_shouldCountBodyWrittenBetweenAsyncDispatches() throws Exception {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "shelfspace.metrics.emf.enabled", "true",
+                "shelfspace.metrics.emf.namespace", "ShelfSpaceTest")));
+        telemetry.attach(context);
+
+        telemetry.recordInvocation(null, 0, () -> {
+            try {
+                MvcResult started = mockMvc.perform(get("/stream")).andReturn();
+                started.getAsyncResult();
+                mockMvc.perform(asyncDispatch(started));
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        });
+
+        JsonNode invocation = new ObjectMapper().readTree(lines.get(0));
+        assertThat(invocation.get(LambdaInvocationTelemetry.CONTROLLER_DURATION).asDouble())
+                .isGreaterThanOrEqualTo(BODY_WRITE_MILLIS);
+    }
+
+    @RestController
+    static class StreamingController {
+        @GetMapping("/stream")
+        StreamingResponseBody stream() {
+            return output -> {
+                try {
+                    Thread.sleep(BODY_WRITE_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                output.write('{');
+            };
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.services.dynamodbv2.model.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DynamoDBMetricsRequestHandlerTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final DynamoDBMetricsRequestHandler handler = new DynamoDBMetricsRequestHandler(new AwsCallMetrics(registry));
+
+    @Test
+    void beforeExecution_shouldRequestTotalConsumedCapacity() {
+        QueryRequest query = new QueryRequest("shelf_item");
+        QueryRequest queryWithIndexes = new QueryRequest("shelf_item").withReturnConsumedCapacity(ReturnConsumedCapacity.INDEXES);
+
+        handler.beforeExecution(query);
+        handler.beforeExecution(queryWithIndexes);
+
+        assertThat(query.getReturnConsumedCapacity()).isEqualTo("TOTAL");
+        assertThat(queryWithIndexes.getReturnConsumedCapacity()).isEqualTo("INDEXES");
+    }
+
+    @Test
+    void afterResponse_shouldRecordLatencyPayloadAndConsumedCapacity() {
+        DefaultRequest<QueryRequest> request = createRequest(new QueryRequest("shelf_item"), "Query");
+        request.addHeader("Content-Length", "120");
+        HttpResponse httpResponse = new HttpResponse(request, null);
+        httpResponse.addHeader("Content-Length", "2048");
+        QueryResult result = new QueryResult()
+                .withConsumedCapacity(new ConsumedCapacity().withTableName("shelf_item").withCapacityUnits(1.5));
+
+        handler.beforeRequest(request);
+        handler.afterResponse(request, new Response<>(result, httpResponse));
+
+        assertThat(registry.get("shelfspace.aws.calls")
+                .tags("service", "DynamoDb", "operation", "Query", "table", "shelf_item", "exception", "none")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get("shelfspace.aws.request.size").summary().totalAmount()).isEqualTo(120);
+        assertThat(registry.get("shelfspace.aws.response.size").summary().totalAmount()).isEqualTo(2048);
+        assertThat(registry.get("shelfspace.dynamodb.consumed.capacity").tags("table", "shelf_item").summary()
+                .totalAmount()).isEqualTo(1.5);
+    }
+
+    @Test
+    void afterResponse_shouldRecordConsumedCapacityOfBatchOperations() {
+        BatchWriteItemRequest batchWrite = new BatchWriteItemRequest(Map.of("shelf_item", List.of(), "shelf", List.of()));
+        DefaultRequest<BatchWriteItemRequest> request = createRequest(batchWrite, "BatchWriteItem");
+        BatchWriteItemResult result = new BatchWriteItemResult().withConsumedCapacity(
+                new ConsumedCapacity().withTableName("shelf_item").withCapacityUnits(25.0),
+                new ConsumedCapacity().withTableName("shelf").withCapacityUnits(1.0));
+
+        handler.beforeRequest(request);
+        handler.afterResponse(request, new Response<>(result, null));
+
+        assertThat(registry.get("shelfspace.aws.calls").tags("table", "multiple").timer().count()).isEqualTo(1);
+        assertThat(registry.get("shelfspace.dynamodb.consumed.capacity").tags("table", "shelf_item").summary()
+                .totalAmount()).isEqualTo(25.0);
+        assertThat(registry.get("shelfspace.dynamodb.consumed.capacity").tags("table", "shelf").summary()
+                .totalAmount()).isEqualTo(1.0);
+    }
+
+    @Test
+    void afterError_shouldRecordFailedCalls() {
+        DefaultRequest<GetItemRequest> request = createRequest(new GetItemRequest().withTableName("shelf"), "GetItem");
+
+        handler.beforeRequest(request);
+        handler.afterError(request, null, new ResourceNotFoundException("Requested resource not found"));
+
+        assertThat(registry.get("shelfspace.aws.calls")
+                .tags("operation", "GetItem", "table", "shelf", "exception", "ResourceNotFoundException")
+                .timer().count()).isEqualTo(1);
+    }
+
+    private static <T extends AmazonWebServiceRequest> DefaultRequest<T> createRequest(T originalRequest,
+                                                                                     String operation) {
+        DefaultRequest<T> request = new DefaultRequest<>(originalRequest, "AmazonDynamoDBv2");
+        request.addHandlerContext(HandlerContextKey.OPERATION_NAME, operation);
+        return request;
+    }
+}
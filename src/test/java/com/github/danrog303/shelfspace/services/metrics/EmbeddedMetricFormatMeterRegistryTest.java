@@ -0,0 +1,60 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MockClock;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class EmbeddedMetricFormatMeterRegistryTest {
+    private final MockClock clock = new MockClock();
+    private final List<String> lines = new ArrayList<>();
+    private final EmbeddedMetricFormatMeterRegistry registry = new EmbeddedMetricFormatMeterRegistry(
+            Map.of("shelfspace.metrics.emf.namespace", "ShelfSpaceTest")::get, clock, lines::add);
+
+    @Test
+    void publish_shouldWriteTimersInEmbeddedMetricFormat() throws Exception {
+        Timer timer = Timer.builder("shelfspace.aws.calls")
+                .tags("operation", "GetItem", "table", "shelf")
+                .publishPercentiles(0.95)
+                .register(registry);
+        timer.record(Duration.ofMillis(20));
+        timer.record(Duration.ofMillis(40));
+        clock.add(Duration.ofMinutes(1));
+
+        registry.publish();
+
+        assertThat(lines).hasSize(1);
+        JsonNode line = new ObjectMapper().readTree(lines.get(0));
+        JsonNode directive = line.get("_aws").get("CloudWatchMetrics").get(0);
+        assertThat(line.get("_aws").get("Timestamp").asLong()).isEqualTo(clock.wallTime());
+        assertThat(directive.get("Namespace").asText()).isEqualTo("ShelfSpaceTest");
+        assertThat(directive.get("Dimensions").get(0)).hasSize(2);
+        assertThat(directive.get("Metrics").findValuesAsText("Name")).containsExactly("shelfspace.aws.calls.count",
+                "shelfspace.aws.calls.sum", "shelfspace.aws.calls.max", "shelfspace.aws.calls.p95");
+        assertThat(line.get("operation").asText()).isEqualTo("GetItem");
+        assertThat(line.get("table").asText()).isEqualTo("shelf");
+        assertThat(line.get("shelfspace.aws.calls.count").asDouble()).isEqualTo(2);
+        assertThat(line.get("shelfspace.aws.calls.sum").asDouble()).isEqualTo(60);
+        assertThat(line.get("shelfspace.aws.calls.p95").asDouble()).isCloseTo(40, within(1.0));
+    }
+
+    @Test
+    void publish_shouldSkipUnusedAndUnselectedMeters() {
+        registry.counter("shelfspace.optimistic.locking.conflicts", "operation", "deleteShelf");
+        registry.counter("jvm.gc.pause").increment();
+        clock.add(Duration.ofMinutes(1));
+
+        registry.publish();
+
+        assertThat(lines).isEmpty();
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LambdaInvocationTelemetryTest {
+    private final List<String> lines = new ArrayList<>();
+    private final LambdaInvocationTelemetry telemetry = new LambdaInvocationTelemetry(Clock.systemUTC(), lines::add);
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    @Test
+    void recordInvocation_shouldSplitHandlerTimeAndTagStartType() throws Exception {
+        telemetry.attach(createContext(true));
+
+        telemetry.recordInvocation(null, 3_000_000, () -> LambdaInvocationTelemetry.addControllerTime(2_000_000));
+        telemetry.recordInvocation(null, 0, () -> LambdaInvocationTelemetry.addControllerTime(1_000_000));
+        telemetry.markRestored(4_000_000);
+        telemetry.recordInvocation(null, 0, () -> {
+        });
+
+        // The context was not refreshed, so there is no initialization to report
+        assertThat(lines).hasSize(3);
+        JsonNode cold = jsonMapper.readTree(lines.get(0));
+        assertThat(cold.get("startType").asText()).isEqualTo("COLD");
+        assertThat(cold.get("_aws").get("CloudWatchMetrics").get(0).get("Namespace").asText()).isEqualTo("ShelfSpaceTest");
+        assertThat(cold.get(LambdaInvocationTelemetry.CONTROLLER_DURATION).asDouble()).isEqualTo(2.0);
+        assertThat(cold.get(LambdaInvocationTelemetry.INIT_WAIT).asDouble()).isEqualTo(3.0);
+        assertThat(cold.get(LambdaInvocationTelemetry.PROXY_OVERHEAD).asDouble()).isEqualTo(
+                cold.get(LambdaInvocationTelemetry.HANDLER_DURATION).asDouble() - 2.0);
+
+        JsonNode warm = jsonMapper.readTree(lines.get(1));
+        assertThat(warm.get("startType").asText()).isEqualTo("WARM");
+        assertThat(warm.get(LambdaInvocationTelemetry.CONTROLLER_DURATION).asDouble()).isEqualTo(1.0);
+        assertThat(warm.has(LambdaInvocationTelemetry.INIT_WAIT)).isFalse();
+
+        JsonNode restored = jsonMapper.readTree(lines.get(2));
+        assertThat(restored.get("startType").asText()).isEqualTo("RESTORED");
+        assertThat(restored.get(LambdaInvocationTelemetry.RESTORE_DURATION).asDouble()).isEqualTo(4.0);
+        assertThat(restored.get(LambdaInvocationTelemetry.CONTROLLER_DURATION).asDouble()).isZero();
+    }
+
+    @Test
+    void reportInitialization_shouldWriteStartupStepsOnce() throws Exception {
+        GenericApplicationContext context = createContext(true);
+        context.registerBean("sampleBean", StringBuilder.class);
+        telemetry.attach(context);
+        context.refresh();
+
+        telemetry.reportInitialization();
+        telemetry.recordInvocation(null, 0, () -> {
+        });
+
+        assertThat(lines).hasSize(2);
+        JsonNode init = jsonMapper.readTree(lines.get(0));
+        assertThat(init.get(LambdaInvocationTelemetry.INIT_DURATION).asDouble())
+                .isGreaterThanOrEqualTo(init.get(LambdaInvocationTelemetry.CONTEXT_REFRESH_DURATION).asDouble());
+        assertThat(init.get(LambdaInvocationTelemetry.INIT_PHASES).has("spring.context.refresh")).isTrue();
+        assertThat(init.get(LambdaInvocationTelemetry.SLOWEST_BEANS).has("sampleBean")).isTrue();
+        assertThat(jsonMapper.readTree(lines.get(1)).get("startType").asText()).isEqualTo("COLD");
+    }
+
+    @Test
+    void recordInvocation_shouldWriteNothingWhenDisabled() throws Exception {
+        GenericApplicationContext context = createContext(false);
+        telemetry.attach(context);
+        context.refresh();
+
+        telemetry.recordInvocation(null, 0, () -> {
+        });
+
+        assertThat(lines).isEmpty();
+    }
+
+    private static GenericApplicationContext createContext(boolean enabled) {
+        GenericApplicationContext context = new GenericApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", Map.of(
+                "shelfspace.metrics.emf.enabled", String.valueOf(enabled),
+                "shelfspace.metrics.emf.namespace", "ShelfSpaceTest")));
+        return context;
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupReportTest {
+    @Test
+    void render_shouldSummarizeInvocationsAndInitialization() {
+        StartupReport report = new StartupReport();
+        report.add("{\"_aws\":{},\"shelfspace.lambda.init.duration\":2500.0,"
+                + "\"shelfspace.lambda.init.context.refresh\":2100.0,"
+                + "\"initPhases\":{\"spring.context.refresh\":2100.0},\"slowestBeans\":{\"dynamoDbClient\":450.5}}");
+        report.add("2023-03-01T10:00:00Z\t{\"_aws\":{},\"startType\":\"COLD\",\"shelfspace.lambda.handler.duration\":900.0,"
+                + "\"shelfspace.lambda.proxy.overhead\":300.0,\"shelfspace.lambda.controller.duration\":600.0,"
+                + "\"shelfspace.lambda.init.wait\":0.0}");
+        for (int i = 0; i < 3; i++) {
+            report.add("{\"_aws\":{},\"startType\":\"WARM\",\"shelfspace.lambda.handler.duration\":20.0,"
+                    + "\"shelfspace.lambda.proxy.overhead\":5.0,\"shelfspace.lambda.controller.duration\":15.0}");
+        }
+        report.add("REPORT RequestId: 1 Duration: 900.00 ms Billed Duration: 900 ms Init Duration: 3000.50 ms");
+        report.add("Started the application in 2.5 seconds");
+
+        String rendered = report.render();
+
+        assertThat(rendered).contains("Invocations: 4");
+        assertThat(rendered).containsPattern("COLD +1 +25\\.0 %");
+        assertThat(rendered).containsPattern("WARM +3 +75\\.0 %");
+        assertThat(rendered).containsPattern("WARM lambda.proxy.overhead +3 +5\\.0");
+        assertThat(rendered).containsPattern("COLD lambda.init.wait +1 +0\\.0");
+        assertThat(rendered).containsPattern("lambda.init.duration \\(platform\\) +1 +3000\\.5");
+        assertThat(rendered).containsPattern("dynamoDbClient +450\\.5");
+    }
+
+    @Test
+    void percentile_shouldUseNearestRank() {
+        List<Double> sorted = List.of(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0);
+
+        assertThat(StartupReport.percentile(sorted, 0.5)).isEqualTo(5.0);
+        assertThat(StartupReport.percentile(sorted, 0.95)).isEqualTo(10.0);
+        assertThat(StartupReport.percentile(List.of(7.0), 0.99)).isEqualTo(7.0);
+    }
+}
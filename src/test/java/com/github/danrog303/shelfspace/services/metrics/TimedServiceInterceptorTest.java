@@ -0,0 +1,60 @@
+package com.github.danrog303.shelfspace.services.metrics;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.lang.reflect.Method;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TimedServiceInterceptorTest {
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void invoke_shouldTimeSuccessfulAndFailedCalls() {
+        SampleService service = createProxy(new SampleService());
+
+        service.findShelf("abc");
+        service.findShelf("abc");
+        assertThatThrownBy(() -> service.findShelf("missing")).isInstanceOf(NoSuchElementException.class);
+
+        assertThat(registry.get("shelfspace.service.calls")
+                .tags("class", "SampleService", "method", "findShelf", "exception", "none")
+                .timer().count()).isEqualTo(2);
+        assertThat(registry.get("shelfspace.service.calls")
+                .tags("class", "SampleService", "method", "findShelf", "exception", "NoSuchElementException")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void isTimed_shouldMatchOnlyPublicMethodsOfAnnotatedClasses() throws Exception {
+        Method findShelf = SampleService.class.getMethod("findShelf", String.class);
+        Method toString = Object.class.getMethod("toString");
+
+        assertThat(TimedServiceInterceptor.isTimed(findShelf, SampleService.class)).isTrue();
+        assertThat(TimedServiceInterceptor.isTimed(toString, SampleService.class)).isFalse();
+        assertThat(TimedServiceInterceptor.isTimed(findShelf, Object.class)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T createProxy(T target) {
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvisor(TimedServiceInterceptor.createAdvisor(registry));
+        return (T) proxyFactory.getProxy();
+    }
+
+    @Timed("shelfspace.service.calls")
+    public static class SampleService {
+        public String findShelf(String shelfId) {
+            if (shelfId.equals("missing")) {
+                throw new NoSuchElementException("Shelf does not exist.");
+            }
+            return shelfId;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.danrog303.shelfspace.services.security;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingJwtDecoderTest {
+    private static final Instant NOW = Instant.parse("2023-03-01T10:00:00Z");
+
+    private @Mock JwtDecoder delegate;
+
+    private Jwt createJwt(String token, Instant expiresAt) {
+        return Jwt.withTokenValue(token)
+                .header("alg", "RS256")
+                .subject("38860c35-637c-4d10-9aad-fc1353ee3aa0")
+                .issuedAt(NOW.minusSeconds(60))
+                .expiresAt(expiresAt)
+                .build();
+    }
+
+    @Test
+    void decode_shouldVerifyTokenOnlyOnce() {
+        when(delegate.decode("token")).thenReturn(createJwt("token", NOW.plusSeconds(3600)));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        Jwt first = decoder.decode("token");
+        Jwt second = decoder.decode("token");
+
+        assertThat(second).isSameAs(first);
+        verify(delegate, times(1)).decode("token");
+    }
+
+    @Test
+    void decode_shouldVerifyExpiredTokenAgain() {
+        when(delegate.decode("token")).thenReturn(createJwt("token", NOW.minusSeconds(1)));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        decoder.decode("token");
+        decoder.decode("token");
+
+        verify(delegate, times(2)).decode("token");
+    }
+
+    @Test
+    void decode_shouldNotCacheRejectedTokens() {
+        when(delegate.decode("token")).thenThrow(new BadJwtException("Invalid signature"));
+        CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        assertThatThrownBy(() -> decoder.decode("token")).isInstanceOf(BadJwtException.class);
+        assertThatThrownBy(() -> decoder.decode("token")).isInstanceOf(BadJwtException.class);
+        verify(delegate, times(2)).decode("token");
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.danrog303.shelfspace.services.security;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.KeySourceException;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PrefetchingJwkSourceTest {
+    private HttpServer authServer;
+    private volatile String publishedJwkSet;
+    private PrefetchingJwkSource jwkSource;
+
+    @BeforeEach
+    void createJwkSource() throws IOException {
+        // Serves the most recently published key set, or HTTP 404 when no key set is published
+        authServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        authServer.createContext("/jwks", exchange -> {
+            String jwkSet = publishedJwkSet;
+            if (jwkSet == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                byte[] body = jwkSet.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            }
+            exchange.close();
+        });
+        authServer.start();
+
+        URL jwkSetUrl = new URL("http://localhost:" + authServer.getAddress().getPort() + "/jwks");
+        Clock clock = Clock.fixed(Instant.parse("2023-03-01T10:00:00Z"), ZoneOffset.UTC);
+        jwkSource = new PrefetchingJwkSource(jwkSetUrl, Duration.ofHours(1), Duration.ofSeconds(30), clock);
+    }
+
+    @AfterEach
+    void destroyJwkSource() {
+        jwkSource.destroy();
+        authServer.stop(0);
+    }
+
+    private void publishKeys(RSAKey... keys) {
+        publishedJwkSet = new JWKSet(List.of(keys)).toPublicJWKSet().toString();
+    }
+
+    private JWKSelector selectorFor(String keyId) {
+        return new JWKSelector(new JWKMatcher.Builder().keyID(keyId).build());
+    }
+
+    @Test
+    void get_shouldReturnPrefetchedKeysWithoutFetchingThemAgain() throws IOException, JOSEException {
+        RSAKey key = new RSAKeyGenerator(2048).keyID("k1").generate();
+        publishKeys(key);
+        jwkSource.refresh();
+        publishedJwkSet = null;
+
+        assertThat(jwkSource.get(selectorFor("k1"), null)).hasSize(1);
+    }
+
+    @Test
+    void get_shouldFetchKeysWhenNotPrefetched() throws IOException, JOSEException {
+        publishKeys(new RSAKeyGenerator(2048).keyID("k1").generate());
+
+        assertThat(jwkSource.get(selectorFor("k1"), null)).hasSize(1);
+    }
+
+    @Test
+    void get_shouldRefreshKeysOnlyOnceWithinMinimumInterval() throws IOException, JOSEException {
+        publishKeys(new RSAKeyGenerator(2048).keyID("k1").generate());
+        jwkSource.get(selectorFor("k1"), null);
+
+        // Rotated key is not fetched again, because the key set was fetched a moment ago
+        publishKeys(new RSAKeyGenerator(2048).keyID("k2").generate());
+        assertThat(jwkSource.get(selectorFor("k2"), null)).isEmpty();
+    }
+
+    @Test
+    void get_shouldThrowWhenKeysCannotBeFetched() {
+        jwkSource.refreshQuietly();
+
+        assertThatThrownBy(() -> jwkSource.get(selectorFor("k1"), null)).isInstanceOf(KeySourceException.class);
+    }
+}